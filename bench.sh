@@ -0,0 +1,71 @@
+#!/bin/bash
+
+# =============================================================================
+# JMH benchmarks for Biotak calculation and matching hot paths
+# =============================================================================
+# Usage:
+#   ./bench.sh                 -> Run all benchmarks with -prof gc
+#   ./bench.sh Ruler           -> Run benchmarks matching a regex
+#   ./bench.sh Ruler -p bars=1000 -f 0   -> Extra JMH options are passed through
+#   ./bench.sh -prof stack     -> Options only: all benchmarks, the given profiler replaces gc
+#   ./bench.sh replay <file.btkr> [runs] -> Replay a recorded session (replay.record.enabled=true)
+#
+# Requires (not checked in, same as the SDK):
+#   lib/mwave_sdk.jar
+#   lib/jmh-core-1.37.jar, lib/jmh-generator-annprocess-1.37.jar,
+#   lib/jopt-simple-5.0.4.jar, lib/commons-math3-3.6.1.jar
+# Benchmarks run against in-memory DataSeries/Instrument stand-ins (bench/com/biotak/bench),
+# so MotiveWave does not need to be running.
+# =============================================================================
+
+set -e
+
+JAVA_HOME=${JAVA_HOME:-"/c/Program Files/Java/jdk-24"}
+JAVAC_CMD="$JAVA_HOME/bin/javac"
+JAVA_CMD="$JAVA_HOME/bin/java"
+
+MWAVE_SDK_JAR="lib/mwave_sdk.jar"
+JMH_VERSION="1.37"
+JMH_CP="lib/jmh-core-$JMH_VERSION.jar:lib/jmh-generator-annprocess-$JMH_VERSION.jar:lib/jopt-simple-5.0.4.jar:lib/commons-math3-3.6.1.jar"
+BENCH_DIR="build/bench-classes"
+RESULT_FILE="bench_output.txt"
+
+for jar in $MWAVE_SDK_JAR ${JMH_CP//:/ }; do
+    if [ ! -f "$jar" ]; then
+        echo "[ERROR] Missing $jar" >&2
+        exit 1
+    fi
+done
+
+rm -rf "$BENCH_DIR"
+mkdir -p "$BENCH_DIR"
+
+FILE_LIST="build/bench_files.txt"
+find src bench -name "*.java" -type f > "$FILE_LIST"
+"$JAVAC_CMD" -cp "$MWAVE_SDK_JAR:$JMH_CP" -processorpath "$JMH_CP" -d "$BENCH_DIR" -nowarn @"$FILE_LIST"
+rm -f "$FILE_LIST"
+
+if [ "$1" = "replay" ]; then
+    shift
+    "$JAVA_CMD" -cp "$BENCH_DIR:$MWAVE_SDK_JAR" com.biotak.bench.SessionReplayer "$@"
+    exit 0
+fi
+
+# A leading argument that is not an option is the benchmark regex; everything else goes to JMH
+FILTER="com.biotak.bench"
+if [ $# -gt 0 ] && [ "${1#-}" = "$1" ]; then
+    FILTER="$1"
+    shift
+fi
+
+# Default profiler only when the caller did not pick one
+PROF_ARGS="-prof gc"
+for arg in "$@"; do
+    if [ "$arg" = "-prof" ]; then
+        PROF_ARGS=""
+        break
+    fi
+done
+
+"$JAVA_CMD" -cp "$BENCH_DIR:$MWAVE_SDK_JAR:$JMH_CP" org.openjdk.jmh.Main "$FILTER" $PROF_ARGS -rf text -rff "$RESULT_FILE" "$@"
+echo "[SUCCESS] Results written to $RESULT_FILE"
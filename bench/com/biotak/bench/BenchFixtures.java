@@ -0,0 +1,256 @@
+package com.biotak.bench;
+
+import com.motivewave.platform.sdk.common.BarSize;
+import com.motivewave.platform.sdk.common.DataSeries;
+import com.motivewave.platform.sdk.common.FontInfo;
+import com.motivewave.platform.sdk.common.Instrument;
+import com.motivewave.platform.sdk.common.PathInfo;
+import com.motivewave.platform.sdk.common.Settings;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-ins for {@link DataSeries}, {@link Instrument} and {@link Settings}
+ * so the benchmarks run without a MotiveWave host.
+ * <p>
+ * کلاس‌های ساده با آرایه‌های اولیه: each stand-in is a plain class over primitive arrays or a
+ * map, exposed through a {@link #delegate} proxy of the SDK interface. An interface method runs
+ * the stand-in's public method of the same signature; any other returns the type's default
+ * ({@code null}, {@code 0} or {@code false}), so the stand-ins compile against any SDK version.
+ */
+public final class BenchFixtures {
+
+    private BenchFixtures() {}
+
+    /** Deterministic random-walk OHLC arrays. */
+    public static final class Bars {
+        public final double[] open, high, low, close;
+        public final long[] time;
+
+        Bars(int count, double startPrice, double tick, long seed) {
+            open = new double[count];
+            high = new double[count];
+            low = new double[count];
+            close = new double[count];
+            time = new long[count];
+            Random rnd = new Random(seed);
+            double price = startPrice;
+            long t = 1_700_000_000_000L;
+            for (int i = 0; i < count; i++) {
+                double o = price;
+                double c = o + (rnd.nextGaussian() * 20 * tick);
+                double h = Math.max(o, c) + rnd.nextInt(15) * tick;
+                double l = Math.min(o, c) - rnd.nextInt(15) * tick;
+                open[i] = o; high[i] = h; low[i] = l; close[i] = c;
+                time[i] = t;
+                t += 60_000L;
+                price = c;
+            }
+        }
+    }
+
+    public static Bars bars(int count, double startPrice, double tick) {
+        return new Bars(count, startPrice, tick, 42L);
+    }
+
+    public static Instrument instrument(String symbol, double tick) {
+        return delegate(Instrument.class, new BenchInstrument(symbol, tick));
+    }
+
+    public static DataSeries series(Bars bars, Instrument instrument, BarSize barSize) {
+        ArraySeries series = new ArraySeries(instrument, barSize, bars.close.length);
+        for (int i = 0; i < bars.close.length; i++) {
+            series.set(i, bars.time[i], bars.open[i], bars.high[i], bars.low[i], bars.close[i], i < bars.close.length - 1);
+        }
+        series.size = bars.close.length;
+        return series.asDataSeries();
+    }
+
+    /**
+     * Settings backed by a plain map. Path lookups return a single shared {@link PathInfo}.
+     */
+    public static Settings settings(Map<String, Object> values) {
+        return delegate(Settings.class, new MapSettings(values));
+    }
+
+    /** Instrument with a fixed symbol and tick size. */
+    static final class BenchInstrument {
+        private final String symbol;
+        private final double tick;
+        private final int decimals;
+
+        BenchInstrument(String symbol, double tick) {
+            this.symbol = symbol;
+            this.tick = tick;
+            this.decimals = Math.max(0, (int) Math.round(-Math.log10(tick)));
+        }
+
+        public String getSymbol() { return symbol; }
+        public double getTickSize() { return tick; }
+        public double round(double v) { return Math.round(v / tick) * tick; }
+        public String format(double v) { return String.format("%." + decimals + "f", v); }
+        public long getStartOfDay(long time, boolean rth) { return time - Math.floorMod(time, 86_400_000L); }
+        public long getEndOfDay(long time, boolean rth) { return getStartOfDay(time, rth) + 86_400_000L; }
+        @Override public String toString() { return symbol; }
+    }
+
+    /**
+     * OHLC series over primitive arrays. {@link #size} is set by the caller, so the replayer can
+     * grow it bar by bar; {@link #set} grows the arrays as needed. The study sees it through
+     * {@link #asDataSeries()}.
+     */
+    static final class ArraySeries {
+        private final DataSeries view = delegate(DataSeries.class, this);
+        private final Instrument instrument;
+        private final BarSize barSize;
+        private final long barMillis;
+        private long[] time;
+        private double[] open, high, low, close;
+        private boolean[] complete;
+        int size;
+
+        ArraySeries(Instrument instrument, BarSize barSize, int capacity) {
+            this.instrument = instrument;
+            this.barSize = barSize;
+            this.barMillis = com.biotak.util.TimeframeUtil.getTotalSeconds(barSize) * 1000L;
+            int n = Math.max(1, capacity);
+            time = new long[n];
+            open = new double[n];
+            high = new double[n];
+            low = new double[n];
+            close = new double[n];
+            complete = new boolean[n];
+        }
+
+        DataSeries asDataSeries() { return view; }
+
+        int capacity() { return time.length; }
+
+        void set(int i, long t, double o, double h, double l, double c, boolean done) {
+            if (i >= time.length) {
+                int n = Math.max(i + 1, time.length * 2);
+                time = Arrays.copyOf(time, n);
+                open = Arrays.copyOf(open, n);
+                high = Arrays.copyOf(high, n);
+                low = Arrays.copyOf(low, n);
+                close = Arrays.copyOf(close, n);
+                complete = Arrays.copyOf(complete, n);
+            }
+            time[i] = t; open[i] = o; high[i] = h; low[i] = l; close[i] = c; complete[i] = done;
+        }
+
+        public int size() { return size; }
+        public Instrument getInstrument() { return instrument; }
+        public BarSize getBarSize() { return barSize; }
+        public double getOpen(int i) { return open[i]; }
+        public double getHigh(int i) { return high[i]; }
+        public double getLow(int i) { return low[i]; }
+        public double getClose(int i) { return close[i]; }
+        public double getBidClose(int i) { return close[i]; }
+        public double getAskClose(int i) { return close[i]; }
+        public long getStartTime(int i) { return time[i]; }
+        public long getEndTime(int i) { return i + 1 < size ? time[i + 1] : time[i] + barMillis; }
+        public boolean isBarComplete(int i) { return complete[i]; }
+        public boolean isComplete(int i) { return complete[i]; }
+        public void setComplete(int i) { }
+        public double getHigh() { return size > 0 ? high[size - 1] : 0; }
+        public double getLow() { return size > 0 ? low[size - 1] : 0; }
+        public double getClose() { return size > 0 ? close[size - 1] : 0; }
+        public long getStartTime() { return size > 0 ? time[size - 1] : 0; }
+        public float getVolume(int i) { return 0f; }
+        public Double getDouble(int i, Object key) { return null; }
+
+        public int findIndex(long t) {
+            int idx = Arrays.binarySearch(time, 0, size, t);
+            return idx >= 0 ? idx : Math.max(0, -idx - 2);
+        }
+
+        @Override public String toString() { return "ArraySeries[" + size + "]"; }
+    }
+
+    /** Settings over a map; typed getters unwrap the stored value or return the default. */
+    static final class MapSettings {
+        private final Map<String, Object> store;
+        private final PathInfo path = new PathInfo(java.awt.Color.BLUE, 1.0f, null, true, false, false, 0, 1);
+
+        MapSettings(Map<String, Object> values) {
+            this.store = new HashMap<>(values);
+        }
+
+        public double getDouble(String k, double d) { return store.get(k) instanceof Number n ? n.doubleValue() : d; }
+        public Double getDouble(String k) { return store.get(k) instanceof Number n ? n.doubleValue() : null; }
+        public int getInteger(String k, int d) { return store.get(k) instanceof Number n ? n.intValue() : d; }
+        public Integer getInteger(String k) { return store.get(k) instanceof Number n ? n.intValue() : null; }
+        public boolean getBoolean(String k, boolean d) { return store.get(k) instanceof Boolean b ? b : d; }
+        public Boolean getBoolean(String k) { return store.get(k) instanceof Boolean b ? b : Boolean.FALSE; }
+        public String getString(String k, String d) { return store.get(k) instanceof String v ? v : d; }
+        public String getString(String k) { return store.get(k) instanceof String v ? v : null; }
+        public void setDouble(String k, double v) { store.put(k, v); }
+        public void setInteger(String k, int v) { store.put(k, v); }
+        public void setBoolean(String k, boolean v) { store.put(k, v); }
+        public void setString(String k, String v) { store.put(k, v); }
+        public FontInfo getFont(String k) { return null; }
+        public PathInfo getPath(String k) { return path; }
+        public java.awt.Color getColor(String k) { return null; }
+        public java.awt.Color getColor(String k, java.awt.Color d) { return d; }
+        public void setColor(String k, java.awt.Color c) { }
+        public boolean isTrue(String k) { return getBoolean(k, false); }
+    }
+
+    /**
+     * {@code type} over {@code target}: each call runs {@code target}'s public method of the same
+     * name and parameter types, looked up once per interface method; without one it returns
+     * {@link #defaultValue}. Equality and hash code are the proxy's identity.
+     */
+    static <T> T delegate(Class<T> type, Object target) {
+        Map<Method, Optional<Method>> resolved = new ConcurrentHashMap<>();
+        return proxy(type, (p, m, a) -> {
+            if (m.getName().equals("equals") && m.getParameterCount() == 1) return p == a[0];
+            if (m.getName().equals("hashCode") && m.getParameterCount() == 0) return System.identityHashCode(p);
+            Method impl = resolved.computeIfAbsent(m, k -> find(target.getClass(), k)).orElse(null);
+            if (impl == null) return defaultValue(m.getReturnType());
+            try {
+                return impl.invoke(target, a);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private static Optional<Method> find(Class<?> impl, Method m) {
+        try {
+            Method found = impl.getMethod(m.getName(), m.getParameterTypes());
+            found.setAccessible(true); // the stand-in classes are package-private
+            return Optional.of(found);
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(BenchFixtures.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) return null;
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0d;
+        if (type == float.class) return 0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return (char) 0;
+        return null; // void
+    }
+}
@@ -0,0 +1,39 @@
+package com.biotak.bench;
+
+import com.biotak.util.FractalUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-redraw ruler lookup maps built in BiotakTrigger.drawFigures.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FractalMapBenchmark {
+
+    @Benchmark
+    public Map<String, Double> buildMMap(SeriesState s) {
+        return FractalUtil.buildMMap(s.instrument, s.basePrice, com.biotak.util.Constants.TH_TO_M_FACTOR);
+    }
+
+    @Benchmark
+    public Map<String, Double> buildStepValuesMapE(SeriesState s) {
+        return FractalUtil.buildStepValuesMap(s.instrument, s.basePrice, "E");
+    }
+
+    @Benchmark
+    public Map<String, Double> buildComprehensiveATRMap(SeriesState s) {
+        return FractalUtil.buildComprehensiveATRMap(s.basePrice, s.instrument);
+    }
+}
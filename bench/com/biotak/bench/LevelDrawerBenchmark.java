@@ -0,0 +1,66 @@
+package com.biotak.bench;
+
+import com.biotak.enums.LevelKind;
+import com.biotak.ui.LevelDrawer;
+import com.biotak.ui.LevelStyle;
+import com.biotak.util.OptimizedCalculations;
+import com.biotak.util.TimeframeUtil;
+import com.motivewave.platform.sdk.draw.Figure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.biotak.config.SettingsRepository.*;
+
+/**
+ * TH ladder construction. The level count grows with the historical range, so larger
+ * series produce more Line figures per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevelDrawerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Ladder {
+        public LevelStyle style;
+        public double thStepInPoints;
+        public double midpoint;
+
+        @Setup
+        public void setUp(SeriesState s) {
+            style = LevelStyle.from(BenchFixtures.settings(Map.of(
+                S_MAX_LEVELS_ABOVE, 100,
+                S_MAX_LEVELS_BELOW, 100,
+                S_SHOW_STRUCTURE_LINES, true,
+                S_SHOW_STRUCT_L1, true,
+                S_SHOW_STRUCT_L2, true,
+                S_SHOW_STRUCT_L3, true,
+                S_SHOW_STRUCT_L4, true,
+                S_SHOW_STRUCT_L5, true,
+                S_SHOW_TRIGGER_LEVELS, true)));
+            double perc = TimeframeUtil.getTimeframePercentage(s.series.getBarSize());
+            thStepInPoints = OptimizedCalculations.calculateTHPoints(s.instrument, s.basePrice, perc);
+            midpoint = (s.high + s.low) / 2.0;
+        }
+    }
+
+    @Benchmark
+    public List<Figure> drawTHLevels(SeriesState s, Ladder l) {
+        return LevelDrawer.drawTHLevels(l.style, s.instrument.getTickSize(), l.midpoint, s.high, s.low,
+                l.thStepInPoints, s.series.getStartTime(0), s.series.getStartTime(s.bars - 1), LevelKind.TH, null);
+    }
+}
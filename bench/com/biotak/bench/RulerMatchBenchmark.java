@@ -0,0 +1,59 @@
+package com.biotak.bench;
+
+import com.biotak.core.RulerService;
+import com.biotak.util.FractalUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ruler matching as done on every RulerFigure.draw while the user drags the ruler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RulerMatchBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Maps {
+        @Param({"12.5", "87.0", "640.0"})
+        public double legPip;
+
+        public Map<String, Double> mMap;
+        public Map<String, Double> atrMap;
+        public double structureAtr;
+
+        @Setup
+        public void setUp(SeriesState s) {
+            mMap = FractalUtil.buildMMap(s.instrument, s.basePrice, com.biotak.util.Constants.TH_TO_M_FACTOR);
+            atrMap = FractalUtil.buildComprehensiveATRMap(s.basePrice, s.instrument);
+            // The series scan is not part of the match; RulerFigure reads it from the published snapshot
+            structureAtr = com.biotak.util.OptimizedCalculations.calculateATROptimized(s.series, 24);
+        }
+    }
+
+    @Benchmark
+    public RulerService.MResult matchM(SeriesState s, Maps m) {
+        double tick = s.instrument.getTickSize();
+        return RulerService.matchM(s.instrument, m.legPip, tick, s.basePrice, m.mMap, com.biotak.util.Constants.TH_TO_M_FACTOR);
+    }
+
+    @Benchmark
+    public RulerService.ATRResult matchATR(SeriesState s, Maps m) {
+        double tick = s.instrument.getTickSize();
+        return RulerService.matchATRWithInstrumentAndPrice(m.legPip, tick, m.atrMap, 5, m.structureAtr, s.instrument, s.basePrice);
+    }
+}
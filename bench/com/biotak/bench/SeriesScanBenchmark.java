@@ -0,0 +1,40 @@
+package com.biotak.bench;
+
+import com.biotak.util.OptimizedCalculations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Series scans: ATR over the last period bars and min/max over the whole series
+ * (getHistoricalRange caps at 1000 bars, the full-range case shows the cost without the cap).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeriesScanBenchmark {
+
+    @Benchmark
+    public double calculateATROptimized(SeriesState s) {
+        return OptimizedCalculations.calculateATROptimized(s.series, 24);
+    }
+
+    @Benchmark
+    public double[] findMinMaxLast1000(SeriesState s) {
+        int size = s.series.size();
+        return OptimizedCalculations.findMinMaxOptimized(s.series, Math.max(0, size - 1000), size);
+    }
+
+    @Benchmark
+    public double[] findMinMaxFull(SeriesState s) {
+        return OptimizedCalculations.findMinMaxOptimized(s.series, 0, s.series.size());
+    }
+}
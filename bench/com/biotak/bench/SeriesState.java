@@ -0,0 +1,41 @@
+package com.biotak.bench;
+
+import com.motivewave.platform.sdk.common.BarSize;
+import com.motivewave.platform.sdk.common.DataSeries;
+import com.motivewave.platform.sdk.common.Instrument;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shared benchmark state: an EURUSD-like M5 series of 1k / 10k / 100k bars.
+ */
+@State(Scope.Benchmark)
+public class SeriesState {
+
+    @Param({"1000", "10000", "100000"})
+    public int bars;
+
+    public Instrument instrument;
+    public DataSeries series;
+    public double basePrice;
+    public double high;
+    public double low;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        double tick = 0.00001;
+        instrument = BenchFixtures.instrument("EUR/USD", tick);
+        BenchFixtures.Bars data = BenchFixtures.bars(bars, 1.10000, tick);
+        series = BenchFixtures.series(data, instrument, BarSize.getBarSize(5));
+        basePrice = data.close[bars - 1];
+        high = Double.NEGATIVE_INFINITY;
+        low = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < bars; i++) {
+            high = Math.max(high, data.high[i]);
+            low = Math.min(low, data.low[i]);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.biotak.bench;
+
+import com.biotak.BiotakTrigger;
+import com.biotak.debug.LatencyHistogram;
+import com.biotak.debug.SessionRecorder;
+import com.biotak.util.ComputationCache;
+import com.motivewave.platform.sdk.common.BarSize;
+import com.motivewave.platform.sdk.common.DataContext;
+import com.motivewave.platform.sdk.common.Enums;
+import com.motivewave.platform.sdk.common.Instrument;
+import com.motivewave.platform.sdk.common.Settings;
+import com.motivewave.platform.sdk.draw.Figure;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * بازپخش جلسه ضبط‌شده - Headless replay of a {@link SessionRecorder} file.
+ * <p>
+ * Drives a fresh {@link BiotakTrigger} with the recorded calculate/onBarUpdate sequence,
+ * bar snapshots and setting changes against in-memory stand-ins, as fast as possible,
+ * and prints throughput, latency percentiles and figure counts. The figure checksum
+ * makes two builds comparable on the same recording.
+ * <p>
+ * Level computations run inline on the replay thread instead of the study's lane, so each
+ * timed call includes the work it triggers and every figure is counted on one thread. The
+ * first exception, from a callback or a level computation, aborts the run.
+ * <pre>
+ *   ./bench.sh replay recordings/EURUSD_5MINUTE_20250801_101500.btkr [runs]
+ * </pre>
+ */
+public final class SessionReplayer {
+
+    /** One recorded event, decoded up front so I/O is not part of the measurement. */
+    private record Event(byte tag, int index, int seriesSize, long time,
+                         double open, double high, double low, double close, boolean complete,
+                         String key, Object value) {}
+
+    private record Session(String symbol, double tickSize, BarSize barSize, List<Event> events) {}
+
+    /** Replay results for one run. */
+    public record Report(int events, int calls, long wallNanos, LatencyHistogram.Snapshot calculate,
+                         LatencyHistogram.Snapshot barUpdate, long figuresAdded, long redraws,
+                         int maxFiguresPerRedraw, long figureChecksum) {
+
+        public double callsPerSecond() {
+            return wallNanos == 0 ? 0 : calls * 1e9 / wallNanos;
+        }
+    }
+
+    private SessionReplayer() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SessionReplayer <file.btkr> [runs]");
+            System.exit(1);
+        }
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Session session = load(Paths.get(args[0]));
+        System.out.printf("Session %s %s tick=%s, %d events%n", session.symbol(), session.barSize(),
+                session.tickSize(), session.events().size());
+        for (int run = 1; run <= runs; run++) {
+            ComputationCache.clearAll();
+            print(run, replay(session));
+        }
+    }
+
+    private static Session load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SessionRecorder.MAGIC) throw new IOException("Not a Biotak session file: " + file);
+            short version = in.readShort();
+            if (version != SessionRecorder.VERSION) throw new IOException("Unsupported session version " + version);
+            String symbol = in.readUTF();
+            double tick = in.readDouble();
+            Enums.IntervalType type = Enums.IntervalType.valueOf(in.readUTF());
+            int interval = in.readInt();
+            in.readLong(); // wall-clock start, informational only
+            BarSize barSize = BarSize.getBarSize(Enums.BarSizeType.LINEAR, type, interval);
+
+            List<Event> events = new ArrayList<>();
+            while (true) {
+                byte tag;
+                try {
+                    tag = in.readByte();
+                } catch (EOFException eof) {
+                    break;
+                }
+                try {
+                    SessionRecorder.readVarLong(in); // recorded inter-event gap, replay runs flat out
+                    events.add(switch (tag) {
+                        case SessionRecorder.TAG_BAR -> new Event(tag, (int) SessionRecorder.readVarLong(in), 0,
+                                SessionRecorder.readVarLong(in), in.readDouble(), in.readDouble(), in.readDouble(),
+                                in.readDouble(), in.readBoolean(), null, null);
+                        case SessionRecorder.TAG_CALCULATE -> new Event(tag, (int) SessionRecorder.readVarLong(in),
+                                (int) SessionRecorder.readVarLong(in), 0, 0, 0, 0, 0, false, null, null);
+                        case SessionRecorder.TAG_BAR_UPDATE -> new Event(tag, 0, (int) SessionRecorder.readVarLong(in),
+                                0, 0, 0, 0, 0, false, null, null);
+                        case SessionRecorder.TAG_SETTING -> {
+                            String key = in.readUTF();
+                            Object value = switch (in.readByte()) {
+                                case 'D' -> in.readDouble();
+                                case 'B' -> in.readBoolean();
+                                case 'I' -> in.readInt();
+                                case 'S' -> in.readUTF();
+                                default -> null;
+                            };
+                            yield new Event(tag, 0, 0, 0, 0, 0, 0, 0, false, key, value);
+                        }
+                        default -> throw new IOException("Unknown event tag " + tag);
+                    });
+                } catch (EOFException truncated) {
+                    break; // recorder was killed mid-event; keep what we have
+                }
+            }
+            return new Session(symbol, tick, barSize, events);
+        }
+    }
+
+    static Report replay(Session session) {
+        Instrument instrument = BenchFixtures.instrument(session.symbol(), session.tickSize());
+        BenchFixtures.ArraySeries series = new BenchFixtures.ArraySeries(instrument, session.barSize(), 1024);
+        DataContext ctx = BenchFixtures.proxy(DataContext.class, (p, m, a) -> switch (m.getName()) {
+            case "getDataSeries" -> series.asDataSeries();
+            case "getInstrument" -> instrument;
+            case "hashCode" -> System.identityHashCode(p);
+            case "equals" -> p == a[0];
+            default -> BenchFixtures.defaultValue(m.getReturnType());
+        });
+        Map<String, Object> settingValues = new HashMap<>();
+        ReplayTrigger trigger = new ReplayTrigger(BenchFixtures.settings(settingValues));
+
+        LatencyHistogram calcHist = new LatencyHistogram("calculate");
+        LatencyHistogram updateHist = new LatencyHistogram("onBarUpdate");
+        int calls = 0;
+        int n = 0;
+        long wallStart = System.nanoTime();
+        for (Event e : session.events()) {
+            n++;
+            switch (e.tag()) {
+                case SessionRecorder.TAG_BAR -> series.set(e.index(), e.time(), e.open(), e.high(), e.low(), e.close(), e.complete());
+                case SessionRecorder.TAG_SETTING -> trigger.applySetting(e.key(), e.value());
+                case SessionRecorder.TAG_CALCULATE, SessionRecorder.TAG_BAR_UPDATE -> {
+                    series.size = Math.min(e.seriesSize(), series.capacity());
+                    long t0 = System.nanoTime();
+                    try {
+                        if (e.tag() == SessionRecorder.TAG_CALCULATE) {
+                            trigger.calculate(e.index(), ctx);
+                        } else {
+                            trigger.onBarUpdate(ctx);
+                        }
+                    } catch (RuntimeException ex) {
+                        throw new IllegalStateException("Replay failed at event " + n + " (tag " + e.tag()
+                                + ", index " + e.index() + ")", ex);
+                    }
+                    (e.tag() == SessionRecorder.TAG_CALCULATE ? calcHist : updateHist).record(System.nanoTime() - t0);
+                    calls++;
+                }
+                default -> { }
+            }
+        }
+        long wall = System.nanoTime() - wallStart;
+        trigger.endRedraw();
+        trigger.destroy();
+        return new Report(session.events().size(), calls, wall, calcHist.snapshot(), updateHist.snapshot(),
+                trigger.figuresAdded, trigger.redraws, trigger.maxPerRedraw, trigger.checksum);
+    }
+
+    private static void print(int run, Report r) {
+        System.out.printf("run %d: %d calls in %.1f ms (%.0f calls/s)%n",
+                run, r.calls(), r.wallNanos() / 1e6, r.callsPerSecond());
+        printLatency("  calculate  ", r.calculate());
+        printLatency("  onBarUpdate", r.barUpdate());
+        System.out.printf("  figures: added=%d redraws=%d maxPerRedraw=%d checksum=%016x%n",
+                r.figuresAdded(), r.redraws(), r.maxFiguresPerRedraw(), r.figureChecksum());
+    }
+
+    private static void printLatency(String label, LatencyHistogram.Snapshot s) {
+        if (s.count() == 0) return;
+        System.out.printf("%s n=%d p50=%.3f p99=%.3f p999=%.3f max=%.3f ms%n", label, s.count(),
+                s.percentile(0.50) / 1e6, s.percentile(0.99) / 1e6, s.percentile(0.999) / 1e6, s.maxNanos() / 1e6);
+    }
+
+    /**
+     * BiotakTrigger with settings and figure output redirected to the replay harness.
+     */
+    private static final class ReplayTrigger extends BiotakTrigger {
+        private final Settings settings;
+        long figuresAdded, redraws, checksum;
+        int maxPerRedraw, currentRedraw;
+
+        ReplayTrigger(Settings settings) {
+            this.settings = settings;
+        }
+
+        void applySetting(String key, Object value) {
+            if (value instanceof Double d) settings.setDouble(key, d);
+            else if (value instanceof Boolean b) settings.setBoolean(key, b);
+            else if (value instanceof Integer i) settings.setInteger(key, i);
+            else settings.setString(key, (String) value);
+        }
+
+        @Override
+        public Settings getSettings() {
+            return settings;
+        }
+
+        @Override
+        protected void submitLevelComputation(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        protected void levelComputationFailed(RuntimeException e) {
+            throw e;
+        }
+
+        @Override
+        public void clearFigures() {
+            endRedraw();
+            redraws++;
+        }
+
+        @Override
+        public void addFigure(Figure f) {
+            figuresAdded++;
+            currentRedraw++;
+            checksum = checksum * 31 + f.getClass().getName().hashCode();
+        }
+
+        void endRedraw() {
+            maxPerRedraw = Math.max(maxPerRedraw, currentRedraw);
+            checksum = checksum * 31 + currentRedraw;
+            currentRedraw = 0;
+        }
+    }
+}
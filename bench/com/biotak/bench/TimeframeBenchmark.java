@@ -0,0 +1,76 @@
+package com.biotak.bench;
+
+import com.biotak.util.ComputationCache;
+import com.biotak.util.TimeframeUtil;
+import com.motivewave.platform.sdk.common.BarSize;
+import com.motivewave.platform.sdk.common.Enums;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TimeframeUtil.getTimeframePercentage for the three code paths: exact fractal lookup (M16),
+ * logarithmic interpolation (M20) and seconds-based (S30). The "cold" variants clear
+ * {@link ComputationCache} first so the BigDecimal path is measured, not the cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeframeBenchmark {
+
+    private BarSize fractal;
+    private BarSize interpolated;
+    private BarSize seconds;
+
+    @Setup
+    public void setUp() {
+        fractal = BarSize.getBarSize(16);
+        interpolated = BarSize.getBarSize(20);
+        seconds = BarSize.getBarSize(Enums.BarSizeType.LINEAR, Enums.IntervalType.SECOND, 30);
+    }
+
+    @Benchmark
+    public double percentageFractalCached() {
+        return TimeframeUtil.getTimeframePercentage(fractal);
+    }
+
+    @Benchmark
+    public double percentageInterpolatedCached() {
+        return TimeframeUtil.getTimeframePercentage(interpolated);
+    }
+
+    @Benchmark
+    public double percentageSecondsCached() {
+        return TimeframeUtil.getTimeframePercentage(seconds);
+    }
+
+    @Benchmark
+    public double percentageFractalCold() {
+        ComputationCache.clearAll();
+        return TimeframeUtil.getTimeframePercentage(fractal);
+    }
+
+    @Benchmark
+    public double percentageInterpolatedCold() {
+        ComputationCache.clearAll();
+        return TimeframeUtil.getTimeframePercentage(interpolated);
+    }
+
+    @Benchmark
+    public double percentageSecondsCold() {
+        ComputationCache.clearAll();
+        return TimeframeUtil.getTimeframePercentage(seconds);
+    }
+}
@@ -4,7 +4,14 @@ import com.biotak.enums.THStartPointType;
 import com.biotak.enums.PanelPosition;
 import com.biotak.enums.RulerState;
 import com.biotak.util.TimeframeUtil;
+import com.biotak.util.InstrumentContext;
+import com.biotak.util.WarmupService;
 import com.biotak.debug.AdvancedLogger;
+import com.biotak.debug.RateLimitedLogger;
+import com.biotak.debug.LatencyMetrics;
+import com.biotak.debug.AllocationMetrics;
+import com.biotak.debug.SessionRecorder;
+import com.biotak.debug.BiotakJfr;
 import com.biotak.util.Constants;
 import com.biotak.config.LoggingConfiguration;
 import com.biotak.ui.ThemeManager;
@@ -30,12 +37,20 @@ import com.motivewave.platform.sdk.common.Enums.ResizeType;
 import static com.biotak.util.Constants.*;
 import com.biotak.enums.StepCalculationMode;
 import com.biotak.enums.SSLSBasisType;
+import com.biotak.enums.LevelKind;
 import com.biotak.ui.InfoPanel;
 import com.biotak.ui.PriceLabel;
+import com.biotak.ui.CrossingMarker;
 import com.biotak.ui.CustomPriceLine;
 import com.biotak.ui.LineResizePoint;
 import com.biotak.core.FractalCalculator;
+import com.biotak.core.LevelCrossingEngine;
+import com.biotak.core.LevelInputs;
+import com.biotak.core.LevelLadder;
+import com.biotak.core.LevelSnapshot;
+import com.biotak.core.RulerMaps;
 import com.biotak.ui.LevelDrawer;
+import com.biotak.ui.LevelStyle;
 
 /**
  * بایوتک تریگر TH3 - نسخه حرفه‌ای برای MotiveWave
@@ -92,7 +107,7 @@ public class BiotakTrigger extends Study {
 
     private long lastClickTime = 0;              // for double-click detection        // for fade-in highlight
    
-    private InfoPanel infoPanel;
+    private volatile InfoPanel infoPanel; // replaced by each publish on the lane
     private ResizePoint customPricePoint; // draggable point for custom price
     private PriceLabel customPriceLabel; // displays the numeric value next to the custom price line
     private CustomPriceLine customPriceLine; // horizontal line for custom price anchor (now draggable)
@@ -107,36 +122,56 @@ public class BiotakTrigger extends Study {
     // Stores locked values for all level types when lock all option is enabled
     private double lockedCustomPrice = Double.NaN;
     
-    // Human-readable labels for each TH value (Current, Pattern, Trigger, Structure, Higher)
-    private String[] tfLabels = {"", "", "", "", ""};
-
-    // Holds comprehensive M values for ruler matching built during drawFigures() - optimized with size limit
-    private final java.util.Map<String, Double> fullMValues = new java.util.concurrent.ConcurrentHashMap<>(16, 0.75f, 1);
-    // Holds 3×ATR values (price) for ruler comparison - optimized with size limit
-    private final java.util.Map<String, Double> fullATRValues = new java.util.concurrent.ConcurrentHashMap<>(16, 0.75f, 1);
-    
-    // New step value maps for different step types
-    private final java.util.Map<String, Double> fullEValues = new java.util.concurrent.ConcurrentHashMap<>(16, 0.75f, 1);
-    private final java.util.Map<String, Double> fullTPValues = new java.util.concurrent.ConcurrentHashMap<>(16, 0.75f, 1);
-    private final java.util.Map<String, Double> fullTHValues = new java.util.concurrent.ConcurrentHashMap<>(16, 0.75f, 1);
-    private final java.util.Map<String, Double> fullSSValues = new java.util.concurrent.ConcurrentHashMap<>(16, 0.75f, 1);
-    private final java.util.Map<String, Double> fullLSValues = new java.util.concurrent.ConcurrentHashMap<>(16, 0.75f, 1);
+    // Ruler lookup maps (M, E, TP, TH, SS, LS, 3×ATR) and timeframe labels built during drawFigures().
+    // Replaced as a whole with one volatile write; readers take one reference and never see a partial set.
+    private volatile RulerMaps rulerMaps = RulerMaps.EMPTY;
+    // Holds the TH base price while the bid moves less than recompute.band.fraction × TH (level-compute thread only)
+    private final com.biotak.core.RecomputeGate recomputeGate = new com.biotak.core.RecomputeGate();
+    // Gate key per bar size, kept so a tick does not format one; replaced as a whole when the bar size changes
+    private volatile GateKey gateKey;
+    // Inputs of the last computation handed out; a live request equal to it is dropped. Cleared when that computation fails
+    private volatile LevelInputs lastRequestedInputs;
+    private long unchangedRequests;
+    private long liveAtrUpdates; // skipped requests that only refreshed the panel's Live row
+
+    private record GateKey(BarSize barSize, String key) {}
     
     // Maximum size limits to prevent OutOfMemoryError
     private static final int MAX_MAP_SIZE = 1000;
     private static final int CLEANUP_THRESHOLD = 800; // Start cleanup when reaching this size
 
-    // Base values for ATR scaling (current timeframe)
-    private int atrStructureMin = 0;          // minutes of current structure timeframe
-    private double atrStructurePrice = Double.NaN; // 1× ATR price (not multiplied by 3)
-
-    private static final long LOG_INTERVAL_MS = 60_000;      // 1 minute
-    private static long lastCalcTableLogTime = 0;             // Tracks last time the calc table was printed
-    private static long lastHighLowLogTime = 0;             // Tracks last time historical high/low was logged
-
-    // Throttle ruler INFO logs
-    private static long lastRulerInfoLog = 0;
-    private static final long RULER_LOG_INTERVAL_MS = 60000; // Log ruler status at most once per minute
+    // Per-instance log throttling (one line per key per minute) - یک چارت لاگ چارت دیگر را سرکوب نمی‌کند
+    private final RateLimitedLogger rateLog = new RateLimitedLogger("BiotakTrigger");
+    private static final String LOG_KEY_CALC_HIGH_LOW  = "calculate.highLow";
+    private static final String LOG_KEY_MANUAL_HL      = "drawFigures.manualHighLow";
+    private static final String LOG_KEY_HIGH_LOW       = "drawFigures.highLow";
+    private static final String LOG_KEY_CALC_TABLE     = "drawFigures.calcTable";
+    private static final String LOG_KEY_RECOMPUTE_GATE = "drawFigures.recomputeGate";
+    private static final String LOG_KEY_E_STEP         = "drawFigures.eStep";
+    private static final String LOG_KEY_RULER_STATUS   = "drawFigures.rulerStatus";
+    private static final String LOG_KEY_RULER_DRAWN    = "RulerFigure.drawn";
+    private static final String LOG_KEY_RULER_MATCH    = "RulerFigure.match";
+
+    // Figures added since the last clearFigures(), reported in JFR events
+    private int figuresThisDraw = 0;
+
+    // Session recording for offline replay (replay.record.enabled)
+    private SessionRecorder recorder;
+    private boolean recorderChecked = false;
+    private boolean inBarUpdate = false;
+    private static final String[] RECORDED_DOUBLE_SETTINGS = {
+        S_HISTORICAL_HIGH, S_HISTORICAL_LOW, S_CUSTOM_PRICE, S_MANUAL_HIGH, S_MANUAL_LOW,
+        S_LOCKED_TH_VALUE, S_LOCKED_BASE_TH_VALUE, S_LOCKED_CONTROL_VALUE
+    };
+    private static final String[] RECORDED_BOOLEAN_SETTINGS = {
+        S_LOCK_ALL_LEVELS, S_MANUAL_HL_ENABLE, S_SHOW_RULER, S_ALWAYS_SHOW_RULER_INFO, S_SHOW_INFO_PANEL,
+        S_SHOW_TH_LEVELS, S_USE_TP_FOR_E_STEP, S_LS_FIRST, S_PANEL_MINIMIZED, S_RULER_EXT_LEFT, S_RULER_EXT_RIGHT,
+        Constants.S_ADAPTIVE_COLORS
+    };
+    private static final String[] RECORDED_STRING_SETTINGS = {
+        S_STEP_MODE, S_START_POINT, S_SSLS_BASIS, S_PANEL_POSITION, S_LOG_LEVEL, S_LOCKED_TH_ORIGIN_TIMEFRAME,
+        Constants.S_MSTEP_BASIS, Constants.S_RULER_COMPARISON_TYPE, Constants.S_UI_THEME
+    };
 
     // (Leg Ruler fields removed)
     private ResizePoint rulerStartResize, rulerEndResize;
@@ -149,6 +184,62 @@ public class BiotakTrigger extends Study {
 
     // Keep last DataContext for quick redraws triggered by key events
     private DrawContext lastDrawContext;
+
+    // Level computations run on this study's lane of the compute pool, which publishes each result
+    private final com.biotak.util.BiotakExecutors.Lane levelLane = com.biotak.util.BiotakExecutors.lane();
+    private final java.util.concurrent.atomic.AtomicLong drawGeneration = new java.util.concurrent.atomic.AtomicLong();
+    private final Object publishLock = new Object();
+    private volatile LevelSnapshot levelSnapshot; // last published computation
+
+    // Live level-crossing detection over the published ladder (S_CROSSING_ALERTS)
+    private static final int MAX_CROSSING_MARKERS = 50;
+    private final LevelCrossingEngine crossingEngine = new LevelCrossingEngine(LevelCrossingEngine.DEFAULT_CAPACITY);
+    private final LevelCrossingEngine.Sink crossingSink = this::onLevelCrossing;
+    private final java.util.ArrayDeque<CrossingMarker> crossingMarkers = new java.util.ArrayDeque<>(); // guarded by publishLock
+    private int newCrossingMarkers; // tail of crossingMarkers not yet on the chart; guarded by publishLock
+    private DataContext crossingCtx; // context and bar of the drain in progress, for ctx.signal
+    private int crossingIndex;
+    private final java.util.function.Consumer<com.biotak.config.ConfigSnapshot> crossingConfig =
+        c -> crossingEngine.setDebounceMs(c.crossingDebounceMs());
+
+    // Automatic swing legs over completed bars (S_SWING_SCANNER); settings are read on bar 0
+    private final com.biotak.core.SwingScanner swingScanner = new com.biotak.core.SwingScanner();
+    private final com.biotak.core.SwingScanner.LegMatcher swingMatcher = this::matchSwingLeg;
+    private volatile Instrument swingInstrument;
+    private boolean swingConfigured = false;
+    private boolean swingEnabled;
+    private com.biotak.enums.SwingThresholdBasis swingBasis = com.biotak.enums.SwingThresholdBasis.ATR;
+    private double swingMultiplier = 3.0;
+    private double swingThPercentage;
+
+    // Write-behind for settings touched on every redraw, bar or drag event
+    private final com.biotak.config.SettingsWriter settingsWriter = new com.biotak.config.SettingsWriter(this::getSettings);
+    private double lastDragPrice = Double.NaN;
+
+    // Memory-mapped level feed for local consumers (feed.enabled); guarded by publishLock
+    private com.biotak.core.LevelFeedWriter levelFeed;
+    private boolean levelFeedFailed = false;
+    // What the open feed was opened for; the file is reopened only when one of these changes
+    private String feedDir, feedSymbol, feedTimeframe;
+    private int feedMaxLevels;
+    private final double[] feedValues = new double[com.biotak.core.LevelFeedLayout.VALUE_COUNT];
+
+    // High/low of the last N bars or days for the ROLLING_* anchors; refilled on series reload
+    private final com.biotak.core.RollingRange rollingRange = new com.biotak.core.RollingRange();
+    private volatile THStartPointType rollingStart; // start point read with the window on bar 0; null until then
+
+    // Per-timeframe ATR measured from the chart's completed bars; rebuilt on series reload
+    private volatile com.biotak.core.MultiTimeframeAggregator atrAggregator;
+
+    // Shared per-symbol caches; one reference held while this study is on a chart
+    private volatile InstrumentContext instrumentContext;
+    private final Object contextLock = new Object();
+    private boolean warmupRequested = false;
+    private boolean executorsReleased = false; // destroy releases this study's hold on the shared pools once
+
+    // Last bar index covered by the bulk history pass; calculate() for older bars returns at once
+    private int historyLoadedThrough = -1;
+    private int extremesThrough = -1; // last bar folded into cachedHigh/cachedLow (range index)
     
 
     /**
@@ -160,8 +251,19 @@ public class BiotakTrigger extends Study {
      */
     public BiotakTrigger() {
         super();
+        com.biotak.util.BiotakExecutors.retainStudy();
         // مقداردهی اولیه پیکربندی لاگ‌گذاری / Initialize logging configuration
         LoggingConfiguration.initialize();
+        LatencyMetrics.setEnabled(LoggingConfiguration.isPerformanceTrackingEnabled()
+                || BiotakConfig.getInstance().getBoolean("ui.show.debug", false));
+        if (AllocationMetrics.setEnabled(BiotakConfig.getInstance().getBoolean("alloc.tracking", false))) {
+            AllocationMetrics.loadBudgets(BiotakConfig.getInstance());
+        }
+        WarmupService.warmTimeframes();
+        com.biotak.util.HeapGovernor.install();
+        // crossing.debounce.ms is read once here and again only when the configuration changes
+        crossingConfig.accept(BiotakConfig.getInstance().snapshot());
+        BiotakConfig.getInstance().subscribe(crossingConfig);
         AdvancedLogger.info("BiotakTrigger", "constructor", "Constructor called. The study is being instantiated by MotiveWave.");
     }
 
@@ -170,6 +272,9 @@ public class BiotakTrigger extends Study {
         AdvancedLogger.debug("BiotakTrigger", "initialize", "initialize() called. Settings are being configured.");
         var sd = createSD();
         SettingsService.initializeSettings(sd, defaults);
+        var rd = createRD();
+        rd.declareSignal(com.biotak.enums.CrossingSignal.CROSS_UP, com.biotak.enums.CrossingSignal.CROSS_UP.toString());
+        rd.declareSignal(com.biotak.enums.CrossingSignal.CROSS_DOWN, com.biotak.enums.CrossingSignal.CROSS_DOWN.toString());
     }
     
 
@@ -395,48 +500,189 @@ public class BiotakTrigger extends Study {
      */
     @Override
     public void calculate(int index, DataContext ctx) {
+        if (!inBarUpdate) recordCall(index, ctx.getDataSeries(), false);
+        if (index > 0 && index <= historyLoadedThrough) return;
+        if (index == 0 && !inBarUpdate && initializeHistory(ctx)) return;
+        long t0 = LatencyMetrics.start();
+        var jfr = BiotakJfr.beginCalculate();
+        if (!warmupRequested) requestWarmup(ctx.getDataSeries());
+        try {
+            calculateBar(index, ctx);
+        } finally {
+            LatencyMetrics.record(LatencyMetrics.Op.CALCULATE, t0);
+            if (jfr != null) {
+                DataSeries series = ctx.getDataSeries();
+                BiotakJfr.endCalculate(jfr, jfrInstrument(series), String.valueOf(series.getBarSize()),
+                        getSettings().getString(S_STEP_MODE, null), index, figuresThisDraw);
+            }
+        }
+    }
+
+    @Override
+    public void addFigure(Figure f) {
+        figuresThisDraw++;
+        super.addFigure(f);
+    }
+
+    @Override
+    public void clearFigures() {
+        figuresThisDraw = 0;
+        super.clearFigures();
+    }
+
+    /**
+     * زمینه‌ی مشترک نماد فعلی - Shared context of the current symbol; re-acquired when the symbol changes.
+     */
+    private InstrumentContext instrumentContext(Instrument instrument) {
+        InstrumentContext ic = instrumentContext;
+        if (ic != null && ic.getSymbol().equals(instrument.getSymbol())) return ic;
+        synchronized (contextLock) {
+            ic = instrumentContext;
+            if (ic != null && ic.getSymbol().equals(instrument.getSymbol())) return ic;
+            if (ic != null) ic.release();
+            ic = InstrumentContext.acquire(instrument);
+            instrumentContext = ic;
+            return ic;
+        }
+    }
+
+    /**
+     * Starts the per-symbol warm-up in this chart's context once the series has a price, ahead of
+     * the first level computation. Nothing waits for it.
+     */
+    private void requestWarmup(DataSeries series) {
+        if (series.size() == 0 || series.getInstrument() == null) return;
+        warmupRequested = true;
+        Instrument instrument = series.getInstrument();
+        WarmupService.warmInstrument(instrumentContext(instrument), instrument, series.getBarSize(),
+                series.getBidClose(series.size() - 1));
+    }
+
+    private static String jfrInstrument(DataSeries series) {
+        return series.getInstrument() != null ? series.getInstrument().getSymbol() : null;
+    }
+
+    private void endDrawPhase(BiotakJfr.DrawPhaseEvent e, String phase, Instrument instrument, BarSize barSize, StepCalculationMode mode) {
+        if (e == null) return;
+        BiotakJfr.endDrawPhase(e, phase, instrument != null ? instrument.getSymbol() : null, String.valueOf(barSize),
+                mode != null ? mode.name() : null, figuresThisDraw);
+    }
+
+    private void syncLogLevel() {
+        String settingsLogLevel = getSettings().getString(S_LOG_LEVEL, AdvancedLogger.LogLevel.INFO.name());
+        AdvancedLogger.LogLevel lvl = com.biotak.util.EnumUtil.safeEnum(AdvancedLogger.LogLevel.class,
+                settingsLogLevel, AdvancedLogger.LogLevel.INFO);
+        
+        // Log what we're doing for debugging
+        AdvancedLogger.info("BiotakTrigger", "calculate", "Settings log level: %s, Parsed level: %s", settingsLogLevel, lvl.getName());
+        
+        // Only set if different from current configuration level
+        AdvancedLogger.LogLevel configLevel = LoggingConfiguration.getCurrentLogLevel();
+        if (lvl != configLevel) {
+            AdvancedLogger.info("BiotakTrigger", "calculate", "Overriding config level %s with settings level %s", configLevel.getName(), lvl.getName());
+            AdvancedLogger.setLogLevel(lvl);
+        } else {
+            AdvancedLogger.info("BiotakTrigger", "calculate", "Using config log level: %s", configLevel.getName());
+        }
+        
+        logLevelInitialized = true; // Prevent further calls
+    }
+
+    private void initExtremes() {
+        Settings s = getSettings();
+        double storedHigh = s.getDouble(S_HISTORICAL_HIGH, Double.NaN);
+        double storedLow  = s.getDouble(S_HISTORICAL_LOW, Double.NaN);
+        if (!Double.isNaN(storedHigh) && storedHigh != 0) cachedHigh = storedHigh;
+        if (!Double.isNaN(storedLow)  && storedLow  != 0) cachedLow  = storedLow;
+        extremesInitialized = true;
+    }
+
+    /**
+     * بارگذاری یکجای تاریخچه - Bulk pass over the loaded history, run when bar 0 arrives.
+     * <p>
+     * Every completed bar before the live edge is scanned once in a single loop: extremes, the
+     * multi-timeframe ATR state and the swing scanner are brought up to date, the extremes are
+     * persisted with one staged write each and the first snapshot is requested. The per-bar
+     * {@link #calculate} calls MotiveWave makes afterwards for those bars return immediately;
+     * the live edge runs the normal path.
+     *
+     * @return {@code false} when disabled (history.bulk.enabled) or the series is too short
+     */
+    private boolean initializeHistory(DataContext ctx) {
+        DataSeries series = ctx.getDataSeries();
+        int last = series.size() - 1;
+        if (last < 1 || !BiotakConfig.getInstance().snapshot().historyBulkEnabled()) {
+            historyLoadedThrough = -1;
+            return false;
+        }
+        long t0 = System.nanoTime();
+        if (!logLevelInitialized) syncLogLevel();
+        if (!extremesInitialized) initExtremes();
+        if (!warmupRequested) requestWarmup(series);
+
+        boolean hadValidHigh = cachedHigh != Double.NEGATIVE_INFINITY && cachedHigh != Double.POSITIVE_INFINITY;
+        boolean hadValidLow  = cachedLow  != Double.NEGATIVE_INFINITY && cachedLow  != Double.POSITIVE_INFINITY;
+        configureSwing(series);
+        configureRolling();
+        boolean swing = swingEnabled;
+        double high = cachedHigh, low = cachedLow;
+        int scanned = 0;
+        for (int i = 0; i < last; i++) {
+            if (!series.isBarComplete(i)) continue;
+            double h = series.getHigh(i), l = series.getLow(i);
+            if (h > high) high = h;
+            if (l < low) low = l;
+            aggregateAtr(i, series);
+            trackRollingRange(i, series);
+            if (swing) scanSwing(i, series);
+            scanned++;
+        }
+        if (high != cachedHigh) {
+            cachedHigh = high;
+            if (hadValidHigh) settingsWriter.setDouble(S_HISTORICAL_HIGH, high);
+        }
+        if (low != cachedLow) {
+            cachedLow = low;
+            if (hadValidLow) settingsWriter.setDouble(S_HISTORICAL_LOW, low);
+        }
+        historyLoadedThrough = last - 1;
+        extremesThrough = last - 1;
+        LatencyMetrics.record(LatencyMetrics.Op.HISTORY_INIT, LatencyMetrics.isEnabled() ? t0 : 0L);
+
+        AdvancedLogger.performance("BiotakTrigger", "initializeHistory", "Cold load: %d bars scanned in %.2f ms [%s]",
+            scanned, (System.nanoTime() - t0) / 1_000_000.0, series.getBarSize());
+        if (!firstBarDrawn) {
+            firstBarDrawn = true;
+            drawFigures(0, ctx);
+        }
+        return true;
+    }
+
+    private void calculateBar(int index, DataContext ctx) {
         // توجه: در SDK 7، DrawContext معمولاً از طریق onDraw() ارسال می‌شود
         // Note: In SDK 7, DrawContext is typically passed through onDraw() method
         // We cannot directly get DrawContext from DataContext
         
         // هماهنگ‌سازی سطح لاگ‌گذاری در اولین کندل / Sync logger level once per session only
-        if (index == 0 && !logLevelInitialized) {
-            String settingsLogLevel = getSettings().getString(S_LOG_LEVEL, AdvancedLogger.LogLevel.INFO.name());
-            AdvancedLogger.LogLevel lvl = com.biotak.util.EnumUtil.safeEnum(AdvancedLogger.LogLevel.class,
-                    settingsLogLevel, AdvancedLogger.LogLevel.INFO);
-            
-            // Log what we're doing for debugging
-            AdvancedLogger.info("BiotakTrigger", "calculate", "Settings log level: %s, Parsed level: %s", settingsLogLevel, lvl.getName());
-            
-            // Only set if different from current configuration level
-            AdvancedLogger.LogLevel configLevel = LoggingConfiguration.getCurrentLogLevel();
-            if (lvl != configLevel) {
-                AdvancedLogger.info("BiotakTrigger", "calculate", "Overriding config level %s with settings level %s", configLevel.getName(), lvl.getName());
-                AdvancedLogger.setLogLevel(lvl);
-            } else {
-                AdvancedLogger.info("BiotakTrigger", "calculate", "Using config log level: %s", configLevel.getName());
-            }
-            
-            logLevelInitialized = true; // Prevent further calls
-        }
+        if (index == 0 && !logLevelInitialized) syncLogLevel();
 
         DataSeries series = ctx.getDataSeries();
         // Determine if this is the last bar for live updates
         boolean isLastBar = (index == series.size() - 1);
+        if (index == 0 || rollingStart == null) configureRolling();
         // Skip incomplete bars except for the last bar, remove logging for performance
         if (!series.isBarComplete(index) && !isLastBar) {
             return;
         }
+        if (series.isBarComplete(index)) {
+            aggregateAtr(index, series);
+            trackRollingRange(index, series);
+            if (index == 0 || !swingConfigured) configureSwing(series);
+            if (swingEnabled) scanSwing(index, series);
+        }
         
         // Initialize cached extremes from settings on first invocation
-        if (!extremesInitialized) {
-            Settings s = getSettings();
-            double storedHigh = s.getDouble(S_HISTORICAL_HIGH, Double.NaN);
-            double storedLow  = s.getDouble(S_HISTORICAL_LOW, Double.NaN);
-            if (!Double.isNaN(storedHigh) && storedHigh != 0) cachedHigh = storedHigh;
-            if (!Double.isNaN(storedLow)  && storedLow  != 0) cachedLow  = storedLow;
-            extremesInitialized = true;
-        }
+        if (!extremesInitialized) initExtremes();
         
         double barHigh = series.getHigh(index);
         double barLow  = series.getLow(index);
@@ -447,15 +693,16 @@ public class BiotakTrigger extends Study {
         if (barHigh > cachedHigh) {
             cachedHigh = barHigh;
             if (hadValidHigh) {
-                getSettings().setDouble(S_HISTORICAL_HIGH, cachedHigh);
+                settingsWriter.setDouble(S_HISTORICAL_HIGH, cachedHigh);
             }
         }
         if (barLow < cachedLow) {
             cachedLow = barLow;
             if (hadValidLow) {
-                getSettings().setDouble(S_HISTORICAL_LOW, cachedLow);
+                settingsWriter.setDouble(S_HISTORICAL_LOW, cachedLow);
             }
         }
+        extremesThrough = index;
         
     // Only draw figures when really necessary to reduce excessive calls
         boolean isFirstBar = (index == 0);
@@ -467,10 +714,8 @@ public class BiotakTrigger extends Study {
         }
         else if (isLastBar) {
             // Only redraw if significant price movement or time interval passed
-            long nowHL = System.currentTimeMillis();
-            if (nowHL - lastHighLowLogTime > LOG_INTERVAL_MS) {
-                AdvancedLogger.info("BiotakTrigger", "calculate", "Historical High/Low: %.5f/%.5f [%s]", cachedHigh, cachedLow, series.getBarSize());
-                lastHighLowLogTime = nowHL;
+            if (rateLog.tryAcquire(LOG_KEY_CALC_HIGH_LOW)) {
+                rateLog.info("BiotakTrigger", "calculate", "Historical High/Low: %.5f/%.5f [%s]", cachedHigh, cachedLow, series.getBarSize());
                 shouldRedraw = true;
             }
             // Also redraw if extremes changed significantly
@@ -478,540 +723,892 @@ public class BiotakTrigger extends Study {
                      hadValidLow && Math.abs(barLow - cachedLow) > 0) {
                 shouldRedraw = true;
             }
+            // Rolling anchors re-anchor as the window slides
+            else if (rollingAnchorMoved(series)) {
+                shouldRedraw = true;
+            }
         }
         
         if (shouldRedraw) {
-            drawFigures(index, ctx);
+            // The first draw is never skipped; later live-edge requests may be
+            if (isFirstBar) drawFigures(index, ctx);
+            else requestLevels(index, ctx);
+        }
+    }
+
+    /**
+     * Reads the start point and the rolling window from settings; on bar 0 (series load or
+     * settings change), whether or not that bar is complete.
+     */
+    private void configureRolling() {
+        Settings settings = getSettings();
+        com.biotak.enums.RollingWindowUnit unit = com.biotak.util.EnumUtil.safeEnum(com.biotak.enums.RollingWindowUnit.class,
+                settings.getString(S_ROLLING_WINDOW_UNIT, com.biotak.enums.RollingWindowUnit.BARS.name()),
+                com.biotak.enums.RollingWindowUnit.BARS);
+        rollingRange.setWindow(settings.getInteger(S_ROLLING_WINDOW_LENGTH, 100), unit == com.biotak.enums.RollingWindowUnit.DAYS);
+        rollingStart = com.biotak.util.EnumUtil.safeEnum(THStartPointType.class,
+                settings.getString(S_START_POINT, THStartPointType.MIDPOINT.name()), THStartPointType.MIDPOINT);
+    }
+
+    /**
+     * Feeds one completed bar to the rolling-window range.
+     */
+    private void trackRollingRange(int index, DataSeries series) {
+        rollingRange.onBar(index, series.getStartTime(index), series.getHigh(index), series.getLow(index));
+    }
+
+    /**
+     * Rolling-window anchor with the live bar as the newest bar of the window, or NaN when the
+     * start point is not a rolling one.
+     */
+    private double rollingAnchor(DataSeries series, double high, double low) {
+        THStartPointType spType = rollingStart;
+        if (spType == null || !spType.isRolling() || series.size() == 0) return Double.NaN;
+        int last = series.size() - 1;
+        long liveTime = series.getStartTime(last);
+        double rh = rollingRange.high(last, liveTime, series.getHigh(last));
+        double rl = rollingRange.low(last, liveTime, series.getLow(last));
+        return LevelDrawer.determineMidpointPrice(spType, 0, high, low, rh, rl);
+    }
+
+    private boolean rollingAnchorMoved(DataSeries series) {
+        LevelSnapshot snap = levelSnapshot;
+        if (snap == null || snap.mode() == StepCalculationMode.SS_LS_STEP) return false;
+        double anchor = rollingAnchor(series, cachedHigh, cachedLow);
+        return !Double.isNaN(anchor) && anchor != snap.midpointPrice();
+    }
+
+    /**
+     * Feeds one completed bar to the multi-timeframe ATR aggregator, creating it for the series'
+     * bar size on the first bar. The chart's pattern, trigger and structure timeframes are
+     * tracked next to the fixed ATR timeframes.
+     */
+    private void aggregateAtr(int index, DataSeries series) {
+        com.biotak.core.MultiTimeframeAggregator agg = atrAggregator;
+        if (agg == null || index == 0) {
+            BarSize barSize = series.getBarSize();
+            java.util.TreeMap<Integer, List<String>> timeframes = com.biotak.util.FractalUtil.atrTimeframes();
+            com.biotak.util.FractalHierarchy hierarchy = com.biotak.util.FractalHierarchy.of(barSize);
+            for (int level : new int[] {-1, -2, 2}) {
+                int minutes = (int) (hierarchy.seconds(level) / 60);
+                if (minutes <= 0) continue;
+                List<String> labels = timeframes.computeIfAbsent(minutes, k -> new java.util.ArrayList<>(1));
+                String label = hierarchy.label(level);
+                if (!labels.contains(label)) labels.add(label);
+            }
+            Instrument instrument = series.getInstrument();
+            com.biotak.core.MultiTimeframeAggregator.SessionCalendar calendar = instrument == null
+                    ? com.biotak.core.MultiTimeframeAggregator.SessionCalendar.UTC
+                    : new com.biotak.core.MultiTimeframeAggregator.SessionCalendar() {
+                        @Override public long startOfDay(long time) { return instrument.getStartOfDay(time, false); }
+                        @Override public long endOfDay(long time) { return instrument.getEndOfDay(time, false); }
+                    };
+            agg = new com.biotak.core.MultiTimeframeAggregator(timeframes, TimeframeUtil.getTotalSeconds(barSize), calendar);
+            atrAggregator = agg;
         }
+        agg.onBar(index, series.getStartTime(index), series.getHigh(index), series.getLow(index), series.getClose(index));
     }
 
     /**
-     * Main method to orchestrate the drawing of all indicator figures.
-     * It's called only on the first and last bars.
+     * Reads the swing scanner settings once per series load (bar 0); MotiveWave recalculates from
+     * bar 0 when the study settings change.
+     */
+    private void configureSwing(DataSeries series) {
+        Settings settings = getSettings();
+        swingEnabled = settings.getBoolean(S_SWING_SCANNER, false);
+        swingBasis = com.biotak.util.EnumUtil.safeEnum(com.biotak.enums.SwingThresholdBasis.class,
+                settings.getString(S_SWING_BASIS, com.biotak.enums.SwingThresholdBasis.ATR.name()),
+                com.biotak.enums.SwingThresholdBasis.ATR);
+        swingMultiplier = settings.getDouble(S_SWING_MULTIPLIER, 3.0);
+        swingThPercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
+        swingScanner.setAtrPeriod(TimeframeUtil.getAtrPeriod(series.getBarSize()));
+        swingInstrument = series.getInstrument();
+        swingConfigured = true;
+    }
+
+    /**
+     * Feeds one completed bar to the swing scanner; a confirmed leg is matched by {@link #matchSwingLeg}.
+     */
+    private void scanSwing(int index, DataSeries series) {
+        Instrument instrument = swingInstrument;
+        if (instrument == null) return;
+        double close = series.getClose(index);
+        double thPrice = swingBasis == com.biotak.enums.SwingThresholdBasis.TH
+                ? com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, close, swingThPercentage) * instrument.getTickSize()
+                : 0;
+        if (swingScanner.onBar(index, series.getHigh(index), series.getLow(index), close, thPrice, swingBasis,
+                swingMultiplier, swingMatcher)) {
+            AdvancedLogger.debug("BiotakTrigger", "scanSwing", "Swing leg confirmed at bar %d (legs=%d, matched=%d)",
+                index, swingScanner.getLegCount(), swingScanner.getMatchedLegs());
+        }
+    }
+
+    /**
+     * Matches a swing leg like the leg ruler does: 0.1-pip rounding, the selected comparison type
+     * and the currently published ruler maps, at the price the leg ended. Returns {@code null}
+     * before the first publish so the leg is matched by {@link #publishLevelSnapshot} instead.
+     */
+    private com.biotak.core.SwingScanner.LegMatch matchSwingLeg(double legPrice, double endPrice) {
+        RulerMaps maps = rulerMaps;
+        Instrument instrument = swingInstrument;
+        if (instrument == null || maps.mValues().isEmpty()) return null;
+        double legPip = Math.round(com.biotak.util.UnitConverter.priceToPip(legPrice, instrument) * 10.0) / 10.0;
+        com.biotak.enums.RulerComparisonType type = com.biotak.util.EnumUtil.safeEnum(
+            com.biotak.enums.RulerComparisonType.class,
+            getSettings().getString(Constants.S_RULER_COMPARISON_TYPE, com.biotak.enums.RulerComparisonType.M.name()),
+            com.biotak.enums.RulerComparisonType.M);
+        var res = com.biotak.core.RulerService.matchByType(type, instrument, legPip, instrument.getTickSize(),
+            endPrice, maps, TH_TO_M_FACTOR);
+        return new com.biotak.core.SwingScanner.LegMatch(legPip, res.bestLabel(), res.bestBasePips(), res.bestDiff());
+    }
+
+    /**
+     * Redraws all indicator figures, whatever changed. Used by user actions and the first
+     * history draw; live ticks go through {@link #requestLevels}, which may skip the request.
      */
     private void drawFigures(int index, DataContext ctx) {
-        // Remove debug logging for better performance
-        clearFigures(); // Clear all previously drawn figures for a clean redraw.
+        DataSeries series = ctx.getDataSeries();
+        LevelInputs inputs = prepareLevelInputs(index, series);
+        if (inputs == null) return;
+        submitLevels(inputs, series);
+    }
 
+    /**
+     * Requests a redraw from the live edge; dropped when it would draw what the last request drew.
+     */
+    private void requestLevels(int index, DataContext ctx) {
         DataSeries series = ctx.getDataSeries();
-        Settings settings = getSettings();
-        
+        LevelInputs inputs = prepareLevelInputs(index, series);
+        if (inputs == null) return;
+        // Bid inside the gate band and nothing else changed: the result would equal the last one
+        LevelInputs last = lastRequestedInputs;
+        if (last != null && recomputeGate.holds(inputs.bid(), gateKey(inputs.barSize())) && inputs.sameLevelsAs(last)) {
+            unchangedRequests++;
+            // The Live ATR row still follows the tick
+            InfoPanel panel = infoPanel;
+            if (panel != null && panel.setLiveAtr(inputs.liveAtrValue())) liveAtrUpdates++;
+            return;
+        }
+        submitLevels(inputs, series);
+    }
+
+    /**
+     * Computes and publishes a redraw on this study's lane.
+     * <p>
+     * The work is split in three stages: {@link #gatherLevelInputs} has read the series and the
+     * settings on the calling (study or chart) thread, {@link #computeLevelSnapshot} builds an
+     * immutable {@link LevelSnapshot} from those inputs on the lane, and the lane task then
+     * publishes it and asks the chart to repaint. The lane runs one computation at a time, so
+     * the recompute gate needs no lock. A newer request replaces one still waiting on the lane;
+     * one already running completes and is published unless something newer was published first.
+     */
+    private void submitLevels(LevelInputs inputs, DataSeries series) {
+        lastRequestedInputs = inputs;
+        long generation = drawGeneration.incrementAndGet();
+        submitLevelComputation(() -> {
+            LevelSnapshot snapshot = runLevelComputation(generation, inputs);
+            if (snapshot == null) {
+                lastRequestedInputs = null; // let the next request retry
+                return;
+            }
+            publishLevelSnapshot(snapshot, series);
+            repaint();
+        });
+    }
+
+    /**
+     * Recompute gate key for {@code barSize}; formatted once per bar size.
+     */
+    private String gateKey(BarSize barSize) {
+        GateKey k = gateKey;
+        if (k == null || !k.barSize().equals(barSize)) {
+            k = new GateKey(barSize, barSize.toString());
+            gateKey = k;
+        }
+        return k.key();
+    }
+
+    /**
+     * Hands a level computation to this study's lane. Headless harnesses (the session
+     * replayer) override it to run {@code task} inline so each event is measured in full.
+     */
+    protected void submitLevelComputation(Runnable task) {
+        levelLane.submit(task);
+    }
+
+    /**
+     * Called when a level computation throws; the failed request draws nothing. Logs by default,
+     * harnesses override it to rethrow.
+     */
+    protected void levelComputationFailed(RuntimeException e) {
+        AdvancedLogger.error("BiotakTrigger", "drawFigures", "Level computation failed: %s", e.toString());
+    }
+
+    /**
+     * Adds the crossing markers raised since the last publish, when no new snapshot redrew them all.
+     */
+    private void publishCrossingMarkers() {
+        synchronized (publishLock) {
+            if (newCrossingMarkers == 0) return;
+            var it = crossingMarkers.descendingIterator();
+            for (int i = 0; i < newCrossingMarkers && it.hasNext(); i++) addFigure(it.next());
+            newCrossingMarkers = 0;
+        }
+    }
+
+    private LevelInputs prepareLevelInputs(int index, DataSeries series) {
         // Need at least one previous bar
         if (series.size() < 2) {
             AdvancedLogger.warn("BiotakTrigger", "drawFigures", "Not enough bars to calculate. Series size: %d", series.size());
-            return;
+            return null;
         }
-        
-        // Remove temporary log level changes to prevent excessive logging
-        // The log level should be managed globally, not per method call
+        // One flush per frame: extremes staged by calculate() and any drag leftovers
+        settingsWriter.flush();
+        return gatherLevelInputs(index, series, getSettings());
+    }
+
+    private LevelSnapshot runLevelComputation(long generation, LevelInputs inputs) {
+        long drawStart = LatencyMetrics.start();
+        long allocStart = AllocationMetrics.start();
         try {
-            double finalHigh, finalLow;
-            boolean manualMode = settings.getBoolean(S_MANUAL_HL_ENABLE, false);
-
-            if (manualMode) {
-                finalHigh = settings.getDouble(S_MANUAL_HIGH, 0);
-                finalLow  = settings.getDouble(S_MANUAL_LOW, 0);
-                // Use throttled logging to prevent spam - only log once per minute
-                long nowManual = System.currentTimeMillis();
-                if (nowManual - lastHighLowLogTime > LOG_INTERVAL_MS) {
-                    AdvancedLogger.info("BiotakTrigger", "drawFigures", "Using manual high/low values. High: %.5f, Low: %.5f", finalHigh, finalLow);
-                    lastHighLowLogTime = nowManual;
-                }
-            } else {
-                double[] range = com.biotak.util.FractalUtil.getHistoricalRange(series, settings, cachedHigh, cachedLow, false);
-                finalHigh = range[0];
-                finalLow  = range[1];
-
-                if (index == 0) {
-                    // Persist only if new extremes discovered
-                    if (finalHigh > cachedHigh) settings.setDouble(S_HISTORICAL_HIGH, finalHigh);
-                    if (finalLow  < cachedLow)  settings.setDouble(S_HISTORICAL_LOW,  finalLow);
-                }
+            return computeLevelSnapshot(generation, inputs);
+        } catch (RuntimeException e) {
+            levelComputationFailed(e);
+            return null;
+        } finally {
+            LatencyMetrics.record(LatencyMetrics.Op.DRAW_FIGURES, drawStart);
+            AllocationMetrics.record(AllocationMetrics.Op.DRAW_FIGURES, allocStart);
+        }
+    }
 
-                // Update in-memory cache for future bars
-                cachedHigh = finalHigh;
-                cachedLow  = finalLow;
-
-                if (index == 0 || index == series.size() - 1) {
-                    long nowHL2 = System.currentTimeMillis();
-                    if (nowHL2 - lastHighLowLogTime > LOG_INTERVAL_MS) {
-                        AdvancedLogger.info("BiotakTrigger", "drawFigures", "Historical High/Low calculated from %s timeframe (merged). High: %.5f, Low: %.5f", series.getBarSize(), cachedHigh, cachedLow);
-                        lastHighLowLogTime = nowHL2;
-                    }
-                }
+    /**
+     * Gather stage: reads everything one level computation needs from the series and the
+     * settings. Study thread only; the compute stage never reads either itself.
+     */
+    private LevelInputs gatherLevelInputs(int index, DataSeries series, Settings settings) {
+        var rangePhase = BiotakJfr.beginDrawPhase();
+        int last = series.size() - 1;
+        double knownHigh = cachedHigh, knownLow = cachedLow;
+        double finalHigh, finalLow;
+        boolean manualMode = settings.getBoolean(S_MANUAL_HL_ENABLE, false);
+
+        if (manualMode) {
+            finalHigh = settings.getDouble(S_MANUAL_HIGH, 0);
+            finalLow  = settings.getDouble(S_MANUAL_LOW, 0);
+            // Use throttled logging to prevent spam - only log once per minute
+            if (rateLog.tryAcquire(LOG_KEY_MANUAL_HL)) rateLog.info("BiotakTrigger", "drawFigures", "Using manual high/low values. High: %.5f, Low: %.5f", finalHigh, finalLow);
+        } else {
+            double[] range = com.biotak.util.FractalUtil.getHistoricalRange(series, settings, knownHigh, knownLow, false, extremesThrough);
+            finalHigh = range[0];
+            finalLow  = range[1];
+            if ((index == 0 || index == last) && rateLog.tryAcquire(LOG_KEY_HIGH_LOW)) {
+                rateLog.info("BiotakTrigger", "drawFigures", "Historical High/Low calculated from %s timeframe (merged). High: %.5f, Low: %.5f", series.getBarSize(), finalHigh, finalLow);
             }
+        }
+        endDrawPhase(rangePhase, "range", series.getInstrument(), series.getBarSize(), null);
+
+        StepCalculationMode mode = com.biotak.util.EnumUtil.safeEnum(StepCalculationMode.class,
+                settings.getString(S_STEP_MODE, StepCalculationMode.TH_STEP.name()), StepCalculationMode.TH_STEP);
+        THStartPointType startPoint = com.biotak.util.EnumUtil.safeEnum(THStartPointType.class,
+                settings.getString(S_START_POINT, THStartPointType.MIDPOINT.name()), THStartPointType.MIDPOINT);
+        double rolling = mode == StepCalculationMode.SS_LS_STEP ? Double.NaN : rollingAnchor(series, finalHigh, finalLow);
+        // Measured ATR per timeframe replaces the TH approximation once the aggregator has enough bars
+        com.biotak.core.MultiTimeframeAggregator agg = atrAggregator;
+        com.biotak.core.AtrTable measuredAtr = agg != null ? agg.table() : com.biotak.core.AtrTable.EMPTY;
+        if (measuredAtr.size() < 2) measuredAtr = com.biotak.core.AtrTable.EMPTY;
+        SSLSBasisType sslsBasis = com.biotak.util.EnumUtil.safeEnum(SSLSBasisType.class,
+                settings.getString(S_SSLS_BASIS, SSLSBasisType.STRUCTURE.name()), SSLSBasisType.STRUCTURE);
+        com.biotak.enums.MStepBasisType mStepBasis = com.biotak.util.EnumUtil.safeEnum(com.biotak.enums.MStepBasisType.class,
+                settings.getString(Constants.S_MSTEP_BASIS, com.biotak.enums.MStepBasisType.C_BASED.name()),
+                com.biotak.enums.MStepBasisType.C_BASED);
+
+        return new LevelInputs(index, series.getInstrument(), series.getBarSize(),
+                series.getBidClose(last), series.getClose(last), series.getStartTime(0), series.getStartTime(last),
+                manualMode, finalHigh, finalLow, knownHigh, knownLow, rolling,
+                FractalCalculator.calculateATR(series), FractalCalculator.calculateLiveATR(series), measuredAtr,
+                mode, startPoint, settings.getDouble(S_CUSTOM_PRICE, Double.NaN),
+                settings.getBoolean(S_LOCK_ALL_LEVELS, false), lockedCustomPrice,
+                settings.getDouble(S_LOCKED_TH_VALUE, Double.NaN), settings.getDouble(S_LOCKED_BASE_TH_VALUE, Double.NaN),
+                settings.getDouble(S_LOCKED_CONTROL_VALUE, Double.NaN),
+                sslsBasis != null ? sslsBasis : SSLSBasisType.STRUCTURE, settings.getBoolean(S_LS_FIRST, true),
+                mStepBasis != null ? mStepBasis : com.biotak.enums.MStepBasisType.C_BASED,
+                settings.getBoolean(S_USE_TP_FOR_E_STEP, false), settings.getBoolean(S_SHOW_TH_LEVELS, true),
+                settings.getBoolean(S_SHOW_INFO_PANEL, true), LevelStyle.from(settings));
+    }
 
-            // برای محاسبه TH از قیمت لایو Bid استفاده می‌کنیم
-            int totalBars    = series.size();
-            double thBasePrice = series.getBidClose(totalBars - 1); // Use current live bid price for TH calculation.
-            
-            // Use the first and last bar times directly for line drawing
-            long startTime = series.getStartTime(0);
-            long endTime = series.getStartTime(totalBars - 1);
-            
-            // Remove debug logging for better performance
-    
-            // Determine selected step mode once
-            StepCalculationMode currentMode = com.biotak.util.EnumUtil.safeEnum(StepCalculationMode.class,
-                    getSettings().getString(S_STEP_MODE, StepCalculationMode.TH_STEP.name()), StepCalculationMode.TH_STEP);
-    
-            // Draw the components of the indicator.
-            if (currentMode == StepCalculationMode.TH_STEP) {
-                List<Figure> histFigures = LevelDrawer.drawHistoricalLines(getSettings(), startTime, endTime, finalHigh, finalLow);
-                for (Figure f : histFigures) addFigure(f);
-            }
-            double midpointPrice;
-            if (currentMode == StepCalculationMode.SS_LS_STEP) {
-                // Force use of custom price as anchor; if not set, default to last close
-                double cp = getSettings().getDouble(S_CUSTOM_PRICE, Double.NaN);
-                if (Double.isNaN(cp) || cp == 0) {
-                    cp = series.getClose(totalBars - 1);
-                    getSettings().setDouble(S_CUSTOM_PRICE, cp);
-                }
-                midpointPrice = cp;
-            } else {
-                midpointPrice = LevelDrawer.determineMidpointPrice(getSettings(), finalHigh, finalLow);
-            }
-            // Logger.debug("BiotakTrigger: Midpoint price calculated: " + midpointPrice);
-            // Handle interactive custom price baseline
-            String startTypeStr = getSettings().getString(S_START_POINT, THStartPointType.MIDPOINT.name());
-            THStartPointType spType = THStartPointType.valueOf(startTypeStr);
+    /**
+     * Compute stage: THBundle, ruler maps, fractal/ATR values, level figures and the info panel
+     * rows, from {@code in} alone. Does not touch figures, the series or the settings (writes are
+     * collected into the snapshot). Runs on the lane, one computation at a time.
+     */
+    private LevelSnapshot computeLevelSnapshot(long generation, LevelInputs in) {
+        java.util.Map<String, Object> writes = new java.util.LinkedHashMap<>();
+        java.util.List<Figure> levelFigures = new java.util.ArrayList<>();
+        LevelLadder.Builder ladder = new LevelLadder.Builder();
+        Instrument instrument = in.instrument();
+        BarSize barSize = in.barSize();
+        LevelStyle style = in.style();
+        double finalHigh = in.high(), finalLow = in.low();
+
+        // Persist only if new extremes discovered
+        if (!in.manualRange() && in.index() == 0) {
+            if (finalHigh > in.knownHigh()) writes.put(S_HISTORICAL_HIGH, finalHigh);
+            if (finalLow  < in.knownLow())  writes.put(S_HISTORICAL_LOW,  finalLow);
+        }
 
-            // Always need custom-price anchor when mode is SS_LS_STEP (baseline)
-            boolean needCustomAnchor = (currentMode == StepCalculationMode.SS_LS_STEP ||
-                                        spType == THStartPointType.CUSTOM_PRICE);
+        // برای محاسبه TH از قیمت لایو Bid استفاده می‌کنیم
+        // Live bid, held by the recompute gate while it stays inside the band so tick noise
+        // reuses the THBundle cache entry and the published maps
+        double thBasePrice = recomputeGate.basePrice(in.bid(), gateKey(barSize));
 
-            if (needCustomAnchor) {
-                long anchorTime = endTime; // stick to last bar's time so point on right edge
+        // Use the first and last bar times directly for line drawing
+        long startTime = in.startTime();
+        long endTime = in.endTime();
 
-                // Check if Lock All Levels is enabled to determine custom price behavior
-                boolean lockAllLevels = getSettings().getBoolean(S_LOCK_ALL_LEVELS, false);
-                double finalCustomPrice;
-                
-                // Always get the current saved custom price first
-                double savedPrice = settings.getDouble(S_CUSTOM_PRICE, Double.NaN);
-                if (Double.isNaN(savedPrice) || savedPrice == 0) {
-                    savedPrice = series.getClose(totalBars - 1);
-                    settings.setDouble(S_CUSTOM_PRICE, savedPrice);
-                }
-                
-                if (lockAllLevels && !Double.isNaN(lockedCustomPrice)) {
-                    // Use locked custom price (previously stored)
-                    finalCustomPrice = lockedCustomPrice;
-                } else if (lockAllLevels) {
-                    // First time locking - store current saved price as locked value
-                    lockedCustomPrice = savedPrice;
-                    finalCustomPrice = savedPrice;
-                } else {
-                    // Not locked - use current saved price
-                    finalCustomPrice = savedPrice;
-                }
+        StepCalculationMode currentMode = in.mode();
 
-                // --- draggable point (only if not locked) ---
-                if (!lockAllLevels) {
-                    if (customPricePoint == null) {
-                        customPricePoint = new ResizePoint(ResizeType.VERTICAL, true);
-                        // Enable MotiveWave's native magnet snapping
-                        customPricePoint.setSnapToLocation(true);
-                    }
-                    customPricePoint.setLocation(anchorTime, finalCustomPrice);
-                    addFigure(customPricePoint);
-                } else {
-                    // When locked, don't add the draggable point
-                    customPricePoint = null;
-                }
+        // Draw the components of the indicator.
+        if (currentMode == StepCalculationMode.TH_STEP) {
+            levelFigures.addAll(LevelDrawer.drawHistoricalLines(style, startTime, endTime, finalHigh, finalLow));
+        }
 
-                // --- numeric label ---
-                if (customPriceLabel == null) customPriceLabel = new PriceLabel();
-                String priceText = series.getInstrument().format(finalCustomPrice);
-                customPriceLabel.setData(anchorTime, finalCustomPrice, priceText);
-                addFigure(customPriceLabel);
+        // Custom price anchor: saved value, defaulting to last close (persisted on publish)
+        double customPrice = in.customPrice();
+        if (Double.isNaN(customPrice) || customPrice == 0) {
+            customPrice = in.lastClose();
+        }
 
-                // Draw/update custom price horizontal line
-                PathInfo customPricePath = getSettings().getPath(S_CUSTOM_PRICE_PATH);
-                customPriceLine = new CustomPriceLine(startTime, endTime, finalCustomPrice, customPricePath);
-                addFigure(customPriceLine);
-                
-                // Add the invisible ResizePoint for line dragging (only if not locked)
-                if (!lockAllLevels) {
-                    ResizePoint lineResizePoint = customPriceLine.getLineResizePoint();
-                    if (lineResizePoint != null) {
-                        addFigure(lineResizePoint);
-                    }
-                }
-                // Note: When locked, we simply don't add the line resize point to make line non-draggable
+        double midpointPrice;
+        if (currentMode == StepCalculationMode.SS_LS_STEP) {
+            // Force use of custom price as anchor; if not set, default to last close
+            midpointPrice = customPrice;
+        } else {
+            double rolling = in.rollingAnchor();
+            midpointPrice = Double.isNaN(rolling)
+                    ? LevelDrawer.determineMidpointPrice(in.startPoint(), in.customPrice(), finalHigh, finalLow, Double.NaN, Double.NaN)
+                    : rolling;
+        }
+        THStartPointType spType = in.startPoint();
+
+        // Always need custom-price anchor when mode is SS_LS_STEP (baseline)
+        boolean needCustomAnchor = (currentMode == StepCalculationMode.SS_LS_STEP ||
+                                    spType == THStartPointType.CUSTOM_PRICE);
+        if (needCustomAnchor) {
+            double saved = in.customPrice();
+            if (Double.isNaN(saved) || saved == 0) writes.put(S_CUSTOM_PRICE, customPrice);
+        }
 
-                // Additional visual labeling can be explored later if needed.
-            }
-            else {
-                customPricePoint = null; // not needed
-                // clear label if any
-            }
-            
-            // Draw midpoint line only if not in SS/LS mode (where custom price acts as anchor)
-            if (currentMode == StepCalculationMode.TH_STEP) {
-                List<Figure> midFigures = LevelDrawer.drawMidpointLine(getSettings(), startTime, endTime, midpointPrice);
-                for (Figure f : midFigures) addFigure(f);
-            }
-    
-            // Step lines (TH or SS/LS) will be drawn below once all required values are calculated.
-            
-            // Consolidated TH calculations using FractalUtil
-            var thBundle = com.biotak.util.FractalUtil.calculateTHBundle(series.getInstrument(), series.getBarSize(), thBasePrice);
-            double thValue = thBundle.th();
-            // Note: Other TH values (pattern, trigger, structure, higherPattern) are available from thBundle
-            // but are not used in this method - they are calculated separately in drawInfoPanel when needed
-
-            BarSize patternBarSize     = TimeframeUtil.getPatternBarSize(series.getBarSize());
-            BarSize triggerBarSize     = TimeframeUtil.getTriggerBarSize(series.getBarSize());
-            BarSize structureBarSize   = TimeframeUtil.getStructureBarSize(series.getBarSize());
-            BarSize higherPatternBarSize = TimeframeUtil.getPatternBarSize(structureBarSize);
-            // 2) M values derived from TH →  M = SS + C + LS
-            //    Detailed decomposition based on Biotak fractal relationships:
-            //      • Structure  (S)  = TH (1 × TH)
-            //      • Pattern    (P)  = 0.5 × S  = 0.5 × TH
-            //      • Trigger    (T)  = 0.5 × P  = 0.25 × TH
-            //      • Short Step (SS) = (2 × S) − P          ≈ 1.5 × TH
-            //      • Long Step  (LS) = (3 × S) − (2 × P)    ≈ 2   × TH
-            //      • Control    (C)  = (SS + LS) / 2 / 7     ≈ 0.25 × TH (empirically)
-            //    Summing SS + C + LS + S + P + T gives:
-            //      1.5 + 0.25 + 2 + 1 + 0.5 + 0.25 = 5.5 × TH (but Biotak spec uses 5.25)
-            //    The original MT4 implementation uses a fixed coefficient of 5.25; we align with that.
-            double mScale = TH_TO_M_FACTOR;
-
-            // 3) Human-readable timeframe labels for ruler pop-up
-            BarSize currBarSize = series.getBarSize();
-            this.tfLabels[0] = FractalCalculator.formatTimeframeString(currBarSize);
-            this.tfLabels[1] = FractalCalculator.formatTimeframeString(patternBarSize);
-            this.tfLabels[2] = FractalCalculator.formatTimeframeString(triggerBarSize);
-            this.tfLabels[3] = FractalCalculator.formatTimeframeString(structureBarSize);
-            this.tfLabels[4] = FractalCalculator.formatTimeframeString(higherPatternBarSize);
-
-            // -----------------------------  BUILD COMPREHENSIVE M MAP  -----------------------------
-            this.fullMValues.clear();
-            java.util.Map<String, Double> newMValues = com.biotak.util.FractalUtil.buildMMap(series, thBasePrice, mScale);
-            
-            // Check size before adding to prevent OutOfMemoryError
-            if (newMValues.size() > MAX_MAP_SIZE) {
-                AdvancedLogger.warn("BiotakTrigger", "drawFigures", "M map size exceeds limit (%d), truncating to %d entries", 
-                    newMValues.size(), CLEANUP_THRESHOLD);
-                // Keep only the most recent entries
-                java.util.List<java.util.Map.Entry<String, Double>> entries = new java.util.ArrayList<>(newMValues.entrySet());
-                entries = entries.subList(0, CLEANUP_THRESHOLD);
-                newMValues = entries.stream().collect(java.util.stream.Collectors.toMap(
-                    java.util.Map.Entry::getKey, java.util.Map.Entry::getValue));
-            }
-            
-            this.fullMValues.putAll(newMValues);
- 
-            // (Debug logging for M map removed in release version)
-
-            // ---------------------- FRACTAL METRICS & PANEL ----------------------
-            double[] fractalValues = FractalCalculator.calculateFractalValues(currBarSize, thValue);
-            double structureValue = fractalValues[0]; // S value
-            double patternValue  = fractalValues[1];  // P value
-            double triggerValue  = fractalValues[2];  // T value
-
-            // Calculate SS/LS for current timeframe
-            double shortStep = FractalCalculator.calculateShortStep(structureValue, patternValue);
-            double longStep  = FractalCalculator.calculateLongStep(structureValue, patternValue);
-
-            // ATR metrics
-            double atrValue     = FractalCalculator.calculateATR(series);
-            double liveAtrValue = FractalCalculator.calculateLiveATR(series);
-            // pipMultiplier is now handled internally via UnitConverter; variable removed.
-
-            // --------------------- BUILD 3×ATR MAP ---------------------
-            int structureMin = TimeframeUtil.parseCompoundTimeframe(tfLabels[0]);
-            if (structureMin <= 0) {
-                structureMin = series.getBarSize().getInterval() * (switch(series.getBarSize().getIntervalType()){
-                    case SECOND -> 1;
-                    case MINUTE -> 1;
-                    case HOUR -> 60;
-                    case DAY -> 1440;
-                    case WEEK -> 10080;
-                    default -> 1;
-                });
-            }
+        // Draw midpoint line only if not in SS/LS mode (where custom price acts as anchor)
+        if (currentMode == StepCalculationMode.TH_STEP) {
+            levelFigures.addAll(LevelDrawer.drawMidpointLine(style, startTime, endTime, midpointPrice, ladder));
+        }
 
-            // Build comprehensive ATR map from all major timeframes once
-            // This ensures consistent results regardless of current timeframe
-            // Clear cache if timeframe has changed to ensure proper recalculation
-            boolean shouldRebuildATR = this.fullATRValues.isEmpty() || this.atrStructureMin != structureMin;
-            if (shouldRebuildATR) {
-                com.biotak.debug.AdvancedLogger.info("BiotakTrigger", "drawFigures", 
-                    "Building comprehensive ATR map from all timeframes for consistent matching");
-                    
-                this.fullATRValues.clear();
-                
-                // Build ATR map using same method as M for timeframe independence
-                // Use price and instrument only (like M method) to ensure consistent results
-                java.util.Map<String, Double> comprehensiveATRValues = com.biotak.util.FractalUtil.buildComprehensiveATRMap(thBasePrice, series.getInstrument());
-                
-                this.fullATRValues.putAll(comprehensiveATRValues);
-                this.atrStructureMin   = structureMin;
-                this.atrStructurePrice = atrValue;
-                
-                // Log comprehensive ATR map creation
-                com.biotak.debug.AdvancedLogger.info("BiotakTrigger", "drawFigures", 
-                    "Comprehensive ATR Map built with %d entries covering all major timeframes", comprehensiveATRValues.size());
-                    
-                // Log a sample of the comprehensive coverage
-                String sampleEntries = comprehensiveATRValues.entrySet().stream().limit(5)
-                    .map(e -> e.getKey() + "=" + String.format("%.2f", com.biotak.util.UnitConverter.priceToPip(e.getValue(), series.getInstrument())) + "p")
-                    .collect(java.util.stream.Collectors.joining(", "));
-                com.biotak.debug.AdvancedLogger.info("BiotakTrigger", "drawFigures", 
-                    "Sample ATR coverage: %s", sampleEntries);
-            }
-            
-            // --------------------- BUILD ALL STEP VALUE MAPS ---------------------
-            // Build maps for E, TP, TH, SS, LS step values
-            this.fullEValues.clear();
-            this.fullEValues.putAll(com.biotak.util.FractalUtil.buildStepValuesMap(series, thBasePrice, "E"));
-            
-            this.fullTPValues.clear();
-            this.fullTPValues.putAll(com.biotak.util.FractalUtil.buildStepValuesMap(series, thBasePrice, "TP"));
-            
-            this.fullTHValues.clear();
-            this.fullTHValues.putAll(com.biotak.util.FractalUtil.buildStepValuesMap(series, thBasePrice, "TH"));
-            
-            this.fullSSValues.clear();
-            this.fullSSValues.putAll(com.biotak.util.FractalUtil.buildStepValuesMap(series, thBasePrice, "SS"));
-            
-            this.fullLSValues.clear();
-            this.fullLSValues.putAll(com.biotak.util.FractalUtil.buildStepValuesMap(series, thBasePrice, "LS"));
-
-            long now = System.currentTimeMillis();
-            if (now - lastCalcTableLogTime > LOG_INTERVAL_MS) {
-                double pipMultiplier = com.biotak.util.UnitConverter.getPipMultiplier(series.getInstrument());
-                FractalCalculator.logCalculationTable(series, thValue, structureValue, patternValue, triggerValue,
-                               shortStep, longStep, atrValue, liveAtrValue,
-                               pipMultiplier, lastCalcTableLogTime, LOG_INTERVAL_MS);
-                lastCalcTableLogTime = now;
-            }
+        // Consolidated TH calculations using FractalUtil
+        var thPhase = BiotakJfr.beginDrawPhase();
+        var thBundle = com.biotak.util.FractalUtil.calculateTHBundle(instrument, barSize, thBasePrice);
+        endDrawPhase(thPhase, "thBundle", instrument, barSize, currentMode);
+        double thValue = thBundle.th();
+        recomputeGate.setStep(thValue, BiotakConfig.getInstance().snapshot().recomputeBandFraction());
+        if (rateLog.tryAcquire(LOG_KEY_RECOMPUTE_GATE)) {
+            AdvancedLogger.performance("BiotakTrigger", "drawFigures", "Recompute gate: executed=%d skipped=%d unchanged=%d liveAtr=%d band=%.5f anchor=%.5f",
+                recomputeGate.getExecuted(), recomputeGate.getSkipped(), unchangedRequests, liveAtrUpdates, recomputeGate.getBand(), thBasePrice);
+        }
 
-            // Update / draw information panel
-            drawInfoPanel(series, thValue, startTime, shortStep, longStep, atrValue, liveAtrValue);
-            
-            // ------------------------------------------------------------------
-            // Draw horizontal levels according to selected Step Mode
-            // ------------------------------------------------------------------
-            switch (currentMode) {
-                case TH_STEP -> {
-                    boolean lockAllLevels = getSettings().getBoolean(S_LOCK_ALL_LEVELS, false);
-                    double finalThStepInPoints;
-
-                    if (lockAllLevels) {
-                        // Try to get the globally-locked TH value
-                        double globallyLockedTH = getSettings().getDouble(S_LOCKED_TH_VALUE, Double.NaN);
-
-                        if (!Double.isNaN(globallyLockedTH)) {
-                            // A globally-locked value exists; use it for all timeframes
-                            finalThStepInPoints = globallyLockedTH;
-                            AdvancedLogger.info("BiotakTrigger", "drawFigures", "Using globally-locked TH value: %.5f", finalThStepInPoints);
-                        } else {
-                            // No globally-locked value exists; this is the first time locking
-                            // Calculate TH step for the current timeframe
-                            double timeframePercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
-                            finalThStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(series.getInstrument(), thBasePrice, timeframePercentage);
-
-                            // Store this value as the new global lock
-                            getSettings().setDouble(S_LOCKED_TH_VALUE, finalThStepInPoints);
-                            getSettings().setString(S_LOCKED_TH_ORIGIN_TIMEFRAME, series.getBarSize().toString());
-
-                            AdvancedLogger.info("BiotakTrigger", "drawFigures", "Locking global TH value to %.5f from timeframe %s", 
-                                finalThStepInPoints, series.getBarSize().toString());
-                        }
+        // 2) M values derived from TH →  M = SS + C + LS
+        //    Detailed decomposition based on Biotak fractal relationships:
+        //      • Structure  (S)  = TH (1 × TH)
+        //      • Pattern    (P)  = 0.5 × S  = 0.5 × TH
+        //      • Trigger    (T)  = 0.5 × P  = 0.25 × TH
+        //      • Short Step (SS) = (2 × S) − P          ≈ 1.5 × TH
+        //      • Long Step  (LS) = (3 × S) − (2 × P)    ≈ 2   × TH
+        //      • Control    (C)  = (SS + LS) / 2 / 7     ≈ 0.25 × TH (empirically)
+        //    Summing SS + C + LS + S + P + T gives:
+        //      1.5 + 0.25 + 2 + 1 + 0.5 + 0.25 = 5.5 × TH (but Biotak spec uses 5.25)
+        //    The original MT4 implementation uses a fixed coefficient of 5.25; we align with that.
+        double mScale = TH_TO_M_FACTOR;
+
+        // 3) Human-readable timeframe labels for ruler pop-up
+        String[] labels = {
+            FractalCalculator.formatTimeframeString(barSize),
+            thBundle.label(-1), thBundle.label(-2), thBundle.label(2), thBundle.label(1)
+        };
+
+        // -----------------------------  BUILD COMPREHENSIVE M MAP  -----------------------------
+        long mapsStart = LatencyMetrics.start();
+        var mapsPhase = BiotakJfr.beginDrawPhase();
+        // The M and step maps depend only on the base price; while the bid has not moved the
+        // published (immutable) maps are reused instead of rebuilt. Fresh maps are wrapped
+        // read-only rather than copied: nothing else holds them
+        RulerMaps published = this.rulerMaps;
+        boolean reuseMaps = published.basePrice() == thBasePrice && !published.mValues().isEmpty()
+                && published.tfLabels().get(0).equals(labels[0]);
+        java.util.Map<String, Double> newMValues = reuseMaps ? published.mValues()
+                : com.biotak.util.FractalUtil.buildMMap(instrument, thBasePrice, mScale);
+
+        // Check size before adding to prevent OutOfMemoryError
+        if (newMValues.size() > MAX_MAP_SIZE) {
+            AdvancedLogger.warn("BiotakTrigger", "drawFigures", "M map size exceeds limit (%d), truncating to %d entries",
+                newMValues.size(), CLEANUP_THRESHOLD);
+            // Keep only the most recent entries
+            java.util.List<java.util.Map.Entry<String, Double>> entries = new java.util.ArrayList<>(newMValues.entrySet());
+            entries = entries.subList(0, CLEANUP_THRESHOLD);
+            newMValues = entries.stream().collect(java.util.stream.Collectors.toMap(
+                java.util.Map.Entry::getKey, java.util.Map.Entry::getValue));
+        }
+        if (!reuseMaps) newMValues = java.util.Collections.unmodifiableMap(newMValues);
+
+        // ---------------------- FRACTAL METRICS ----------------------
+        double[] fractalValues = FractalCalculator.calculateFractalValues(barSize, thValue);
+        double structureValue = fractalValues[0]; // S value
+        double patternValue  = fractalValues[1];  // P value
+        double triggerValue  = fractalValues[2];  // T value
+
+        // Calculate SS/LS for current timeframe
+        double shortStep = FractalCalculator.calculateShortStep(structureValue, patternValue);
+        double longStep  = FractalCalculator.calculateLongStep(structureValue, patternValue);
+
+        // ATR metrics
+        double atrValue     = in.atrValue();
+        double liveAtrValue = in.liveAtrValue();
+
+        // --------------------- BUILD 3×ATR MAP ---------------------
+        // Chart length from the precomputed hierarchy; ATR scaling works in whole minutes
+        int structureMin = (int) Math.max(1, com.biotak.util.FractalHierarchy.of(barSize).seconds(0) / 60);
+
+        // Build comprehensive ATR map from all major timeframes once
+        // This ensures consistent results regardless of current timeframe
+        // Rebuild only if timeframe has changed to ensure proper recalculation
+        java.util.Map<String, Double> comprehensiveATRValues = published.atrValues();
+        int atrStructureMin = published.atrStructureMin();
+        double atrStructurePrice = published.atrStructurePrice();
+        com.biotak.core.AtrTable measuredAtr = in.measuredAtr();
+        boolean shouldRebuildATR = comprehensiveATRValues.isEmpty() || atrStructureMin != structureMin
+                || published.measuredAtr() != measuredAtr;
+        if (!measuredAtr.isEmpty()) {
+            comprehensiveATRValues = measuredAtr.toLabelMap();
+            atrStructureMin   = structureMin;
+            double measuredStructure = measuredAtr.atrAt(structureMin);
+            atrStructurePrice = Double.isNaN(measuredStructure) ? atrValue : measuredStructure;
+        } else if (shouldRebuildATR) {
+            com.biotak.debug.AdvancedLogger.info("BiotakTrigger", "drawFigures",
+                "Building comprehensive ATR map from all timeframes for consistent matching");
+
+            // Build ATR map using same method as M for timeframe independence
+            // Use price and instrument only (like M method) to ensure consistent results
+            // Shared with every chart on this symbol at the same base price
+            comprehensiveATRValues = instrumentContext(instrument).comprehensiveAtr(instrument, thBasePrice);
+            atrStructureMin   = structureMin;
+            atrStructurePrice = atrValue;
+
+            // Log comprehensive ATR map creation
+            com.biotak.debug.AdvancedLogger.info("BiotakTrigger", "drawFigures",
+                "Comprehensive ATR Map built with %d entries covering all major timeframes", comprehensiveATRValues.size());
+
+            // Log a sample of the comprehensive coverage
+            String sampleEntries = comprehensiveATRValues.entrySet().stream().limit(5)
+                .map(e -> e.getKey() + "=" + com.biotak.util.FastFormat.fixed(com.biotak.util.UnitConverter.priceToPip(e.getValue(), instrument), 2) + "p")
+                .collect(java.util.stream.Collectors.joining(", "));
+            com.biotak.debug.AdvancedLogger.info("BiotakTrigger", "drawFigures",
+                "Sample ATR coverage: %s", sampleEntries);
+        }
+
+        // --------------------- BUILD ALL STEP VALUE MAPS ---------------------
+        // Build maps for E, TP, TH, SS, LS step values
+        var eValues  = reuseMaps ? published.eValues()  : java.util.Collections.unmodifiableMap(com.biotak.util.FractalUtil.buildStepValuesMap(instrument, thBasePrice, "E"));
+        var tpValues = reuseMaps ? published.tpValues() : java.util.Collections.unmodifiableMap(com.biotak.util.FractalUtil.buildStepValuesMap(instrument, thBasePrice, "TP"));
+        var thValues = reuseMaps ? published.thValues() : java.util.Collections.unmodifiableMap(com.biotak.util.FractalUtil.buildStepValuesMap(instrument, thBasePrice, "TH"));
+        var ssValues = reuseMaps ? published.ssValues() : java.util.Collections.unmodifiableMap(com.biotak.util.FractalUtil.buildStepValuesMap(instrument, thBasePrice, "SS"));
+        var lsValues = reuseMaps ? published.lsValues() : java.util.Collections.unmodifiableMap(com.biotak.util.FractalUtil.buildStepValuesMap(instrument, thBasePrice, "LS"));
+        LatencyMetrics.record(LatencyMetrics.Op.DRAW_MAPS, mapsStart);
+        endDrawPhase(mapsPhase, "maps", instrument, barSize, currentMode);
+
+        if (rateLog.tryAcquire(LOG_KEY_CALC_TABLE)) {
+            double pipMultiplier = com.biotak.util.UnitConverter.getPipMultiplier(instrument);
+            FractalCalculator.logCalculationTable(instrument, barSize, in.bid(), thValue, structureValue, patternValue, triggerValue,
+                           shortStep, longStep, atrValue, liveAtrValue, pipMultiplier);
+        }
+
+        // ------------------------------------------------------------------
+        // Build horizontal levels according to selected Step Mode
+        // ------------------------------------------------------------------
+        long levelsStart = LatencyMetrics.start();
+        var levelsPhase = BiotakJfr.beginDrawPhase();
+        boolean lockAllLevels = in.lockAllLevels();
+        switch (currentMode) {
+            case TH_STEP -> {
+                double finalThStepInPoints;
+
+                if (lockAllLevels) {
+                    // Try to get the globally-locked TH value
+                    double globallyLockedTH = in.lockedTh();
+
+                    if (!Double.isNaN(globallyLockedTH)) {
+                        // A globally-locked value exists; use it for all timeframes
+                        finalThStepInPoints = globallyLockedTH;
+                        AdvancedLogger.info("BiotakTrigger", "drawFigures", "Using globally-locked TH value: %.5f", finalThStepInPoints);
                     } else {
-                        // Lock is disabled; calculate TH step normally for the current timeframe
-                        double timeframePercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
-                        finalThStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(series.getInstrument(), thBasePrice, timeframePercentage);
-                        
-                        // Also, ensure any old global lock values are cleared
-                        getSettings().setDouble(S_LOCKED_TH_VALUE, Double.NaN);
-                        getSettings().setString(S_LOCKED_TH_ORIGIN_TIMEFRAME, null);
-                    }
+                        // No globally-locked value exists; this is the first time locking
+                        // Calculate TH step for the current timeframe
+                        double timeframePercentage = TimeframeUtil.getTimeframePercentage(barSize);
+                        finalThStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, thBasePrice, timeframePercentage);
+
+                        // Store this value as the new global lock
+                        writes.put(S_LOCKED_TH_VALUE, finalThStepInPoints);
+                        writes.put(S_LOCKED_TH_ORIGIN_TIMEFRAME, barSize.toString());
 
-                    if (getSettings().getBoolean(S_SHOW_TH_LEVELS, true)) {
-                        List<Figure> thFigures = LevelDrawer.drawTHLevels(getSettings(), series, midpointPrice, finalHigh, finalLow, finalThStepInPoints, startTime, endTime);
-                        for (Figure f : thFigures) addFigure(f);
+                        AdvancedLogger.info("BiotakTrigger", "drawFigures", "Locking global TH value to %.5f from timeframe %s",
+                            finalThStepInPoints, barSize.toString());
                     }
+                } else {
+                    // Lock is disabled; calculate TH step normally for the current timeframe
+                    double timeframePercentage = TimeframeUtil.getTimeframePercentage(barSize);
+                    finalThStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, thBasePrice, timeframePercentage);
+
+                    // Also, ensure any old global lock values are cleared
+                    writes.put(S_LOCKED_TH_VALUE, Double.NaN);
+                    writes.put(S_LOCKED_TH_ORIGIN_TIMEFRAME, null);
                 }
-                case SS_LS_STEP -> {
-                    boolean lockAllLevels = getSettings().getBoolean(S_LOCK_ALL_LEVELS, false);
-                    double baseTHForSession;
-
-                    if (lockAllLevels) {
-                        double globallyLockedBaseTH = getSettings().getDouble(S_LOCKED_BASE_TH_VALUE, Double.NaN);
-                        if (!Double.isNaN(globallyLockedBaseTH)) {
-                            baseTHForSession = globallyLockedBaseTH;
-                        } else {
-                            SSLSBasisType basis = com.biotak.util.EnumUtil.safeEnum(SSLSBasisType.class, getSettings().getString(S_SSLS_BASIS, SSLSBasisType.STRUCTURE.name()), SSLSBasisType.STRUCTURE);
-                            if (basis == null) basis = SSLSBasisType.STRUCTURE;
-                            switch (basis) {
-                                case PATTERN -> baseTHForSession = patternValue;
-                                case TRIGGER -> baseTHForSession = triggerValue;
-                                default -> baseTHForSession = structureValue;
-                            }
-                            getSettings().setDouble(S_LOCKED_BASE_TH_VALUE, baseTHForSession);
-                            getSettings().setString(S_LOCKED_BASE_TH_ORIGIN_TIMEFRAME, series.getBarSize().toString());
-                        }
+
+                if (in.showThLevels()) {
+                    levelFigures.addAll(LevelDrawer.drawTHLevels(style, instrument.getTickSize(), midpointPrice, finalHigh, finalLow, finalThStepInPoints, startTime, endTime, LevelKind.TH, ladder));
+                }
+            }
+            case SS_LS_STEP -> {
+                double baseTHForSession;
+
+                if (lockAllLevels) {
+                    double globallyLockedBaseTH = in.lockedBaseTh();
+                    if (!Double.isNaN(globallyLockedBaseTH)) {
+                        baseTHForSession = globallyLockedBaseTH;
                     } else {
-                        SSLSBasisType basis = com.biotak.util.EnumUtil.safeEnum(SSLSBasisType.class, getSettings().getString(S_SSLS_BASIS, SSLSBasisType.STRUCTURE.name()), SSLSBasisType.STRUCTURE);
-                        if (basis == null) basis = SSLSBasisType.STRUCTURE;
+                        SSLSBasisType basis = in.sslsBasis();
                         switch (basis) {
                             case PATTERN -> baseTHForSession = patternValue;
                             case TRIGGER -> baseTHForSession = triggerValue;
                             default -> baseTHForSession = structureValue;
                         }
-                        getSettings().setDouble(S_LOCKED_BASE_TH_VALUE, Double.NaN);
-                        getSettings().setString(S_LOCKED_BASE_TH_ORIGIN_TIMEFRAME, null);
+                        writes.put(S_LOCKED_BASE_TH_VALUE, baseTHForSession);
+                        writes.put(S_LOCKED_BASE_TH_ORIGIN_TIMEFRAME, barSize.toString());
+                    }
+                } else {
+                    SSLSBasisType basis = in.sslsBasis();
+                    switch (basis) {
+                        case PATTERN -> baseTHForSession = patternValue;
+                        case TRIGGER -> baseTHForSession = triggerValue;
+                        default -> baseTHForSession = structureValue;
                     }
+                    writes.put(S_LOCKED_BASE_TH_VALUE, Double.NaN);
+                    writes.put(S_LOCKED_BASE_TH_ORIGIN_TIMEFRAME, null);
+                }
 
-                    double ssValue = baseTHForSession * SS_MULTIPLIER;
-                    double lsValue = baseTHForSession * LS_MULTIPLIER;
-                    boolean drawLsFirst = getSettings().getBoolean(S_LS_FIRST, true);
+                double ssValue = baseTHForSession * SS_MULTIPLIER;
+                double lsValue = baseTHForSession * LS_MULTIPLIER;
+                boolean drawLsFirst = in.lsFirst();
 
-                    List<Figure> sslsFigures = LevelDrawer.drawSSLSLevels(getSettings(), series, midpointPrice, finalHigh, finalLow, ssValue, lsValue, drawLsFirst, startTime, endTime);
-                    for (Figure f : sslsFigures) addFigure(f);
-                }
-                case M_STEP -> {
-                    boolean lockAllLevels = getSettings().getBoolean(S_LOCK_ALL_LEVELS, false);
-                    double controlValue = (shortStep + longStep) / 2.0;
-                    double finalControlValue;
-
-                    if (lockAllLevels) {
-                        double globallyLockedControlValue = getSettings().getDouble(S_LOCKED_CONTROL_VALUE, Double.NaN);
-                        if (!Double.isNaN(globallyLockedControlValue)) {
-                            finalControlValue = globallyLockedControlValue;
-                        } else {
-                            finalControlValue = controlValue;
-                            getSettings().setDouble(S_LOCKED_CONTROL_VALUE, finalControlValue);
-                            getSettings().setString(S_LOCKED_CONTROL_ORIGIN_TIMEFRAME, series.getBarSize().toString());
-                        }
+                levelFigures.addAll(LevelDrawer.drawSSLSLevels(style, midpointPrice, finalHigh, finalLow, ssValue, lsValue, drawLsFirst, startTime, endTime, ladder));
+            }
+            case M_STEP -> {
+                double controlValue = (shortStep + longStep) / 2.0;
+                double finalControlValue;
+
+                if (lockAllLevels) {
+                    double globallyLockedControlValue = in.lockedControl();
+                    if (!Double.isNaN(globallyLockedControlValue)) {
+                        finalControlValue = globallyLockedControlValue;
                     } else {
                         finalControlValue = controlValue;
-                        getSettings().setDouble(S_LOCKED_CONTROL_VALUE, Double.NaN);
-                        getSettings().setString(S_LOCKED_CONTROL_ORIGIN_TIMEFRAME, null);
-                    }
-                    
-                    double mDistance = finalControlValue * ATR_FACTOR;
-                    com.biotak.enums.MStepBasisType basis = com.biotak.util.EnumUtil.safeEnum(com.biotak.enums.MStepBasisType.class,
-                            getSettings().getString(Constants.S_MSTEP_BASIS, com.biotak.enums.MStepBasisType.C_BASED.name()),
-                            com.biotak.enums.MStepBasisType.C_BASED);
-                    if (basis == null) basis = com.biotak.enums.MStepBasisType.C_BASED;
-                    java.util.List<Figure> mFigures;
-                    if (basis == com.biotak.enums.MStepBasisType.C_BASED) {
-                        mFigures = LevelDrawer.drawMLevels(getSettings(), series, midpointPrice, finalHigh, finalLow, finalControlValue, startTime, endTime);
-                    } else {
-                        mFigures = LevelDrawer.drawMEqualLevels(getSettings(), midpointPrice, finalHigh, finalLow, mDistance, startTime, endTime);
+                        writes.put(S_LOCKED_CONTROL_VALUE, finalControlValue);
+                        writes.put(S_LOCKED_CONTROL_ORIGIN_TIMEFRAME, barSize.toString());
                     }
-                    for (Figure f : mFigures) addFigure(f);
+                } else {
+                    finalControlValue = controlValue;
+                    writes.put(S_LOCKED_CONTROL_VALUE, Double.NaN);
+                    writes.put(S_LOCKED_CONTROL_ORIGIN_TIMEFRAME, null);
                 }
-                case E_STEP -> {
-                    boolean lockAllLevels = getSettings().getBoolean(S_LOCK_ALL_LEVELS, false);
-                    boolean useTpForEStep = getSettings().getBoolean(S_USE_TP_FOR_E_STEP, false);
-                    double finalEThStepInPoints;
-
-                    if (lockAllLevels) {
-                        double globallyLockedTH = getSettings().getDouble(S_LOCKED_TH_VALUE, Double.NaN);
-                        if (!Double.isNaN(globallyLockedTH)) {
-                            finalEThStepInPoints = globallyLockedTH;
-                        } else {
-                            // Calculate TH step for E mode - same as TH_STEP but with 0.75 factor
-                            double timeframePercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
-                            double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(series.getInstrument(), thBasePrice, timeframePercentage);
-                            double eDistance = thStepInPoints * 0.75; // E = TH * 0.75
-                            finalEThStepInPoints = useTpForEStep ? (eDistance * 3.0) : eDistance; // TP = E * 3
-                            getSettings().setDouble(S_LOCKED_TH_VALUE, finalEThStepInPoints);
-                            getSettings().setString(S_LOCKED_TH_ORIGIN_TIMEFRAME, series.getBarSize().toString());
-                        }
+
+                double mDistance = finalControlValue * ATR_FACTOR;
+                com.biotak.enums.MStepBasisType basis = in.mStepBasis();
+                if (basis == com.biotak.enums.MStepBasisType.C_BASED) {
+                    levelFigures.addAll(LevelDrawer.drawMLevels(style, midpointPrice, finalHigh, finalLow, finalControlValue, startTime, endTime, ladder));
+                } else {
+                    levelFigures.addAll(LevelDrawer.drawMEqualLevels(style, midpointPrice, finalHigh, finalLow, mDistance, startTime, endTime, ladder));
+                }
+            }
+            case E_STEP -> {
+                boolean useTpForEStep = in.useTpForEStep();
+                double finalEThStepInPoints;
+
+                if (lockAllLevels) {
+                    double globallyLockedTH = in.lockedTh();
+                    if (!Double.isNaN(globallyLockedTH)) {
+                        finalEThStepInPoints = globallyLockedTH;
                     } else {
                         // Calculate TH step for E mode - same as TH_STEP but with 0.75 factor
-                        double timeframePercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
-                        double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(series.getInstrument(), thBasePrice, timeframePercentage);
+                        double timeframePercentage = TimeframeUtil.getTimeframePercentage(barSize);
+                        double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, thBasePrice, timeframePercentage);
                         double eDistance = thStepInPoints * 0.75; // E = TH * 0.75
                         finalEThStepInPoints = useTpForEStep ? (eDistance * 3.0) : eDistance; // TP = E * 3
-                        getSettings().setDouble(S_LOCKED_TH_VALUE, Double.NaN);
-                        getSettings().setString(S_LOCKED_TH_ORIGIN_TIMEFRAME, null);
+                        writes.put(S_LOCKED_TH_VALUE, finalEThStepInPoints);
+                        writes.put(S_LOCKED_TH_ORIGIN_TIMEFRAME, barSize.toString());
                     }
-                    
-                    // Only log E_STEP calculation once per minute to reduce spam
-                    long nowEStep = System.currentTimeMillis();
-                    if (nowEStep - lastCalcTableLogTime > LOG_INTERVAL_MS) {
-                        String modeDescription = useTpForEStep ? "TP (3×E)" : "E (0.75×TH)";
-                        AdvancedLogger.info("BiotakTrigger", "drawFigures", "E_STEP calc: thValue=%.3f, finalPoints=%.3f (%s)", 
-                            thValue, finalEThStepInPoints, modeDescription);
-                        lastCalcTableLogTime = nowEStep;
-                    }
-                    
-                    // Use the same drawing method as TH_STEP but with E or TP distance
-                    List<Figure> eFigures = LevelDrawer.drawTHLevels(getSettings(), series, midpointPrice, finalHigh, finalLow, finalEThStepInPoints, startTime, endTime);
-                    for (Figure f : eFigures) addFigure(f);
+                } else {
+                    // Calculate TH step for E mode - same as TH_STEP but with 0.75 factor
+                    double timeframePercentage = TimeframeUtil.getTimeframePercentage(barSize);
+                    double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, thBasePrice, timeframePercentage);
+                    double eDistance = thStepInPoints * 0.75; // E = TH * 0.75
+                    finalEThStepInPoints = useTpForEStep ? (eDistance * 3.0) : eDistance; // TP = E * 3
+                    writes.put(S_LOCKED_TH_VALUE, Double.NaN);
+                    writes.put(S_LOCKED_TH_ORIGIN_TIMEFRAME, null);
                 }
-                case TP_STEP -> {
-                    // TP_STEP implementation - placeholder for now
-                    boolean lockAllLevels = getSettings().getBoolean(S_LOCK_ALL_LEVELS, false);
-                    double finalTpThStepInPoints;
-
-                    if (lockAllLevels) {
-                        double globallyLockedTH = getSettings().getDouble(S_LOCKED_TH_VALUE, Double.NaN);
-                        if (!Double.isNaN(globallyLockedTH)) {
-                            finalTpThStepInPoints = globallyLockedTH;
-                        } else {
-                            // Calculate TH step for TP mode - E * 3
-                            double timeframePercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
-                            double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(series.getInstrument(), thBasePrice, timeframePercentage);
-                            double eDistance = thStepInPoints * 0.75; // E = TH * 0.75
-                            finalTpThStepInPoints = eDistance * 3.0; // TP = E * 3
-                            getSettings().setDouble(S_LOCKED_TH_VALUE, finalTpThStepInPoints);
-                            getSettings().setString(S_LOCKED_TH_ORIGIN_TIMEFRAME, series.getBarSize().toString());
-                        }
+
+                // Only log E_STEP calculation once per minute to reduce spam
+                if (rateLog.tryAcquire(LOG_KEY_E_STEP)) {
+                    rateLog.info("BiotakTrigger", "drawFigures", "E_STEP calc: thValue=%.3f, finalPoints=%.3f (%s)",
+                        thValue, finalEThStepInPoints, useTpForEStep ? "TP (3×E)" : "E (0.75×TH)");
+                }
+
+                // Use the same drawing method as TH_STEP but with E or TP distance
+                levelFigures.addAll(LevelDrawer.drawTHLevels(style, instrument.getTickSize(), midpointPrice, finalHigh, finalLow, finalEThStepInPoints, startTime, endTime,
+                        useTpForEStep ? LevelKind.TP : LevelKind.E, ladder));
+            }
+            case TP_STEP -> {
+                double finalTpThStepInPoints;
+
+                if (lockAllLevels) {
+                    double globallyLockedTH = in.lockedTh();
+                    if (!Double.isNaN(globallyLockedTH)) {
+                        finalTpThStepInPoints = globallyLockedTH;
                     } else {
                         // Calculate TH step for TP mode - E * 3
-                        double timeframePercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
-                        double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(series.getInstrument(), thBasePrice, timeframePercentage);
+                        double timeframePercentage = TimeframeUtil.getTimeframePercentage(barSize);
+                        double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, thBasePrice, timeframePercentage);
                         double eDistance = thStepInPoints * 0.75; // E = TH * 0.75
                         finalTpThStepInPoints = eDistance * 3.0; // TP = E * 3
-                        getSettings().setDouble(S_LOCKED_TH_VALUE, Double.NaN);
-                        getSettings().setString(S_LOCKED_TH_ORIGIN_TIMEFRAME, null);
+                        writes.put(S_LOCKED_TH_VALUE, finalTpThStepInPoints);
+                        writes.put(S_LOCKED_TH_ORIGIN_TIMEFRAME, barSize.toString());
                     }
-                    
-                    // Use the same drawing method as TH_STEP but with TP distance
-                    List<Figure> tpFigures = LevelDrawer.drawTHLevels(getSettings(), series, midpointPrice, finalHigh, finalLow, finalTpThStepInPoints, startTime, endTime);
-                    for (Figure f : tpFigures) addFigure(f);
+                } else {
+                    // Calculate TH step for TP mode - E * 3
+                    double timeframePercentage = TimeframeUtil.getTimeframePercentage(barSize);
+                    double thStepInPoints = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, thBasePrice, timeframePercentage);
+                    double eDistance = thStepInPoints * 0.75; // E = TH * 0.75
+                    finalTpThStepInPoints = eDistance * 3.0; // TP = E * 3
+                    writes.put(S_LOCKED_TH_VALUE, Double.NaN);
+                    writes.put(S_LOCKED_TH_ORIGIN_TIMEFRAME, null);
                 }
+
+                // Use the same drawing method as TH_STEP but with TP distance
+                levelFigures.addAll(LevelDrawer.drawTHLevels(style, instrument.getTickSize(), midpointPrice, finalHigh, finalLow, finalTpThStepInPoints, startTime, endTime, LevelKind.TP, ladder));
+            }
+        }
+        if (needCustomAnchor) {
+            // Same price addCustomPriceAnchor draws: the locked one while all levels are locked
+            double lineLocked = in.lockedCustomPrice();
+            ladder.add(lockAllLevels && !Double.isNaN(lineLocked) ? lineLocked : customPrice, LevelKind.CUSTOM);
+        }
+        LatencyMetrics.record(LatencyMetrics.Op.DRAW_LEVELS, levelsStart);
+        endDrawPhase(levelsPhase, "levels", instrument, barSize, currentMode);
+
+        // Info panel rows are built here so the publish stage only attaches them
+        java.util.List<String> panelCore = java.util.List.of(), panelHierarchy = java.util.List.of();
+        if (in.showInfoPanel() && instrument != null) {
+            panelCore = InfoPanel.coreLines(instrument, thValue, shortStep, longStep, atrValue, liveAtrValue);
+            panelHierarchy = InfoPanel.hierarchyLines(instrument, labels[0], thValue, thBundle);
+        }
+
+        return new LevelSnapshot(generation, in.index(), currentMode, in.manualRange(), finalHigh, finalLow, thBasePrice,
+                midpointPrice, startTime, endTime, thValue, structureValue, patternValue, triggerValue,
+                shortStep, longStep, atrValue, liveAtrValue, thBundle, needCustomAnchor, customPrice,
+                new RulerMaps(newMValues, eValues, tpValues, thValues, ssValues, lsValues,
+                        comprehensiveATRValues, atrStructureMin, atrStructurePrice, java.util.List.of(labels), thBasePrice,
+                        measuredAtr),
+                java.util.List.copyOf(levelFigures), ladder.build(), java.util.Collections.unmodifiableMap(writes),
+                panelCore, panelHierarchy);
+    }
+
+    /**
+     * Writes the snapshot to this chart's level feed file when feed.enabled is set. The writer is
+     * opened on first use and reopened when the symbol, timeframe, feed.dir or feed.max.levels
+     * changes; an I/O error is logged once and disables the feed for this study. Caller holds
+     * {@link #publishLock}.
+     */
+    private void publishLevelFeed(LevelSnapshot snap, DataSeries series) {
+        if (levelFeedFailed || series.getInstrument() == null) return;
+        var config = BiotakConfig.getInstance().snapshot();
+        if (!config.feedEnabled()) return;
+        String symbol = series.getInstrument().getSymbol();
+        String timeframe = snap.rulerMaps().tfLabels().get(0);
+        String dir = config.feedDir();
+        int maxLevels = config.feedMaxLevels();
+        if (levelFeed == null || maxLevels != feedMaxLevels || !symbol.equals(feedSymbol)
+                || !timeframe.equals(feedTimeframe) || !dir.equals(feedDir)) {
+            if (levelFeed != null) levelFeed.close();
+            feedDir = dir;
+            feedSymbol = symbol;
+            feedTimeframe = timeframe;
+            feedMaxLevels = maxLevels;
+            try {
+                levelFeed = com.biotak.core.LevelFeedWriter.open(java.nio.file.Paths.get(dir), symbol, timeframe, maxLevels);
+                AdvancedLogger.info("BiotakTrigger", "publishLevelFeed", "Level feed: %s", levelFeed.getFile());
+            } catch (java.io.IOException e) {
+                levelFeed = null;
+                levelFeedFailed = true;
+                AdvancedLogger.error("BiotakTrigger", "publishLevelFeed", "Cannot open level feed: %s", e.getMessage());
+                return;
+            }
+        }
+        double[] v = feedValues;
+        var th = snap.thBundle();
+        v[com.biotak.core.LevelFeedLayout.V_ANCHOR] = snap.midpointPrice();
+        v[com.biotak.core.LevelFeedLayout.V_BASE_PRICE] = snap.thBasePrice();
+        v[com.biotak.core.LevelFeedLayout.V_HIGH] = snap.finalHigh();
+        v[com.biotak.core.LevelFeedLayout.V_LOW] = snap.finalLow();
+        v[com.biotak.core.LevelFeedLayout.V_TH] = snap.thValue();
+        v[com.biotak.core.LevelFeedLayout.V_PATTERN] = th != null ? th.pattern() : snap.patternValue();
+        v[com.biotak.core.LevelFeedLayout.V_TRIGGER] = th != null ? th.trigger() : snap.triggerValue();
+        v[com.biotak.core.LevelFeedLayout.V_STRUCTURE] = th != null ? th.structure() : snap.structureValue();
+        v[com.biotak.core.LevelFeedLayout.V_HIGHER_PATTERN] = th != null ? th.higherPattern() : Double.NaN;
+        v[com.biotak.core.LevelFeedLayout.V_SHORT_STEP] = snap.shortStep();
+        v[com.biotak.core.LevelFeedLayout.V_LONG_STEP] = snap.longStep();
+        v[com.biotak.core.LevelFeedLayout.V_M_STEP] = snap.thValue() * TH_TO_M_FACTOR;
+        v[com.biotak.core.LevelFeedLayout.V_ATR] = snap.atrValue();
+        v[com.biotak.core.LevelFeedLayout.V_LIVE_ATR] = snap.liveAtrValue();
+        v[com.biotak.core.LevelFeedLayout.V_CUSTOM_PRICE] = snap.needCustomAnchor() ? snap.customPrice() : Double.NaN;
+        levelFeed.publish(snap.generation(), snap.mode().ordinal(), v, snap.ladder());
+    }
+
+    /**
+     * Publish stage: applies the snapshot's setting writes, swaps it in through
+     * {@link #levelSnapshot} and replaces the chart figures. Runs at the end of each lane task;
+     * no calculation happens here.
+     */
+    private void publishLevelSnapshot(LevelSnapshot snap, DataSeries series) {
+        synchronized (publishLock) {
+            // A slower result never replaces a newer one
+            LevelSnapshot current = levelSnapshot;
+            if (current != null && current.generation() >= snap.generation()) return;
+            Settings settings = getSettings();
+            for (var w : snap.settingWrites().entrySet()) {
+                if (w.getValue() instanceof Double d) settingsWriter.setDouble(w.getKey(), d);
+                else settingsWriter.setString(w.getKey(), (String) w.getValue());
+            }
+            settingsWriter.flush();
+            if (!snap.manualRange()) {
+                // Update in-memory cache for future bars
+                cachedHigh = snap.finalHigh();
+                cachedLow  = snap.finalLow();
+            }
+
+            // Ruler lookup data: one volatile write
+            rulerMaps = snap.rulerMaps();
+            levelSnapshot = snap;
+            // Legs confirmed before any maps were published (history load) are matched now
+            if (swingScanner.getPendingLegs() > 0) swingScanner.rematchPending(swingMatcher);
+
+            clearFigures(); // Clear all previously drawn figures for a clean redraw.
+            for (Figure f : snap.levelFigures()) addFigure(f);
+            crossingEngine.setLadder(snap.ladder());
+            for (CrossingMarker m : crossingMarkers) addFigure(m);
+            newCrossingMarkers = 0;
+            publishLevelFeed(snap, series);
+
+            if (snap.needCustomAnchor()) {
+                addCustomPriceAnchor(series, snap);
+            } else {
+                customPricePoint = null; // not needed
             }
 
+            // Update / draw information panel
+            long panelStart = LatencyMetrics.start();
+            var panelPhase = BiotakJfr.beginDrawPhase();
+            drawInfoPanel(series, snap);
+            LatencyMetrics.record(LatencyMetrics.Op.DRAW_PANEL, panelStart);
+            endDrawPhase(panelPhase, "panel", series.getInstrument(), series.getBarSize(), snap.mode());
+
             // ------------------- LEG RULER -------------------
             boolean showRuler = settings.getBoolean(S_SHOW_RULER, false);
-            
+
             // Throttle ruler logging to prevent spam
-            long nowRuler = System.currentTimeMillis();
-            if (nowRuler - lastRulerInfoLog > RULER_LOG_INTERVAL_MS) {
-                AdvancedLogger.info("BiotakTrigger", "drawFigures", "Ruler status: show=%s, state=%s, components=[%s,%s,%s]", 
-                    showRuler, rulerState, 
+            if (rateLog.tryAcquire(LOG_KEY_RULER_STATUS)) {
+                rateLog.info("BiotakTrigger", "drawFigures", "Ruler status: show=%s, state=%s, components=[%s,%s,%s]",
+                    showRuler, rulerState,
                     (rulerStartResize != null), (rulerEndResize != null), (rulerFigure != null));
-                lastRulerInfoLog = nowRuler;
             }
-            
+
             if (showRuler && rulerState == RulerState.ACTIVE && rulerStartResize != null && rulerEndResize != null) {
                 // Initialize ruler figure if needed
                 if (rulerFigure == null) {
                     rulerFigure = new RulerFigure();
                     AdvancedLogger.debug("BiotakTrigger", "drawFigures", "Created new RulerFigure instance");
                 }
-                
+
                 // Add the ruler to the chart
                 addFigure(rulerFigure);
                 addFigure(rulerStartResize);
                 addFigure(rulerEndResize);
             }
-        } finally {
-            // Log level management removed to prevent spam
         }
     }
 
+    /**
+     * Interactive custom price baseline: draggable point, numeric label and line.
+     */
+    private void addCustomPriceAnchor(DataSeries series, LevelSnapshot snap) {
+        long anchorTime = snap.endTime(); // stick to last bar's time so point on right edge
+
+        // Check if Lock All Levels is enabled to determine custom price behavior
+        boolean lockAllLevels = getSettings().getBoolean(S_LOCK_ALL_LEVELS, false);
+        double savedPrice = snap.customPrice();
+        double finalCustomPrice;
+
+        if (lockAllLevels && !Double.isNaN(lockedCustomPrice)) {
+            // Use locked custom price (previously stored)
+            finalCustomPrice = lockedCustomPrice;
+        } else if (lockAllLevels) {
+            // First time locking - store current saved price as locked value
+            lockedCustomPrice = savedPrice;
+            finalCustomPrice = savedPrice;
+        } else {
+            // Not locked - use current saved price
+            finalCustomPrice = savedPrice;
+        }
+
+        // --- draggable point (only if not locked) ---
+        if (!lockAllLevels) {
+            if (customPricePoint == null) {
+                customPricePoint = new ResizePoint(ResizeType.VERTICAL, true);
+                // Enable MotiveWave's native magnet snapping
+                customPricePoint.setSnapToLocation(true);
+            }
+            customPricePoint.setLocation(anchorTime, finalCustomPrice);
+            addFigure(customPricePoint);
+        } else {
+            // When locked, don't add the draggable point
+            customPricePoint = null;
+        }
+
+        // --- numeric label ---
+        if (customPriceLabel == null) customPriceLabel = new PriceLabel();
+        Instrument instrument = series.getInstrument();
+        String priceText = com.biotak.util.FastFormat.price(instrumentContext(instrument).profile(instrument), finalCustomPrice);
+        customPriceLabel.setData(anchorTime, finalCustomPrice, priceText);
+        addFigure(customPriceLabel);
+
+        // Draw/update custom price horizontal line
+        PathInfo customPricePath = getSettings().getPath(S_CUSTOM_PRICE_PATH);
+        customPriceLine = new CustomPriceLine(snap.startTime(), snap.endTime(), finalCustomPrice, customPricePath);
+        addFigure(customPriceLine);
+
+        // Add the invisible ResizePoint for line dragging (only if not locked)
+        if (!lockAllLevels) {
+            ResizePoint lineResizePoint = customPriceLine.getLineResizePoint();
+            if (lineResizePoint != null) {
+                addFigure(lineResizePoint);
+            }
+        }
+        // Note: When locked, we simply don't add the line resize point to make line non-draggable
+    }
+
     @Override
     public void onEndResize(ResizePoint rp, DrawContext ctx) {
         super.onEndResize(rp, ctx);
@@ -1032,7 +1629,9 @@ public class BiotakTrigger extends Study {
             
             // Persist the new custom price and sync the line
             double newPrice = rp.getValue();
-            getSettings().setDouble(S_CUSTOM_PRICE, newPrice);
+            settingsWriter.setDouble(S_CUSTOM_PRICE, newPrice);
+            settingsWriter.flush();
+            lastDragPrice = Double.NaN;
             
             // Update the custom price line position if it exists
             if (customPriceLine != null) {
@@ -1057,8 +1656,9 @@ public class BiotakTrigger extends Study {
             // Logger.debug("onEndResize: Final price value: " + newPrice);
             // Logger.debug("onEndResize: ResizePoint location: (" + rp.getTime() + ", " + rp.getValue() + ")");
             
-            // Update settings with final price
-            getSettings().setDouble(S_CUSTOM_PRICE, newPrice);
+            // Update settings with final price; ends the drag session
+            settingsWriter.setDouble(S_CUSTOM_PRICE, newPrice);
+            settingsWriter.flush();
             // Logger.debug("onEndResize: Settings updated with final price: " + newPrice);
             
             // Update the custom price line position
@@ -1104,13 +1704,13 @@ public class BiotakTrigger extends Study {
             // As the user drags the golden point, update the custom price and sync the line
             // Logger.debug("onResize: customPricePoint drag detected, newPrice = " + rp.getValue());
             double newPrice = rp.getValue();
-            // Duplicate call filter to minimize lag
-            double lastPointPrice = getSettings().getDouble("LAST_POINT_PRICE", Double.NaN);
-            if (!Double.isNaN(lastPointPrice) && Math.abs(lastPointPrice - newPrice) < 0.1) {
+            // Duplicate call filter to minimize lag (drag state, not persisted)
+            if (!Double.isNaN(lastDragPrice) && Math.abs(lastDragPrice - newPrice) < 0.1) {
                 return;
             }
-            getSettings().setDouble("LAST_POINT_PRICE", newPrice);
-            getSettings().setDouble(S_CUSTOM_PRICE, newPrice);
+            lastDragPrice = newPrice;
+            // Staged only; written once when the drag ends
+            settingsWriter.setDouble(S_CUSTOM_PRICE, newPrice);
             
             // Update the custom price line position if it exists
             if (customPriceLine != null) {
@@ -1139,8 +1739,8 @@ public class BiotakTrigger extends Study {
             // Logger.debug("onResize: CustomPricePoint exists: " + (customPricePoint != null));
             // Logger.debug("onResize: LastDrawContext exists: " + (lastDrawContext != null));
             
-            // Update settings first
-            getSettings().setDouble(S_CUSTOM_PRICE, newPrice);
+            // Staged only; written once when the drag ends
+            settingsWriter.setDouble(S_CUSTOM_PRICE, newPrice);
             // Logger.debug("onResize: Settings updated with new price: " + newPrice);
             
             if (customPriceLine != null) {
@@ -1168,12 +1768,122 @@ public class BiotakTrigger extends Study {
 
     @Override
     public void onBarUpdate(DataContext ctx) {
+        long a0 = AllocationMetrics.start();
         int lastIdx = ctx.getDataSeries().size() - 1;
-        calculate(lastIdx, ctx);
+        recordCall(lastIdx, ctx.getDataSeries(), true);
+        inBarUpdate = true;
+        try {
+            calculate(lastIdx, ctx);
+            if (lastIdx >= 0 && getSettings().getBoolean(S_CROSSING_ALERTS, false)) {
+                DataSeries series = ctx.getDataSeries();
+                crossingEngine.onTick(series.getClose(lastIdx), series.getStartTime(lastIdx), System.currentTimeMillis());
+                if (crossingEngine.pending() > 0) {
+                    crossingCtx = ctx;
+                    crossingIndex = lastIdx;
+                    try {
+                        crossingEngine.drain(crossingSink);
+                    } finally {
+                        crossingCtx = null;
+                    }
+                    publishCrossingMarkers();
+                }
+            }
+        } finally {
+            inBarUpdate = false;
+            AllocationMetrics.record(AllocationMetrics.Op.BAR_UPDATE, a0);
+        }
     }
 
-    private void drawInfoPanel(DataSeries series, double thValue, long startTime, double shortStep, double longStep, double atrValue, double liveAtrValue) {
+    /**
+     * عبور قیمت از یک سطح - Signal and chart marker for one drained crossing event.
+     * <p>
+     * The signal goes through {@code ctx.signal}, so MotiveWave's alert settings apply. The marker
+     * is queued and reaches the chart from {@link #publishCrossingMarkers} after the drain.
+     */
+    private void onLevelCrossing(LevelKind kind, double level, int direction, int levelsCrossed, long time) {
+        AdvancedLogger.info("BiotakTrigger", "onLevelCrossing", "Price crossed %s level %.5f %s (%d level(s), dropped=%d)",
+            kind, level, direction > 0 ? "up" : "down", levelsCrossed, crossingEngine.getDropped());
+        DataContext ctx = crossingCtx;
+        if (ctx != null) {
+            Instrument instrument = ctx.getInstrument();
+            String price = com.biotak.util.FastFormat.price(instrumentContext(instrument).profile(instrument), level);
+            ctx.signal(crossingIndex, direction > 0 ? com.biotak.enums.CrossingSignal.CROSS_UP : com.biotak.enums.CrossingSignal.CROSS_DOWN,
+                "Price crossed " + kind.getDisplayName() + " level " + price + (direction > 0 ? " up" : " down"), level);
+        }
+        CrossingMarker marker = new CrossingMarker(time, level, direction > 0, kind.getDisplayName());
+        synchronized (publishLock) {
+            crossingMarkers.addLast(marker);
+            if (newCrossingMarkers < MAX_CROSSING_MARKERS) newCrossingMarkers++;
+            // The oldest marker leaves the chart on the next full publish
+            if (crossingMarkers.size() > MAX_CROSSING_MARKERS) crossingMarkers.removeFirst();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        BiotakConfig.getInstance().unsubscribe(crossingConfig);
+        levelLane.clear();
+        settingsWriter.flush();
+        AdvancedLogger.performance("BiotakTrigger", "destroy", "Settings writes: %d requested, %d written, %d avoided",
+            settingsWriter.getRequested(), settingsWriter.getWritten(), settingsWriter.getAvoided());
+        synchronized (contextLock) {
+            if (instrumentContext != null) {
+                instrumentContext.release();
+                instrumentContext = null;
+            }
+        }
+        if (recorder != null) recorder.close();
+        synchronized (publishLock) {
+            if (levelFeed != null) levelFeed.close();
+            levelFeed = null;
+        }
+        if (!executorsReleased) {
+            executorsReleased = true;
+            com.biotak.util.BiotakExecutors.releaseStudy();
+        }
+        super.destroy();
+    }
+
+    /**
+     * Writes the bar, the recorded settings and the call itself to the session file
+     * when replay.record.enabled is set. No-op otherwise.
+     */
+    private void recordCall(int index, DataSeries series, boolean barUpdate) {
+        if (!recorderChecked) {
+            recorderChecked = true;
+            if (BiotakConfig.getInstance().getBoolean("replay.record.enabled", false) && series.getInstrument() != null) {
+                BarSize barSize = series.getBarSize();
+                try {
+                    recorder = SessionRecorder.open(
+                        java.nio.file.Paths.get(BiotakConfig.getInstance().getString("replay.record.dir", "recordings")),
+                        series.getInstrument().getSymbol(), series.getInstrument().getTickSize(),
+                        barSize.getIntervalType().name(), barSize.getInterval());
+                } catch (java.io.IOException e) {
+                    AdvancedLogger.error("BiotakTrigger", "recordCall", "Cannot start session recording: %s", e.getMessage());
+                }
+            }
+        }
+        if (recorder == null || recorder.isClosed() || index < 0) return;
+
+        Settings settings = getSettings();
+        for (String key : RECORDED_DOUBLE_SETTINGS) recorder.setting(key, settings.getDouble(key, Double.NaN));
+        for (String key : RECORDED_BOOLEAN_SETTINGS) recorder.setting(key, settings.getBoolean(key, false));
+        for (String key : RECORDED_STRING_SETTINGS) recorder.setting(key, settings.getString(key, null));
+        recorder.setting(S_HISTORICAL_BARS, settings.getInteger(S_HISTORICAL_BARS, 100000));
+
+        recorder.bar(index, series.getStartTime(index), series.getOpen(index), series.getHigh(index),
+                series.getLow(index), series.getClose(index), series.isBarComplete(index));
+        if (barUpdate) {
+            recorder.barUpdate(series.size());
+        } else {
+            recorder.calculate(index, series.size());
+        }
+    }
+
+    private void drawInfoPanel(DataSeries series, LevelSnapshot snap) {
         if (!getSettings().getBoolean(S_SHOW_INFO_PANEL, true)) return;
+        double thValue = snap.thValue(), shortStep = snap.shortStep(), longStep = snap.longStep();
+        double atrValue = snap.atrValue(), liveAtrValue = snap.liveAtrValue();
         Instrument instrument = series.getInstrument();
         if (instrument == null) return;
         
@@ -1193,13 +1903,6 @@ public class BiotakTrigger extends Study {
         String timeframe = FractalCalculator.formatTimeframeString(barSize);
         boolean isSecondsBased = TimeframeUtil.isSecondsBasedTimeframe(barSize);
         
-        // Update theme configuration from study settings
-        String selectedTheme = getSettings().getString(Constants.S_UI_THEME, "auto");
-        BiotakConfig.getInstance().setProperty("ui.theme", selectedTheme);
-        
-        boolean adaptiveColors = getSettings().getBoolean(Constants.S_ADAPTIVE_COLORS, true);
-        BiotakConfig.getInstance().setProperty("ui.adaptive.colors", adaptiveColors);
-        
         // Create or update the info panel
         if (this.infoPanel == null) {
             // Create new panel only if it doesn't exist
@@ -1212,27 +1915,14 @@ public class BiotakTrigger extends Study {
         // Set initial ruler state
         boolean showRuler = getSettings().getBoolean(S_SHOW_RULER, false);
         infoPanel.setRulerActive(showRuler);
-        // Calculate fractal TH values for hierarchy display
-        // Use current bid price instead of previous-close to base TH calculations
-            double basePrice = series.getBidClose(series.size() - 1);
-        // Pattern timeframe (one level down)
-        BarSize patternBarSize = TimeframeUtil.getPatternBarSize(barSize);
-        BarSize triggerBarSize = TimeframeUtil.getTriggerBarSize(barSize);
-        infoPanel.setDownwardFractalInfo(
-            FractalCalculator.formatTimeframeString(patternBarSize), 
-            FractalCalculator.formatTimeframeString(triggerBarSize), 
-            com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, basePrice, TimeframeUtil.getTimeframePercentage(patternBarSize)) * instrument.getTickSize(),
-            com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, basePrice, TimeframeUtil.getTimeframePercentage(triggerBarSize)) * instrument.getTickSize()
-        );
-        // Structure timeframe (one level up) and its pattern
-        BarSize structureBarSize = TimeframeUtil.getStructureBarSize(barSize);
-        BarSize higherPatternBarSize = TimeframeUtil.getPatternBarSize(structureBarSize);
-        infoPanel.setUpwardFractalInfo(
-            FractalCalculator.formatTimeframeString(higherPatternBarSize), 
-            FractalCalculator.formatTimeframeString(structureBarSize), 
-            com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, basePrice, TimeframeUtil.getTimeframePercentage(higherPatternBarSize)) * instrument.getTickSize(),
-            com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, basePrice, TimeframeUtil.getTimeframePercentage(structureBarSize)) * instrument.getTickSize()
-        );
+        infoPanel.setShowDebug(BiotakConfig.getInstance().snapshot().showDebug());
+        // Theme comes from this chart's study settings; the global config is not touched
+        infoPanel.setThemePreference(getSettings().getString(Constants.S_UI_THEME, "auto"));
+        infoPanel.setSwingLines(getSettings().getBoolean(S_SWING_SCANNER, false)
+            ? swingScanner.summaryLines(getSettings().getInteger(S_SWING_LEGS_SHOWN, 5)) : List.of());
+        // Rows were built by the compute stage from the same bundle the levels used
+        infoPanel.setHierarchy(snap.thBundle());
+        if (!snap.panelCoreLines().isEmpty()) infoPanel.setContent(snap.panelCoreLines(), snap.panelHierarchyLines());
         addFigure(this.infoPanel);
     }
 
@@ -1243,11 +1933,15 @@ public class BiotakTrigger extends Study {
 
         // --- cache to reduce CPU ---
         private double cachedLegPip = Double.NaN;
+        private RulerMaps cachedMaps = null; // maps the cached match was computed from
+        private com.biotak.enums.RulerComparisonType cachedComparisonType = null;
         private String cachedBestLabel = null;
+        private int cachedBestTfId = com.biotak.util.TimeframeRegistry.UNKNOWN;
         private double cachedBestBasePips = 0;
         private double cachedBestDiff = 0;
         // Cache for ATR values (always calculated)
         private String cachedBestATRLabel = null;
+        private int cachedBestATRTfId = com.biotak.util.TimeframeRegistry.UNKNOWN;
         private double cachedBestATRBasePips = 0;
         private double cachedBestATRDiff = 0;
 
@@ -1289,6 +1983,17 @@ public class BiotakTrigger extends Study {
 
         @Override
         public void draw(java.awt.Graphics2D gc, DrawContext ctx) {
+            long t0 = LatencyMetrics.start();
+            long a0 = AllocationMetrics.start();
+            try {
+                drawRuler(gc, ctx);
+            } finally {
+                LatencyMetrics.record(LatencyMetrics.Op.RULER_DRAW, t0);
+                AllocationMetrics.record(AllocationMetrics.Op.RULER_DRAW, a0);
+            }
+        }
+
+        private void drawRuler(java.awt.Graphics2D gc, DrawContext ctx) {
             // Remove log level changes to prevent excessive logging
             
             // CRITICAL FIX: Call layout first to ensure line coordinates are set
@@ -1312,11 +2017,9 @@ public class BiotakTrigger extends Study {
             gc.draw(line);
             
             // Throttle ruler draw logging
-            long nowDraw = System.currentTimeMillis();
-            if (nowDraw - lastRulerInfoLog > RULER_LOG_INTERVAL_MS) {
-                AdvancedLogger.debug("BiotakTrigger", "RulerFigure.draw", "Ruler drawn: (%.0f,%.0f)-(%.0f,%.0f)", 
+            if (rateLog.tryAcquire(LOG_KEY_RULER_DRAWN)) {
+                rateLog.debug("BiotakTrigger", "RulerFigure.draw", "Ruler drawn: (%.0f,%.0f)-(%.0f,%.0f)",
                     line.getX1(), line.getY1(), line.getX2(), line.getY2());
-                lastRulerInfoLog = nowDraw;
             }
 
             // Add label in the middle
@@ -1354,8 +2057,14 @@ public class BiotakTrigger extends Study {
                 long minutes = (diffMs / (1000 * 60)) % 60;
 
                 double pips = com.biotak.util.UnitConverter.priceToPip(Math.abs(priceDiff), series.getInstrument());
-                String pipsStr = String.format("Pips: %.1f", pips);
-                String barsStr = String.format("Bars: %.0f", bars);
+                String pipsStr;
+                String barsStr;
+                try (com.biotak.util.ScratchArena arena = com.biotak.util.ScratchArena.open()) {
+                    StringBuilder sb = arena.builder();
+                    pipsStr = com.biotak.util.FastFormat.appendFixed(sb.append("Pips: "), pips, 1).toString();
+                    sb.setLength(0);
+                    barsStr = sb.append("Bars: ").append((long) bars).toString();
+                }
                  // --- Determine best matching MOVE based on selected comparison type ---
                  double tick = series.getInstrument().getTickSize();
                  // Round leg length to 0.1-pip precision for matching
@@ -1370,169 +2079,105 @@ public class BiotakTrigger extends Study {
 
                  // Variables for primary comparison result
                  String bestLabel = "-";
+                 int bestTfId = com.biotak.util.TimeframeRegistry.UNKNOWN;
                  double bestBasePips = 0;
                  double bestDiff = Double.MAX_VALUE;
                  
                  // Variables for ATR comparison (always calculated)
                  String bestATRLabel = "-";
+                 int bestATRTfId = com.biotak.util.TimeframeRegistry.UNKNOWN;
                  double bestATRBasePips = 0;
                  double bestATRDiff = Double.MAX_VALUE;
 
-                 // Cache check - only use if leg hasn't changed significantly
-                 if (!Double.isNaN(cachedLegPip) && Math.abs(cachedLegPip - legPip) < 0.05) {
+                 // Single read of the published maps for this paint
+                 RulerMaps maps = BiotakTrigger.this.rulerMaps;
+
+                 // Cache check - only use if leg hasn't changed significantly and the maps are the same
+                 if (!Double.isNaN(cachedLegPip) && Math.abs(cachedLegPip - legPip) < 0.05
+                         && cachedMaps == maps && cachedComparisonType == comparisonType) {
                      bestLabel      = cachedBestLabel;
+                     bestTfId       = cachedBestTfId;
                      bestBasePips   = cachedBestBasePips;
                      bestDiff       = cachedBestDiff;
                      // Use cached ATR values as well
                      bestATRLabel   = cachedBestATRLabel;
+                     bestATRTfId    = cachedBestATRTfId;
                      bestATRBasePips = cachedBestATRBasePips;
                      bestATRDiff    = cachedBestATRDiff;
                  } else {
                          // Calculate fresh ATR comparison using comprehensive map (no persistent cache needed)
                          {
+                    var matchEvent = BiotakJfr.beginRulerMatch();
                     // Calculate ATR comparison first (always needed for display)
                     com.biotak.debug.AdvancedLogger.debug("BiotakTrigger", "RulerFigure.draw", 
                         "🎯 Starting ATR calculation: legPip=%.2f, instrument=%s", 
                         legPip, series.getInstrument().getSymbol());
                     
-                    var atrRes = com.biotak.core.RulerService.matchATRWithInstrumentAndPrice(
-                        legPip, tick,
-                        BiotakTrigger.this.fullATRValues,
-                        BiotakTrigger.this.atrStructureMin,
-                        BiotakTrigger.this.atrStructurePrice,
+                    var atrRes = com.biotak.core.RulerService.matchATR(
+                        maps,
                         series.getInstrument(),
+                        legPip, tick,
                         series.getBidClose(series.size()-1)
                     );
                      bestATRLabel = atrRes.bestLabel();
+                     bestATRTfId = atrRes.bestTfId();
                      bestATRBasePips = atrRes.bestBasePips();
                      bestATRDiff = atrRes.bestDiff();
                      
                      // Perform comparison based on selected type
-                     switch (comparisonType) {
-                         case M -> {
-                             var mRes = com.biotak.core.RulerService.matchM(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullMValues, TH_TO_M_FACTOR
-                             );
-                             bestLabel = mRes.bestLabel();
-                             bestBasePips = mRes.bestBasePips();
-                             bestDiff = mRes.bestDiff();
-                         }
-                         case E -> {
-                             var eRes = com.biotak.core.RulerService.matchStepValues(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullEValues, "E"
-                             );
-                             bestLabel = eRes.bestLabel();
-                             bestBasePips = eRes.bestBasePips();
-                             bestDiff = eRes.bestDiff();
-                         }
-                         case TP -> {
-                             var tpRes = com.biotak.core.RulerService.matchStepValues(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullTPValues, "TP"
-                             );
-                             bestLabel = tpRes.bestLabel();
-                             bestBasePips = tpRes.bestBasePips();
-                             bestDiff = tpRes.bestDiff();
-                         }
-                         case TH -> {
-                             var thRes = com.biotak.core.RulerService.matchStepValues(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullTHValues, "TH"
-                             );
-                             bestLabel = thRes.bestLabel();
-                             bestBasePips = thRes.bestBasePips();
-                             bestDiff = thRes.bestDiff();
-                         }
-                         case TH3 -> {
-                             var th3Res = com.biotak.core.RulerService.matchStepValues(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullTHValues, "TH3"
-                             );
-                             bestLabel = th3Res.bestLabel();
-                             bestBasePips = th3Res.bestBasePips();
-                             bestDiff = th3Res.bestDiff();
-                         }
-                         case SS -> {
-                             var ssRes = com.biotak.core.RulerService.matchStepValues(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullSSValues, "SS"
-                             );
-                             bestLabel = ssRes.bestLabel();
-                             bestBasePips = ssRes.bestBasePips();
-                             bestDiff = ssRes.bestDiff();
-                         }
-                         case LS -> {
-                             var lsRes = com.biotak.core.RulerService.matchStepValues(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullLSValues, "LS"
-                             );
-                             bestLabel = lsRes.bestLabel();
-                             bestBasePips = lsRes.bestBasePips();
-                             bestDiff = lsRes.bestDiff();
-                         }
-                         case ATR -> {
-                             // Use the already calculated ATR results as primary comparison
-                             bestLabel = bestATRLabel;
-                             bestBasePips = bestATRBasePips;
-                             bestDiff = bestATRDiff;
-                         }
-                         case BOTH -> {
-                             // Legacy mode - show both M and ATR results
-                             var mRes = com.biotak.core.RulerService.matchM(
-                                 series.getInstrument(), legPip, tick,
-                                 series.getBidClose(series.size()-1),
-                                 BiotakTrigger.this.fullMValues, TH_TO_M_FACTOR
-                             );
-                             bestLabel = mRes.bestLabel();
-                             bestBasePips = mRes.bestBasePips();
-                             bestDiff = mRes.bestDiff();
-                             // ATR values are already calculated above
-                         }
+                     if (comparisonType == com.biotak.enums.RulerComparisonType.ATR) {
+                         // Use the already calculated ATR results as primary comparison
+                         bestLabel = bestATRLabel;
+                         bestTfId = bestATRTfId;
+                         bestBasePips = bestATRBasePips;
+                         bestDiff = bestATRDiff;
+                     } else {
+                         // BOTH shows M as primary; its ATR half is already calculated above
+                         var res = com.biotak.core.RulerService.matchByType(comparisonType,
+                             series.getInstrument(), legPip, tick,
+                             series.getBidClose(series.size()-1),
+                             maps, TH_TO_M_FACTOR
+                         );
+                         bestLabel = res.bestLabel();
+                         bestTfId = res.bestTfId();
+                         bestBasePips = res.bestBasePips();
+                         bestDiff = res.bestDiff();
                      }
                      
                      // Cache the results (including ATR)
                      cachedLegPip         = legPip;
+                     cachedMaps           = maps;
+                     cachedComparisonType = comparisonType;
                      cachedBestLabel      = bestLabel;
+                     cachedBestTfId       = bestTfId;
                      cachedBestBasePips   = bestBasePips;
                      cachedBestDiff       = bestDiff;
                      cachedBestATRLabel   = bestATRLabel;
+                     cachedBestATRTfId    = bestATRTfId;
                      cachedBestATRBasePips= bestATRBasePips;
                      cachedBestATRDiff    = bestATRDiff;
                      
+                     BiotakJfr.endRulerMatch(matchEvent, jfrInstrument(series), String.valueOf(series.getBarSize()),
+                         comparisonType.name(), legPip, bestLabel);
                      // Note: Since we now use a comprehensive ATR map built from all timeframes,
                      // we don't need persistent caching - results are stable across timeframe changes
                  }
                  }
 
                  // Log comparison results
-                 long nowInfo = System.currentTimeMillis();
-                 if (nowInfo - lastRulerInfoLog > RULER_LOG_INTERVAL_MS) {
+                 if (rateLog.tryAcquire(LOG_KEY_RULER_MATCH)) {
                      if (comparisonType == com.biotak.enums.RulerComparisonType.BOTH) {
-                         AdvancedLogger.info("BiotakTrigger", "RulerFigure.draw", "[Ruler] Leg=%.1f pips, M→%s (%.1f pips, d=%.1f) | ATR→%s (base=%.1f pips, ×3=%.1f pips, d=%.1f)",
+                         rateLog.info("BiotakTrigger", "RulerFigure.draw", "[Ruler] Leg=%.1f pips, M→%s (%.1f pips, d=%.1f) | ATR→%s (base=%.1f pips, ×3=%.1f pips, d=%.1f)",
                              legPip, bestLabel, bestBasePips, bestDiff, bestATRLabel, bestATRBasePips, bestATRBasePips * 3.0, bestATRDiff);
                      } else {
-                         AdvancedLogger.info("BiotakTrigger", "RulerFigure.draw", "[Ruler] Leg=%.1f pips, %s→%s (%.1f pips, d=%.1f)",
+                         rateLog.info("BiotakTrigger", "RulerFigure.draw", "[Ruler] Leg=%.1f pips, %s→%s (%.1f pips, d=%.1f)",
                              legPip, comparisonType.name(), bestLabel, bestBasePips, bestDiff);
                      }
-                     lastRulerInfoLog = nowInfo;
                  }
 
-                 long totalMinutes = -1;
-                 if (!bestLabel.equals("-")) {
-                     int baseMinutes = TimeframeUtil.parseCompoundTimeframe(bestLabel);
-                     if (baseMinutes > 0) {
-                         totalMinutes = baseMinutes;
-                     }
-                 }
+                 // The matchers return interned ids, so no label is parsed back here
+                 long totalMinutes = bestTfId != com.biotak.util.TimeframeRegistry.UNKNOWN
+                         ? com.biotak.util.TimeframeRegistry.minutes(bestTfId) : -1;
 
                  String matchMinutes;
                  if (totalMinutes > 0) {
@@ -1546,8 +2191,9 @@ public class BiotakTrigger extends Study {
                  String matchStr1, matchStr2;
                  
                  // Show ATR timeframe match (leg ≈ 3×ATR of this timeframe)
-                 String atrStr1 = String.format("ATR : %s", bestATRLabel);
-                 int atrMinVal = TimeframeUtil.parseCompoundTimeframe(bestATRLabel);
+                 String atrStr1 = "ATR : " + bestATRLabel;
+                 int atrMinVal = bestATRTfId != com.biotak.util.TimeframeRegistry.UNKNOWN
+                         ? com.biotak.util.TimeframeRegistry.minutes(bestATRTfId) : -1;
                  String atrStr2 = (atrMinVal > 0 ? atrMinVal + "m" : "-");
                  
                  if (comparisonType == com.biotak.enums.RulerComparisonType.BOTH) {
@@ -1572,34 +2218,13 @@ public class BiotakTrigger extends Study {
                 if (minutes > 0 || timeSB.length() == 6) timeSB.append(minutes).append("min");
                 String timeStr = timeSB.toString();
                  
-                // Add Time Pattern and Time Trigger based on the best M match (not current timeframe)
-                // First, determine the base timeframe from the best M match
-                BarSize baseTimeframeForM = null;
-                if (!bestLabel.equals("-")) {
-                    int baseMinutes = TimeframeUtil.parseCompoundTimeframe(bestLabel);
-                    if (baseMinutes > 0) {
-                        // Create a BarSize from the M match timeframe
-                        baseTimeframeForM = BarSize.getBarSize(baseMinutes);
-                    }
-                }
-                
-                String timePatternStr1, timeTriggerStr1;
-                if (baseTimeframeForM != null) {
-                    // Calculate pattern and trigger based on the M match timeframe
-                    BarSize patternBarSize = TimeframeUtil.getPatternBarSize(baseTimeframeForM);
-                    BarSize triggerBarSize = TimeframeUtil.getTriggerBarSize(baseTimeframeForM);
-                    
-                    timePatternStr1 = "Time Pattern: " + com.biotak.util.DisplayUtil.formatTimeframeForDisplay(patternBarSize);
-                    timeTriggerStr1 = "Time Trigger: " + com.biotak.util.DisplayUtil.formatTimeframeForDisplay(triggerBarSize);
-                } else {
-                    // Fallback to current timeframe if no M match found
-                    BarSize currentBarSize = series.getBarSize();
-                    BarSize patternBarSize = TimeframeUtil.getPatternBarSize(currentBarSize);
-                    BarSize triggerBarSize = TimeframeUtil.getTriggerBarSize(currentBarSize);
-                    
-                    timePatternStr1 = "Time Pattern: " + com.biotak.util.DisplayUtil.formatTimeframeForDisplay(patternBarSize);
-                    timeTriggerStr1 = "Time Trigger: " + com.biotak.util.DisplayUtil.formatTimeframeForDisplay(triggerBarSize);
-                }
+                // Add Time Pattern and Time Trigger based on the best M match (not current timeframe),
+                // falling back to the chart timeframe when nothing matched
+                com.biotak.util.FractalHierarchy matchHierarchy = totalMinutes > 0
+                        ? com.biotak.util.FractalHierarchy.ofMinutes((int) totalMinutes)
+                        : com.biotak.util.FractalHierarchy.of(series.getBarSize());
+                String timePatternStr1 = "Time Pattern: " + matchHierarchy.label(-1);
+                String timeTriggerStr1 = "Time Trigger: " + matchHierarchy.label(-2);
                  
                 // Add nearest fractal timeframe info (only timeframe, no minutes)
                 String nearestLabel = TimeframeUtil.getNearestFractalTimeframe(bestLabel);
@@ -1674,10 +2299,11 @@ public class BiotakTrigger extends Study {
 
                     // Get current theme for consistent colors
                     int transparency = getSettings().getInteger(S_PANEL_TRANSPARENCY, 230);
-                    ThemeManager.ColorTheme theme = ThemeManager.getCurrentTheme(ctx, transparency);
+                    ThemeManager.ColorTheme theme = ThemeManager.getCurrentTheme(ctx, transparency,
+                            getSettings().getString(Constants.S_UI_THEME, "auto"));
                     
                     // Use theme colors if adaptive colors are enabled, otherwise use user-selected colors
-                    boolean useAdaptiveColors = ThemeManager.isAdaptiveColorsEnabled();
+                    boolean useAdaptiveColors = getSettings().getBoolean(Constants.S_ADAPTIVE_COLORS, true);
                     
                     java.awt.Color bgCol;
                     java.awt.Color borderCol;
@@ -1,6 +1,8 @@
 package com.biotak.config;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.io.*;
 import java.nio.file.*;
 
@@ -11,8 +13,11 @@ import java.nio.file.*;
  * - Global settings management
  * - Performance tuning parameters
  * - Environment-specific configs
- * - Hot-reload capability
+ * - Hot-reload: the file is watched and every change is published as a new {@link ConfigSnapshot}
  * - Validation and defaults
+ * 
+ * Reads never lock: getters look up the current snapshot, which is replaced with one
+ * volatile write. Components that need to react to a change {@link #subscribe}.
  */
 public class BiotakConfig {
     
@@ -21,8 +26,12 @@ public class BiotakConfig {
         private static final BiotakConfig INSTANCE = new BiotakConfig();
     }
     
-    private Properties properties;
+    private volatile ConfigSnapshot snapshot;
     private final String configFile = "biotak.properties";
+    private final java.util.List<Consumer<ConfigSnapshot>> subscribers = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final Object writeLock = new Object();
+    private static final long WATCH_DEBOUNCE_MS = 200; // editors write a file in several steps
     
     // Default configuration values
     public static class Defaults {
@@ -47,7 +56,10 @@ public class BiotakConfig {
     }
     
     private BiotakConfig() {
-        loadConfiguration();
+        snapshot = ConfigSnapshot.parse(versions.incrementAndGet(), loadConfiguration());
+        if (getBoolean("config.watch.enabled", true)) {
+            startWatcher();
+        }
     }
     
     // Fix singleton pattern - no synchronization needed
@@ -55,11 +67,30 @@ public class BiotakConfig {
         return InstanceHolder.INSTANCE;
     }
     
-    private void loadConfiguration() {
-        properties = new Properties();
+    /**
+     * Current configuration; a consistent, immutable set of values.
+     */
+    public ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Registers a callback for every published change. Callbacks run on the thread that
+     * published (the file watcher or the caller of reload/setProperty), never on the paint path.
+     */
+    public void subscribe(Consumer<ConfigSnapshot> listener) {
+        subscribers.add(listener);
+    }
+    
+    public void unsubscribe(Consumer<ConfigSnapshot> listener) {
+        subscribers.remove(listener);
+    }
+    
+    private Properties loadConfiguration() {
+        Properties properties = new Properties();
         
         // Load default values first
-        loadDefaults();
+        loadDefaults(properties);
         
         // Try to load from file
         try {
@@ -70,17 +101,93 @@ public class BiotakConfig {
                 }
             } else {
                 // Create default config file
-                saveConfiguration();
+                store(properties);
                 System.out.println("📝 Default configuration created: " + configFile);
             }
         } catch (IOException e) {
             System.err.println("⚠️  Error loading configuration, using defaults: " + e.getMessage());
         }
-        
-        validateConfiguration();
+        return properties;
+    }
+    
+    /**
+     * Replaces the snapshot if anything changed and notifies subscribers.
+     */
+    private void publish(Properties properties) {
+        ConfigSnapshot next;
+        synchronized (writeLock) {
+            next = swap(properties);
+        }
+        notifySubscribers(next);
+    }
+    
+    // Caller holds writeLock; returns null when nothing changed
+    private ConfigSnapshot swap(Properties properties) {
+        ConfigSnapshot next = ConfigSnapshot.parse(versions.incrementAndGet(), properties);
+        if (next.values().equals(snapshot.values())) return null;
+        snapshot = next;
+        return next;
+    }
+    
+    private void notifySubscribers(ConfigSnapshot next) {
+        if (next == null) return;
+        for (Consumer<ConfigSnapshot> listener : subscribers) {
+            try {
+                listener.accept(next);
+            } catch (RuntimeException e) {
+                System.err.println("⚠️  Configuration listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Watches the directory of biotak.properties and reloads after the file changes.
+     */
+    private void startWatcher() {
+        Path file = Paths.get(configFile).toAbsolutePath();
+        Path dir = file.getParent();
+        try {
+            WatchService watcher = dir.getFileSystem().newWatchService();
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            com.biotak.util.BiotakExecutors.io().execute(() -> watchLoop(watcher, file.getFileName()));
+            com.biotak.util.BiotakExecutors.onShutdown(() -> {
+                try {
+                    watcher.close();
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️  Configuration hot-reload disabled: " + e.getMessage());
+        }
+    }
+    
+    private void watchLoop(WatchService watcher, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) changed = true;
+                }
+                key.reset();
+                if (!changed) continue;
+                // Let the writer finish, then fold the burst of events into one reload
+                Thread.sleep(WATCH_DEBOUNCE_MS);
+                WatchKey extra;
+                while ((extra = watcher.poll()) != null) {
+                    extra.pollEvents();
+                    extra.reset();
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // shutting down
+        }
     }
     
-    private void loadDefaults() {
+    private static void loadDefaults(Properties properties) {
         // Performance settings
         properties.setProperty("cache.size", String.valueOf(Defaults.DEFAULT_CACHE_SIZE));
         properties.setProperty("thread.pool.size", String.valueOf(Defaults.DEFAULT_THREAD_POOL_SIZE));
@@ -99,27 +206,22 @@ public class BiotakConfig {
         // Monitoring settings
         properties.setProperty("monitor.interval", String.valueOf(Defaults.DEFAULT_MONITOR_INTERVAL));
         properties.setProperty("monitor.auto.export", String.valueOf(Defaults.DEFAULT_AUTO_EXPORT));
-    }
-    
-    private void validateConfiguration() {
-        // Validate cache size
-        int cacheSize = getInt("cache.size");
-        if (cacheSize < 100 || cacheSize > 10000) {
-            System.err.println("⚠️  Invalid cache size: " + cacheSize + ", using default");
-            properties.setProperty("cache.size", String.valueOf(Defaults.DEFAULT_CACHE_SIZE));
-        }
-        
-        // Validate memory threshold
-        double memoryThreshold = getDouble("memory.threshold");
-        if (memoryThreshold < 50.0 || memoryThreshold > 95.0) {
-            System.err.println("⚠️  Invalid memory threshold: " + memoryThreshold + ", using default");
-            properties.setProperty("memory.threshold", String.valueOf(Defaults.DEFAULT_MEMORY_THRESHOLD));
-        }
         
-        // Add more validations as needed
+        // Logging settings
+        properties.setProperty("logging.level", "INFO");
+        properties.setProperty("logging.console.enabled", "true");
+        properties.setProperty("logging.file.enabled", "true");
+        properties.setProperty("logging.color.enabled", "true");
+        properties.setProperty("logging.performance.tracking", "true");
+        properties.setProperty("logging.max.file.size", String.valueOf(10 * 1024 * 1024));
+        properties.setProperty("logging.max.backup.files", "5");
     }
     
     public void saveConfiguration() {
+        store(currentProperties());
+    }
+    
+    private void store(Properties properties) {
         try (OutputStream output = Files.newOutputStream(Paths.get(configFile))) {
             properties.store(output, "Biotak Configuration - Auto-generated");
             System.out.println("💾 Configuration saved to: " + configFile);
@@ -128,27 +230,33 @@ public class BiotakConfig {
         }
     }
     
+    private Properties currentProperties() {
+        Properties properties = new Properties();
+        properties.putAll(snapshot.values());
+        return properties;
+    }
+    
     // Getter methods with type safety
     public String getString(String key) {
-        return properties.getProperty(key);
+        return snapshot.get(key);
     }
     
     public String getString(String key, String defaultValue) {
-        return properties.getProperty(key, defaultValue);
+        return snapshot.values().getOrDefault(key, defaultValue);
     }
     
     public int getInt(String key) {
         try {
-            return Integer.parseInt(properties.getProperty(key));
+            return Integer.parseInt(snapshot.get(key));
         } catch (NumberFormatException e) {
-            System.err.println("⚠️  Invalid integer value for " + key + ": " + properties.getProperty(key));
+            System.err.println("⚠️  Invalid integer value for " + key + ": " + snapshot.get(key));
             return 0;
         }
     }
     
     public int getInt(String key, int defaultValue) {
         try {
-            String value = properties.getProperty(key);
+            String value = snapshot.get(key);
             return value != null ? Integer.parseInt(value) : defaultValue;
         } catch (NumberFormatException e) {
             return defaultValue;
@@ -157,16 +265,16 @@ public class BiotakConfig {
     
     public double getDouble(String key) {
         try {
-            return Double.parseDouble(properties.getProperty(key));
+            return Double.parseDouble(snapshot.get(key));
         } catch (NumberFormatException e) {
-            System.err.println("⚠️  Invalid double value for " + key + ": " + properties.getProperty(key));
+            System.err.println("⚠️  Invalid double value for " + key + ": " + snapshot.get(key));
             return 0.0;
         }
     }
     
     public double getDouble(String key, double defaultValue) {
         try {
-            String value = properties.getProperty(key);
+            String value = snapshot.get(key);
             return value != null ? Double.parseDouble(value) : defaultValue;
         } catch (NumberFormatException e) {
             return defaultValue;
@@ -174,35 +282,42 @@ public class BiotakConfig {
     }
     
     public boolean getBoolean(String key) {
-        return Boolean.parseBoolean(properties.getProperty(key));
+        return Boolean.parseBoolean(snapshot.get(key));
     }
     
     public boolean getBoolean(String key, boolean defaultValue) {
-        String value = properties.getProperty(key);
+        String value = snapshot.get(key);
         return value != null ? Boolean.parseBoolean(value) : defaultValue;
     }
     
-    // Setter methods
+    // Setter methods: publish a new snapshot with one value changed (runtime override until the next reload)
     public void setProperty(String key, String value) {
-        properties.setProperty(key, value);
+        ConfigSnapshot next;
+        synchronized (writeLock) {
+            if (value.equals(snapshot.get(key))) return;
+            Properties properties = currentProperties();
+            properties.setProperty(key, value);
+            next = swap(properties);
+        }
+        notifySubscribers(next);
     }
     
     public void setProperty(String key, int value) {
-        properties.setProperty(key, String.valueOf(value));
+        setProperty(key, String.valueOf(value));
     }
     
     public void setProperty(String key, double value) {
-        properties.setProperty(key, String.valueOf(value));
+        setProperty(key, String.valueOf(value));
     }
     
     public void setProperty(String key, boolean value) {
-        properties.setProperty(key, String.valueOf(value));
+        setProperty(key, String.valueOf(value));
     }
     
     // Hot reload capability
     public void reload() {
         System.out.println("🔄 Reloading configuration...");
-        loadConfiguration();
+        publish(loadConfiguration());
     }
     
     // Configuration summary
@@ -232,7 +347,7 @@ public class BiotakConfig {
     
     // Get all properties for advanced usage
     public Properties getAllProperties() {
-        return new Properties(properties);
+        return currentProperties();
     }
     
     // Environment-specific configuration
@@ -246,12 +361,13 @@ public class BiotakConfig {
                     envProps.load(input);
                     
                     // Merge environment-specific properties
+                    Properties merged = currentProperties();
                     for (String key : envProps.stringPropertyNames()) {
-                        properties.setProperty(key, envProps.getProperty(key));
+                        merged.setProperty(key, envProps.getProperty(key));
                     }
+                    publish(merged);
                     
                     System.out.println("✅ Environment configuration loaded: " + envConfigFile);
-                    validateConfiguration();
                 }
             }
         } catch (IOException e) {
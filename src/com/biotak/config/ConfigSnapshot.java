@@ -0,0 +1,124 @@
+package com.biotak.config;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * نسخه‌ی تغییرناپذیر پیکربندی - Immutable, validated view of biotak.properties.
+ * <p>
+ * {@link BiotakConfig} parses the file into one of these on load and on every change and
+ * publishes it with a single volatile write. Readers get a consistent set of values with no
+ * locking. The typed fields cover the keys that take effect live. {@link #values} holds
+ * every key for the generic getters.
+ *
+ * @param version         increases with every publish
+ * @param refreshRateMs   {@code ui.refresh.rate}, UI repaint interval
+ * @param panelCacheMs    {@code ui.panel.cache.ms}, how long the info panel keeps its text rows
+ * @param hierarchyDepth  {@code hierarchy.depth}, clamped to 2 … {@code FractalHierarchy.MAX_DEPTH}
+ * @param feedMaxLevels   {@code feed.max.levels}, at least 1
+ */
+public record ConfigSnapshot(
+        long version,
+        Map<String, String> values,
+        int cacheSize,
+        int threadPoolSize,
+        int scheduledThreads,
+        double memoryThreshold,
+        int precision,
+        boolean useFastMath,
+        boolean enableCaching,
+        boolean showDebug,
+        int refreshRateMs,
+        String uiTheme,
+        boolean adaptiveColors,
+        String logLevel,
+        boolean consoleLogging,
+        boolean fileLogging,
+        boolean colorLogging,
+        boolean performanceTracking,
+        boolean historyBulkEnabled,
+        long panelCacheMs,
+        double recomputeBandFraction,
+        long crossingDebounceMs,
+        int hierarchyDepth,
+        boolean feedEnabled,
+        String feedDir,
+        int feedMaxLevels) {
+
+    /**
+     * Parses and validates {@code props}; out-of-range values fall back to the defaults.
+     */
+    static ConfigSnapshot parse(long version, Properties props) {
+        Map<String, String> values = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) values.put(key, props.getProperty(key).trim());
+
+        int cacheSize = intValue(values, "cache.size", BiotakConfig.Defaults.DEFAULT_CACHE_SIZE);
+        if (cacheSize < 100 || cacheSize > 10000) {
+            System.err.println("⚠️  Invalid cache size: " + cacheSize + ", using default");
+            cacheSize = BiotakConfig.Defaults.DEFAULT_CACHE_SIZE;
+            values.put("cache.size", String.valueOf(cacheSize));
+        }
+        double memoryThreshold = doubleValue(values, "memory.threshold", BiotakConfig.Defaults.DEFAULT_MEMORY_THRESHOLD);
+        if (memoryThreshold < 50.0 || memoryThreshold > 95.0) {
+            System.err.println("⚠️  Invalid memory threshold: " + memoryThreshold + ", using default");
+            memoryThreshold = BiotakConfig.Defaults.DEFAULT_MEMORY_THRESHOLD;
+            values.put("memory.threshold", String.valueOf(memoryThreshold));
+        }
+
+        return new ConfigSnapshot(version, java.util.Collections.unmodifiableMap(values),
+            cacheSize,
+            Math.max(1, intValue(values, "thread.pool.size", BiotakConfig.Defaults.DEFAULT_THREAD_POOL_SIZE)),
+            Math.max(1, intValue(values, "executor.scheduled.threads", 1)),
+            memoryThreshold,
+            intValue(values, "calculation.precision", BiotakConfig.Defaults.DEFAULT_PRECISION),
+            boolValue(values, "calculation.use.fast.math", BiotakConfig.Defaults.DEFAULT_USE_FAST_MATH),
+            boolValue(values, "calculation.enable.caching", BiotakConfig.Defaults.DEFAULT_ENABLE_CACHING),
+            boolValue(values, "ui.show.debug", BiotakConfig.Defaults.DEFAULT_SHOW_DEBUG),
+            Math.max(0, intValue(values, "ui.refresh.rate", BiotakConfig.Defaults.DEFAULT_REFRESH_RATE)),
+            values.getOrDefault("ui.theme", BiotakConfig.Defaults.DEFAULT_UI_THEME),
+            boolValue(values, "ui.adaptive.colors", true),
+            values.getOrDefault("logging.level", "INFO"),
+            boolValue(values, "logging.console.enabled", true),
+            boolValue(values, "logging.file.enabled", true),
+            boolValue(values, "logging.color.enabled", true),
+            boolValue(values, "logging.performance.tracking", true),
+            boolValue(values, "history.bulk.enabled", true),
+            Math.max(0, intValue(values, "ui.panel.cache.ms", 1000)),
+            Math.max(0.0, doubleValue(values, "recompute.band.fraction", 0.005)),
+            Math.max(0, (long) doubleValue(values, "crossing.debounce.ms", 2000)),
+            Math.max(2, Math.min(com.biotak.util.FractalHierarchy.MAX_DEPTH, intValue(values, "hierarchy.depth", 2))),
+            boolValue(values, "feed.enabled", false),
+            values.getOrDefault("feed.dir", "feed"),
+            Math.max(1, intValue(values, "feed.max.levels", 4096)));
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    private static int intValue(Map<String, String> values, String key, int def) {
+        try {
+            String v = values.get(key);
+            return v != null ? Integer.parseInt(v) : def;
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️  Invalid integer value for " + key + ": " + values.get(key));
+            return def;
+        }
+    }
+
+    private static double doubleValue(Map<String, String> values, String key, double def) {
+        try {
+            String v = values.get(key);
+            return v != null ? Double.parseDouble(v) : def;
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️  Invalid double value for " + key + ": " + values.get(key));
+            return def;
+        }
+    }
+
+    private static boolean boolValue(Map<String, String> values, String key, boolean def) {
+        String v = values.get(key);
+        return v != null ? Boolean.parseBoolean(v) : def;
+    }
+}
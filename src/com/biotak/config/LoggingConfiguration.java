@@ -1,21 +1,19 @@
 package com.biotak.config;
 
 import com.biotak.debug.AdvancedLogger;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Properties;
 
 /**
  * مدیریت کانفیگ سیستم لاگینگ یکپارچه
  * Unified Logging System Configuration Manager
+ * <p>
+ * Reads the logging keys from {@link BiotakConfig} and re-applies them to
+ * {@link AdvancedLogger} whenever biotak.properties changes.
  */
 public final class LoggingConfiguration {
     
-    private static final String DEFAULT_CONFIG_FILE = "biotak.properties";
     private static final String DEFAULT_LOG_DIR = "C:/Users/Fatemehkh/IdeaProject/Biotak/logs/";
     
-    private static Properties properties;
-    private static boolean initialized = false;
+    private static volatile boolean initialized = false;
     
     // Default values
     private static final String DEFAULT_LOG_LEVEL = "INFO";
@@ -31,53 +29,26 @@ public final class LoggingConfiguration {
     }
     
     /**
-     * Initialize logging configuration
+     * Initialize logging configuration and follow later changes of biotak.properties
      */
-    public static void initialize() {
-        initialize(DEFAULT_CONFIG_FILE);
-    }
-    
-    /**
-     * Initialize logging configuration with custom config file
-     */
-    public static void initialize(String configFile) {
+    public static synchronized void initialize() {
         if (initialized) {
             return;
         }
         
-        properties = new Properties();
-        
-        try (FileInputStream fis = new FileInputStream(configFile)) {
-            properties.load(fis);
-            System.out.println("Loaded logging configuration from: " + configFile);
-        } catch (IOException e) {
-            System.err.println("Failed to load config file: " + configFile + " - Using defaults");
-            // Use default properties
-            setDefaultProperties();
-        }
-        
         // Apply configuration to AdvancedLogger
         applyLoggingConfiguration();
+        BiotakConfig.getInstance().subscribe(snapshot -> {
+            applyLoggingConfiguration();
+            AdvancedLogger.info("LoggingConfiguration", "reload",
+                "Logging configuration re-applied (config version %d)", snapshot.version());
+        });
         
         initialized = true;
         
         // Log initialization success
         AdvancedLogger.info("LoggingConfiguration", "initialize", 
-            "Logging system initialized successfully with config: %s", configFile);
-    }
-    
-    /**
-     * Set default properties when config file is not available
-     */
-    private static void setDefaultProperties() {
-        properties.setProperty("logging.level", DEFAULT_LOG_LEVEL);
-        properties.setProperty("logging.console.enabled", String.valueOf(DEFAULT_CONSOLE_ENABLED));
-        properties.setProperty("logging.file.enabled", String.valueOf(DEFAULT_FILE_ENABLED));
-        properties.setProperty("logging.color.enabled", String.valueOf(DEFAULT_COLOR_ENABLED));
-        properties.setProperty("logging.performance.tracking", String.valueOf(DEFAULT_PERFORMANCE_TRACKING));
-        properties.setProperty("logging.max.file.size", String.valueOf(DEFAULT_MAX_FILE_SIZE));
-        properties.setProperty("logging.max.backup.files", String.valueOf(DEFAULT_MAX_BACKUP_FILES));
-        properties.setProperty("logging.dir", DEFAULT_LOG_DIR);
+            "Logging system initialized successfully with config: %s", "biotak.properties");
     }
     
     /**
@@ -124,10 +95,7 @@ public final class LoggingConfiguration {
      * Get string property with default value
      */
     public static String getProperty(String key, String defaultValue) {
-        if (properties == null) {
-            initialize();
-        }
-        return properties.getProperty(key, defaultValue);
+        return BiotakConfig.getInstance().getString(key, defaultValue);
     }
     
     /**
@@ -168,8 +136,7 @@ public final class LoggingConfiguration {
      * Reload configuration
      */
     public static void reload() {
-        initialized = false;
-        initialize();
+        BiotakConfig.getInstance().reload();
     }
     
     /**
@@ -23,8 +23,14 @@ public class SettingsRepository {
     public static final String S_RULER_EXT_LEFT = "rulerExtLeft";
     public static final String S_RULER_START = "rulerStart";
     public static final String S_RULER_END = "rulerEnd";
+    public static final String S_SWING_SCANNER = "swingScanner";
+    public static final String S_SWING_BASIS = "swingBasis";
+    public static final String S_SWING_MULTIPLIER = "swingMultiplier";
+    public static final String S_SWING_LEGS_SHOWN = "swingLegsShown";
 
     public static final String S_START_POINT = "startPoint";
+    public static final String S_ROLLING_WINDOW_LENGTH = "rollingWindowLength";
+    public static final String S_ROLLING_WINDOW_UNIT = "rollingWindowUnit";
     public static final String S_STEP_MODE = "stepMode";
     public static final String S_SHOW_TH_LEVELS = "showThLevels";
     public static final String S_SHOW_STRUCTURE_LINES = "showStructureLines";
@@ -69,6 +75,7 @@ public class SettingsRepository {
     public static final String S_SHOW_LEVEL_LABELS = "showLevelLabels";
     public static final String S_LOCK_SSLS_LEVELS = "lockSsLsLevels";
     public static final String S_LOCK_ALL_LEVELS = "lockAllLevels";
+    public static final String S_CROSSING_ALERTS = "crossingAlerts";
 
     // Globally-locked value storage keys
     public static final String S_LOCKED_TH_VALUE = "lockedTHValue";
@@ -4,6 +4,8 @@ import com.biotak.enums.PanelPosition;
 import com.biotak.enums.RulerComparisonType;
 import com.biotak.enums.SSLSBasisType;
 import com.biotak.enums.StepCalculationMode;
+import com.biotak.enums.SwingThresholdBasis;
+import com.biotak.enums.RollingWindowUnit;
 import com.biotak.enums.THStartPointType;
 import com.biotak.util.Constants;
 import com.motivewave.platform.sdk.common.Defaults;
@@ -70,6 +72,9 @@ public class SettingsService {
         options.add(new NVP("Historical High", THStartPointType.HISTORICAL_HIGH.name()));
         options.add(new NVP("Historical Low", THStartPointType.HISTORICAL_LOW.name()));
         options.add(new NVP("Custom Price", THStartPointType.CUSTOM_PRICE.name()));
+        options.add(new NVP("Rolling Midpoint", THStartPointType.ROLLING_MIDPOINT.name()));
+        options.add(new NVP("Rolling High", THStartPointType.ROLLING_HIGH.name()));
+        options.add(new NVP("Rolling Low", THStartPointType.ROLLING_LOW.name()));
         return options;
     }
 
@@ -113,9 +118,16 @@ public class SettingsService {
         grp.addRow(new PathDescriptor(S_TRIGGER_PATH, "Trigger Line", X11Colors.DIM_GRAY, 1.0f, new float[] {3f, 3f} , true, false, false));
         grp.addRow(new IntegerDescriptor(S_MAX_LEVELS_ABOVE, "Max Levels Above", 100, 1, 10000, 1));
         grp.addRow(new IntegerDescriptor(S_MAX_LEVELS_BELOW, "Max Levels Below", 100, 1, 10000, 1));
+        grp.addRow(new BooleanDescriptor(S_CROSSING_ALERTS, "Level Crossing Alerts", false));
         
         grp = tab.addGroup("Start Point");
         grp.addRow(new DiscreteDescriptor(S_START_POINT, "TH Start Point", THStartPointType.MIDPOINT.name(), createStartPointOptions()));
+        grp.addRow(new IntegerDescriptor(S_ROLLING_WINDOW_LENGTH, "Rolling Window Length", 100, 1, 100000, 1));
+        List<NVP> windowUnitOptions = new ArrayList<>();
+        for (RollingWindowUnit u : RollingWindowUnit.values()) {
+            windowUnitOptions.add(new NVP(u.toString(), u.name()));
+        }
+        grp.addRow(new DiscreteDescriptor(S_ROLLING_WINDOW_UNIT, "Rolling Window Unit", RollingWindowUnit.BARS.name(), windowUnitOptions));
     }
 
     private static void setupCalculationTab(SettingsDescriptor sd) {
@@ -200,6 +212,16 @@ public class SettingsService {
         grp.addRow(new ColorDescriptor(S_RULER_BG_COLOR, "Background Color", new java.awt.Color(255,255,255)));
         grp.addRow(new ColorDescriptor(S_RULER_BORDER_COLOR, "Border Color", java.awt.Color.GRAY));
         grp.addRow(new FontDescriptor(S_RULER_FONT, "Ruler Info Font", new Font("Arial", Font.PLAIN, 11)));
+
+        grp = tab.addGroup("Swing Scanner");
+        grp.addRow(new BooleanDescriptor(S_SWING_SCANNER, "Scan Swing Legs", false));
+        List<NVP> swingBasisOptions = new ArrayList<>();
+        for (SwingThresholdBasis b : SwingThresholdBasis.values()) {
+            swingBasisOptions.add(new NVP(b.toString(), b.name()));
+        }
+        grp.addRow(new DiscreteDescriptor(S_SWING_BASIS, "Reversal Basis", SwingThresholdBasis.ATR.name(), swingBasisOptions));
+        grp.addRow(new DoubleDescriptor(S_SWING_MULTIPLIER, "Reversal Multiplier", 3.0, 0.1, 100.0, 0.1));
+        grp.addRow(new IntegerDescriptor(S_SWING_LEGS_SHOWN, "Legs Listed in Panel", 5, 1, 20, 1));
     }
 
     private static void setupAdvancedTab(SettingsDescriptor sd, Defaults defaults) {
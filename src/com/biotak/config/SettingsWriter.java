@@ -0,0 +1,83 @@
+package com.biotak.config;
+
+import com.motivewave.platform.sdk.common.Settings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * نویسنده تجمیعی تنظیمات - Write-behind layer for study settings that MotiveWave persists.
+ * <p>
+ * Writes are staged per key; a later write to the same key replaces the staged value, so a
+ * drag or a historical load produces one write per key instead of one per event. {@link #flush}
+ * compares each staged value with what the settings hold and writes only the ones that
+ * differ, so a redraw that restates unchanged values (unlocked levels writing NaN/null on
+ * every pass) costs nothing. Comparing against the live settings rather than a private copy
+ * keeps edits made in the settings dialog authoritative.
+ * <p>
+ * The study flushes once per draw request, at the end of a drag and on destroy. Methods are
+ * synchronized: values are staged from the chart thread and the level-publish thread.
+ */
+public final class SettingsWriter {
+
+    private final Supplier<Settings> settings;
+    private final Map<String, Object> pending = new LinkedHashMap<>();
+
+    private long requested;
+    private long coalesced;
+    private long unchanged;
+    private long written;
+
+    public SettingsWriter(Supplier<Settings> settings) {
+        this.settings = settings;
+    }
+
+    public synchronized void setDouble(String key, double value) {
+        stage(key, value);
+    }
+
+    public synchronized void setString(String key, String value) {
+        stage(key, value);
+    }
+
+    private void stage(String key, Object value) {
+        requested++;
+        if (pending.containsKey(key)) coalesced++;
+        pending.put(key, value);
+    }
+
+    /**
+     * Writes every staged value that differs from the stored one.
+     *
+     * @return number of settings actually written
+     */
+    public synchronized int flush() {
+        if (pending.isEmpty()) return 0;
+        Settings s = settings.get();
+        int n = 0;
+        for (Map.Entry<String, Object> e : pending.entrySet()) {
+            String key = e.getKey();
+            if (e.getValue() instanceof Double d) {
+                // Double.compare treats NaN as equal to NaN, which is what "still unset" needs
+                if (Double.compare(s.getDouble(key, Double.NaN), d) == 0) { unchanged++; continue; }
+                s.setDouble(key, d);
+            } else {
+                String v = (String) e.getValue();
+                if (java.util.Objects.equals(s.getString(key, null), v)) { unchanged++; continue; }
+                s.setString(key, v);
+            }
+            n++;
+        }
+        written += n;
+        pending.clear();
+        return n;
+    }
+
+    public synchronized long getRequested() { return requested; }
+
+    public synchronized long getWritten() { return written; }
+
+    /** Writes saved by coalescing and by the unchanged-value check. */
+    public synchronized long getAvoided() { return coalesced + unchanged; }
+}
@@ -0,0 +1,65 @@
+package com.biotak.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * جدول ATR اندازه‌گیری‌شده - Immutable table of measured 1× ATR per timeframe.
+ * <p>
+ * Timeframe lengths are kept ascending in an {@code int[]} with a parallel {@code double[]} of
+ * ATR in price units, so the ruler can walk it and interpolate between neighbours without
+ * touching a map. Built by {@link MultiTimeframeAggregator} and published with the
+ * {@link RulerMaps}.
+ */
+public final class AtrTable {
+
+    public static final AtrTable EMPTY = new AtrTable(new int[0], new double[0], new String[0][]);
+
+    private final int[] minutes;
+    private final double[] atr;
+    private final String[][] labels;
+    private final Map<String, Double> labelMap;
+
+    AtrTable(int[] minutes, double[] atr, String[][] labels) {
+        this.minutes = minutes;
+        this.atr = atr;
+        this.labels = labels;
+        Map<String, Double> map = new HashMap<>();
+        for (int i = 0; i < minutes.length; i++) {
+            for (String label : labels[i]) map.putIfAbsent(label, atr[i]);
+        }
+        this.labelMap = Map.copyOf(map);
+    }
+
+    public int size() {
+        return minutes.length;
+    }
+
+    public boolean isEmpty() {
+        return minutes.length == 0;
+    }
+
+    public int minutes(int i) {
+        return minutes[i];
+    }
+
+    public double atr(int i) {
+        return atr[i];
+    }
+
+    /** Primary label of row {@code i} (the fractal label where there is one). */
+    public String label(int i) {
+        return labels[i].length > 0 ? labels[i][0] : minutes[i] + "m";
+    }
+
+    /** ATR for an exact timeframe length, or NaN when it is not measured. */
+    public double atrAt(int tfMinutes) {
+        int i = java.util.Arrays.binarySearch(minutes, tfMinutes);
+        return i >= 0 ? atr[i] : Double.NaN;
+    }
+
+    /** Every label with its ATR, in the shape of the comprehensive ATR map. */
+    public Map<String, Double> toLabelMap() {
+        return labelMap;
+    }
+}
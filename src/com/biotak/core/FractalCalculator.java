@@ -1,10 +1,13 @@
 package com.biotak.core;
 
 import com.biotak.debug.AdvancedLogger;
+import com.biotak.util.FastFormat;
+import com.biotak.util.FractalHierarchy;
 import com.biotak.util.TimeframeUtil;
 import com.biotak.util.OptimizedCalculations;
 import com.motivewave.platform.sdk.common.BarSize;
 import com.motivewave.platform.sdk.common.DataSeries;
+import com.motivewave.platform.sdk.common.Instrument;
 
 public class FractalCalculator {
 
@@ -100,7 +103,7 @@ public class FractalCalculator {
      * for the given timeframe.
      */
     public static String getPatternTimeframeString(BarSize barSize) {
-        return TimeframeUtil.getPatternTimeframeString(barSize);
+        return FractalHierarchy.of(barSize).label(-1);
     }
     
     /**
@@ -108,115 +111,49 @@ public class FractalCalculator {
      * for the given timeframe.
      */
     public static String getTriggerTimeframeString(BarSize barSize) {
-        return TimeframeUtil.getTriggerTimeframeString(barSize);
+        return FractalHierarchy.of(barSize).label(-2);
     }
     
     /**
      * Gets the ATR period for the pattern timeframe (one level below current)
      */
     public static int getPatternAtrPeriod(BarSize barSize) {
-        // Get the pattern timeframe as a string
-        String patternTimeframe = TimeframeUtil.getPatternTimeframeString(barSize);
-        
-        // Convert this to a standard format and get the ATR period
-        if (patternTimeframe.startsWith("M")) {
-            // Simple minute timeframes
-            try {
-                int minutes = Integer.parseInt(patternTimeframe.substring(1));
-                if (minutes <= 1) return 24; // M1
-                else if (minutes <= 5) return 24; // M5 
-                else if (minutes <= 15) return 24; // M15
-                else if (minutes <= 30) return 24; // M30
-                else return 24; // M45, etc.
-            } catch (NumberFormatException e) {
-                return 24; // Default to minute timeframe ATR period
-            }
-        }
-        else if (patternTimeframe.startsWith("H")) {
-            try {
-                int hours = Integer.parseInt(patternTimeframe.substring(1));
-                if (hours <= 1) return 24; // H1
-                else if (hours <= 4) return 30; // H4
-                else return 30; // H8, etc.
-            } catch (NumberFormatException e) {
-                return 24; // Default
-            }
-        }
-        else if (patternTimeframe.equals("D1")) return 22;
-        else if (patternTimeframe.equals("W1")) return 52;
-        else if (patternTimeframe.equals("MN")) return 12;
-        
-        // For complex fractal timeframes or unrecognized formats, use the original period
-        return TimeframeUtil.getAtrPeriod(barSize);
+        return FractalHierarchy.of(barSize).atrPeriod(-1);
     }
     
     /**
      * Gets the ATR period for the trigger timeframe (two levels below current)
      */
     public static int getTriggerAtrPeriod(BarSize barSize) {
-        // Get the trigger timeframe as a string
-        String triggerTimeframe = TimeframeUtil.getTriggerTimeframeString(barSize);
-        
-        // Convert this to a standard format and get the ATR period
-        if (triggerTimeframe.startsWith("M")) {
-            // Simple minute timeframes
-            try {
-                int minutes = Integer.parseInt(triggerTimeframe.substring(1));
-                if (minutes <= 1) return 24; // M1
-                else if (minutes <= 5) return 24; // M5 
-                else if (minutes <= 15) return 24; // M15
-                else if (minutes <= 30) return 24; // M30
-                else return 24; // M45, etc.
-            } catch (NumberFormatException e) {
-                return 24; // Default to minute timeframe ATR period
-            }
-        }
-        else if (triggerTimeframe.startsWith("H")) {
-            try {
-                int hours = Integer.parseInt(triggerTimeframe.substring(1));
-                if (hours <= 1) return 24; // H1
-                else if (hours <= 4) return 30; // H4
-                else return 30; // H8, etc.
-            } catch (NumberFormatException e) {
-                return 24; // Default
-            }
-        }
-        else if (triggerTimeframe.equals("D1")) return 22;
-        else if (triggerTimeframe.equals("W1")) return 52;
-        else if (triggerTimeframe.equals("MN")) return 12;
-        
-        // For complex fractal timeframes or unrecognized formats, use the original period
-        return TimeframeUtil.getAtrPeriod(barSize);
+        return FractalHierarchy.of(barSize).atrPeriod(-2);
     }
 
     /**
      * Logs a detailed table showing all calculations across different fractal timeframes
+     * at {@code basePrice} (the live bid)
      */
-    public static void logCalculationTable(DataSeries series, double thValue, double structureValue, 
+    public static void logCalculationTable(Instrument instrument, BarSize barSize, double basePrice, double thValue, double structureValue, 
                                     double patternValue, double triggerValue, double shortStep, 
                                     double longStep, double atrValue, double liveAtrValue,
-                                    double pipMultiplier, long lastCalcTableLogTime, long LOG_INTERVAL_MS) {
+                                    double pipMultiplier) {
         // Remove temporary log level changes to prevent excessive logging
         
         try {
             StringBuilder sb = new StringBuilder();
-            String currentTimeframe = series.getBarSize().toString();
+            String currentTimeframe = barSize.toString();
             String structureTimeframe = currentTimeframe; // Current timeframe is Structure
-            String patternTimeframe = getPatternTimeframeString(series.getBarSize());
-            String triggerTimeframe = getTriggerTimeframeString(series.getBarSize());
+            FractalHierarchy hierarchy = FractalHierarchy.of(barSize);
+            String patternTimeframe = hierarchy.label(-1);
+            String triggerTimeframe = hierarchy.label(-2);
             
             // Get ATR periods for each level
-            int structureAtrPeriod = TimeframeUtil.getAtrPeriod(series.getBarSize());
-            int patternAtrPeriod = getPatternAtrPeriod(series.getBarSize());
-            int triggerAtrPeriod = getTriggerAtrPeriod(series.getBarSize());
+            int structureAtrPeriod = TimeframeUtil.getAtrPeriod(barSize);
+            int patternAtrPeriod = hierarchy.atrPeriod(-1);
+            int triggerAtrPeriod = hierarchy.atrPeriod(-2);
             
             // Calculate ATR values for each timeframe level
             double structureAtr = atrValue; // Current timeframe ATR
             
-            // Get pattern and trigger timeframes as BarSize objects
-            BarSize patternBarSize = TimeframeUtil.getPatternBarSize(series.getBarSize());
-            BarSize triggerBarSize = TimeframeUtil.getTriggerBarSize(series.getBarSize());
-            
             // Calculate pattern ATR (approximate using the ratio of timeframes)
             double patternAtr = atrValue / Math.sqrt(4.0);
             
@@ -224,12 +161,11 @@ public class FractalCalculator {
             double triggerAtr = atrValue / Math.sqrt(16.0);
             
             // Get TH percentages for each level
-            double structureTFPercentage = TimeframeUtil.getTimeframePercentage(series.getBarSize());
-            double patternTFPercentage = TimeframeUtil.getTimeframePercentage(patternBarSize);
-            double triggerTFPercentage = TimeframeUtil.getTimeframePercentage(triggerBarSize);
+            double structureTFPercentage = TimeframeUtil.getTimeframePercentage(barSize);
+            double patternTFPercentage = hierarchy.percentage(-1);
+            double triggerTFPercentage = hierarchy.percentage(-2);
             
             // Calculate TH values (in price) based on these percentages using live bid price
-            double basePrice = series.getBidClose(series.size() - 1);
             double structureTHValue = (basePrice * structureTFPercentage) / 100.0;
             double patternTHValue = (basePrice * patternTFPercentage) / 100.0;
             double triggerTHValue = (basePrice * triggerTFPercentage) / 100.0;
@@ -238,85 +174,90 @@ public class FractalCalculator {
             sb.append("\n+----------------------------------------------------------------------------------------+\n");
             sb.append("| BIOTAK TRIGGER CALCULATION TABLE                                                       |\n");
             sb.append("+----------------------------------------------------------------------------------------+\n");
-            sb.append(String.format("| Base Price: %.5f | Point Value: %.5f | Pip Multiplier: %.1f                     |\n", 
-                    basePrice, series.getInstrument().getTickSize(), pipMultiplier));
+            sb.append("| Base Price: ");
+            FastFormat.appendFixed(sb, basePrice, 5).append(" | Point Value: ");
+            FastFormat.appendFixed(sb, instrument.getTickSize(), 5).append(" | Pip Multiplier: ");
+            FastFormat.appendFixed(sb, pipMultiplier, 1).append("                     |\n");
             sb.append("+----------------------------------------------------------------------------------------+\n");
-            sb.append(String.format("| %-12s | %-12s | %-12s | %-12s | %-12s |\n", 
-                    "Timeframe", "Type", "Value", "Value (pips)", "ATR Period"));
+            sb.append("| ");
+            FastFormat.appendPadded(sb, "Timeframe", 12).append(" | ");
+            FastFormat.appendPadded(sb, "Type", 12).append(" | ");
+            FastFormat.appendPadded(sb, "Value", 12).append(" | ");
+            FastFormat.appendPadded(sb, "Value (pips)", 12).append(" | ");
+            FastFormat.appendPadded(sb, "ATR Period", 12).append(" |\n");
             sb.append("+----------------------------------------------------------------------------------------+\n");
             
             // Add Structure row (current timeframe)
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12d |\n", 
-                    structureTimeframe, "Structure (S)", structureValue, structureValue * pipMultiplier, structureAtrPeriod));
+            appendRow(sb, structureTimeframe, "Structure (S)", structureValue, pipMultiplier, structureAtrPeriod);
             
             // Add Pattern row (one level down)
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12d |\n", 
-                    patternTimeframe, "Pattern (P)", patternValue, patternValue * pipMultiplier, patternAtrPeriod));
+            appendRow(sb, patternTimeframe, "Pattern (P)", patternValue, pipMultiplier, patternAtrPeriod);
             
             // Add Trigger row (two levels down)
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12d |\n", 
-                    triggerTimeframe, "Trigger (T)", triggerValue, triggerValue * pipMultiplier, triggerAtrPeriod));
+            appendRow(sb, triggerTimeframe, "Trigger (T)", triggerValue, pipMultiplier, triggerAtrPeriod);
             
             // Add TH, Short Step, Long Step, ATR rows
             sb.append("+----------------------------------------------------------------------------------------+\n");
             sb.append("| TH CALCULATIONS FROM FRACTAL TIMEFRAME PERCENTAGES                                     |\n");
             sb.append("+----------------------------------------------------------------------------------------+\n");
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12.2f%% |\n", 
-                    structureTimeframe, "Structure TH", structureTHValue, structureTHValue * pipMultiplier, structureTFPercentage));
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12.2f%% |\n", 
-                    patternTimeframe, "Pattern TH", patternTHValue, patternTHValue * pipMultiplier, patternTFPercentage));
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12.2f%% |\n", 
-                    triggerTimeframe, "Trigger TH", triggerTHValue, triggerTHValue * pipMultiplier, triggerTFPercentage));
+            appendPercentRow(sb, structureTimeframe, "Structure TH", structureTHValue, pipMultiplier, structureTFPercentage);
+            appendPercentRow(sb, patternTimeframe, "Pattern TH", patternTHValue, pipMultiplier, patternTFPercentage);
+            appendPercentRow(sb, triggerTimeframe, "Trigger TH", triggerTHValue, pipMultiplier, triggerTFPercentage);
                     
             sb.append("+----------------------------------------------------------------------------------------+\n");
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12s |\n", 
-                    currentTimeframe, "TH", thValue, thValue * pipMultiplier, "-"));
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12s |\n", 
-                    currentTimeframe, "Short Step (SS)", shortStep, shortStep * pipMultiplier, "-"));
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12s |\n", 
-                    currentTimeframe, "Long Step (LS)", longStep, longStep * pipMultiplier, "-"));
+            appendRow(sb, currentTimeframe, "TH", thValue, pipMultiplier, -1);
+            appendRow(sb, currentTimeframe, "Short Step (SS)", shortStep, pipMultiplier, -1);
+            appendRow(sb, currentTimeframe, "Long Step (LS)", longStep, pipMultiplier, -1);
             
             // Add ATR values for each level
             sb.append("+----------------------------------------------------------------------------------------+\n");
             sb.append("| ATR VALUES BY TIMEFRAME LEVEL                                                          |\n");
             sb.append("+----------------------------------------------------------------------------------------+\n");
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12d |\n", 
-                    structureTimeframe, "Structure ATR", structureAtr, structureAtr * pipMultiplier, structureAtrPeriod));
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12d |\n", 
-                    patternTimeframe, "Pattern ATR", patternAtr, patternAtr * pipMultiplier, patternAtrPeriod));
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12d |\n", 
-                    triggerTimeframe, "Trigger ATR", triggerAtr, triggerAtr * pipMultiplier, triggerAtrPeriod));
-            sb.append(String.format("| %-12s | %-12s | %12.5f | %12.1f | %12s |\n", 
-                    currentTimeframe, "Live ATR", liveAtrValue, liveAtrValue * pipMultiplier, "-"));
+            appendRow(sb, structureTimeframe, "Structure ATR", structureAtr, pipMultiplier, structureAtrPeriod);
+            appendRow(sb, patternTimeframe, "Pattern ATR", patternAtr, pipMultiplier, patternAtrPeriod);
+            appendRow(sb, triggerTimeframe, "Trigger ATR", triggerAtr, pipMultiplier, triggerAtrPeriod);
+            appendRow(sb, currentTimeframe, "Live ATR", liveAtrValue, pipMultiplier, -1);
             
             sb.append("+----------------------------------------------------------------------------------------+\n");
             
             // Formula verification
+            double sPips = structureValue * pipMultiplier;
+            double pPips = patternValue * pipMultiplier;
             sb.append("| Formula Verification:                                                                  |\n");
-            sb.append(String.format("| SS = (2 * S) - P = (2 * %.1f) - %.1f = %.1f                                         |\n", 
-                    structureValue * pipMultiplier, patternValue * pipMultiplier, shortStep * pipMultiplier));
-            sb.append(String.format("| LS = (3 * S) - (2 * P) = (3 * %.1f) - (2 * %.1f) = %.1f                             |\n", 
-                    structureValue * pipMultiplier, patternValue * pipMultiplier, longStep * pipMultiplier));
-            sb.append(String.format("| Control = (LS + SS) / 2 / 7 ≈ T = (%.1f + %.1f) / 2 / 7 = %.1f ≈ %.1f                      |\n",
-                    longStep * pipMultiplier, shortStep * pipMultiplier, 
-                    ((longStep + shortStep) / 2 / 7) * pipMultiplier, triggerValue * pipMultiplier));
+            sb.append("| SS = (2 * S) - P = (2 * ");
+            FastFormat.appendFixed(sb, sPips, 1).append(") - ");
+            FastFormat.appendFixed(sb, pPips, 1).append(" = ");
+            FastFormat.appendFixed(sb, shortStep * pipMultiplier, 1).append("                                         |\n");
+            sb.append("| LS = (3 * S) - (2 * P) = (3 * ");
+            FastFormat.appendFixed(sb, sPips, 1).append(") - (2 * ");
+            FastFormat.appendFixed(sb, pPips, 1).append(") = ");
+            FastFormat.appendFixed(sb, longStep * pipMultiplier, 1).append("                             |\n");
+            sb.append("| Control = (LS + SS) / 2 / 7 ≈ T = (");
+            FastFormat.appendFixed(sb, longStep * pipMultiplier, 1).append(" + ");
+            FastFormat.appendFixed(sb, shortStep * pipMultiplier, 1).append(") / 2 / 7 = ");
+            FastFormat.appendFixed(sb, ((longStep + shortStep) / 2 / 7) * pipMultiplier, 1).append(" ≈ ");
+            FastFormat.appendFixed(sb, triggerValue * pipMultiplier, 1).append("                      |\n");
             
             // ATR verification
-            sb.append(String.format("| ATR Relation: Structure:Pattern:Trigger = 1:1/√4:1/√16 = 1:%.2f:%.2f                      |\n",
-                    1.0/Math.sqrt(4.0), 1.0/Math.sqrt(16.0)));
+            sb.append("| ATR Relation: Structure:Pattern:Trigger = 1:1/√4:1/√16 = 1:");
+            FastFormat.appendFixed(sb, 1.0/Math.sqrt(4.0), 2).append(':');
+            FastFormat.appendFixed(sb, 1.0/Math.sqrt(16.0), 2).append("                      |\n");
             
             // Add timeframe mapping info for debugging
             sb.append("+----------------------------------------------------------------------------------------+\n");
             sb.append("| TIMEFRAME MAPPING DEBUG INFO:                                                          |\n");
-            sb.append(String.format("| Current: %-59s |\n", currentTimeframe));
-            sb.append(String.format("| Pattern: %-59s |\n", 
-                    patternTimeframe + " (via " + TimeframeUtil.getPatternTimeframeString(series.getBarSize()) + ")"));
-            sb.append(String.format("| Trigger: %-59s |\n", 
-                    triggerTimeframe + " (via " + TimeframeUtil.getTriggerTimeframeString(series.getBarSize()) + ")"));
+            sb.append("| Current: ");
+            FastFormat.appendPadded(sb, currentTimeframe, 59).append(" |\n");
+            sb.append("| Pattern: ");
+            FastFormat.appendPadded(sb, patternTimeframe + " (" + hierarchy.seconds(-1) + "s)", 59).append(" |\n");
+            sb.append("| Trigger: ");
+            FastFormat.appendPadded(sb, triggerTimeframe + " (" + hierarchy.seconds(-2) + "s)", 59).append(" |\n");
             
             // Calculate and display timeframe percentages for extra verification
-            sb.append(String.format("| TF Percentages - Structure: %.2f%% | Pattern: %.2f%% | Trigger: %.2f%%            |\n", 
-                    structureTFPercentage, patternTFPercentage, triggerTFPercentage));
+            sb.append("| TF Percentages - Structure: ");
+            FastFormat.appendFixed(sb, structureTFPercentage, 2).append("% | Pattern: ");
+            FastFormat.appendFixed(sb, patternTFPercentage, 2).append("% | Trigger: ");
+            FastFormat.appendFixed(sb, triggerTFPercentage, 2).append("%            |\n");
             
             sb.append("+----------------------------------------------------------------------------------------+\n");
             
@@ -327,6 +268,29 @@ public class FractalCalculator {
         }
     }
 
+    /** "| tf | type | value | pips | " prefix shared by every table row. */
+    private static StringBuilder appendRowStart(StringBuilder sb, String timeframe, String type, double value, double pipMultiplier) {
+        sb.append("| ");
+        FastFormat.appendPadded(sb, timeframe, 12).append(" | ");
+        FastFormat.appendPadded(sb, type, 12).append(" | ");
+        FastFormat.appendPadded(sb, value, 5, 12).append(" | ");
+        return FastFormat.appendPadded(sb, value * pipMultiplier, 1, 12).append(" | ");
+    }
+
+    /** Table row ending in an ATR period; a negative period prints "-". */
+    private static void appendRow(StringBuilder sb, String timeframe, String type, double value, double pipMultiplier, int atrPeriod) {
+        appendRowStart(sb, timeframe, type, value, pipMultiplier);
+        if (atrPeriod < 0) sb.append("           -");
+        else FastFormat.appendPadded(sb, atrPeriod, 12);
+        sb.append(" |\n");
+    }
+
+    /** Table row ending in a timeframe percentage. */
+    private static void appendPercentRow(StringBuilder sb, String timeframe, String type, double value, double pipMultiplier, double percentage) {
+        appendRowStart(sb, timeframe, type, value, pipMultiplier);
+        FastFormat.appendPadded(sb, percentage, 2, 12).append("% |\n");
+    }
+
     /**
      * Helper method to format timeframe strings with proper notation for seconds-based timeframes
      */
@@ -349,21 +313,6 @@ public class FractalCalculator {
             default:     totalMinutes = interval; break;
         }
 
-        // Build human-readable composite string in y w d h m
-        long minutes = totalMinutes;
-        long years  = minutes / (365L*24*60); minutes %= 365L*24*60;
-        long months = minutes / (30L*24*60); minutes %= 30L*24*60;
-        long weeks  = minutes / (7L*24*60);  minutes %= 7L*24*60;
-        long days   = minutes / (24*60);     minutes %= 24*60;
-        long hours  = minutes / 60;          minutes %= 60;
-
-        StringBuilder sb = new StringBuilder();
-        if (years  > 0) sb.append(years ).append("Y ");
-        if (months > 0) sb.append(months).append("M ");
-        if (weeks  > 0) sb.append(weeks ).append("W ");
-        if (days   > 0) sb.append(days  ).append("D ");
-        if (hours  > 0) sb.append(hours ).append("H ");
-        if (minutes> 0 || sb.length()==0) sb.append(minutes).append("m");
-        return sb.toString().trim();
+        return TimeframeUtil.formatMinutes(totalMinutes);
     }
 } 
\ No newline at end of file
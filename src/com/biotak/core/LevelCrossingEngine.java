@@ -0,0 +1,168 @@
+package com.biotak.core;
+
+import com.biotak.enums.LevelKind;
+
+/**
+ * موتور تشخیص عبور قیمت از سطوح - Detects the live price crossing lines of the active level ladder.
+ * <p>
+ * Each tick is bracketed in the published {@link LevelLadder} with one binary search and
+ * compared with the previous bracket; a change means one or more levels were crossed. The
+ * level nearest the new price is reported together with the number of levels jumped, so a
+ * gap through ten lines is one event, not ten. A level that fired less than the debounce
+ * interval ago is suppressed, which stops a price oscillating on a line from flooding alerts.
+ * <p>
+ * Events go into a fixed ring of primitive arrays; when it is full new events are dropped
+ * and counted. {@link #onTick} and {@link #drain} allocate nothing. {@link #setLadder} may be
+ * called from any thread; the swap is picked up by the next tick, which re-brackets the
+ * previous price on the new ladder and carries debounce times over for unchanged prices.
+ * <p>
+ * {@link #onTick} and {@link #drain} must be called from one thread (the bar-update thread).
+ */
+public final class LevelCrossingEngine {
+
+    /** Receives drained events; {@code direction} is +1 for an upward cross and -1 for downward. */
+    @FunctionalInterface
+    public interface Sink {
+        void onCrossing(LevelKind kind, double level, int direction, int levelsCrossed, long time);
+    }
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final LevelKind[] KINDS = LevelKind.values();
+
+    private volatile LevelLadder ladder = LevelLadder.EMPTY;
+    private volatile long debounceMs = 2000;
+
+    // Tick-thread state
+    private LevelLadder tracked = LevelLadder.EMPTY;
+    private double lastPrice = Double.NaN;
+    private int bracket;
+    private long[] lastFired = new long[0];
+    private long[] spareFired = new long[0];
+
+    // Event ring
+    private final int mask;
+    private final double[] evLevel;
+    private final byte[] evKind;
+    private final byte[] evDir;
+    private final int[] evCount;
+    private final long[] evTime;
+    private long head;
+    private long tail;
+
+    private long emitted;
+    private long debounced;
+    private long dropped;
+
+    /**
+     * @param capacity event ring size, rounded up to a power of two
+     */
+    public LevelCrossingEngine(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = cap - 1;
+        evLevel = new double[cap];
+        evKind = new byte[cap];
+        evDir = new byte[cap];
+        evCount = new int[cap];
+        evTime = new long[cap];
+    }
+
+    public void setLadder(LevelLadder ladder) {
+        this.ladder = ladder != null ? ladder : LevelLadder.EMPTY;
+    }
+
+    /**
+     * Minimum time between two events for the same level price; {@code 0} disables debouncing.
+     */
+    public void setDebounceMs(long debounceMs) {
+        this.debounceMs = Math.max(0, debounceMs);
+    }
+
+    /**
+     * Feeds one price.
+     *
+     * @param time  chart time stored with the event (bar start time)
+     * @param nowMs wall-clock time used for debouncing
+     */
+    public void onTick(double price, long time, long nowMs) {
+        if (Double.isNaN(price)) return;
+        LevelLadder l = ladder;
+        if (l != tracked) swapTo(l);
+        int idx = l.upperIndex(price);
+        boolean first = Double.isNaN(lastPrice);
+        lastPrice = price;
+        if (first || idx == bracket) {
+            bracket = idx;
+            return;
+        }
+
+        int direction = idx > bracket ? 1 : -1;
+        int crossed = Math.abs(idx - bracket);
+        int hit = direction > 0 ? idx - 1 : idx; // crossed level nearest the new price
+        bracket = idx;
+
+        long last = lastFired[hit];
+        if (last != 0 && nowMs - last < debounceMs) {
+            debounced++;
+            return;
+        }
+        lastFired[hit] = nowMs;
+
+        if (tail - head > mask) {
+            dropped++;
+            return;
+        }
+        int slot = (int) tail & mask;
+        evLevel[slot] = l.price(hit);
+        evKind[slot] = (byte) l.kind(hit).ordinal();
+        evDir[slot] = (byte) direction;
+        evCount[slot] = crossed;
+        evTime[slot] = time;
+        tail++;
+        emitted++;
+    }
+
+    /**
+     * Switches to a new ladder: re-brackets the last price and carries debounce times over
+     * for prices present in both ladders. Reuses the spare array when it is large enough.
+     */
+    private void swapTo(LevelLadder next) {
+        LevelLadder prev = tracked;
+        long[] fired = spareFired.length >= next.size() ? spareFired : new long[next.size()];
+        int i = 0, j = 0;
+        while (j < next.size()) {
+            double p = next.price(j);
+            while (i < prev.size() && prev.price(i) < p) i++;
+            fired[j] = i < prev.size() && prev.price(i) == p ? lastFired[i] : 0;
+            j++;
+        }
+        spareFired = lastFired;
+        lastFired = fired;
+        tracked = next;
+        if (!Double.isNaN(lastPrice)) bracket = next.upperIndex(lastPrice);
+    }
+
+    public int pending() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * Hands every queued event to {@code sink} in order and returns how many were delivered.
+     */
+    public int drain(Sink sink) {
+        int n = 0;
+        while (head < tail) {
+            int slot = (int) head & mask;
+            head++;
+            n++;
+            sink.onCrossing(KINDS[evKind[slot]], evLevel[slot], evDir[slot], evCount[slot], evTime[slot]);
+        }
+        return n;
+    }
+
+    public long getEmitted() { return emitted; }
+
+    public long getDebounced() { return debounced; }
+
+    public long getDropped() { return dropped; }
+}
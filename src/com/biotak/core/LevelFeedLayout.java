@@ -0,0 +1,78 @@
+package com.biotak.core;
+
+/**
+ * چیدمان فایل خوراک سطوح - Fixed binary layout of the memory-mapped level feed ({@code .btkf}).
+ * <p>
+ * One file per chart (symbol and timeframe), all numbers little-endian, offsets in bytes:
+ * <pre>
+ *   0    int      MAGIC "BTKF"
+ *   4    short    VERSION
+ *   6    short    VALUE_COUNT (number of doubles in the values block)
+ *   8    long     sequence: odd while a write is in progress, even when stable
+ *   16   long     publish wall-clock time (ms)
+ *   24   long     snapshot generation
+ *   32   int      capacity (slots in the level arrays)
+ *   36   int      level count (≤ capacity)
+ *   40   int      step mode (StepCalculationMode ordinal: TH, SS_LS, M, E, TP)
+ *   44   int      reserved
+ *   48   byte[32] symbol, UTF-8, zero padded
+ *   80   byte[16] timeframe label, ASCII, zero padded
+ *   96   double[VALUE_COUNT] values, indexed by the V_* constants (price units)
+ *   256  double[capacity] level prices, ascending
+ *   256 + 8 × capacity   byte[capacity] level kinds (LevelKind ordinals)
+ * </pre>
+ * Seqlock protocol: the writer stores an odd sequence, writes the body, then stores the next
+ * even sequence. A reader loads the sequence (acquire), skips if odd, copies what it needs,
+ * and accepts the copy only if the sequence is unchanged afterwards. Symbol, timeframe and
+ * capacity never change for the life of a file.
+ */
+public final class LevelFeedLayout {
+
+    private LevelFeedLayout() {}
+
+    public static final int MAGIC = 0x464B5442; // "BTKF" read little-endian
+    public static final short VERSION = 1;
+    public static final String FILE_EXTENSION = ".btkf";
+
+    public static final int OFF_MAGIC = 0;
+    public static final int OFF_VERSION = 4;
+    public static final int OFF_VALUE_COUNT = 6;
+    public static final int OFF_SEQUENCE = 8;
+    public static final int OFF_PUBLISH_TIME = 16;
+    public static final int OFF_GENERATION = 24;
+    public static final int OFF_CAPACITY = 32;
+    public static final int OFF_LEVEL_COUNT = 36;
+    public static final int OFF_STEP_MODE = 40;
+    public static final int OFF_SYMBOL = 48;
+    public static final int SYMBOL_BYTES = 32;
+    public static final int OFF_TIMEFRAME = 80;
+    public static final int TIMEFRAME_BYTES = 16;
+    public static final int OFF_VALUES = 96;
+    public static final int OFF_PRICES = 256;
+
+    // Values block
+    public static final int V_ANCHOR = 0;
+    public static final int V_BASE_PRICE = 1;
+    public static final int V_HIGH = 2;
+    public static final int V_LOW = 3;
+    public static final int V_TH = 4;
+    public static final int V_PATTERN = 5;
+    public static final int V_TRIGGER = 6;
+    public static final int V_STRUCTURE = 7;
+    public static final int V_HIGHER_PATTERN = 8;
+    public static final int V_SHORT_STEP = 9;
+    public static final int V_LONG_STEP = 10;
+    public static final int V_M_STEP = 11;
+    public static final int V_ATR = 12;
+    public static final int V_LIVE_ATR = 13;
+    public static final int V_CUSTOM_PRICE = 14;
+    public static final int VALUE_COUNT = 16;
+
+    public static int kindsOffset(int capacity) {
+        return OFF_PRICES + 8 * capacity;
+    }
+
+    public static int fileSize(int capacity) {
+        return kindsOffset(capacity) + capacity;
+    }
+}
@@ -0,0 +1,163 @@
+package com.biotak.core;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.biotak.core.LevelFeedLayout.*;
+
+/**
+ * خواننده خوراک سطوح - Lock-free reader of a {@code .btkf} level feed written by {@link LevelFeedWriter}.
+ * <p>
+ * Depends on the JDK only, so external processes can ship this class with
+ * {@link LevelFeedLayout} and poll a chart's levels:
+ * <pre>
+ *   try (LevelFeedReader r = LevelFeedReader.open(path)) {
+ *       LevelFeedReader.Snapshot s = new LevelFeedReader.Snapshot();
+ *       long seen = 0;
+ *       while (running) {
+ *           if (r.sequence() != seen &amp;&amp; r.read(s)) { seen = s.sequence(); ... s.price(i) ... }
+ *           Thread.onSpinWait();
+ *       }
+ *   }
+ * </pre>
+ * {@link #read} copies a consistent snapshot into caller-owned arrays and allocates nothing
+ * once the snapshot has grown to the file's capacity. One reader instance per thread.
+ */
+public final class LevelFeedReader implements AutoCloseable {
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int MAX_ATTEMPTS = 64;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final int capacity;
+    private final String symbol;
+    private final String timeframe;
+
+    private LevelFeedReader(FileChannel channel, MappedByteBuffer buf) throws IOException {
+        this.channel = channel;
+        this.buf = buf;
+        if (buf.getInt(OFF_MAGIC) != MAGIC) throw new IOException("Not a level feed file");
+        if (buf.getShort(OFF_VERSION) != VERSION) throw new IOException("Unsupported level feed version " + buf.getShort(OFF_VERSION));
+        this.capacity = buf.getInt(OFF_CAPACITY);
+        if (capacity <= 0 || buf.capacity() < fileSize(capacity)) throw new IOException("Truncated level feed file");
+        this.symbol = text(OFF_SYMBOL, SYMBOL_BYTES);
+        this.timeframe = text(OFF_TIMEFRAME, TIMEFRAME_BYTES);
+    }
+
+    public static LevelFeedReader open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            return new LevelFeedReader(ch, buf);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private String text(int offset, int length) {
+        byte[] bytes = new byte[length];
+        int n = 0;
+        while (n < length && buf.get(offset + n) != 0) {
+            bytes[n] = buf.get(offset + n);
+            n++;
+        }
+        return new String(bytes, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /** Current sequence; changes on every publish, odd while one is in progress. */
+    public long sequence() {
+        return (long) LONG.getAcquire(buf, OFF_SEQUENCE);
+    }
+
+    /**
+     * Copies the latest stable snapshot into {@code into}.
+     *
+     * @return {@code false} if every attempt overlapped a write (retry later)
+     */
+    public boolean read(Snapshot into) {
+        into.ensure(capacity);
+        int kinds = kindsOffset(capacity);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long before = sequence();
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            into.publishTimeMs = buf.getLong(OFF_PUBLISH_TIME);
+            into.generation = buf.getLong(OFF_GENERATION);
+            into.stepMode = buf.getInt(OFF_STEP_MODE);
+            int n = Math.max(0, Math.min(buf.getInt(OFF_LEVEL_COUNT), capacity));
+            for (int i = 0; i < VALUE_COUNT; i++) into.values[i] = buf.getDouble(OFF_VALUES + 8 * i);
+            for (int i = 0; i < n; i++) {
+                into.prices[i] = buf.getDouble(OFF_PRICES + 8 * i);
+                into.kinds[i] = buf.get(kinds + i);
+            }
+            VarHandle.loadLoadFence();
+            if (sequence() == before) {
+                into.levelCount = n;
+                into.sequence = before;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String symbol() { return symbol; }
+
+    public String timeframe() { return timeframe; }
+
+    public int capacity() { return capacity; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Reusable copy of one published snapshot. */
+    public static final class Snapshot {
+        private long sequence;
+        private long publishTimeMs;
+        private long generation;
+        private int stepMode;
+        private int levelCount;
+        private final double[] values = new double[VALUE_COUNT];
+        private double[] prices = new double[0];
+        private byte[] kinds = new byte[0];
+
+        private void ensure(int capacity) {
+            if (prices.length < capacity) {
+                prices = new double[capacity];
+                kinds = new byte[capacity];
+            }
+        }
+
+        public long sequence() { return sequence; }
+
+        public long publishTimeMs() { return publishTimeMs; }
+
+        public long generation() { return generation; }
+
+        /** StepCalculationMode ordinal. */
+        public int stepMode() { return stepMode; }
+
+        /** Value by {@code LevelFeedLayout.V_*} index. */
+        public double value(int index) { return values[index]; }
+
+        public int levelCount() { return levelCount; }
+
+        public double price(int i) { return prices[i]; }
+
+        /** LevelKind ordinal of level {@code i}. */
+        public int kind(int i) { return kinds[i]; }
+    }
+}
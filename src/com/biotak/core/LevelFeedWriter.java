@@ -0,0 +1,192 @@
+package com.biotak.core;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.biotak.core.LevelFeedLayout.*;
+
+/**
+ * ناشر خوراک سطوح - Publishes a chart's level snapshot into a memory-mapped file for local
+ * consumers in other processes, in the layout of {@link LevelFeedLayout}.
+ * <p>
+ * Each {@link #publish} is one seqlock write: odd sequence, body, even sequence. Readers on the
+ * same machine poll the sequence and never block the writer. When the ladder holds more levels
+ * than the file's capacity the slice nearest the anchor is written. {@link #publish} allocates
+ * nothing. Methods are synchronized.
+ * <p>
+ * There is one writer per file: {@link #open} takes an exclusive {@link FileLock}, which also
+ * holds against other charts in this process. A second chart whose symbol and timeframe map to
+ * the same name (two charts, or "EUR/USD" and "EURUSD") gets {@code <name>-2.btkf} and so on;
+ * the header carries the real symbol.
+ */
+public final class LevelFeedWriter implements AutoCloseable {
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** Files tried per name before giving up ({@code <name>.btkf}, {@code <name>-2.btkf}, …). */
+    private static final int MAX_WRITERS = 8;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final int capacity;
+    private long sequence;
+    private boolean closed;
+
+    private LevelFeedWriter(Path file, FileChannel channel, MappedByteBuffer buf, int capacity, long sequence) {
+        this.file = file;
+        this.channel = channel;
+        this.buf = buf;
+        this.capacity = capacity;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Opens (or creates) {@code <dir>/<symbol>_<timeframe>.btkf}, or the first numbered variant no
+     * other writer holds, and writes the fixed header. An existing file keeps counting from its
+     * last sequence so polling readers see a change; one written with another capacity is
+     * deleted and created again rather than rewritten under a reader's mapping.
+     */
+    public static LevelFeedWriter open(Path dir, String symbol, String timeframe, int capacity) throws IOException {
+        Files.createDirectories(dir);
+        int cap = Math.max(16, capacity);
+        String name = fileName(symbol, timeframe);
+        String stem = name.substring(0, name.length() - FILE_EXTENSION.length());
+        for (int n = 1; n <= MAX_WRITERS; n++) {
+            Path file = dir.resolve(n == 1 ? name : stem + "-" + n + FILE_EXTENSION);
+            LevelFeedWriter writer = tryOpen(file, symbol, timeframe, cap);
+            if (writer != null) return writer;
+        }
+        throw new IOException("All " + MAX_WRITERS + " feed files for " + name + " already have a writer");
+    }
+
+    /** Opens {@code file} if no other writer holds it, else returns {@code null}. */
+    private static LevelFeedWriter tryOpen(Path file, String symbol, String timeframe, int cap) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (!lock(ch)) {
+                ch.close();
+                return null;
+            }
+            int size = fileSize(cap);
+            long seq = 0;
+            ByteBuffer head = ByteBuffer.allocate(OFF_VALUES).order(ByteOrder.LITTLE_ENDIAN);
+            if (ch.size() >= OFF_VALUES && ch.read(head, 0) == OFF_VALUES && head.getInt(OFF_MAGIC) == MAGIC) {
+                seq = head.getLong(OFF_SEQUENCE);
+                if (head.getInt(OFF_CAPACITY) != cap) {
+                    // Different layout: recreate, keeping the sequence so readers that reopen see a change
+                    ch.close();
+                    Files.delete(file);
+                    ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    if (!lock(ch)) {
+                        ch.close();
+                        return null;
+                    }
+                }
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            seq = (seq + 1) & ~1L; // an interrupted write left it odd
+            LONG.setVolatile(buf, OFF_SEQUENCE, seq + 1);
+            buf.putInt(OFF_MAGIC, MAGIC);
+            buf.putShort(OFF_VERSION, VERSION);
+            buf.putShort(OFF_VALUE_COUNT, (short) VALUE_COUNT);
+            buf.putInt(OFF_CAPACITY, cap);
+            buf.putInt(OFF_LEVEL_COUNT, 0);
+            putText(buf, OFF_SYMBOL, SYMBOL_BYTES, symbol);
+            putText(buf, OFF_TIMEFRAME, TIMEFRAME_BYTES, timeframe);
+            for (int i = 0; i < VALUE_COUNT; i++) buf.putDouble(OFF_VALUES + 8 * i, Double.NaN);
+            LONG.setRelease(buf, OFF_SEQUENCE, seq + 2);
+            return new LevelFeedWriter(file, ch, buf, cap, seq + 2);
+        } catch (java.nio.file.FileAlreadyExistsException e) {
+            return null; // another writer recreated it first
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** Exclusive lock on the whole file; {@code false} if another writer, here or elsewhere, has it. */
+    private static boolean lock(FileChannel ch) throws IOException {
+        try {
+            FileLock lock = ch.tryLock();
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    /** File name for a chart: symbol and timeframe reduced to letters, digits and '+'. */
+    public static String fileName(String symbol, String timeframe) {
+        return symbol.replaceAll("[^A-Za-z0-9]", "") + "_" + timeframe.replaceAll("[^A-Za-z0-9+]", "") + FILE_EXTENSION;
+    }
+
+    private static void putText(MappedByteBuffer buf, int offset, int length, String text) {
+        byte[] bytes = text != null ? text.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int n = Math.min(bytes.length, length - 1);
+        for (int i = 0; i < length; i++) buf.put(offset + i, i < n ? bytes[i] : 0);
+    }
+
+    /**
+     * Writes one snapshot.
+     *
+     * @param values {@link LevelFeedLayout#VALUE_COUNT} doubles indexed by the {@code V_*} constants
+     */
+    public synchronized void publish(long generation, int stepMode, double[] values, LevelLadder ladder) {
+        if (closed) return;
+        int n = Math.min(ladder.size(), capacity);
+        int from = 0;
+        if (ladder.size() > capacity) {
+            // Keep the slice centred on the anchor
+            int at = ladder.upperIndex(values[V_ANCHOR]);
+            from = Math.max(0, Math.min(ladder.size() - capacity, at - capacity / 2));
+        }
+
+        long odd = sequence + 1;
+        LONG.setVolatile(buf, OFF_SEQUENCE, odd);
+        VarHandle.storeStoreFence();
+        buf.putLong(OFF_PUBLISH_TIME, System.currentTimeMillis());
+        buf.putLong(OFF_GENERATION, generation);
+        buf.putInt(OFF_STEP_MODE, stepMode);
+        buf.putInt(OFF_LEVEL_COUNT, n);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            buf.putDouble(OFF_VALUES + 8 * i, i < values.length ? values[i] : Double.NaN);
+        }
+        int kinds = kindsOffset(capacity);
+        for (int i = 0; i < n; i++) {
+            buf.putDouble(OFF_PRICES + 8 * i, ladder.price(from + i));
+            buf.put(kinds + i, (byte) ladder.kind(from + i).ordinal());
+        }
+        sequence = odd + 1;
+        LONG.setRelease(buf, OFF_SEQUENCE, sequence);
+    }
+
+    public Path getFile() { return file; }
+
+    public int getCapacity() { return capacity; }
+
+    public synchronized long getSequence() { return sequence; }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        buf.force();
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+            // mapping stays valid until unmapped by GC; nothing else to release
+        }
+    }
+}
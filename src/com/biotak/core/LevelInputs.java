@@ -0,0 +1,81 @@
+package com.biotak.core;
+
+import com.biotak.enums.MStepBasisType;
+import com.biotak.enums.SSLSBasisType;
+import com.biotak.enums.StepCalculationMode;
+import com.biotak.enums.THStartPointType;
+import com.biotak.ui.LevelStyle;
+import com.motivewave.platform.sdk.common.BarSize;
+import com.motivewave.platform.sdk.common.Instrument;
+
+/**
+ * ورودی‌های یک دور محاسبه سطوح - Everything one level computation reads from the chart.
+ * <p>
+ * Gathered on the study thread by {@code BiotakTrigger.gatherLevelInputs} when a redraw is
+ * requested: series values (range, live bid, bar times, ATR) and the settings the step modes
+ * use. The compute lane works from this record alone and never reads the {@code DataSeries}
+ * or the study settings itself.
+ *
+ * @param knownHigh       extremes cached before this request; a wider range is persisted on bar 0
+ * @param rollingAnchor   anchor of a ROLLING_* start point, NaN otherwise
+ * @param customPrice     saved custom price, NaN or 0 when unset
+ * @param lockedCustomPrice custom price held while all levels are locked, NaN when not locked yet
+ * @param lockedTh        saved lock values (NaN when none) for TH/E/TP, SS/LS base and M control
+ */
+public record LevelInputs(
+        int index,
+        Instrument instrument,
+        BarSize barSize,
+        double bid,
+        double lastClose,
+        long startTime,
+        long endTime,
+        boolean manualRange,
+        double high,
+        double low,
+        double knownHigh,
+        double knownLow,
+        double rollingAnchor,
+        double atrValue,
+        double liveAtrValue,
+        AtrTable measuredAtr,
+        StepCalculationMode mode,
+        THStartPointType startPoint,
+        double customPrice,
+        boolean lockAllLevels,
+        double lockedCustomPrice,
+        double lockedTh,
+        double lockedBaseTh,
+        double lockedControl,
+        SSLSBasisType sslsBasis,
+        boolean lsFirst,
+        MStepBasisType mStepBasis,
+        boolean useTpForEStep,
+        boolean showThLevels,
+        boolean showInfoPanel,
+        LevelStyle style) {
+
+    /**
+     * Whether a computation from this record would draw the levels {@code o} drew, given the
+     * same base price. Left out: the bid, which the recompute gate judges; the live ATR, which
+     * only feeds the panel's Live row; and the last close, which only seeds an unset custom
+     * price and is saved on the first publish.
+     */
+    public boolean sameLevelsAs(LevelInputs o) {
+        return index == o.index && instrument == o.instrument && barSize.equals(o.barSize)
+                && startTime == o.startTime && endTime == o.endTime && manualRange == o.manualRange
+                && same(high, o.high) && same(low, o.low) && same(knownHigh, o.knownHigh) && same(knownLow, o.knownLow)
+                && same(rollingAnchor, o.rollingAnchor) && same(atrValue, o.atrValue)
+                && measuredAtr == o.measuredAtr && mode == o.mode && startPoint == o.startPoint
+                && same(customPrice, o.customPrice) && lockAllLevels == o.lockAllLevels
+                && same(lockedCustomPrice, o.lockedCustomPrice) && same(lockedTh, o.lockedTh)
+                && same(lockedBaseTh, o.lockedBaseTh) && same(lockedControl, o.lockedControl)
+                && sslsBasis == o.sslsBasis && lsFirst == o.lsFirst && mStepBasis == o.mStepBasis
+                && useTpForEStep == o.useTpForEStep && showThLevels == o.showThLevels
+                && showInfoPanel == o.showInfoPanel && style.sameAs(o.style);
+    }
+
+    private static boolean same(double a, double b) {
+        return Double.compare(a, b) == 0;
+    }
+}
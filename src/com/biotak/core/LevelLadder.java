@@ -0,0 +1,94 @@
+package com.biotak.core;
+
+import com.biotak.enums.LevelKind;
+
+import java.util.Arrays;
+
+/**
+ * نردبان مرتب سطوح - Immutable, sorted price ladder of the drawn level lines.
+ * <p>
+ * Prices are kept in an ascending {@code double[]} with a parallel {@code byte[]} of
+ * {@link LevelKind} ordinals, so a tick can be bracketed with one binary search and no
+ * allocation. Built by {@link Builder} next to the level figures and published with the
+ * {@link LevelSnapshot}.
+ */
+public final class LevelLadder {
+
+    public static final LevelLadder EMPTY = new LevelLadder(new double[0], new byte[0]);
+
+    private static final LevelKind[] KINDS = LevelKind.values();
+
+    private final double[] prices;
+    private final byte[] kinds;
+
+    private LevelLadder(double[] prices, byte[] kinds) {
+        this.prices = prices;
+        this.kinds = kinds;
+    }
+
+    public int size() {
+        return prices.length;
+    }
+
+    public double price(int i) {
+        return prices[i];
+    }
+
+    public LevelKind kind(int i) {
+        return KINDS[kinds[i]];
+    }
+
+    /**
+     * Number of levels at or below {@code price}, i.e. the index of the first level above it.
+     */
+    public int upperIndex(double price) {
+        int lo = 0, hi = prices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] <= price) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Collects level prices in draw order. Not thread-safe; one builder per computation.
+     */
+    public static final class Builder {
+        private double[] prices = new double[64];
+        private byte[] kinds = new byte[64];
+        private int size;
+
+        public Builder add(double price, LevelKind kind) {
+            if (Double.isNaN(price) || Double.isInfinite(price)) return this;
+            if (size == prices.length) {
+                prices = Arrays.copyOf(prices, size * 2);
+                kinds = Arrays.copyOf(kinds, size * 2);
+            }
+            prices[size] = price + 0.0; // -0.0 → 0.0 so sort order and binary search agree
+            kinds[size] = (byte) kind.ordinal();
+            size++;
+            return this;
+        }
+
+        /**
+         * Sorts and de-duplicates the collected prices. Where two lines share a price the one
+         * added last keeps its kind, so the custom price line wins over a step level under it.
+         */
+        public LevelLadder build() {
+            if (size == 0) return EMPTY;
+            double[] sorted = Arrays.copyOf(prices, size);
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (unique == 0 || sorted[i] != sorted[unique - 1]) sorted[unique++] = sorted[i];
+            }
+            sorted = Arrays.copyOf(sorted, unique);
+            byte[] sortedKinds = new byte[unique];
+            for (int i = 0; i < size; i++) {
+                sortedKinds[Arrays.binarySearch(sorted, prices[i])] = kinds[i];
+            }
+            return new LevelLadder(sorted, sortedKinds);
+        }
+    }
+}
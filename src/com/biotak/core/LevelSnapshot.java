@@ -0,0 +1,54 @@
+package com.biotak.core;
+
+import com.biotak.enums.StepCalculationMode;
+import com.motivewave.platform.sdk.draw.Figure;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * نتیجه‌ی تغییرناپذیر یک دور محاسبه سطوح - Immutable result of one level computation.
+ * <p>
+ * Produced on the study's compute lane by {@code BiotakTrigger.computeLevelSnapshot} from a
+ * {@link LevelInputs} and handed back to the study thread, which publishes it. Everything the
+ * publish stage needs is here, including the info panel rows; it does no calculation of its own. Setting writes made during the computation (historical extremes,
+ * lock values, default custom price) are carried in {@link #settingWrites} and applied on
+ * publish, so a superseded computation leaves no trace.
+ *
+ * @param generation      draw request this snapshot answers; older generations are dropped
+ * @param levelFigures    historical, midpoint and step-level figures in draw order
+ * @param thBundle        TH of the five fractal timeframes at {@code thBasePrice}
+ * @param ladder          sorted prices of the drawn level lines, for crossing detection
+ * @param rulerMaps       complete ruler lookup data, published as-is
+ * @param settingWrites   key → value (Double, String or null) to write to the study settings
+ * @param panelCoreLines  info panel rows, empty when the panel is hidden
+ */
+public record LevelSnapshot(
+        long generation,
+        int index,
+        StepCalculationMode mode,
+        boolean manualRange,
+        double finalHigh,
+        double finalLow,
+        double thBasePrice,
+        double midpointPrice,
+        long startTime,
+        long endTime,
+        double thValue,
+        double structureValue,
+        double patternValue,
+        double triggerValue,
+        double shortStep,
+        double longStep,
+        double atrValue,
+        double liveAtrValue,
+        com.biotak.util.FractalUtil.THBundle thBundle,
+        boolean needCustomAnchor,
+        double customPrice,
+        RulerMaps rulerMaps,
+        List<Figure> levelFigures,
+        LevelLadder ladder,
+        Map<String, Object> settingWrites,
+        List<String> panelCoreLines,
+        List<String> panelHierarchyLines) {
+}
@@ -0,0 +1,211 @@
+package com.biotak.core;
+
+import com.biotak.util.TimeframeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * جمع‌کننده چند تایم‌فریمی - Streams the chart's completed bars into every higher timeframe
+ * and keeps a real Wilder ATR per timeframe.
+ * <p>
+ * Buckets follow the instrument's session calendar the way the platform builds its own bars:
+ * intraday lengths that divide a day count from the session start, whole days are session days
+ * and whole weeks start with the Monday session. Other lengths fall back to
+ * {@code floorDiv(time, length)}. When a bar falls into a new bucket the previous aggregated bar
+ * is closed and its true range is folded into that timeframe's ATR, using the period
+ * {@link TimeframeUtil#getAtrPeriodFromMinutes} gives it. Work per base bar is one pass over
+ * the timeframes with no allocation. Only exact multiples of the chart's bar are tracked; other
+ * lengths cannot be built from it without splitting bars.
+ * <p>
+ * Bars must arrive in index order; index 0 again (series reload) resets the aggregator and a
+ * repeated index is ignored. Methods are synchronized: bars are fed from the calculate thread
+ * and {@link #table} is read by the level-compute thread.
+ */
+public final class MultiTimeframeAggregator {
+
+    /** Closed aggregated bars needed before a timeframe is reported; fewer leave the ATR dominated by its seed. */
+    public static final int MIN_BARS = 14;
+
+    private static final long DAY_MS = 86_400_000L;
+
+    /** Session boundaries of the chart instrument. */
+    public interface SessionCalendar {
+        long startOfDay(long time);
+
+        long endOfDay(long time);
+
+        /** UTC days, for callers without an instrument. */
+        SessionCalendar UTC = new SessionCalendar() {
+            @Override public long startOfDay(long time) { return time - Math.floorMod(time, DAY_MS); }
+            @Override public long endOfDay(long time) { return startOfDay(time) + DAY_MS; }
+        };
+    }
+
+    private static final int KIND_EPOCH = 0, KIND_INTRADAY = 1, KIND_DAYS = 2, KIND_WEEKS = 3;
+
+    private final int[] minutes;
+    private final long[] spanMs;
+    private final int[] kind;
+    private final SessionCalendar calendar;
+    private long dayStart = Long.MAX_VALUE, dayEnd = Long.MIN_VALUE;
+    private long tradingDay; // epoch day the current session trades for
+    private final int[] period;
+    private final String[][] labels;
+
+    // Aggregated bar in progress
+    private final long[] bucket;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final boolean[] open;
+
+    // Wilder ATR over closed aggregated bars
+    private final double[] prevClose;
+    private final double[] atr;
+    private final int[] bars;
+
+    private int lastIndex = -1;
+    private long version;
+    private long tableVersion = -1;
+    private AtrTable table = AtrTable.EMPTY;
+
+    /**
+     * @param timeframes  labels per timeframe length in minutes
+     * @param baseSeconds length of the chart's bar; timeframes that are not a multiple of it are dropped
+     * @param calendar    session boundaries used for bucket alignment
+     */
+    public MultiTimeframeAggregator(SortedMap<Integer, List<String>> timeframes, long baseSeconds, SessionCalendar calendar) {
+        this.calendar = calendar != null ? calendar : SessionCalendar.UTC;
+        long base = Math.max(1, baseSeconds);
+        List<Map.Entry<Integer, List<String>>> kept = new ArrayList<>();
+        for (var e : timeframes.entrySet()) {
+            long seconds = e.getKey() * 60L;
+            if (e.getKey() > 0 && seconds >= base && seconds % base == 0) kept.add(e);
+        }
+        int n = kept.size();
+        minutes = new int[n];
+        spanMs = new long[n];
+        kind = new int[n];
+        period = new int[n];
+        labels = new String[n][];
+        for (int t = 0; t < n; t++) {
+            minutes[t] = kept.get(t).getKey();
+            spanMs[t] = minutes[t] * 60_000L;
+            kind[t] = minutes[t] % 10080 == 0 ? KIND_WEEKS
+                    : minutes[t] % 1440 == 0 ? KIND_DAYS
+                    : 1440 % minutes[t] == 0 ? KIND_INTRADAY : KIND_EPOCH;
+            period[t] = Math.max(1, TimeframeUtil.getAtrPeriodFromMinutes(minutes[t]));
+            labels[t] = kept.get(t).getValue().toArray(new String[0]);
+        }
+        bucket = new long[n];
+        high = new double[n];
+        low = new double[n];
+        close = new double[n];
+        open = new boolean[n];
+        prevClose = new double[n];
+        atr = new double[n];
+        bars = new int[n];
+        reset();
+    }
+
+    public synchronized void reset() {
+        lastIndex = -1;
+        java.util.Arrays.fill(open, false);
+        java.util.Arrays.fill(prevClose, Double.NaN);
+        java.util.Arrays.fill(atr, 0);
+        java.util.Arrays.fill(bars, 0);
+        version++;
+    }
+
+    /**
+     * Feeds one completed chart bar.
+     *
+     * @param time bar start time in epoch milliseconds
+     */
+    public synchronized void onBar(int index, long time, double barHigh, double barLow, double barClose) {
+        if (index == 0 && lastIndex >= 0) reset();
+        if (index <= lastIndex) return;
+        lastIndex = index;
+        if (Double.isNaN(barHigh) || Double.isNaN(barLow) || Double.isNaN(barClose)) return;
+        if (time < dayStart || time >= dayEnd) {
+            dayStart = calendar.startOfDay(time);
+            dayEnd = calendar.endOfDay(time);
+            if (dayEnd <= dayStart) dayEnd = dayStart + DAY_MS;
+            // A session is dated by the day it ends on (a Sunday-evening open trades for Monday)
+            tradingDay = Math.floorDiv(dayEnd - 1, DAY_MS);
+        }
+
+        for (int t = 0; t < minutes.length; t++) {
+            long b = bucketOf(t, time);
+            if (open[t] && b == bucket[t]) {
+                if (barHigh > high[t]) high[t] = barHigh;
+                if (barLow < low[t]) low[t] = barLow;
+                close[t] = barClose;
+                continue;
+            }
+            if (open[t]) closeBar(t);
+            open[t] = true;
+            bucket[t] = b;
+            high[t] = barHigh;
+            low[t] = barLow;
+            close[t] = barClose;
+        }
+    }
+
+    private long bucketOf(int t, long time) {
+        return switch (kind[t]) {
+            case KIND_INTRADAY -> dayStart + Math.floorDiv(time - dayStart, spanMs[t]) * spanMs[t];
+            case KIND_DAYS -> Math.floorDiv(tradingDay, minutes[t] / 1440);
+            // Epoch day 0 was a Thursday: +3 makes Monday the first day of the week
+            case KIND_WEEKS -> Math.floorDiv(tradingDay - Math.floorMod(tradingDay + 3, 7), 7L * (minutes[t] / 10080));
+            default -> Math.floorDiv(time, spanMs[t]);
+        };
+    }
+
+    private void closeBar(int t) {
+        double tr = high[t] - low[t];
+        double pc = prevClose[t];
+        if (!Double.isNaN(pc)) tr = Math.max(tr, Math.max(Math.abs(high[t] - pc), Math.abs(low[t] - pc)));
+        prevClose[t] = close[t];
+        int n = bars[t];
+        int p = period[t];
+        atr[t] = n < p ? (atr[t] * n + tr) / (n + 1) : (atr[t] * (p - 1) + tr) / p;
+        bars[t] = n + 1;
+        version++;
+    }
+
+    /**
+     * Timeframes with at least {@link #MIN_BARS} closed bars and their ATR. The same instance
+     * is returned until another aggregated bar closes.
+     */
+    public synchronized AtrTable table() {
+        if (tableVersion == version) return table;
+        int n = 0;
+        for (int t = 0; t < minutes.length; t++) {
+            if (bars[t] >= MIN_BARS && atr[t] > 0) n++;
+        }
+        int[] m = new int[n];
+        double[] a = new double[n];
+        String[][] l = new String[n][];
+        int i = 0;
+        for (int t = 0; t < minutes.length; t++) {
+            if (bars[t] >= MIN_BARS && atr[t] > 0) {
+                m[i] = minutes[t];
+                a[i] = atr[t];
+                l[i] = labels[t];
+                i++;
+            }
+        }
+        table = n == 0 ? AtrTable.EMPTY : new AtrTable(m, a, l);
+        tableVersion = version;
+        return table;
+    }
+
+    /** Number of timeframes tracked (exact multiples of the chart's bar). */
+    public int timeframeCount() {
+        return minutes.length;
+    }
+}
@@ -0,0 +1,61 @@
+package com.biotak.core;
+
+/**
+ * دروازه‌ی محاسبه مجدد با پسماند - Hysteresis gate for the TH base price on live ticks.
+ * <p>
+ * The TH bundle, the M/step ruler maps and the TH step all depend on the live bid. Small bid
+ * changes move those values by a fraction of a pixel but change every cache key. The gate
+ * holds an anchor price and hands it out as the base price while the bid stays within
+ * {@code fraction × TH} of it; only a move outside that band re-anchors on the current bid.
+ * A step of zero or an unset anchor always re-anchors, so the first computation and a
+ * timeframe change are exact.
+ * <p>
+ * Each chart uses its own gate. {@link #basePrice} and {@link #setStep} run on the level-compute
+ * thread; {@link #holds} only reads and may be called from the study thread.
+ */
+public final class RecomputeGate {
+
+    private volatile double anchor = Double.NaN;
+    private volatile double band;
+    private volatile Object key;
+    private long executed;
+    private long skipped;
+
+    /**
+     * Base price to compute with: the held anchor while {@code bid} is inside the band,
+     * otherwise {@code bid}, which becomes the new anchor.
+     *
+     * @param key anything the anchor is only valid for (the bar size); a different key re-anchors
+     */
+    public double basePrice(double bid, Object key) {
+        if (!key.equals(this.key) || Double.isNaN(anchor) || !(band > 0) || Math.abs(bid - anchor) > band) {
+            this.key = key;
+            anchor = bid;
+            executed++;
+            return bid;
+        }
+        skipped++;
+        return anchor;
+    }
+
+    /**
+     * Whether {@link #basePrice} would hand out the held anchor for {@code bid}; changes nothing.
+     */
+    public boolean holds(double bid, Object key) {
+        double a = anchor, b = band;
+        return key.equals(this.key) && !Double.isNaN(a) && b > 0 && Math.abs(bid - a) <= b;
+    }
+
+    /**
+     * Sets the band from the TH computed at the anchor; {@code fraction <= 0} disables the gate.
+     */
+    public void setStep(double thValue, double fraction) {
+        band = fraction > 0 && thValue > 0 ? thValue * fraction : 0;
+    }
+
+    public double getBand() { return band; }
+
+    public long getExecuted() { return executed; }
+
+    public long getSkipped() { return skipped; }
+}
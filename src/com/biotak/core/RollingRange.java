@@ -0,0 +1,178 @@
+package com.biotak.core;
+
+/**
+ * دامنه پنجره غلتان - High and low of the last N bars or the last N days, kept with monotonic deques.
+ * <p>
+ * The max deque holds bars with strictly decreasing highs and the min deque bars with strictly
+ * increasing lows, so the window extreme is always at the front. A new bar pops the bars it
+ * dominates from the back and expired bars leave from the front: amortized O(1) per bar and no
+ * rescan of the window. Both deques are rings of primitive arrays that grow by doubling.
+ * <p>
+ * Bars must arrive in index order; index 0 again (series reload) resets the window and a
+ * repeated index is ignored. The extremes are read for a live bar that counts as the newest
+ * of the N bars (or falls inside the N days), so completed bars only fill the rest of the
+ * window. Methods are synchronized: bars are fed and the extremes read from different threads.
+ */
+public final class RollingRange {
+
+    private static final long DAY_MS = 86_400_000L;
+
+    private int windowBars = 100;
+    private long windowMs;       // > 0: time window, otherwise a bar-count window
+
+    private final Deque maxQ = new Deque();
+    private final Deque minQ = new Deque();
+    private int lastIndex = -1;
+    private long lastTime;
+
+    /**
+     * Sets the window; a change empties it, so it refills from the next bars fed.
+     *
+     * @param length number of bars or days (at least 1)
+     * @param days   {@code true} for a time window of {@code length} days
+     */
+    public synchronized void setWindow(int length, boolean days) {
+        int bars = Math.max(1, length);
+        long ms = days ? bars * DAY_MS : 0;
+        if (bars == windowBars && ms == windowMs) return;
+        windowBars = bars;
+        windowMs = ms;
+        reset();
+    }
+
+    public synchronized void reset() {
+        maxQ.clear();
+        minQ.clear();
+        lastIndex = -1;
+    }
+
+    /**
+     * Feeds one completed bar.
+     *
+     * @param time bar start time in epoch milliseconds (used by the day window)
+     */
+    public synchronized void onBar(int index, long time, double high, double low) {
+        if (index == 0 && lastIndex >= 0) reset();
+        if (index <= lastIndex || Double.isNaN(high) || Double.isNaN(low)) return;
+        lastIndex = index;
+        lastTime = time;
+
+        while (!maxQ.isEmpty() && maxQ.backValue() <= high) maxQ.popBack();
+        maxQ.pushBack(index, time, high);
+        while (!minQ.isEmpty() && minQ.backValue() >= low) minQ.popBack();
+        minQ.pushBack(index, time, low);
+
+        evict(maxQ);
+        evict(minQ);
+    }
+
+    private void evict(Deque q) {
+        if (windowMs > 0) {
+            long from = lastTime - windowMs;
+            while (!q.isEmpty() && q.frontTime() <= from) q.popFront();
+        } else {
+            int from = lastIndex - windowBars;
+            while (!q.isEmpty() && q.frontIndex() <= from) q.popFront();
+        }
+    }
+
+    /**
+     * Highest high of the window ending at the live bar, that bar included.
+     *
+     * @param liveIndex index of the live (possibly incomplete) bar
+     * @param liveTime  its start time
+     */
+    public synchronized double high(int liveIndex, long liveTime, double liveHigh) {
+        int k = firstInWindow(maxQ, liveIndex, liveTime);
+        return k < maxQ.size() ? Math.max(maxQ.value(k), liveHigh) : liveHigh;
+    }
+
+    /** Lowest low of the window ending at the live bar, as {@link #high}. */
+    public synchronized double low(int liveIndex, long liveTime, double liveLow) {
+        int k = firstInWindow(minQ, liveIndex, liveTime);
+        return k < minQ.size() ? Math.min(minQ.value(k), liveLow) : liveLow;
+    }
+
+    /**
+     * Position of the first queued bar inside the window that ends at the live bar. The queue is
+     * monotonic, so that bar holds the extreme of everything still in the window.
+     */
+    private int firstInWindow(Deque q, int liveIndex, long liveTime) {
+        int k = 0;
+        if (windowMs > 0) {
+            long from = liveTime - windowMs;
+            while (k < q.size() && q.time(k) <= from) k++;
+        } else {
+            int from = liveIndex - windowBars;
+            while (k < q.size() && q.index(k) <= from) k++;
+        }
+        return k;
+    }
+
+    /** Bars currently held by both deques (a measure of the state size, not the window length). */
+    public synchronized int retained() {
+        return maxQ.size() + minQ.size();
+    }
+
+    /** Ring deque of (index, time, value) triples. */
+    private static final class Deque {
+        private int[] index = new int[64];
+        private long[] time = new long[64];
+        private double[] value = new double[64];
+        private int head;
+        private int size;
+
+        boolean isEmpty() { return size == 0; }
+
+        int size() { return size; }
+
+        void clear() { head = 0; size = 0; }
+
+        private int slot(int i) { return (head + i) & (index.length - 1); }
+
+        void pushBack(int i, long t, double v) {
+            if (size == index.length) grow();
+            int s = slot(size);
+            index[s] = i;
+            time[s] = t;
+            value[s] = v;
+            size++;
+        }
+
+        void popBack() { size--; }
+
+        void popFront() {
+            head = slot(1);
+            size--;
+        }
+
+        double backValue() { return value[slot(size - 1)]; }
+
+        int frontIndex() { return index[head]; }
+
+        long frontTime() { return time[head]; }
+
+        int index(int k) { return index[slot(k)]; }
+
+        long time(int k) { return time[slot(k)]; }
+
+        double value(int k) { return value[slot(k)]; }
+
+        private void grow() {
+            int cap = index.length;
+            int[] ni = new int[cap * 2];
+            long[] nt = new long[cap * 2];
+            double[] nv = new double[cap * 2];
+            for (int k = 0; k < size; k++) {
+                int s = slot(k);
+                ni[k] = index[s];
+                nt[k] = time[s];
+                nv[k] = value[s];
+            }
+            index = ni;
+            time = nt;
+            value = nv;
+            head = 0;
+        }
+    }
+}
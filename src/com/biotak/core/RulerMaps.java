@@ -0,0 +1,37 @@
+package com.biotak.core;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * داده‌های تغییرناپذیر جستجوی خط‌کش - Immutable ruler lookup data.
+ * <p>
+ * Holds every map {@link RulerService} matches a leg against. A new instance is built per
+ * computation and published with one volatile write, so the paint thread either sees the
+ * previous complete set or the new complete set, never an empty or half-filled map.
+ * Instance identity doubles as a version: a cached match is valid only for the instance
+ * it was computed from.
+ *
+ * @param atrStructureMin   minutes of the structure timeframe the ATR map was built for
+ * @param atrStructurePrice 1× ATR price (not multiplied by 3) at build time
+ * @param tfLabels          Current, Pattern, Trigger, Structure, Higher timeframe labels
+ * @param basePrice         price the M and step maps were built for; unchanged price means reusable maps
+ * @param measuredAtr       ATR measured per timeframe from the chart's bars; empty until enough bars closed
+ */
+public record RulerMaps(
+        Map<String, Double> mValues,
+        Map<String, Double> eValues,
+        Map<String, Double> tpValues,
+        Map<String, Double> thValues,
+        Map<String, Double> ssValues,
+        Map<String, Double> lsValues,
+        Map<String, Double> atrValues,
+        int atrStructureMin,
+        double atrStructurePrice,
+        List<String> tfLabels,
+        double basePrice,
+        AtrTable measuredAtr) {
+
+    public static final RulerMaps EMPTY = new RulerMaps(Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(),
+            Map.of(), 0, Double.NaN, List.of("", "", "", "", ""), Double.NaN, AtrTable.EMPTY);
+}
@@ -1,5 +1,6 @@
 package com.biotak.core;
 
+import com.biotak.util.TimeframeRegistry;
 import com.biotak.util.TimeframeUtil;
 import com.biotak.util.UnitConverter;
 import com.biotak.util.OptimizedCalculations;
@@ -13,9 +14,10 @@ import java.util.Map;
 public final class RulerService {
   private RulerService() {}
 
-  public static record MResult(String bestLabel, double bestBasePips, double bestDiff) {}
-  public static record ATRResult(String bestLabel, double bestBasePips, double bestDiff) {}
-  public static record StepResult(String bestLabel, double bestBasePips, double bestDiff) {}
+  /** Match results carry the {@link TimeframeRegistry} id of the matched timeframe next to its label. */
+  public static record MResult(String bestLabel, int bestTfId, double bestBasePips, double bestDiff) {}
+  public static record ATRResult(String bestLabel, int bestTfId, double bestBasePips, double bestDiff) {}
+  public static record StepResult(String bestLabel, int bestTfId, double bestBasePips, double bestDiff) {}
 
   public static MResult matchM(
       Instrument instrument,
@@ -70,6 +72,7 @@ public final class RulerService {
       bestBasePips = bestBelowPips;
       bestDiff = bestBelowDiff;
     }
+    int bestTfId = TimeframeRegistry.idOf(bestLabel);
 
     // PRECISE BINARY SEARCH: Use direct calculation for exact timeframe matching
     // This provides much better accuracy than discrete timeframe matching
@@ -78,7 +81,7 @@ public final class RulerService {
         int lowMin = 1;    // 1 minute
         int highMin = 10080; // 1 week
         
-        String preciseTimeframeLabel = "-";
+        int preciseMin = -1;
         double preciseMPips = 0.0;
         double preciseDiff = Double.MAX_VALUE;
         
@@ -104,7 +107,7 @@ public final class RulerService {
             // Update best match if this is closer
             if (diff < preciseDiff) {
                 preciseDiff = diff;
-                preciseTimeframeLabel = compoundTimeframeExact(midMin);
+                preciseMin = midMin;
                 preciseMPips = mPips;
             }
             
@@ -123,7 +126,8 @@ public final class RulerService {
         
         // Use precise result if it's better than discrete matching
         if (preciseDiff < bestDiff) {
-            bestLabel = preciseTimeframeLabel;
+            bestLabel = compoundTimeframeExact(preciseMin);
+            bestTfId = TimeframeRegistry.intern(preciseMin);
             bestBasePips = preciseMPips;
             bestDiff = preciseDiff;
             
@@ -133,7 +137,7 @@ public final class RulerService {
         }
     }
 
-    return new MResult(bestLabel, bestBasePips, bestDiff);
+    return new MResult(bestLabel, bestTfId, bestBasePips, bestDiff);
   }
 
   public static ATRResult matchATR(
@@ -157,6 +161,65 @@ public final class RulerService {
     return matchATRWithInstrumentAndPrice(legPip, tick, atrMapLocal, atrStructureMin, atrStructurePrice, instrument, 1.0);
   }
   
+  /**
+   * ATR match against the published maps: the measured per-timeframe ATR when the aggregator has
+   * one, otherwise the √time scaling of {@link #matchATRWithInstrumentAndPrice}.
+   */
+  public static ATRResult matchATR(
+      RulerMaps maps,
+      Instrument instrument,
+      double legPip,
+      double tick,
+      double liveBidPrice
+  ) {
+    AtrTable measured = maps.measuredAtr();
+    if (instrument != null && measured != null && !measured.isEmpty()) {
+      return matchMeasuredATR(legPip, measured, instrument);
+    }
+    return matchATRWithInstrumentAndPrice(legPip, tick, maps.atrValues(), maps.atrStructureMin(),
+        maps.atrStructurePrice(), instrument, liveBidPrice);
+  }
+
+  /**
+   * Matches {@code legPip} (3×ATR) against measured ATR. When the target ATR lies between two
+   * measured timeframes the length is interpolated log-log between them and labelled exactly;
+   * outside the measured range the nearest timeframe wins.
+   */
+  public static ATRResult matchMeasuredATR(double legPip, AtrTable table, Instrument instrument) {
+    double targetATRPips = legPip / 3.0;
+    String bestLabel = "-";
+    int bestTfId = TimeframeRegistry.UNKNOWN;
+    double bestPips = 0.0;
+    double bestDiff = Double.MAX_VALUE;
+    double prevPips = Double.NaN;
+    for (int i = 0; i < table.size(); i++) {
+      double pips = Math.round(UnitConverter.priceToPip(table.atr(i), instrument) * 100.0) / 100.0;
+      double diff = Math.abs(pips - targetATRPips);
+      if (diff < bestDiff) {
+        bestDiff = diff;
+        bestLabel = table.label(i);
+        bestTfId = TimeframeRegistry.intern(table.minutes(i));
+        bestPips = pips;
+      }
+      if (i > 0 && prevPips > 0 && pips > 0 && prevPips != pips
+          && targetATRPips >= Math.min(prevPips, pips) && targetATRPips <= Math.max(prevPips, pips)) {
+        double f = Math.log(targetATRPips / prevPips) / Math.log(pips / prevPips);
+        double lo = Math.log(table.minutes(i - 1));
+        double exactMin = Math.exp(lo + f * (Math.log(table.minutes(i)) - lo));
+        com.biotak.debug.AdvancedLogger.debug("RulerService", "matchMeasuredATR",
+            "🎯 MEASURED ATR MATCH: legPip=%.2f → targetATR=%.2f pips between %s and %s → %.2f min",
+            legPip, targetATRPips, table.label(i - 1), table.label(i), exactMin);
+        return new ATRResult(compoundTimeframeExact(exactMin), TimeframeRegistry.internSeconds(Math.round(exactMin * 60.0)),
+            Math.round(targetATRPips * 100.0) / 100.0, 0.0);
+      }
+      prevPips = pips;
+    }
+    com.biotak.debug.AdvancedLogger.debug("RulerService", "matchMeasuredATR",
+        "🎯 MEASURED ATR MATCH: legPip=%.2f → targetATR=%.2f pips outside measured range → %s (%.2f pips)",
+        legPip, targetATRPips, bestLabel, bestPips);
+    return new ATRResult(bestLabel, bestTfId, bestPips, bestDiff);
+  }
+
   public static ATRResult matchATRWithInstrumentAndPrice(
       double legPip,
       double tick,
@@ -177,7 +240,7 @@ public final class RulerService {
         int lowMin = 1;    // 1 minute
         int highMin = 10080; // 1 week
         
-        String bestTimeframeLabel = "-";
+        int bestTimeframeMin = -1;
         double bestATRPips = 0.0;
         double bestDiff = Double.MAX_VALUE;
         
@@ -219,7 +282,7 @@ public final class RulerService {
             // Update best match if this is closer
             if (diff < bestDiff) {
                 bestDiff = diff;
-                bestTimeframeLabel = compoundTimeframeExact(midMin);
+                bestTimeframeMin = midMin;
                 bestATRPips = estimatedATRPips;
             }
             
@@ -236,11 +299,12 @@ public final class RulerService {
             }
         }
         
+        String bestTimeframeLabel = bestTimeframeMin > 0 ? compoundTimeframeExact(bestTimeframeMin) : "-";
         com.biotak.debug.AdvancedLogger.debug("RulerService", "matchATRWithInstrument", 
             "🎯 SCALED ATR MATCH: legPip=%.2f → targetATR=%.2f pips → timeframe=%s → actualATR=%.2f pips → diff=%.2f pips", 
             legPip, targetATRPips, bestTimeframeLabel, bestATRPips, bestDiff);
         
-        return new ATRResult(bestTimeframeLabel, bestATRPips, bestDiff);
+        return new ATRResult(bestTimeframeLabel, TimeframeRegistry.intern(bestTimeframeMin), bestATRPips, bestDiff);
     }
     
     // FALLBACK: Use old method if instrument is null
@@ -432,7 +496,7 @@ public final class RulerService {
         bestATRAboveLabel != null ? bestATRAboveLabel : "null", bestATRAbovePips, bestATRAboveDiff,
         bestATRBelowLabel != null ? bestATRBelowLabel : "null", bestATRBelowPips, bestATRBelowDiff);
     
-    return new ATRResult(bestATRLabel, bestATRBasePips, bestATRDiff);
+    return new ATRResult(bestATRLabel, TimeframeRegistry.idOf(bestATRLabel), bestATRBasePips, bestATRDiff);
   }
 
   /**
@@ -491,6 +555,7 @@ public final class RulerService {
       bestBasePips = bestBelowPips;
       bestDiff = bestBelowDiff;
     }
+    int bestTfId = TimeframeRegistry.idOf(bestLabel);
 
     // PRECISE BINARY SEARCH: Use direct calculation for exact timeframe matching
     // This provides much better accuracy than discrete timeframe matching
@@ -499,7 +564,7 @@ public final class RulerService {
         int lowMin = 1;    // 1 minute
         int highMin = 10080; // 1 week
         
-        String preciseTimeframeLabel = "-";
+        int preciseMin = -1;
         double preciseStepPips = 0.0;
         double preciseDiff = Double.MAX_VALUE;
         
@@ -525,7 +590,7 @@ public final class RulerService {
             // Update best match if this is closer
             if (diff < preciseDiff) {
                 preciseDiff = diff;
-                preciseTimeframeLabel = compoundTimeframeExact(midMin);
+                preciseMin = midMin;
                 preciseStepPips = stepPips;
             }
             
@@ -544,7 +609,8 @@ public final class RulerService {
         
         // Use precise result if it's better than discrete matching
         if (preciseDiff < bestDiff) {
-            bestLabel = preciseTimeframeLabel;
+            bestLabel = compoundTimeframeExact(preciseMin);
+            bestTfId = TimeframeRegistry.intern(preciseMin);
             bestBasePips = preciseStepPips;
             bestDiff = preciseDiff;
             
@@ -554,7 +620,39 @@ public final class RulerService {
         }
     }
 
-    return new StepResult(bestLabel, bestBasePips, bestDiff);
+    return new StepResult(bestLabel, bestTfId, bestBasePips, bestDiff);
+  }
+
+  /**
+   * Best match for {@code legPip} against the table selected by {@code type}; the single dispatch
+   * shared by the leg ruler and the swing scanner. {@code BOTH} matches M (its ATR half is
+   * computed separately by the caller).
+   */
+  public static StepResult matchByType(
+      com.biotak.enums.RulerComparisonType type,
+      Instrument instrument,
+      double legPip,
+      double tick,
+      double liveBidPrice,
+      RulerMaps maps,
+      double thToMFactor
+  ) {
+    return switch (type) {
+      case M, BOTH -> {
+        MResult m = matchM(instrument, legPip, tick, liveBidPrice, maps.mValues(), thToMFactor);
+        yield new StepResult(m.bestLabel(), m.bestTfId(), m.bestBasePips(), m.bestDiff());
+      }
+      case E -> matchStepValues(instrument, legPip, tick, liveBidPrice, maps.eValues(), "E");
+      case TP -> matchStepValues(instrument, legPip, tick, liveBidPrice, maps.tpValues(), "TP");
+      case TH -> matchStepValues(instrument, legPip, tick, liveBidPrice, maps.thValues(), "TH");
+      case TH3 -> matchStepValues(instrument, legPip, tick, liveBidPrice, maps.thValues(), "TH3");
+      case SS -> matchStepValues(instrument, legPip, tick, liveBidPrice, maps.ssValues(), "SS");
+      case LS -> matchStepValues(instrument, legPip, tick, liveBidPrice, maps.lsValues(), "LS");
+      case ATR -> {
+        ATRResult a = matchATR(maps, instrument, legPip, tick, liveBidPrice);
+        yield new StepResult(a.bestLabel(), a.bestTfId(), a.bestBasePips(), a.bestDiff());
+      }
+    };
   }
 
   /**
@@ -0,0 +1,276 @@
+package com.biotak.core;
+
+import com.biotak.enums.SwingThresholdBasis;
+import com.biotak.util.FastFormat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * اسکنر خودکار موج‌ها - Incremental zigzag over completed bars that feeds each leg to the ruler matcher.
+ * <p>
+ * Each completed bar updates a Wilder ATR and the running extreme of the leg in progress; a
+ * pullback of {@code multiplier × basis} (ATR, or the TH of the bar's close) from that extreme
+ * confirms the leg and starts one in the other direction. Work per bar is constant; the matcher
+ * runs once per confirmed leg. A leg the matcher cannot match yet (no ruler tables published)
+ * stays pending and is matched by {@link #rematchPending} once they are. The last
+ * {@link #CAPACITY} legs and their matches are kept in a ring of primitive arrays, and match
+ * counts per label are kept for the whole history.
+ * <p>
+ * Bars must arrive in index order; index 0 again (series reload) resets the scanner and a
+ * repeated index is ignored. Methods are synchronized: bars are fed from the calculate thread
+ * and {@link #summaryLines} is read by the level-publish thread.
+ */
+public final class SwingScanner {
+
+    /** Ring size for confirmed legs. */
+    public static final int CAPACITY = 64;
+
+    /** Result of matching one leg; {@code label} is {@code "-"} when nothing matched. */
+    public record LegMatch(double legPips, String label, double basePips, double diff) {}
+
+    /** Matches a leg length (price units) against the ruler tables. */
+    @FunctionalInterface
+    public interface LegMatcher {
+        /**
+         * @param endPrice price the leg ended at, the base for pip conversion
+         * @return the match, or {@code null} if the tables are not available yet (leg stays pending)
+         */
+        LegMatch match(double legPrice, double endPrice);
+    }
+
+    private static final int HISTOGRAM_LIMIT = 512;
+
+    // Confirmed legs (ring)
+    private final double[] legStartPrice = new double[CAPACITY];
+    private final double[] legEndPrice = new double[CAPACITY];
+    private final int[] legBars = new int[CAPACITY];
+    private final double[] legPips = new double[CAPACITY];
+    private final String[] legLabel = new String[CAPACITY];
+    private final double[] legDiff = new double[CAPACITY];
+    private final boolean[] legPending = new boolean[CAPACITY];
+    private long legCount;
+    private int pendingLegs;
+
+    // Zigzag state
+    private int lastIndex = -1;
+    private int direction; // +1 rising leg in progress, -1 falling, 0 not decided yet
+    private boolean seeded;
+    private double pivotPrice, extremePrice;
+    private int pivotIndex, extremeIndex;
+    private double hi, lo;
+    private int hiIndex, loIndex;
+
+    // Wilder ATR
+    private int atrPeriod = 14;
+    private int atrBars;
+    private double atr;
+    private double prevClose = Double.NaN;
+
+    // Whole-history statistics
+    private long matchedLegs;
+    private double sumDiffPct;
+    private final Map<String, long[]> labelCounts = new HashMap<>();
+
+    public synchronized void setAtrPeriod(int period) {
+        atrPeriod = Math.max(1, period);
+    }
+
+    public synchronized void reset() {
+        legCount = 0;
+        pendingLegs = 0;
+        java.util.Arrays.fill(legPending, false);
+        lastIndex = -1;
+        direction = 0;
+        seeded = false;
+        atrBars = 0;
+        atr = 0;
+        prevClose = Double.NaN;
+        matchedLegs = 0;
+        sumDiffPct = 0;
+        labelCounts.clear();
+        java.util.Arrays.fill(legLabel, null);
+    }
+
+    /**
+     * Feeds one completed bar.
+     *
+     * @param thPrice    TH of this bar in price units (used with the TH basis)
+     * @param multiplier reversal threshold as a multiple of the basis
+     * @param matcher    called once per confirmed leg; may be {@code null}
+     * @return {@code true} if this bar confirmed a leg
+     */
+    public synchronized boolean onBar(int index, double high, double low, double close,
+                                      double thPrice, SwingThresholdBasis basis, double multiplier, LegMatcher matcher) {
+        if (index == 0 && lastIndex >= 0) reset();
+        if (index <= lastIndex) return false;
+        lastIndex = index;
+        updateAtr(high, low, close);
+
+        double threshold = (basis == SwingThresholdBasis.TH ? thPrice : atr) * multiplier;
+        if (direction == 0) {
+            if (!seeded) {
+                seeded = true;
+                hi = high; hiIndex = index;
+                lo = low; loIndex = index;
+                return false;
+            }
+            if (high > hi) { hi = high; hiIndex = index; }
+            if (low < lo) { lo = low; loIndex = index; }
+            if (threshold > 0 && hi - lo >= threshold) {
+                // First swing: the older extreme is the pivot
+                if (loIndex <= hiIndex) {
+                    direction = 1;
+                    setPivot(lo, loIndex);
+                    setExtreme(hi, hiIndex);
+                } else {
+                    direction = -1;
+                    setPivot(hi, hiIndex);
+                    setExtreme(lo, loIndex);
+                }
+            }
+            return false;
+        }
+
+        if (direction > 0) {
+            if (high > extremePrice) {
+                setExtreme(high, index);
+            } else if (threshold > 0 && extremePrice - low >= threshold) {
+                confirmLeg(matcher);
+                direction = -1;
+                setPivot(extremePrice, extremeIndex);
+                setExtreme(low, index);
+                return true;
+            }
+        } else {
+            if (low < extremePrice) {
+                setExtreme(low, index);
+            } else if (threshold > 0 && high - extremePrice >= threshold) {
+                confirmLeg(matcher);
+                direction = 1;
+                setPivot(extremePrice, extremeIndex);
+                setExtreme(high, index);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updateAtr(double high, double low, double close) {
+        double tr = high - low;
+        if (!Double.isNaN(prevClose)) tr = Math.max(tr, Math.max(Math.abs(high - prevClose), Math.abs(low - prevClose)));
+        prevClose = close;
+        if (atrBars < atrPeriod) {
+            atr = (atr * atrBars + tr) / (atrBars + 1);
+            atrBars++;
+        } else {
+            atr = (atr * (atrPeriod - 1) + tr) / atrPeriod;
+        }
+    }
+
+    private void setPivot(double price, int index) {
+        pivotPrice = price; pivotIndex = index;
+    }
+
+    private void setExtreme(double price, int index) {
+        extremePrice = price; extremeIndex = index;
+    }
+
+    private void confirmLeg(LegMatcher matcher) {
+        int slot = (int) (legCount % CAPACITY);
+        if (legPending[slot]) { legPending[slot] = false; pendingLegs--; } // overwritten unmatched
+        legStartPrice[slot] = pivotPrice;
+        legEndPrice[slot] = extremePrice;
+        legBars[slot] = extremeIndex - pivotIndex;
+        legCount++;
+        LegMatch m = matcher != null ? matcher.match(Math.abs(extremePrice - pivotPrice), extremePrice) : null;
+        if (m == null && matcher != null) {
+            legPending[slot] = true;
+            pendingLegs++;
+        }
+        applyMatch(slot, m);
+    }
+
+    /**
+     * Matches the legs still in the ring that were confirmed before the tables were available.
+     *
+     * @return number of legs matched by this call
+     */
+    public synchronized int rematchPending(LegMatcher matcher) {
+        if (pendingLegs == 0) return 0;
+        int matched = 0;
+        long oldest = Math.max(0, legCount - CAPACITY);
+        for (long n = oldest; n < legCount; n++) {
+            int slot = (int) (n % CAPACITY);
+            if (!legPending[slot]) continue;
+            LegMatch m = matcher.match(Math.abs(legEndPrice[slot] - legStartPrice[slot]), legEndPrice[slot]);
+            if (m == null) return matched; // still no tables
+            legPending[slot] = false;
+            pendingLegs--;
+            applyMatch(slot, m);
+            matched++;
+        }
+        return matched;
+    }
+
+    public synchronized int getPendingLegs() { return pendingLegs; }
+
+    private void applyMatch(int slot, LegMatch m) {
+        legPips[slot] = m != null ? m.legPips() : Double.NaN;
+        legLabel[slot] = m != null ? m.label() : null;
+        legDiff[slot] = m != null ? m.diff() : Double.NaN;
+
+        if (m != null && m.label() != null && !"-".equals(m.label())) {
+            matchedLegs++;
+            if (m.basePips() > 0) sumDiffPct += Math.abs(m.diff()) / m.basePips() * 100.0;
+            long[] count = labelCounts.get(m.label());
+            if (count != null) count[0]++;
+            else if (labelCounts.size() < HISTOGRAM_LIMIT) labelCounts.put(m.label(), new long[] {1});
+        }
+    }
+
+    public synchronized long getLegCount() { return legCount; }
+
+    public synchronized long getMatchedLegs() { return matchedLegs; }
+
+    public synchronized double getAtr() { return atr; }
+
+    /**
+     * Panel rows: one summary row, the most frequent labels, then up to {@code maxLegs} newest legs.
+     */
+    public synchronized List<String> summaryLines(int maxLegs) {
+        if (legCount == 0) return List.of();
+        List<String> out = new ArrayList<>(maxLegs + 2);
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("Swings: ").append(legCount).append(" matched ").append(matchedLegs);
+        if (matchedLegs > 0) FastFormat.appendFixed(sb.append(" avgΔ "), sumDiffPct / matchedLegs, 1).append('%');
+        out.add(sb.toString());
+
+        if (!labelCounts.isEmpty()) {
+            List<Map.Entry<String, long[]>> top = new ArrayList<>(labelCounts.entrySet());
+            top.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+            sb.setLength(0);
+            sb.append("Top:");
+            for (int i = 0; i < Math.min(3, top.size()); i++) {
+                sb.append(' ').append(top.get(i).getKey()).append('×').append(top.get(i).getValue()[0]);
+            }
+            out.add(sb.toString());
+        }
+
+        long shown = Math.min(Math.min(maxLegs, CAPACITY), legCount);
+        for (long n = legCount - 1; n >= legCount - shown; n--) {
+            int slot = (int) (n % CAPACITY);
+            sb.setLength(0);
+            sb.append(legEndPrice[slot] >= legStartPrice[slot] ? "▲ " : "▼ ");
+            if (!Double.isNaN(legPips[slot])) FastFormat.appendFixed(sb, legPips[slot], 1).append("p ");
+            sb.append(legBars[slot]).append("b → ").append(legLabel[slot] != null ? legLabel[slot] : "-");
+            if (!Double.isNaN(legDiff[slot]) && legDiff[slot] != Double.MAX_VALUE) {
+                FastFormat.appendFixed(sb.append(" (Δ"), legDiff[slot], 1).append(')');
+            }
+            out.add(sb.toString());
+        }
+        return out;
+    }
+}
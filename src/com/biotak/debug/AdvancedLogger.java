@@ -84,6 +84,8 @@ public final class AdvancedLogger {
     private static volatile boolean colorOutput = true;
     private static volatile boolean fileOutput = true;
     private static volatile boolean consoleOutput = true;
+    // Set by HeapGovernor under memory pressure; independent of the configured level so a config reload does not undo it
+    private static volatile boolean debugSuspended = false;
     
     // Performance tracking
     private static final Map<String, PerformanceTracker> performanceTrackers = new ConcurrentHashMap<>();
@@ -106,6 +108,9 @@ public final class AdvancedLogger {
         if (level.getLevel() < currentLogLevel.getLevel()) {
             return;
         }
+        if (debugSuspended && level.getLevel() < LogLevel.INFO.getLevel()) {
+            return;
+        }
         
         try {
             String formattedMessage = formatMessage(level, category, className, methodName, message, args);
@@ -333,6 +338,17 @@ public final class AdvancedLogger {
         info("AdvancedLogger", "setLogLevel", "Log level changed to: %s", level.getName());
     }
     
+    /**
+     * Suppresses TRACE and DEBUG output regardless of the configured level while {@code true}.
+     */
+    public static void setDebugSuspended(boolean suspended) {
+        debugSuspended = suspended;
+    }
+    
+    public static boolean isDebugSuspended() {
+        return debugSuspended;
+    }
+    
     public static void setColorOutput(boolean enabled) {
         colorOutput = enabled;
     }
@@ -375,6 +391,7 @@ public final class AdvancedLogger {
      */
     private static void writeToFile(String filename, String message) {
         synchronized (LOCK) {
+            var flush = BiotakJfr.beginLogFlush();
             try {
                 File file = new File(filename);
                 
@@ -390,6 +407,7 @@ public final class AdvancedLogger {
             } catch (IOException e) {
                 System.err.println("Failed to write to log file: " + e.getMessage());
             }
+            BiotakJfr.endLogFlush(flush, filename, message.length());
         }
     }
     
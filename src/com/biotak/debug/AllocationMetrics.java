@@ -0,0 +1,209 @@
+package com.biotak.debug;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * حسابداری تخصیص حافظه در هر رسم - Per-operation allocation accounting.
+ * <p>
+ * Usage mirrors {@link LatencyMetrics}:
+ * <pre>
+ *   long a0 = AllocationMetrics.start();
+ *   ...
+ *   AllocationMetrics.record(AllocationMetrics.Op.DRAW_FIGURES, a0);
+ * </pre>
+ * Bytes are read from {@code com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes},
+ * so only allocations of the calling thread are counted. When an operation exceeds its budget
+ * ({@code alloc.budget.<label>.kb} in biotak.properties, 0 = no budget) a rate-limited warning
+ * is logged. Rolling windows are summarized to the performance log every
+ * {@link LatencyMetrics#SUMMARY_INTERVAL_MS}.
+ */
+public final class AllocationMetrics {
+
+    public enum Op {
+        DRAW_FIGURES("drawFigures"),
+        RULER_DRAW("ruler.draw"),
+        BAR_UPDATE("onBarUpdate");
+
+        private final String label;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalBytes = new AtomicLong();
+        private final AtomicLong maxBytes = new AtomicLong();
+        private volatile long lastBytes;
+        private volatile long budgetBytes;
+        private volatile Window lastWindow;
+
+        Op(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+
+        public long getBudgetBytes() { return budgetBytes; }
+
+        private void add(long bytes) {
+            lastBytes = bytes;
+            count.incrementAndGet();
+            totalBytes.addAndGet(bytes);
+            long prev = maxBytes.get();
+            while (bytes > prev && !maxBytes.compareAndSet(prev, bytes)) {
+                prev = maxBytes.get();
+            }
+        }
+
+        private Window window() {
+            return new Window(count.get(), totalBytes.get(), maxBytes.get(), lastBytes);
+        }
+
+        private Window windowAndReset() {
+            return new Window(count.getAndSet(0), totalBytes.getAndSet(0), maxBytes.getAndSet(0), lastBytes);
+        }
+    }
+
+    /**
+     * Rolling statistics of one operation.
+     */
+    public record Window(long count, long totalBytes, long maxBytes, long lastBytes) {
+        public long meanBytes() {
+            return count == 0 ? 0 : totalBytes / count;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+    private static final RateLimitedLogger budgetLog = new RateLimitedLogger("AllocationMetrics");
+
+    private static volatile boolean enabled = false;
+    private static final AtomicLong nextSummaryAt = new AtomicLong(System.currentTimeMillis() + LatencyMetrics.SUMMARY_INTERVAL_MS);
+
+    private AllocationMetrics() {}
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                return bean;
+            }
+        } catch (Throwable ignored) {
+            // Non-HotSpot JVM or restricted management access
+        }
+        return null;
+    }
+
+    /**
+     * Enables accounting if the JVM supports it. Returns the effective state.
+     */
+    public static boolean setEnabled(boolean value) {
+        if (value && THREAD_BEAN != null) {
+            try {
+                if (!THREAD_BEAN.isThreadAllocatedMemoryEnabled()) {
+                    THREAD_BEAN.setThreadAllocatedMemoryEnabled(true);
+                }
+            } catch (UnsupportedOperationException | SecurityException e) {
+                AdvancedLogger.warn("AllocationMetrics", "setEnabled", "Allocation accounting unavailable: %s", e.getMessage());
+                value = false;
+            }
+        }
+        enabled = value && THREAD_BEAN != null;
+        return enabled;
+    }
+
+    public static boolean isEnabled() { return enabled; }
+
+    /**
+     * @param op          operation to budget
+     * @param budgetBytes bytes allowed per call, 0 or negative disables the check
+     */
+    public static void setBudget(Op op, long budgetBytes) {
+        op.budgetBytes = Math.max(0, budgetBytes);
+    }
+
+    /**
+     * Loads budgets from {@code alloc.budget.<label>.kb}.
+     */
+    public static void loadBudgets(com.biotak.config.BiotakConfig config) {
+        for (Op op : Op.values()) {
+            setBudget(op, config.getInt("alloc.budget." + op.label + ".kb", 0) * 1024L);
+        }
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, or -1 when disabled
+     */
+    public static long start() {
+        return enabled ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : -1L;
+    }
+
+    public static void record(Op op, long startBytes) {
+        if (startBytes < 0 || !enabled) return;
+        long bytes = THREAD_BEAN.getCurrentThreadAllocatedBytes() - startBytes;
+        if (bytes < 0) return;
+        op.add(bytes);
+        long budget = op.budgetBytes;
+        if (budget > 0 && bytes > budget && budgetLog.tryAcquire(op.label)) {
+            budgetLog.warn("AllocationMetrics", "record",
+                "%s allocated %s KB, budget %s KB", op.label, kb(bytes), kb(budget));
+        }
+        maybeSummarize();
+    }
+
+    /**
+     * Current window, or the previous one if the current window has no samples yet.
+     */
+    public static Window displayWindow(Op op) {
+        Window current = op.window();
+        if (current.count() == 0 && op.lastWindow != null) return op.lastWindow;
+        return current;
+    }
+
+    /**
+     * One line per operation: "label alloc mean/max KB". Used by the InfoPanel debug rows.
+     */
+    public static List<String> debugLines() {
+        List<String> lines = new ArrayList<>(Op.values().length);
+        if (!enabled) return lines;
+        for (Op op : Op.values()) {
+            Window w = displayWindow(op);
+            if (w.count() == 0) continue;
+            String line = op.label + " alloc " + kb(w.meanBytes()) + "/" + kb(w.maxBytes()) + " KB";
+            if (op.budgetBytes > 0 && w.maxBytes() > op.budgetBytes) line += " ⚠";
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the current windows to the performance log and resets them.
+     */
+    public static void summarize() {
+        StringBuilder sb = new StringBuilder("Allocation window (mean/max KB, n):");
+        boolean any = false;
+        for (Op op : Op.values()) {
+            Window w = op.windowAndReset();
+            if (w.count() == 0) continue;
+            op.lastWindow = w;
+            any = true;
+            sb.append("\n  ").append(op.label).append(": ")
+              .append(kb(w.meanBytes())).append('/')
+              .append(kb(w.maxBytes())).append(", n=").append(w.count());
+            if (op.budgetBytes > 0) sb.append(", budget=").append(kb(op.budgetBytes));
+        }
+        if (any) {
+            AdvancedLogger.performance("AllocationMetrics", "summarize", sb.toString());
+        }
+    }
+
+    private static void maybeSummarize() {
+        long now = System.currentTimeMillis();
+        long due = nextSummaryAt.get();
+        if (now < due) return;
+        if (nextSummaryAt.compareAndSet(due, now + LatencyMetrics.SUMMARY_INTERVAL_MS)) {
+            summarize();
+        }
+    }
+
+    private static String kb(long bytes) {
+        return com.biotak.util.StringUtils.format1f(bytes / 1024.0);
+    }
+}
@@ -0,0 +1,187 @@
+package com.biotak.debug;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * رویدادهای JFR برای فازهای اندیکاتور - Java Flight Recorder events for Biotak phases.
+ * <p>
+ * All events are disabled by default and only switched on by a recording settings profile
+ * ({@code biotak.jfc} in the repository root), for example:
+ * <pre>
+ *   -XX:StartFlightRecording:settings=default,settings=/path/to/biotak.jfc,filename=mw.jfr
+ *   jcmd &lt;pid&gt; JFR.start settings=/path/to/biotak.jfc
+ * </pre>
+ * The {@code begin*} helpers return {@code null} while the event type is disabled, so the
+ * disabled cost is one volatile read and no allocation. The matching {@code end*} helpers
+ * accept {@code null}.
+ */
+public final class BiotakJfr {
+
+    @Name("com.biotak.Calculate")
+    @Label("Biotak calculate")
+    @Category({"Biotak"})
+    @Description("BiotakTrigger.calculate for one bar")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class CalculateEvent extends Event {
+        @Label("Instrument") String instrument;
+        @Label("Timeframe") String timeframe;
+        @Label("Mode") String mode;
+        @Label("Bar Index") int barIndex;
+        @Label("Figure Count") int figureCount;
+    }
+
+    @Name("com.biotak.DrawPhase")
+    @Label("Biotak draw phase")
+    @Category({"Biotak"})
+    @Description("One phase of BiotakTrigger.drawFigures (range, thBundle, maps, levels, panel)")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class DrawPhaseEvent extends Event {
+        @Label("Phase") String phase;
+        @Label("Instrument") String instrument;
+        @Label("Timeframe") String timeframe;
+        @Label("Mode") String mode;
+        @Label("Figure Count") int figureCount;
+    }
+
+    @Name("com.biotak.RulerMatch")
+    @Label("Biotak ruler match")
+    @Category({"Biotak"})
+    @Description("Leg ruler comparison against the fractal maps")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class RulerMatchEvent extends Event {
+        @Label("Instrument") String instrument;
+        @Label("Timeframe") String timeframe;
+        @Label("Mode") String mode;
+        @Label("Leg Pips") double legPips;
+        @Label("Best Label") String bestLabel;
+    }
+
+    @Name("com.biotak.CacheLoad")
+    @Label("Biotak cache miss load")
+    @Category({"Biotak"})
+    @Description("Computation after a ComputationCache miss")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class CacheLoadEvent extends Event {
+        @Label("Cache") String cache;
+        @Label("Key") String key;
+    }
+
+    @Name("com.biotak.LogFlush")
+    @Label("Biotak log flush")
+    @Category({"Biotak"})
+    @Description("AdvancedLogger write to a log file")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class LogFlushEvent extends Event {
+        @Label("File") String file;
+        @Label("Characters") int characters;
+    }
+
+    private static final EventType CALCULATE = EventType.getEventType(CalculateEvent.class);
+    private static final EventType DRAW_PHASE = EventType.getEventType(DrawPhaseEvent.class);
+    private static final EventType RULER_MATCH = EventType.getEventType(RulerMatchEvent.class);
+    private static final EventType CACHE_LOAD = EventType.getEventType(CacheLoadEvent.class);
+    private static final EventType LOG_FLUSH = EventType.getEventType(LogFlushEvent.class);
+
+    private BiotakJfr() {}
+
+    public static CalculateEvent beginCalculate() {
+        if (!CALCULATE.isEnabled()) return null;
+        CalculateEvent e = new CalculateEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endCalculate(CalculateEvent e, String instrument, String timeframe, String mode, int barIndex, int figureCount) {
+        if (e == null) return;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.instrument = instrument;
+        e.timeframe = timeframe;
+        e.mode = mode;
+        e.barIndex = barIndex;
+        e.figureCount = figureCount;
+        e.commit();
+    }
+
+    public static DrawPhaseEvent beginDrawPhase() {
+        if (!DRAW_PHASE.isEnabled()) return null;
+        DrawPhaseEvent e = new DrawPhaseEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endDrawPhase(DrawPhaseEvent e, String phase, String instrument, String timeframe, String mode, int figureCount) {
+        if (e == null) return;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.phase = phase;
+        e.instrument = instrument;
+        e.timeframe = timeframe;
+        e.mode = mode;
+        e.figureCount = figureCount;
+        e.commit();
+    }
+
+    public static RulerMatchEvent beginRulerMatch() {
+        if (!RULER_MATCH.isEnabled()) return null;
+        RulerMatchEvent e = new RulerMatchEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endRulerMatch(RulerMatchEvent e, String instrument, String timeframe, String mode, double legPips, String bestLabel) {
+        if (e == null) return;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.instrument = instrument;
+        e.timeframe = timeframe;
+        e.mode = mode;
+        e.legPips = legPips;
+        e.bestLabel = bestLabel;
+        e.commit();
+    }
+
+    public static CacheLoadEvent beginCacheLoad() {
+        if (!CACHE_LOAD.isEnabled()) return null;
+        CacheLoadEvent e = new CacheLoadEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endCacheLoad(CacheLoadEvent e, String cache, String key) {
+        if (e == null) return;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.cache = cache;
+        e.key = key;
+        e.commit();
+    }
+
+    public static LogFlushEvent beginLogFlush() {
+        if (!LOG_FLUSH.isEnabled()) return null;
+        LogFlushEvent e = new LogFlushEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endLogFlush(LogFlushEvent e, String file, int characters) {
+        if (e == null) return;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.file = file;
+        e.characters = characters;
+        e.commit();
+    }
+}
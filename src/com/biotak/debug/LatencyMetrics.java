@@ -0,0 +1,125 @@
+package com.biotak.debug;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * هیستوگرام‌های تأخیر مسیرهای داغ - Latency histograms for the indicator hot paths.
+ * <p>
+ * Usage:
+ * <pre>
+ *   long t0 = LatencyMetrics.start();
+ *   ...
+ *   LatencyMetrics.record(LatencyMetrics.Op.CALCULATE, t0);
+ * </pre>
+ * Unlike {@link AdvancedLogger#startPerformanceTracking}, no state is keyed by operation name,
+ * so nested and concurrent measurements do not clobber each other. Every
+ * {@link #SUMMARY_INTERVAL_MS} a p50/p99/max summary of the window is written to the
+ * performance log and a new window starts.
+ */
+public final class LatencyMetrics {
+
+    public enum Op {
+        CALCULATE("calculate"),
+        HISTORY_INIT("history.init"),
+        DRAW_FIGURES("drawFigures"),
+        DRAW_MAPS("draw.maps"),
+        DRAW_LEVELS("draw.levels"),
+        DRAW_PANEL("draw.panel"),
+        RULER_DRAW("ruler.draw"),
+        INFO_PANEL_DRAW("panel.draw");
+
+        private final String label;
+        private final LatencyHistogram histogram;
+        private volatile LatencyHistogram.Snapshot lastWindow;
+
+        Op(String label) {
+            this.label = label;
+            this.histogram = new LatencyHistogram(label);
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    public static final long SUMMARY_INTERVAL_MS = 60_000;
+
+    private static volatile boolean enabled = true;
+    private static final AtomicLong nextSummaryAt = new AtomicLong(System.currentTimeMillis() + SUMMARY_INTERVAL_MS);
+
+    private LatencyMetrics() {}
+
+    public static void setEnabled(boolean value) { enabled = value; }
+
+    public static boolean isEnabled() { return enabled; }
+
+    /**
+     * @return start timestamp, or 0 when tracking is disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void record(Op op, long startNanos) {
+        if (startNanos == 0L) return;
+        op.histogram.record(System.nanoTime() - startNanos);
+        maybeSummarize();
+    }
+
+    /**
+     * Snapshot used for display: the running window, or the previous one if the
+     * running window has no samples yet.
+     */
+    public static LatencyHistogram.Snapshot displaySnapshot(Op op) {
+        LatencyHistogram.Snapshot current = op.histogram.snapshot();
+        if (current.count() == 0 && op.lastWindow != null) return op.lastWindow;
+        return current;
+    }
+
+    /**
+     * One line per operation: "label p50/p99/max ms". Used by the InfoPanel debug rows.
+     */
+    public static List<String> debugLines() {
+        List<String> lines = new ArrayList<>(Op.values().length);
+        for (Op op : Op.values()) {
+            LatencyHistogram.Snapshot s = displaySnapshot(op);
+            if (s.count() == 0) continue;
+            lines.add(op.label + " " + ms(s.percentile(0.50)) + "/" + ms(s.percentile(0.99)) + "/" + ms(s.maxNanos()) + " ms");
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the current windows to the performance log and resets them.
+     */
+    public static void summarize() {
+        StringBuilder sb = new StringBuilder("Latency window (p50/p99/max ms, n):");
+        boolean any = false;
+        for (Op op : Op.values()) {
+            LatencyHistogram.Snapshot s = op.histogram.snapshotAndReset();
+            if (s.count() == 0) continue;
+            op.lastWindow = s;
+            any = true;
+            sb.append("\n  ").append(op.label).append(": ")
+              .append(ms(s.percentile(0.50))).append('/')
+              .append(ms(s.percentile(0.99))).append('/')
+              .append(ms(s.maxNanos())).append(", n=").append(s.count());
+        }
+        if (any) {
+            AdvancedLogger.performance("LatencyMetrics", "summarize", sb.toString());
+        }
+    }
+
+    private static void maybeSummarize() {
+        long now = System.currentTimeMillis();
+        long due = nextSummaryAt.get();
+        if (now < due) return;
+        if (nextSummaryAt.compareAndSet(due, now + SUMMARY_INTERVAL_MS)) {
+            summarize();
+        }
+    }
+
+    private static String ms(long nanos) {
+        return com.biotak.util.StringUtils.format2f(nanos / 1_000_000.0);
+    }
+}
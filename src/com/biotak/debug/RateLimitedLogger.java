@@ -0,0 +1,160 @@
+package com.biotak.debug;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * لاگر محدودشده بر اساس (شناسه نمونه، کلید پیام) با token bucket کوچک.
+ * Per-instance rate-limited logging front-end for {@link AdvancedLogger}.
+ * <p>
+ * هر نمونه اندیکاتور یک RateLimitedLogger مخصوص خودش دارد، بنابراین لاگ یک چارت
+ * لاگ چارت دیگر را سرکوب نمی‌کند. هر کلید پیام یک سطل توکن مستقل دارد.
+ * Calls are gated so a suppressed line builds no argument array and boxes nothing:
+ * <pre>
+ *   if (rateLog.tryAcquire(KEY)) rateLog.info("Owner", "method", "x=%.5f", x);
+ * </pre>
+ * The log call reports the grant last taken on the same thread, so the key is passed only
+ * once; the emitted line carries the number of lines suppressed before that grant. A suppressed
+ * call costs a single timestamp comparison.
+ */
+public final class RateLimitedLogger {
+
+    /** Default refill interval (one token per minute) - same as the old static throttles. */
+    public static final long DEFAULT_INTERVAL_MS = 60_000;
+
+    private static final AtomicInteger INSTANCE_SEQ = new AtomicInteger(0);
+
+    private final String instanceId;
+    private final int burst;
+    private final long intervalNanos;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>(16, 0.75f, 1);
+    // Suppressed count handed out with the last grant on each thread (lane and chart thread log apart)
+    private final ThreadLocal<long[]> lastGrant = ThreadLocal.withInitial(() -> new long[1]);
+
+    public RateLimitedLogger(String owner) {
+        this(owner, 1, DEFAULT_INTERVAL_MS);
+    }
+
+    /**
+     * @param owner      نام مالک؛ یک شماره ترتیبی برای یکتا بودن اضافه می‌شود
+     * @param burst      حداکثر تعداد خطوط پشت‌سرهم مجاز (ظرفیت سطل)
+     * @param intervalMs زمان لازم برای پر شدن یک توکن
+     */
+    public RateLimitedLogger(String owner, int burst, long intervalMs) {
+        this.instanceId = owner + "#" + INSTANCE_SEQ.incrementAndGet();
+        this.burst = Math.max(1, burst);
+        this.intervalNanos = Math.max(1, intervalMs) * 1_000_000L;
+    }
+
+    public String getInstanceId() { return instanceId; }
+
+    // =========================== GATES ===========================
+
+    /**
+     * Takes a token for {@code key} without logging anything. Gates the log calls below and
+     * any expensive work (e.g. building the calculation table) on the same budget.
+     */
+    public boolean tryAcquire(String key) {
+        long skipped = bucket(key).acquire(System.nanoTime());
+        if (skipped < 0) return false;
+        lastGrant.get()[0] = skipped;
+        return true;
+    }
+
+    /**
+     * Number of calls suppressed for {@code key} since its last emitted line.
+     */
+    public long getSuppressedCount(String key) {
+        Bucket b = buckets.get(key);
+        return b == null ? 0 : b.suppressed.get();
+    }
+
+    /**
+     * Forget all buckets (e.g. when the study is destroyed).
+     */
+    public void reset() {
+        buckets.clear();
+    }
+
+    // =========================== LOGGING ===========================
+
+    public void info(String className, String methodName, String message, Object... args) {
+        log(AdvancedLogger.LogLevel.INFO, AdvancedLogger.Category.GENERAL, className, methodName, message, args);
+    }
+
+    public void debug(String className, String methodName, String message, Object... args) {
+        log(AdvancedLogger.LogLevel.DEBUG, AdvancedLogger.Category.DEBUG, className, methodName, message, args);
+    }
+
+    public void warn(String className, String methodName, String message, Object... args) {
+        log(AdvancedLogger.LogLevel.WARN, AdvancedLogger.Category.GENERAL, className, methodName, message, args);
+    }
+
+    /**
+     * Logs through {@link AdvancedLogger#log} without taking a token; call it only after
+     * {@link #tryAcquire} granted on this thread, so suppressed calls never reach it.
+     */
+    public void log(AdvancedLogger.LogLevel level, AdvancedLogger.Category category,
+                    String className, String methodName, String message, Object... args) {
+        long[] grant = lastGrant.get();
+        long skipped = grant[0];
+        grant[0] = 0;
+        if (skipped > 0) {
+            message = message + " [" + instanceId + ", suppressed " + skipped + "]";
+        }
+        AdvancedLogger.log(level, category, className, methodName, message, args);
+    }
+
+    private Bucket bucket(String key) {
+        Bucket b = buckets.get(key);
+        if (b == null) {
+            b = buckets.computeIfAbsent(key, k -> new Bucket(burst, intervalNanos));
+        }
+        return b;
+    }
+
+    /**
+     * Token bucket with integer tokens. {@code nextRefill} is volatile so that the
+     * suppressed path is a single comparison outside the lock.
+     */
+    private static final class Bucket {
+        private final int capacity;
+        private final long intervalNanos;
+        private volatile long nextRefill;
+        private volatile int tokens;
+        private final AtomicLong suppressed = new AtomicLong();
+
+        Bucket(int capacity, long intervalNanos) {
+            this.capacity = capacity;
+            this.intervalNanos = intervalNanos;
+            this.tokens = capacity;
+            this.nextRefill = System.nanoTime() + intervalNanos;
+        }
+
+        /**
+         * @return -1 if suppressed, otherwise the number of calls suppressed since the last grant
+         */
+        long acquire(long now) {
+            if (tokens == 0 && now - nextRefill < 0) {
+                suppressed.incrementAndGet();
+                return -1;
+            }
+            synchronized (this) {
+                if (now - nextRefill >= 0) {
+                    long elapsed = now - nextRefill;
+                    long refill = 1 + elapsed / intervalNanos;
+                    tokens = (int) Math.min(capacity, tokens + refill);
+                    nextRefill = now + intervalNanos;
+                }
+                if (tokens == 0) {
+                    suppressed.incrementAndGet();
+                    return -1;
+                }
+                tokens--;
+                return suppressed.getAndSet(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.biotak.debug;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * ضبط جلسه برای بازپخش - Records calculate/onBarUpdate sessions to a compact binary file.
+ * <p>
+ * File layout (all numbers big-endian, {@code var} = unsigned LEB128):
+ * <pre>
+ *   header : int MAGIC, short VERSION, UTF symbol, double tickSize,
+ *            UTF intervalType, int interval, long wallClockStartMs
+ *   event  : byte tag, var nanosSincePreviousEvent, payload
+ *     BAR        var index, var barStartTime, double open/high/low/close, boolean complete
+ *     CALCULATE  var index, var seriesSize
+ *     BAR_UPDATE var seriesSize
+ *     SETTING    UTF key, byte type ('D','B','I','S','N'), value
+ * </pre>
+ * A BAR is only written when the bar differs from the last one written for that index, and
+ * a SETTING only when the value differs from the last recorded value. The replayer lives
+ * in {@code bench/com/biotak/bench/SessionReplayer}.
+ * <p>
+ * All methods are synchronized; after the first I/O error the recorder closes itself and
+ * further calls are ignored.
+ */
+public final class SessionRecorder implements AutoCloseable {
+
+    public static final int MAGIC = 0x42544B52; // "BTKR"
+    public static final short VERSION = 1;
+    public static final String FILE_EXTENSION = ".btkr";
+
+    public static final byte TAG_BAR = 1;
+    public static final byte TAG_CALCULATE = 2;
+    public static final byte TAG_BAR_UPDATE = 3;
+    public static final byte TAG_SETTING = 4;
+
+    private static final long FLUSH_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final Map<String, Object> lastSettings = new HashMap<>();
+    private long lastEventNanos;
+    private long lastFlushNanos;
+    private long events;
+    private boolean closed;
+    private com.biotak.util.BiotakExecutors.Registration shutdownHook;
+
+    // Last BAR written (skip duplicates for the same index)
+    private int lastBarIndex = -1;
+    private long lastBarTime;
+    private double lastOpen, lastHigh, lastLow, lastClose;
+    private boolean lastComplete;
+
+    private SessionRecorder(Path file, DataOutputStream out) {
+        this.file = file;
+        this.out = out;
+        this.lastEventNanos = System.nanoTime();
+        this.lastFlushNanos = lastEventNanos;
+    }
+
+    /**
+     * Creates {@code <dir>/<symbol>_<interval><type>_<timestamp>.btkr} and writes the header.
+     */
+    public static SessionRecorder open(Path dir, String symbol, double tickSize, String intervalType, int interval) throws IOException {
+        Files.createDirectories(dir);
+        String safeSymbol = symbol.replaceAll("[^A-Za-z0-9]", "");
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        Path file = dir.resolve(safeSymbol + "_" + interval + intervalType + "_" + stamp + FILE_EXTENSION);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(symbol);
+        out.writeDouble(tickSize);
+        out.writeUTF(intervalType);
+        out.writeInt(interval);
+        out.writeLong(System.currentTimeMillis());
+        AdvancedLogger.info("SessionRecorder", "open", "Recording session to %s", file);
+        SessionRecorder recorder = new SessionRecorder(file, out);
+        recorder.shutdownHook = com.biotak.util.BiotakExecutors.onShutdown(recorder::close);
+        return recorder;
+    }
+
+    public Path getFile() { return file; }
+
+    public synchronized long getEventCount() { return events; }
+
+    public synchronized boolean isClosed() { return closed; }
+
+    public synchronized void bar(int index, long time, double open, double high, double low, double close, boolean complete) {
+        if (closed) return;
+        if (index == lastBarIndex && time == lastBarTime && complete == lastComplete
+                && open == lastOpen && high == lastHigh && low == lastLow && close == lastClose) {
+            return;
+        }
+        try {
+            beginEvent(TAG_BAR);
+            writeVarLong(index);
+            writeVarLong(time);
+            out.writeDouble(open);
+            out.writeDouble(high);
+            out.writeDouble(low);
+            out.writeDouble(close);
+            out.writeBoolean(complete);
+            lastBarIndex = index; lastBarTime = time; lastComplete = complete;
+            lastOpen = open; lastHigh = high; lastLow = low; lastClose = close;
+        } catch (IOException e) {
+            fail("bar", e);
+        }
+    }
+
+    public synchronized void calculate(int index, int seriesSize) {
+        if (closed) return;
+        try {
+            beginEvent(TAG_CALCULATE);
+            writeVarLong(index);
+            writeVarLong(seriesSize);
+        } catch (IOException e) {
+            fail("calculate", e);
+        }
+    }
+
+    public synchronized void barUpdate(int seriesSize) {
+        if (closed) return;
+        try {
+            beginEvent(TAG_BAR_UPDATE);
+            writeVarLong(seriesSize);
+            maybeFlush();
+        } catch (IOException e) {
+            fail("barUpdate", e);
+        }
+    }
+
+    /**
+     * Records a setting value if it changed since the last call for the same key.
+     * Supported types: Double, Boolean, Integer, String and null.
+     */
+    public synchronized void setting(String key, Object value) {
+        if (closed) return;
+        if (lastSettings.containsKey(key) && Objects.equals(lastSettings.get(key), value)) return;
+        try {
+            beginEvent(TAG_SETTING);
+            out.writeUTF(key);
+            if (value == null) {
+                out.writeByte('N');
+            } else if (value instanceof Double d) {
+                out.writeByte('D');
+                out.writeDouble(d);
+            } else if (value instanceof Boolean b) {
+                out.writeByte('B');
+                out.writeBoolean(b);
+            } else if (value instanceof Integer i) {
+                out.writeByte('I');
+                out.writeInt(i);
+            } else {
+                out.writeByte('S');
+                out.writeUTF(value.toString());
+            }
+            lastSettings.put(key, value);
+        } catch (IOException e) {
+            fail("setting", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (shutdownHook != null) shutdownHook.cancel();
+        try {
+            out.close();
+            AdvancedLogger.info("SessionRecorder", "close", "Recorded %d events to %s", events, file);
+        } catch (IOException e) {
+            AdvancedLogger.error("SessionRecorder", "close", "Error closing %s: %s", file, e.getMessage());
+        }
+    }
+
+    private void beginEvent(byte tag) throws IOException {
+        long now = System.nanoTime();
+        out.writeByte(tag);
+        writeVarLong(Math.max(0, now - lastEventNanos));
+        lastEventNanos = now;
+        events++;
+    }
+
+    private void maybeFlush() throws IOException {
+        if (lastEventNanos - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+            out.flush();
+            lastFlushNanos = lastEventNanos;
+        }
+    }
+
+    private void fail(String method, IOException e) {
+        AdvancedLogger.error("SessionRecorder", method, "Recording stopped: %s", e.getMessage());
+        close();
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a value written by the recorder's variable-length encoding.
+     */
+    public static long readVarLong(DataInput in) throws IOException {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+            shift += 7;
+            if (shift > 63) throw new IOException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.biotak.enums;
+
+/**
+ * Signal keys declared by the study for level-crossing alerts.
+ */
+public enum CrossingSignal {
+    CROSS_UP("Level Crossed Up"),
+    CROSS_DOWN("Level Crossed Down");
+
+    private final String value;
+    CrossingSignal(String value) { this.value = value; }
+    @Override
+    public String toString() { return value; }
+}
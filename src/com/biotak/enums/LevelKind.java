@@ -0,0 +1,48 @@
+package com.biotak.enums;
+
+/**
+ * نوع خط سطح - Kind of a drawn level line, carried by the level ladder and crossing events.
+ */
+public enum LevelKind {
+    /** Midpoint / start point line */
+    MID("Mid"),
+
+    /** TH step level */
+    TH("TH"),
+
+    /** E step level (0.75 × TH) */
+    E("E"),
+
+    /** TP step level (3 × E) */
+    TP("TP"),
+
+    /** Short Step level */
+    SS("SS"),
+
+    /** Long Step level */
+    LS("LS"),
+
+    /** M level (every third C step, or equal-distance M) */
+    M("M"),
+
+    /** Control step level */
+    C("C"),
+
+    /** Custom price line */
+    CUSTOM("Custom");
+
+    private final String displayName;
+
+    LevelKind(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,14 @@
+package com.biotak.enums;
+
+/**
+ * Unit of the rolling-window length used by the rolling range anchors.
+ */
+public enum RollingWindowUnit {
+    BARS("Bars"),
+    DAYS("Days");
+
+    private final String value;
+    RollingWindowUnit(String value) { this.value = value; }
+    @Override
+    public String toString() { return value; }
+}
@@ -0,0 +1,14 @@
+package com.biotak.enums;
+
+/**
+ * Basis of the reversal threshold used by the automatic swing-leg scanner.
+ */
+public enum SwingThresholdBasis {
+    ATR("ATR"),
+    TH("TH");
+
+    private final String value;
+    SwingThresholdBasis(String value) { this.value = value; }
+    @Override
+    public String toString() { return value; }
+}
@@ -2,15 +2,23 @@ package com.biotak.enums;
 
 /**
  * Defines the possible starting points for the TH level calculations.
+ * The ROLLING_* anchors use the range of the last N bars or days instead of all history.
  */
 public enum THStartPointType {
     MIDPOINT("Midpoint"),
     HISTORICAL_HIGH("Historical High"),
     HISTORICAL_LOW("Historical Low"),
-    CUSTOM_PRICE("Custom Price");
+    CUSTOM_PRICE("Custom Price"),
+    ROLLING_MIDPOINT("Rolling Midpoint"),
+    ROLLING_HIGH("Rolling High"),
+    ROLLING_LOW("Rolling Low");
 
     private final String value;
     THStartPointType(String value) { this.value = value; }
     @Override
     public String toString() { return value; }
+
+    public boolean isRolling() {
+        return this == ROLLING_MIDPOINT || this == ROLLING_HIGH || this == ROLLING_LOW;
+    }
 } 
\ No newline at end of file
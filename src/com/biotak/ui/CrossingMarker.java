@@ -0,0 +1,50 @@
+package com.biotak.ui;
+
+import com.motivewave.platform.sdk.common.Coordinate;
+import com.motivewave.platform.sdk.common.DrawContext;
+import com.motivewave.platform.sdk.draw.Figure;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+
+/**
+ * نشانگر عبور از سطح - Small triangle marking where the price crossed a level, with the level kind.
+ */
+public class CrossingMarker extends Figure {
+    private final long time;
+    private final double price;
+    private final boolean up;
+    private final String text;
+    private static final Font FONT = new Font("Arial", Font.BOLD, 10);
+    private static final Color UP_COLOR = new Color(0, 160, 80, 220);
+    private static final Color DOWN_COLOR = new Color(200, 40, 40, 220);
+    private static final int SIZE = 6;
+
+    public CrossingMarker(long time, double price, boolean up, String text) {
+        this.time = time;
+        this.price = price;
+        this.up = up;
+        this.text = text;
+    }
+
+    @Override
+    public void draw(Graphics2D gc, DrawContext ctx) {
+        Point2D p = ctx.translate(new Coordinate(time, price));
+        int x = (int) p.getX();
+        int y = (int) p.getY();
+        // Upward cross: triangle under the line pointing up; downward: above it pointing down
+        int tip = up ? y + 2 : y - 2;
+        int base = up ? tip + SIZE * 2 : tip - SIZE * 2;
+        gc.setColor(up ? UP_COLOR : DOWN_COLOR);
+        gc.fillPolygon(new int[] {x - SIZE, x + SIZE, x}, new int[] {base, base, tip}, 3);
+        if (text != null) {
+            gc.setFont(FONT);
+            int textY = up ? base + gc.getFontMetrics().getAscent() + 1 : base - 2;
+            gc.drawString(text, x - gc.getFontMetrics().stringWidth(text) / 2, textY);
+        }
+    }
+
+    @Override
+    public boolean contains(double x, double y, DrawContext ctx) { return false; }
+}
@@ -13,9 +13,11 @@ import java.awt.Stroke;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.biotak.debug.AllocationMetrics;
+import com.biotak.debug.LatencyMetrics;
 import com.biotak.enums.PanelPosition;
-import com.biotak.util.PoolManager;
-import com.biotak.util.StringUtils;
+import com.biotak.util.FastFormat;
+import com.biotak.util.ScratchArena;
 
 
 /**
@@ -34,16 +36,17 @@ public class InfoPanel extends Figure {
     private double thValue, shortStep, longStep, atrValue, liveAtrValue;
 
     // Fractal Hierarchy Values
-    private String lowerPatternTF, lowerTriggerTF;
-    private double lowerPatternTH, lowerTriggerTH;
-
-    private String higherPatternTF, higherStructureTF;
-    private double higherPatternTH, higherStructureTH;
+    private com.biotak.util.FractalUtil.THBundle hierarchy;
     private boolean isMinimized;
     private Rectangle panelBounds;
     private Rectangle minimizeButtonRect; // Stores bounds of minimize/restore button
     private Rectangle rulerButtonRect; // Stores bounds of ruler toggle button
     private boolean rulerActive = false; // Tracks if ruler is active
+    private boolean showDebug = false; // Shows latency rows (ui.show.debug)
+    private String themePreference; // From the study settings; null falls back to ui.theme
+    private List<String> swingLines = List.of(); // Swing scanner rows, shown above the debug rows
+    private List<String> coreContent;      // Prebuilt by the level computation; null builds on draw
+    private List<String> hierarchyContent;
     // Added constant to control vertical padding after separator lines inside the panel
     private static final int SEPARATOR_PADDING = 25; // was previously 15 – gives text more breathing room
     
@@ -88,11 +91,12 @@ public class InfoPanel extends Figure {
     
     // Cache for UI elements to avoid repeated creation
     private List<String> cachedCoreLines;
+    private static final int LIVE_ROW = 6; // index of the Live row in coreLines
     private List<String> cachedHierarchyLines;
+    private List<String> cachedDebugLines;
     private long lastCacheTime = 0;
-    private static final long CACHE_DURATION_MS = 1000; // 1 second cache
     
-    // Object pools removed - using centralized PoolManager instead
+    // Scratch builders come from the per-thread ScratchArena
     
     public InfoPanel(String timeframe, double thValue, com.motivewave.platform.sdk.common.Instrument instrument, 
                     Font contentFont, Font titleFont, PanelPosition position, 
@@ -114,21 +118,41 @@ public class InfoPanel extends Figure {
         this.isMinimized = isMinimized;
     }
     
-    public void setDownwardFractalInfo(String pattern, String trigger, double patternTH, double triggerTH) {
-        this.lowerPatternTF = pattern;
-        this.lowerTriggerTF = trigger;
-        this.lowerPatternTH = patternTH;
-        this.lowerTriggerTH = triggerTH;
-    }
-    
-    public void setUpwardFractalInfo(String pattern, String structure, double patternTH, double structureTH) {
-        this.higherPatternTF = pattern;
-        this.higherStructureTF = structure;
-        this.higherPatternTH = patternTH;
-        this.higherStructureTH = structureTH;
+    /** Fractal ladder rendered in the hierarchy section, {@code hierarchy.depth()} levels each way. */
+    public void setHierarchy(com.biotak.util.FractalUtil.THBundle hierarchy) {
+        this.hierarchy = hierarchy;
     }
 
     public void setMinimized(boolean value) { this.isMinimized = value; }
+
+    public void setShowDebug(boolean value) { this.showDebug = value; }
+
+    public void setThemePreference(String value) { this.themePreference = value; }
+
+    public void setSwingLines(List<String> lines) { this.swingLines = lines != null ? lines : List.of(); }
+
+    /** Core and hierarchy rows built off the chart thread by {@link #coreLines} and {@link #hierarchyLines}. */
+    public void setContent(List<String> core, List<String> hierarchy) {
+        this.coreContent = core;
+        this.hierarchyContent = hierarchy;
+    }
+
+    /**
+     * Replaces only the Live row, for ticks that leave every level unchanged.
+     *
+     * @return false if the row already shows {@code value}
+     */
+    public boolean setLiveAtr(double value) {
+        if (Double.compare(liveAtrValue, value) == 0) return false;
+        liveAtrValue = value;
+        if (coreContent != null && coreContent.size() > LIVE_ROW) {
+            List<String> rows = new ArrayList<>(coreContent);
+            rows.set(LIVE_ROW, liveLine(instrument, value));
+            coreContent = rows;
+        }
+        if (cachedCoreLines != null) cachedCoreLines = coreContent; // null rebuilds the rows on draw
+        return true;
+    }
     
     public void setRulerActive(boolean active) {
         this.rulerActive = active;
@@ -143,7 +167,9 @@ public class InfoPanel extends Figure {
      */
     private ColorTheme detectColorTheme(DrawContext ctx) {
         // Use centralized ThemeManager
-        ThemeManager.ColorTheme centralTheme = ThemeManager.getCurrentTheme(ctx, transparency);
+        ThemeManager.ColorTheme centralTheme = themePreference != null
+            ? ThemeManager.getCurrentTheme(ctx, transparency, themePreference)
+            : ThemeManager.getCurrentTheme(ctx, transparency);
         
         // Convert ThemeManager.ColorTheme to InfoPanel.ColorTheme
         return new ColorTheme(
@@ -164,6 +190,15 @@ public class InfoPanel extends Figure {
     
     @Override
     public void draw(Graphics2D gc, DrawContext ctx) {
+        long t0 = LatencyMetrics.start();
+        try {
+            drawPanel(gc, ctx);
+        } finally {
+            LatencyMetrics.record(LatencyMetrics.Op.INFO_PANEL_DRAW, t0);
+        }
+    }
+
+    private void drawPanel(Graphics2D gc, DrawContext ctx) {
         // Save original settings
         Color origColor = gc.getColor();
         Font origFont = gc.getFont();
@@ -176,21 +211,32 @@ public class InfoPanel extends Figure {
         long currentTime = System.currentTimeMillis();
         List<String> coreLines;
         List<String> hierarchyLines;
+        List<String> debugLines;
         
-        if (cachedCoreLines != null && cachedHierarchyLines != null && 
-            (currentTime - lastCacheTime) < CACHE_DURATION_MS) {
+        if (cachedCoreLines != null && cachedHierarchyLines != null && cachedDebugLines != null &&
+            (currentTime - lastCacheTime) < com.biotak.config.BiotakConfig.getInstance().snapshot().panelCacheMs()) {
             // Use cached content
             coreLines = cachedCoreLines;
             hierarchyLines = cachedHierarchyLines;
+            debugLines = cachedDebugLines;
         } else {
             // Generate new content and cache it
-            coreLines = generateCoreLines();
-            hierarchyLines = generateHierarchyLines();
+            coreLines = coreContent != null ? coreContent : coreLines(instrument, thValue, shortStep, longStep, atrValue, liveAtrValue);
+            hierarchyLines = hierarchyContent != null ? hierarchyContent : hierarchyLines(instrument, timeframe, thValue, hierarchy);
+            debugLines = showDebug ? generateDebugLines() : List.of();
+            if (!swingLines.isEmpty()) {
+                List<String> rows = new ArrayList<>(swingLines.size() + debugLines.size());
+                rows.addAll(swingLines);
+                rows.addAll(debugLines);
+                debugLines = rows;
+            }
             
             cachedCoreLines = coreLines;
             cachedHierarchyLines = hierarchyLines;
+            cachedDebugLines = debugLines;
             lastCacheTime = currentTime;
         }
+        boolean drawDebug = !isMinimized && !debugLines.isEmpty();
 
         // Calculate panel dimensions
         gc.setFont(titleFont);
@@ -219,6 +265,11 @@ int lineSpacing = 10; // Increased spacing for improved readability
         for (String line : hierarchyLines) {
             hierarchyWidth = Math.max(hierarchyWidth, contentMetrics.stringWidth(line));
         }
+        if (drawDebug) {
+            for (String line : debugLines) {
+                hierarchyWidth = Math.max(hierarchyWidth, contentMetrics.stringWidth(line));
+            }
+        }
 
         int panelWidth = Math.max(coreWidth, hierarchyWidth) + 40; // Increased panel width
 
@@ -226,7 +277,8 @@ int lineSpacing = 10; // Increased spacing for improved readability
         int coreRows = ((coreLines.size() + 1) / 2); // rows = pairs + possible leftover
         int coreSectionHeight = (coreRows * (contentLineHeight + lineSpacing)) + SEPARATOR_PADDING;
         int hierarchySectionHeight = isMinimized ? 0 : (hierarchyLines.size() * (contentLineHeight + lineSpacing)) + SEPARATOR_PADDING;
-        int panelHeight = (titleHeight + SEPARATOR_PADDING) + coreSectionHeight + hierarchySectionHeight;
+        int debugSectionHeight = drawDebug ? (debugLines.size() * (contentLineHeight + lineSpacing)) + SEPARATOR_PADDING : 0;
+        int panelHeight = (titleHeight + SEPARATOR_PADDING) + coreSectionHeight + hierarchySectionHeight + debugSectionHeight;
 
         // Calculate panel position
         int x, y;
@@ -376,6 +428,10 @@ int lineSpacing = 10; // Increased spacing for improved readability
         if (!isMinimized) {
             currentY += coreSectionHeight;
             drawHierarchySection(gc, x, currentY, panelWidth, hierarchyLines, contentMetrics, contentFont, lineSpacing, theme);
+            if (drawDebug) {
+                currentY += hierarchySectionHeight;
+                drawSection(gc, x, currentY, panelWidth, "", debugLines, contentMetrics, contentFont, lineSpacing, false, theme);
+            }
         }
         
         // Restore graphics settings
@@ -393,13 +449,13 @@ int lineSpacing = 10; // Increased spacing for improved readability
     }
     
     /**
-     * Generate core lines content (cached for performance)
+     * Core rows (TH, ATR, SS, LS, C, M, Live) in pips; pure, so the level computation builds them.
      */
-    private List<String> generateCoreLines() {
-        ArrayList<String> coreLines = PoolManager.getStringList();
-        StringBuilder sb = PoolManager.getStringBuilder();
-        
-        try {
+    public static List<String> coreLines(com.motivewave.platform.sdk.common.Instrument instrument, double thValue,
+                                         double shortStep, double longStep, double atrValue, double liveAtrValue) {
+        ArrayList<String> coreLines = new ArrayList<>(7);
+        try (ScratchArena arena = ScratchArena.open()) {
+            StringBuilder sb = arena.builder();
             // Calculate Control (C) as the average of SS and LS => 7T.
             double controlValue = (shortStep + longStep) / 2.0; // C = (SS + LS) / 2
             
@@ -411,141 +467,123 @@ int lineSpacing = 10; // Increased spacing for improved readability
             double cPip = com.biotak.util.UnitConverter.priceToPip(controlValue, instrument);
             double mValue = shortStep + controlValue + longStep;
             double mPip = com.biotak.util.UnitConverter.priceToPip(mValue, instrument);
-            double livePip = com.biotak.util.UnitConverter.priceToPip(liveAtrValue, instrument);
             
             // Use StringBuilder for efficient string building with optimized formatting
             sb.setLength(0);
-            sb.append("TH: ").append(StringUtils.format1f(thPip));
+            FastFormat.appendTrimmed(sb.append("TH: "), thPip, 1);
             coreLines.add(sb.toString());
             
             sb.setLength(0);
-            sb.append("ATR: ").append(StringUtils.format1f(atrPip));
+            FastFormat.appendTrimmed(sb.append("ATR: "), atrPip, 1);
             coreLines.add(sb.toString());
             
             sb.setLength(0);
-            sb.append("SS: ").append(StringUtils.format1f(ssPip));
+            FastFormat.appendTrimmed(sb.append("SS: "), ssPip, 1);
             coreLines.add(sb.toString());
             
             sb.setLength(0);
-            sb.append("LS: ").append(StringUtils.format1f(lsPip));
+            FastFormat.appendTrimmed(sb.append("LS: "), lsPip, 1);
             coreLines.add(sb.toString());
             
             sb.setLength(0);
-            sb.append("C: ").append(StringUtils.format1f(cPip));
+            FastFormat.appendTrimmed(sb.append("C: "), cPip, 1);
             coreLines.add(sb.toString());
             
             sb.setLength(0);
-            sb.append("M: ").append(StringUtils.format1f(mPip));
+            FastFormat.appendTrimmed(sb.append("M: "), mPip, 1);
             coreLines.add(sb.toString());
             
-            sb.setLength(0);
-            sb.append("Live: ").append(StringUtils.format1f(livePip));
-            coreLines.add(sb.toString());
+            coreLines.add(liveLine(instrument, liveAtrValue));
             
-            // Return a copy to avoid pool interference
-            return new ArrayList<>(coreLines);
-        } finally {
-            PoolManager.releaseStringBuilder(sb);
-            PoolManager.releaseStringList(coreLines);
+            return coreLines;
+        }
+    }
+
+    private static String liveLine(com.motivewave.platform.sdk.common.Instrument instrument, double liveAtrValue) {
+        try (ScratchArena arena = ScratchArena.open()) {
+            StringBuilder sb = arena.builder();
+            double livePip = com.biotak.util.UnitConverter.priceToPip(liveAtrValue, instrument);
+            FastFormat.appendTrimmed(sb.append("Live: "), livePip, 1);
+            return sb.toString();
         }
     }
     
     /**
-     * Generate hierarchy lines content (cached for performance)
+     * Latency rows (p50/p99/max) and allocation rows shown when ui.show.debug is enabled
      */
-    private List<String> generateHierarchyLines() {
-        ArrayList<String> hierarchyLines = PoolManager.getStringList();
-        StringBuilder sb = PoolManager.getStringBuilder();
-        
-        try {
+    private List<String> generateDebugLines() {
+        List<String> lines = LatencyMetrics.debugLines();
+        List<String> alloc = AllocationMetrics.debugLines();
+        List<String> pools = com.biotak.util.BiotakExecutors.debugLines();
+        List<String> heap = com.biotak.util.HeapGovernor.debugLines();
+        if (lines.isEmpty() && alloc.isEmpty() && pools.isEmpty() && heap.isEmpty()) return List.of();
+        List<String> out = new ArrayList<>(lines.size() + alloc.size() + pools.size() + heap.size() + 1);
+        if (!lines.isEmpty()) {
+            out.add("⏱ p50/p99/max");
+            out.addAll(lines);
+        }
+        out.addAll(alloc);
+        out.addAll(pools);
+        out.addAll(heap);
+        return out;
+    }
+
+    /**
+     * Hierarchy rows, highest level first, {@code hierarchy.depth()} levels each way; pure like {@link #coreLines}.
+     */
+    public static List<String> hierarchyLines(com.motivewave.platform.sdk.common.Instrument instrument, String timeframe,
+                                              double thValue, com.biotak.util.FractalUtil.THBundle hierarchy) {
+        int depth = hierarchy != null ? hierarchy.depth() : 0;
+        ArrayList<String> hierarchyLines = new ArrayList<>(2 * depth + 2);
+        try (ScratchArena arena = ScratchArena.open()) {
+            StringBuilder sb = arena.builder();
             // Headers for the table-like format
             hierarchyLines.add("HEADER:TH:C:E:TP");
 
-            if (higherStructureTF != null && !higherStructureTF.isEmpty()) {
+            // Highest level first; the current timeframe keeps the chart's own TH and label
+            for (int level = depth; level >= -depth; level--) {
                 sb.setLength(0);
-                double th = higherStructureTH;
-                double cVal = th * 1.75;
-                double thPip = com.biotak.util.UnitConverter.priceToPip(th, instrument);
-                double cPip = com.biotak.util.UnitConverter.priceToPip(cVal, instrument);
-                double diffPip = cPip - thPip;
-                double tpPip = diffPip * 3; // TP = E * 3
-                sb.append("▲ S [").append(higherStructureTF).append("]:")
-                  .append(StringUtils.format1f(thPip)).append(":")
-                  .append(StringUtils.format1f(cPip)).append(":")
-                  .append(StringUtils.format1f(diffPip)).append(":")
-                  .append(StringUtils.format1f(tpPip));
-                hierarchyLines.add(sb.toString());
-            }
-            
-            if (higherPatternTF != null && !higherPatternTF.isEmpty()) {
-                sb.setLength(0);
-                double th = higherPatternTH;
-                double cVal = th * 1.75;
-                double thPip = com.biotak.util.UnitConverter.priceToPip(th, instrument);
-                double cPip = com.biotak.util.UnitConverter.priceToPip(cVal, instrument);
-                double diffPip = cPip - thPip;
-                double tpPip = diffPip * 3; // TP = E * 3
-                sb.append("▲ P [").append(higherPatternTF).append("]:")
-                  .append(StringUtils.format1f(thPip)).append(":")
-                  .append(StringUtils.format1f(cPip)).append(":")
-                  .append(StringUtils.format1f(diffPip)).append(":")
-                  .append(StringUtils.format1f(tpPip));
+                if (level == 0) {
+                    sb.append("■ [").append(timeframe).append("]*:");
+                    appendLevelRow(sb, instrument, thValue);
+                } else {
+                    sb.append(levelTag(level)).append(" [").append(hierarchy.label(level)).append("]:");
+                    appendLevelRow(sb, instrument, hierarchy.th(level));
+                }
                 hierarchyLines.add(sb.toString());
             }
 
-            // Current timeframe
-            sb.setLength(0);
-            double th = thValue;
-            double cVal = th * 1.75;
-            double thPip = com.biotak.util.UnitConverter.priceToPip(th, instrument);
-            double cPip = com.biotak.util.UnitConverter.priceToPip(cVal, instrument);
-            double diffPip = cPip - thPip;
-            double tpPip = diffPip * 3; // TP = E * 3
-            sb.append("■ [").append(timeframe).append("]*:").append(StringUtils.format1f(thPip)).append(":")
-              .append(StringUtils.format1f(cPip)).append(":")
-              .append(StringUtils.format1f(diffPip)).append(":")
-              .append(StringUtils.format1f(tpPip));
-            hierarchyLines.add(sb.toString());
-
-            if (lowerPatternTF != null && !lowerPatternTF.isEmpty()) {
-                sb.setLength(0);
-                th = lowerPatternTH;
-                cVal = th * 1.75;
-                thPip = com.biotak.util.UnitConverter.priceToPip(th, instrument);
-                cPip = com.biotak.util.UnitConverter.priceToPip(cVal, instrument);
-                diffPip = cPip - thPip;
-                tpPip = diffPip * 3; // TP = E * 3
-                sb.append("▼ P [").append(lowerPatternTF).append("]:")
-                  .append(StringUtils.format1f(thPip)).append(":")
-                  .append(StringUtils.format1f(cPip)).append(":")
-                  .append(StringUtils.format1f(diffPip)).append(":")
-                  .append(StringUtils.format1f(tpPip));
-                hierarchyLines.add(sb.toString());
-            }
-            
-            if (lowerTriggerTF != null && !lowerTriggerTF.isEmpty()) {
-                sb.setLength(0);
-                th = lowerTriggerTH;
-                cVal = th * 1.75;
-                thPip = com.biotak.util.UnitConverter.priceToPip(th, instrument);
-                cPip = com.biotak.util.UnitConverter.priceToPip(cVal, instrument);
-                diffPip = cPip - thPip;
-                tpPip = diffPip * 3; // TP = E * 3
-                sb.append("▼ T [").append(lowerTriggerTF).append("]:")
-                  .append(StringUtils.format1f(thPip)).append(":")
-                  .append(StringUtils.format1f(cPip)).append(":")
-                  .append(StringUtils.format1f(diffPip)).append(":")
-                  .append(StringUtils.format1f(tpPip));
-                hierarchyLines.add(sb.toString());
-            }
-            
-            return new ArrayList<>(hierarchyLines);
-        } finally {
-            PoolManager.releaseStringBuilder(sb);
-            PoolManager.releaseStringList(hierarchyLines);
+            return hierarchyLines;
         }
     }
 
+    /** ▲ S / ▲ P above, ▼ P / ▼ T below, numbered beyond two levels (▲ 3, ▼ 3 …). */
+    private static String levelTag(int level) {
+        return switch (level) {
+            case 2 -> "▲ S";
+            case 1 -> "▲ P";
+            case -1 -> "▼ P";
+            case -2 -> "▼ T";
+            default -> (level > 0 ? "▲ " : "▼ ") + Math.abs(level);
+        };
+    }
+
+    /** Appends the pip row of one level: C = TH × 1.75, E = C − TH, TP = E × 3. */
+    private static void appendLevelRow(StringBuilder sb, com.motivewave.platform.sdk.common.Instrument instrument, double th) {
+        double thPip = com.biotak.util.UnitConverter.priceToPip(th, instrument);
+        double cPip = com.biotak.util.UnitConverter.priceToPip(th * 1.75, instrument);
+        double diffPip = cPip - thPip;
+        appendPipRow(sb, thPip, cPip, diffPip, diffPip * 3);
+    }
+
+    /** Appends "TH:C:E:TP" pip values, one decimal each, without intermediate strings. */
+    private static void appendPipRow(StringBuilder sb, double thPip, double cPip, double diffPip, double tpPip) {
+        FastFormat.appendTrimmed(sb, thPip, 1).append(':');
+        FastFormat.appendTrimmed(sb, cPip, 1).append(':');
+        FastFormat.appendTrimmed(sb, diffPip, 1).append(':');
+        FastFormat.appendTrimmed(sb, tpPip, 1);
+    }
+
     private void drawHierarchySection(Graphics2D gc, int x, int y, int panelWidth, List<String> lines, 
                                      FontMetrics fm, Font font, int spacing, ColorTheme theme) {
         int currentY = y;
@@ -1,9 +1,10 @@
 package com.biotak.ui;
 
+import com.biotak.core.LevelLadder;
+import com.biotak.enums.LevelKind;
 import com.biotak.enums.THStartPointType;
 import com.biotak.debug.AdvancedLogger;
 import com.motivewave.platform.sdk.common.Coordinate;
-import com.motivewave.platform.sdk.common.DataSeries;
 import com.motivewave.platform.sdk.common.PathInfo;
 import com.motivewave.platform.sdk.common.Settings;
 import com.motivewave.platform.sdk.draw.Line;
@@ -18,20 +19,20 @@ public class LevelDrawer {
     /**
      * Draws the historical high and low lines on the chart if they are enabled in the settings.
      */
-    public static List<Figure> drawHistoricalLines(Settings settings, long startTime, long endTime, double high, double low) {
-        boolean showHigh = settings.getBoolean(S_SHOW_HIGH_LINE, true);
-        boolean showLow = settings.getBoolean(S_SHOW_LOW_LINE, true);
+    public static List<Figure> drawHistoricalLines(LevelStyle style, long startTime, long endTime, double high, double low) {
+        boolean showHigh = style.showHighLine();
+        boolean showLow = style.showLowLine();
         
         // Pre-allocate list size for better performance
         List<Figure> figures = new ArrayList<>((showHigh ? 1 : 0) + (showLow ? 1 : 0));
         
         if (showHigh) {
-            PathInfo highPath = settings.getPath(S_HIGH_LINE_PATH);
+            PathInfo highPath = style.highPath();
             figures.add(new Line(new Coordinate(startTime, high), new Coordinate(endTime, high), highPath));
         }
 
         if (showLow) {
-            PathInfo lowPath = settings.getPath(S_LOW_LINE_PATH);
+            PathInfo lowPath = style.lowPath();
             figures.add(new Line(new Coordinate(startTime, low), new Coordinate(endTime, low), lowPath));
         }
         return figures;
@@ -42,16 +43,37 @@ public class LevelDrawer {
      * @return The calculated midpoint price.
      */
     public static double determineMidpointPrice(Settings settings, double high, double low) {
-        String startPointStr = settings.getString(S_START_POINT, THStartPointType.MIDPOINT.name());
-        THStartPointType startPointType = THStartPointType.valueOf(startPointStr);
+        return determineMidpointPrice(settings, high, low, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Same as {@link #determineMidpointPrice(Settings, double, double)}, with the rolling-window
+     * range for the ROLLING_* anchors; a NaN rolling value falls back to the full range.
+     */
+    public static double determineMidpointPrice(Settings settings, double high, double low, double rollingHigh, double rollingLow) {
+        THStartPointType startPointType = com.biotak.util.EnumUtil.safeEnum(THStartPointType.class,
+                settings.getString(S_START_POINT, THStartPointType.MIDPOINT.name()), THStartPointType.MIDPOINT);
+        return determineMidpointPrice(startPointType, settings.getDouble(S_CUSTOM_PRICE, 0), high, low, rollingHigh, rollingLow);
+    }
+
+    /**
+     * Same as {@link #determineMidpointPrice(Settings, double, double, double, double)} with the start
+     * point and saved custom price already read; a NaN or zero custom price falls back to the midpoint.
+     */
+    public static double determineMidpointPrice(THStartPointType startPointType, double customPrice,
+                                                double high, double low, double rollingHigh, double rollingLow) {
+        double rh = Double.isNaN(rollingHigh) ? high : rollingHigh;
+        double rl = Double.isNaN(rollingLow) ? low : rollingLow;
 
         switch (startPointType) {
+            case ROLLING_HIGH: return rh;
+            case ROLLING_LOW: return rl;
+            case ROLLING_MIDPOINT: return (rh + rl) / 2.0;
             case HISTORICAL_HIGH: return high;
             case HISTORICAL_LOW: return low;
             case CUSTOM_PRICE:
                 // Use stored custom price, fallback to midpoint if not set
-                double cp = settings.getDouble(S_CUSTOM_PRICE, 0);
-                return cp != 0 ? cp : (high + low) / 2.0;
+                return !Double.isNaN(customPrice) && customPrice != 0 ? customPrice : (high + low) / 2.0;
             case MIDPOINT:
             default:
                 return (high + low) / 2.0;
@@ -60,33 +82,39 @@ public class LevelDrawer {
 
     /**
      * Draws the midpoint line on the chart if it is enabled in the settings.
+     *
+     * @param ladder receives the drawn price, or {@code null}
      */
-    public static List<Figure> drawMidpointLine(Settings settings, long startTime, long endTime, double midpointPrice) {
+    public static List<Figure> drawMidpointLine(LevelStyle style, long startTime, long endTime, double midpointPrice, LevelLadder.Builder ladder) {
         List<Figure> figures = new ArrayList<>();
-        if (settings.getBoolean(S_SHOW_MIDPOINT, true)) {
-            PathInfo path = settings.getPath(S_TRIGGER_PATH);
+        if (style.showMidpoint()) {
+            PathInfo path = style.triggerPath();
             figures.add(new Line(new Coordinate(startTime, midpointPrice), new Coordinate(endTime, midpointPrice), path));
+            record(ladder, midpointPrice, LevelKind.MID);
         }
         return figures;
     }
 
     /**
      * Calculates and draws all the "TH" (Trigger and Structure) levels above and below the midpoint.
+     *
+     * @param pointValue instrument tick size; {@code thStepInPoints} is in ticks
+     * @param kind   level kind recorded in {@code ladder} (TH, E or TP, depending on the step mode)
+     * @param ladder receives every drawn price, or {@code null}
      */
-    public static List<Figure> drawTHLevels(Settings settings, DataSeries series, double midpointPrice, double highestHigh, double lowestLow, double thStepInPoints, long startTime, long endTime) {
+    public static List<Figure> drawTHLevels(LevelStyle style, double pointValue, double midpointPrice, double highestHigh, double lowestLow, double thStepInPoints, long startTime, long endTime,
+                                            LevelKind kind, LevelLadder.Builder ladder) {
 
         if (thStepInPoints <= 0) {
             AdvancedLogger.warn("LevelDrawer", "drawTHLevels", "Invalid TH step value (<=0). Cannot draw TH levels.");
             return new ArrayList<>();
         }
 
-        double pointValue = series.getInstrument().getTickSize();
-
         // Final price distance between consecutive TH levels
         // Removed pipMultiplier scaling: keep distance in price units
         double stepPrice = thStepInPoints * pointValue;
-        int maxLevelsAbove = settings.getInteger(S_MAX_LEVELS_ABOVE);
-        int maxLevelsBelow = settings.getInteger(S_MAX_LEVELS_BELOW);
+        int maxLevelsAbove = style.maxLevelsAbove();
+        int maxLevelsBelow = style.maxLevelsBelow();
 
         List<Figure> figures = new ArrayList<>(maxLevelsAbove + maxLevelsBelow); // Pre-allocate capacity
         // Draw levels above midpoint
@@ -94,10 +122,11 @@ public class LevelDrawer {
         int levelCountAbove = 0;
         double priceLevelAbove = midpointPrice + stepPrice;
         while (priceLevelAbove <= highestHigh && levelCountAbove < maxLevelsAbove) {
-            PathInfo path = getPathForLevel(settings, stepCountAbove);
+            PathInfo path = style.pathForLevel(stepCountAbove);
             if (path != null) {
                 // Remove debug logging to improve performance
                 figures.add(new Line(new Coordinate(startTime, priceLevelAbove), new Coordinate(endTime, priceLevelAbove), path));
+                record(ladder, priceLevelAbove, kind);
                 levelCountAbove++;
             }
             priceLevelAbove += stepPrice;
@@ -109,10 +138,11 @@ public class LevelDrawer {
         int levelCountBelow = 0;
         double priceLevelBelow = midpointPrice - stepPrice;
         while (priceLevelBelow >= lowestLow && levelCountBelow < maxLevelsBelow) {
-            PathInfo path = getPathForLevel(settings, stepCountBelow);
+            PathInfo path = style.pathForLevel(stepCountBelow);
             if (path != null) {
                 // Remove debug logging to improve performance
                 figures.add(new Line(new Coordinate(startTime, priceLevelBelow), new Coordinate(endTime, priceLevelBelow), path));
+                record(ladder, priceLevelBelow, kind);
                 levelCountBelow++;
             }
             priceLevelBelow -= stepPrice;
@@ -121,32 +151,9 @@ public class LevelDrawer {
         return figures;
     }
 
-    /**
-     * Determines which PathInfo to use based on the step count.
-     * This replicates the logic of showing different lines for structure levels.
-     * @param stepCount The current step/level number from the midpoint.
-     * @return PathInfo for the correct line type, or null if this level should not be drawn.
-     */
-    public static PathInfo getPathForLevel(Settings settings, int stepCount) {
-        if (settings.getBoolean(S_SHOW_STRUCTURE_LINES)) {
-            if (stepCount % 128 == 0 && settings.getBoolean(S_SHOW_STRUCT_L5)) return settings.getPath(S_STRUCT_L5_PATH);
-            if (stepCount % 64 == 0 && settings.getBoolean(S_SHOW_STRUCT_L4)) return settings.getPath(S_STRUCT_L4_PATH);
-            if (stepCount % 32 == 0 && settings.getBoolean(S_SHOW_STRUCT_L3)) return settings.getPath(S_STRUCT_L3_PATH);
-            if (stepCount % 16 == 0 && settings.getBoolean(S_SHOW_STRUCT_L2)) return settings.getPath(S_STRUCT_L2_PATH);
-            if (stepCount % 4 == 0 && settings.getBoolean(S_SHOW_STRUCT_L1)) return settings.getPath(S_STRUCT_L1_PATH);
-        }
-
-        if (settings.getBoolean(S_SHOW_TRIGGER_LEVELS)) {
-            return settings.getPath(S_TRIGGER_PATH);
-        }
-
-        return null; // Don't draw anything if neither structure nor trigger lines are enabled for this step
-    }
-
     /**
      * Draws variable-distance levels alternating between Short Step (SS) and Long Step (LS).
      *
-     * @param series         Data series (for instrument/tick size if needed)
      * @param midpointPrice  Center reference price
      * @param highestHigh    Upper bound for drawing
      * @param lowestLow      Lower bound for drawing
@@ -155,10 +162,11 @@ public class LevelDrawer {
      * @param lsFirst        If true, first step after midpoint uses LS, otherwise SS
      * @param startTime      Start timestamp for horizontal lines
      * @param endTime        End timestamp for horizontal lines
+     * @param ladder         Receives every drawn price as SS or LS, or {@code null}
      */
-    public static List<Figure> drawSSLSLevels(Settings settings, DataSeries series, double midpointPrice, double highestHigh, double lowestLow,
+    public static List<Figure> drawSSLSLevels(LevelStyle style, double midpointPrice, double highestHigh, double lowestLow,
                                 double ssValue, double lsValue, boolean lsFirst,
-                                long startTime, long endTime) {
+                                long startTime, long endTime, LevelLadder.Builder ladder) {
         if (ssValue <= 0 || lsValue <= 0) {
             AdvancedLogger.warn("LevelDrawer", "drawSSLSLevels", "Invalid SS/LS values – cannot draw levels.");
             return new ArrayList<>();
@@ -172,7 +180,7 @@ public class LevelDrawer {
         int drawnAbove = 0;
         int logicalStep = 0; // counts every step (SS/LS) processed
         double cumulative = 0;
-        int maxLevelsAbove = settings.getInteger(S_MAX_LEVELS_ABOVE);
+        int maxLevelsAbove = style.maxLevelsAbove();
         List<Figure> figures = new ArrayList<>();
         while (drawnAbove < maxLevelsAbove) {
             double dist = stepDistances[logicalStep % 2];
@@ -181,17 +189,18 @@ public class LevelDrawer {
             double priceLevel = midpointPrice + cumulative;
             if (priceLevel > highestHigh) break;
 
-            if (!shouldDrawStep(settings, logicalStep)) {
+            if (!shouldDrawStep(style, logicalStep)) {
                 continue;
             }
-            PathInfo path = getPathForLevel(settings, logicalStep);
+            boolean isSS = ((logicalStep % 2 == 0) == lsFirst); // logicalStep starts at 1 after ++, so evaluate before use
+            PathInfo path = style.pathForLevel(logicalStep);
             if (path == null) {
                 // Fall back to specific SS/LS paths when structure/trigger paths are disabled
-                boolean isSS = ((logicalStep % 2 == 0) == lsFirst); // logicalStep starts at 1 after ++, so evaluate before use
-                path = isSS ? settings.getPath(S_SS_LEVEL_PATH) : settings.getPath(S_LS_LEVEL_PATH);
+                path = isSS ? style.ssPath() : style.lsPath();
             }
             if (path != null) {
                 figures.add(new Line(new Coordinate(startTime, priceLevel), new Coordinate(endTime, priceLevel), path));
+                record(ladder, priceLevel, isSS ? LevelKind.SS : LevelKind.LS);
                 drawnAbove++;
             }
         }
@@ -199,7 +208,7 @@ public class LevelDrawer {
         int drawnBelow = 0;
         logicalStep = 0;
         cumulative = 0;
-        int maxLevelsBelow = settings.getInteger(S_MAX_LEVELS_BELOW);
+        int maxLevelsBelow = style.maxLevelsBelow();
         while (drawnBelow < maxLevelsBelow) {
             double dist = stepDistances[logicalStep % 2];
             cumulative += dist;
@@ -207,16 +216,17 @@ public class LevelDrawer {
             double priceLevel = midpointPrice - cumulative;
             if (priceLevel < lowestLow) break;
 
-            if (!shouldDrawStep(settings, logicalStep)) {
+            if (!shouldDrawStep(style, logicalStep)) {
                 continue;
             }
-            PathInfo path = getPathForLevel(settings, logicalStep);
+            boolean isSS = ((logicalStep % 2 == 0) == lsFirst);
+            PathInfo path = style.pathForLevel(logicalStep);
             if (path == null) {
-                boolean isSS = ((logicalStep % 2 == 0) == lsFirst);
-                path = isSS ? settings.getPath(S_SS_LEVEL_PATH) : settings.getPath(S_LS_LEVEL_PATH);
+                path = isSS ? style.ssPath() : style.lsPath();
             }
             if (path != null) {
                 figures.add(new Line(new Coordinate(startTime, priceLevel), new Coordinate(endTime, priceLevel), path));
+                record(ladder, priceLevel, isSS ? LevelKind.SS : LevelKind.LS);
                 drawnBelow++;
             }
         }
@@ -228,34 +238,38 @@ public class LevelDrawer {
      * If Trigger lines are enabled, all steps are drawn. Otherwise only steps
      * that are multiples of 4 (structure highlights) are rendered.
      */
-    private static boolean shouldDrawStep(Settings settings, int step) {
-        if (settings.getBoolean(S_SHOW_TRIGGER_LEVELS)) return true;
+    private static boolean shouldDrawStep(LevelStyle style, int step) {
+        if (style.showTriggerLevels()) return true;
         return step % 4 == 0;
     }
 
+    private static void record(LevelLadder.Builder ladder, double price, LevelKind kind) {
+        if (ladder != null) ladder.add(price, kind);
+    }
+
 
     /**
      * Draws Control-increment levels (distance = C). Every third level (3C) is
      * labeled/colored as "M" to denote reaching the Structure distance.
      */
     public static List<Figure> drawMLevels(
-            Settings settings,
-            DataSeries series,
+            LevelStyle style,
             double midpointPrice,
             double highestHigh,
             double lowestLow,
             double controlDistance,
             long startTime,
-            long endTime) {
+            long endTime,
+            LevelLadder.Builder ladder) {
 
         if (controlDistance <= 0) {
             AdvancedLogger.warn("LevelDrawer", "drawMLevels", "Invalid C distance – cannot draw M ladder.");
             return new java.util.ArrayList<>();
         }
 
-        boolean showLabels = settings.getBoolean(S_SHOW_LEVEL_LABELS, true);
-        int maxAbove = settings.getInteger(S_MAX_LEVELS_ABOVE);
-        int maxBelow = settings.getInteger(S_MAX_LEVELS_BELOW);
+        boolean showLabels = style.showLevelLabels();
+        int maxAbove = style.maxLevelsAbove();
+        int maxBelow = style.maxLevelsBelow();
 
         java.util.List<Figure> figs = new java.util.ArrayList<>();
 
@@ -267,18 +281,19 @@ public class LevelDrawer {
             boolean isM = (logicalStep % 3 == 0);
             String lbl = isM ? "M" : "C";
 
-            if (!shouldDrawStep(settings, logicalStep)) {
+            if (!shouldDrawStep(style, logicalStep)) {
                 logicalStep++;
                 priceAbove += controlDistance;
                 continue;
             }
-            PathInfo path = getPathForLevel(settings, logicalStep);
-            if (path == null && settings.getBoolean(S_SHOW_TRIGGER_LEVELS)) {
-                path = settings.getPath(S_TRIGGER_PATH);
+            PathInfo path = style.pathForLevel(logicalStep);
+            if (path == null && style.showTriggerLevels()) {
+                path = style.triggerPath();
             }
             if (path != null) {
                 figs.add(new Line(new Coordinate(startTime, priceAbove), new Coordinate(endTime, priceAbove), path));
                 if (showLabels) figs.add(new LevelLabel(endTime, priceAbove, lbl));
+                record(ladder, priceAbove, isM ? LevelKind.M : LevelKind.C);
                 drawnAbove++;
             }
 
@@ -294,19 +309,20 @@ public class LevelDrawer {
             boolean isM2 = (logicalStep % 3 == 0);
             String lbl2 = isM2 ? "M" : "C";
 
-            if (!shouldDrawStep(settings, logicalStep)) {
+            if (!shouldDrawStep(style, logicalStep)) {
                 logicalStep++;
                 priceBelow -= controlDistance;
                 continue;
             }
 
-            PathInfo path = getPathForLevel(settings, logicalStep);
-            if (path == null && settings.getBoolean(S_SHOW_TRIGGER_LEVELS)) {
-                path = settings.getPath(S_TRIGGER_PATH);
+            PathInfo path = style.pathForLevel(logicalStep);
+            if (path == null && style.showTriggerLevels()) {
+                path = style.triggerPath();
             }
             if (path != null) {
                 figs.add(new Line(new Coordinate(startTime, priceBelow), new Coordinate(endTime, priceBelow), path));
                 if (showLabels) figs.add(new LevelLabel(endTime, priceBelow, lbl2));
+                record(ladder, priceBelow, isM2 ? LevelKind.M : LevelKind.C);
                 drawnBelow++;
             }
 
@@ -321,22 +337,23 @@ public class LevelDrawer {
      * Draws levels at equal spacing of mDistance, labelling each as "M".
      */
     public static List<Figure> drawMEqualLevels(
-            Settings settings,
+            LevelStyle style,
             double midpointPrice,
             double highestHigh,
             double lowestLow,
             double mDistance,
             long startTime,
-            long endTime) {
+            long endTime,
+            LevelLadder.Builder ladder) {
 
         if (mDistance <= 0) {
             AdvancedLogger.warn("LevelDrawer", "drawMEqualLevels", "Invalid M distance – cannot draw levels.");
             return new java.util.ArrayList<>();
         }
 
-        boolean showLabels = settings.getBoolean(S_SHOW_LEVEL_LABELS, true);
-        int maxAbove = settings.getInteger(S_MAX_LEVELS_ABOVE);
-        int maxBelow = settings.getInteger(S_MAX_LEVELS_BELOW);
+        boolean showLabels = style.showLevelLabels();
+        int maxAbove = style.maxLevelsAbove();
+        int maxBelow = style.maxLevelsBelow();
 
         java.util.List<Figure> figs = new java.util.ArrayList<>();
 
@@ -344,14 +361,14 @@ public class LevelDrawer {
         int step = 1;
         double price = midpointPrice + mDistance;
         while (price <= highestHigh && step <= maxAbove) {
-            PathInfo path = getPathForLevel(settings, step);
+            PathInfo path = style.pathForLevel(step);
             if (path == null) {
-                boolean triggerOn = settings.getBoolean(S_SHOW_TRIGGER_LEVELS);
-                path = triggerOn ? settings.getPath(S_TRIGGER_PATH) : settings.getPath(S_STRUCT_L1_PATH);
+                path = style.showTriggerLevels() ? style.triggerPath() : style.structL1Path();
             }
             if (path != null) {
                 figs.add(new Line(new Coordinate(startTime, price), new Coordinate(endTime, price), path));
                 if (showLabels) figs.add(new LevelLabel(endTime, price, "M"));
+                record(ladder, price, LevelKind.M);
             }
             step++;
             price += mDistance;
@@ -361,14 +378,14 @@ public class LevelDrawer {
         step = 1;
         price = midpointPrice - mDistance;
         while (price >= lowestLow && step <= maxBelow) {
-            PathInfo path = getPathForLevel(settings, step);
+            PathInfo path = style.pathForLevel(step);
             if (path == null) {
-                boolean triggerOn = settings.getBoolean(S_SHOW_TRIGGER_LEVELS);
-                path = triggerOn ? settings.getPath(S_TRIGGER_PATH) : settings.getPath(S_STRUCT_L1_PATH);
+                path = style.showTriggerLevels() ? style.triggerPath() : style.structL1Path();
             }
             if (path != null) {
                 figs.add(new Line(new Coordinate(startTime, price), new Coordinate(endTime, price), path));
                 if (showLabels) figs.add(new LevelLabel(endTime, price, "M"));
+                record(ladder, price, LevelKind.M);
             }
             step++;
             price -= mDistance;
@@ -381,7 +398,7 @@ public class LevelDrawer {
      * Draws levels at equal spacing of eDistance, labelling each as \"E\".
      */
     public static List<Figure> drawELevels(
-            Settings settings,
+            LevelStyle style,
             double midpointPrice,
             double highestHigh,
             double lowestLow,
@@ -397,9 +414,9 @@ public class LevelDrawer {
             return new java.util.ArrayList<>();
         }
 
-        boolean showLabels = settings.getBoolean(S_SHOW_LEVEL_LABELS, true);
-        int maxAbove = settings.getInteger(S_MAX_LEVELS_ABOVE);
-        int maxBelow = settings.getInteger(S_MAX_LEVELS_BELOW);
+        boolean showLabels = style.showLevelLabels();
+        int maxAbove = style.maxLevelsAbove();
+        int maxBelow = style.maxLevelsBelow();
 
         java.util.List<Figure> figs = new java.util.ArrayList<>();
 
@@ -407,9 +424,9 @@ public class LevelDrawer {
         int step = 1;
         double price = midpointPrice + eDistance;
         while (price <= highestHigh && step <= maxAbove) {
-            PathInfo path = getPathForLevel(settings, step);
+            PathInfo path = style.pathForLevel(step);
             if (path == null) {
-                path = settings.getPath(S_STRUCT_L1_PATH); // Fallback to a default path
+                path = style.structL1Path(); // Fallback to a default path
             }
             if (path != null) {
                 AdvancedLogger.info("LevelDrawer", "drawELevels", "Drawing E level ABOVE at price: %.6f (Step: %d)", price, step);
@@ -424,9 +441,9 @@ public class LevelDrawer {
         step = 1;
         price = midpointPrice - eDistance;
         while (price >= lowestLow && step <= maxBelow) {
-            PathInfo path = getPathForLevel(settings, step);
+            PathInfo path = style.pathForLevel(step);
             if (path == null) {
-                path = settings.getPath(S_STRUCT_L1_PATH); // Fallback to a default path
+                path = style.structL1Path(); // Fallback to a default path
             }
             if (path != null) {
                 AdvancedLogger.info("LevelDrawer", "drawELevels", "Drawing E level BELOW at price: %.6f (Step: %d)", price, step);
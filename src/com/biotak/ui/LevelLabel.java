@@ -16,7 +16,8 @@ public class LevelLabel extends Figure {
     private long time;
     private double price;
     private String text;
-    private final Font font = new Font("Arial", Font.BOLD, 11);
+    private static final Font FONT = new Font("Arial", Font.BOLD, 11);
+    private static final Color BACKGROUND = new Color(160, 160, 160, 180); // light gray translucent background
 
     public LevelLabel(long time, double price, String text) {
         this.time = time;
@@ -28,11 +29,11 @@ public class LevelLabel extends Figure {
     public void draw(Graphics2D gc, DrawContext ctx) {
         if (time == 0 || text == null) return;
         Point2D p = ctx.translate(new Coordinate(time, price));
-        gc.setFont(font);
+        gc.setFont(FONT);
         FontMetrics fm = gc.getFontMetrics();
         int textW = fm.stringWidth(text);
         int textH = fm.getAscent();
-        gc.setColor(new Color(160,160,160,180)); // light gray translucent background
+        gc.setColor(BACKGROUND);
         gc.fillRoundRect((int)p.getX()+4, (int)(p.getY()-textH/2-2), textW+6, textH+4, 8, 8);
         gc.setColor(Color.BLACK); // black text for better readability
         gc.drawString(text, (int)p.getX()+7, (int)(p.getY()+textH/2-2));
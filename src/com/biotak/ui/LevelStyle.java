@@ -0,0 +1,101 @@
+package com.biotak.ui;
+
+import com.motivewave.platform.sdk.common.PathInfo;
+import com.motivewave.platform.sdk.common.Settings;
+
+import static com.biotak.config.SettingsRepository.*;
+
+/**
+ * سبک خطوط سطوح - The line settings {@link LevelDrawer} needs, read once from the study settings.
+ * <p>
+ * Built on the study thread for each draw request so the level computation never touches
+ * {@link Settings} from the compute lane. Per-level lookups become field reads instead of
+ * several settings calls per drawn line. Immutable.
+ */
+public final class LevelStyle {
+
+    private static final int[] STRUCT_PERIODS = {128, 64, 32, 16, 4}; // L5 … L1
+
+    private final boolean showHighLine, showLowLine, showMidpoint;
+    private final PathInfo highPath, lowPath, triggerPath, ssPath, lsPath, structL1Path;
+    private final boolean showStructureLines, showTriggerLevels, showLevelLabels;
+    private final boolean[] showStruct = new boolean[STRUCT_PERIODS.length];
+    private final PathInfo[] structPaths = new PathInfo[STRUCT_PERIODS.length];
+    private final int maxLevelsAbove, maxLevelsBelow;
+
+    private LevelStyle(Settings settings) {
+        showHighLine = settings.getBoolean(S_SHOW_HIGH_LINE, true);
+        showLowLine = settings.getBoolean(S_SHOW_LOW_LINE, true);
+        showMidpoint = settings.getBoolean(S_SHOW_MIDPOINT, true);
+        highPath = settings.getPath(S_HIGH_LINE_PATH);
+        lowPath = settings.getPath(S_LOW_LINE_PATH);
+        triggerPath = settings.getPath(S_TRIGGER_PATH);
+        ssPath = settings.getPath(S_SS_LEVEL_PATH);
+        lsPath = settings.getPath(S_LS_LEVEL_PATH);
+        structL1Path = settings.getPath(S_STRUCT_L1_PATH);
+        showStructureLines = settings.getBoolean(S_SHOW_STRUCTURE_LINES);
+        showTriggerLevels = settings.getBoolean(S_SHOW_TRIGGER_LEVELS);
+        showLevelLabels = settings.getBoolean(S_SHOW_LEVEL_LABELS, true);
+        String[] showKeys = {S_SHOW_STRUCT_L5, S_SHOW_STRUCT_L4, S_SHOW_STRUCT_L3, S_SHOW_STRUCT_L2, S_SHOW_STRUCT_L1};
+        String[] pathKeys = {S_STRUCT_L5_PATH, S_STRUCT_L4_PATH, S_STRUCT_L3_PATH, S_STRUCT_L2_PATH, S_STRUCT_L1_PATH};
+        for (int i = 0; i < STRUCT_PERIODS.length; i++) {
+            showStruct[i] = settings.getBoolean(showKeys[i]);
+            structPaths[i] = settings.getPath(pathKeys[i]);
+        }
+        maxLevelsAbove = settings.getInteger(S_MAX_LEVELS_ABOVE);
+        maxLevelsBelow = settings.getInteger(S_MAX_LEVELS_BELOW);
+    }
+
+    /** Reads the style from {@code settings}; call on the study thread. */
+    public static LevelStyle from(Settings settings) {
+        return new LevelStyle(settings);
+    }
+
+    public boolean showHighLine() { return showHighLine; }
+    public boolean showLowLine() { return showLowLine; }
+    public boolean showMidpoint() { return showMidpoint; }
+    public boolean showTriggerLevels() { return showTriggerLevels; }
+    public boolean showLevelLabels() { return showLevelLabels; }
+    public PathInfo highPath() { return highPath; }
+    public PathInfo lowPath() { return lowPath; }
+    public PathInfo triggerPath() { return triggerPath; }
+    public PathInfo ssPath() { return ssPath; }
+    public PathInfo lsPath() { return lsPath; }
+    public PathInfo structL1Path() { return structL1Path; }
+
+    /**
+     * Configured level count above the anchor, capped by {@link com.biotak.util.HeapGovernor#levelCap()} under memory pressure.
+     */
+    public int maxLevelsAbove() {
+        return Math.min(maxLevelsAbove, com.biotak.util.HeapGovernor.levelCap());
+    }
+
+    /** Same as {@link #maxLevelsAbove()} for the levels below the anchor. */
+    public int maxLevelsBelow() {
+        return Math.min(maxLevelsBelow, com.biotak.util.HeapGovernor.levelCap());
+    }
+
+    /** Same switches, paths and level counts as {@code o}. */
+    public boolean sameAs(LevelStyle o) {
+        return this == o || (showHighLine == o.showHighLine && showLowLine == o.showLowLine && showMidpoint == o.showMidpoint
+                && showStructureLines == o.showStructureLines && showTriggerLevels == o.showTriggerLevels
+                && showLevelLabels == o.showLevelLabels && maxLevelsAbove == o.maxLevelsAbove
+                && maxLevelsBelow == o.maxLevelsBelow && java.util.Arrays.equals(showStruct, o.showStruct)
+                && java.util.Objects.equals(highPath, o.highPath) && java.util.Objects.equals(lowPath, o.lowPath)
+                && java.util.Objects.equals(triggerPath, o.triggerPath) && java.util.Objects.equals(ssPath, o.ssPath)
+                && java.util.Objects.equals(lsPath, o.lsPath) && java.util.Arrays.equals(structPaths, o.structPaths));
+    }
+
+    /**
+     * Path for the level {@code stepCount} steps from the anchor: the highest enabled structure
+     * level it falls on, else the trigger path, else {@code null} (not drawn).
+     */
+    public PathInfo pathForLevel(int stepCount) {
+        if (showStructureLines) {
+            for (int i = 0; i < STRUCT_PERIODS.length; i++) {
+                if (stepCount % STRUCT_PERIODS[i] == 0 && showStruct[i]) return structPaths[i];
+            }
+        }
+        return showTriggerLevels ? triggerPath : null;
+    }
+}
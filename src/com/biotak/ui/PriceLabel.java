@@ -17,7 +17,9 @@ public class PriceLabel extends Figure {
     private long time;
     private double price;
     private String text;
-    private final Font font = new Font("Arial", Font.BOLD, 14);
+    private static final Font FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Color BACKGROUND = new Color(160, 160, 160, 200); // light gray translucent background
+    private static final Color BORDER = new Color(100, 100, 100); // dark gray border
 
     public void setData(long time, double price, String text) {
         this.time = time;
@@ -29,7 +31,7 @@ public class PriceLabel extends Figure {
     public void draw(Graphics2D gc, DrawContext ctx) {
         if (time == 0 || text == null) return;
         Point2D p = ctx.translate(new Coordinate(time, price));
-        gc.setFont(font);
+        gc.setFont(FONT);
         FontMetrics fm = gc.getFontMetrics();
         int textW = fm.stringWidth(text);
         int textH = fm.getAscent();
@@ -37,9 +39,9 @@ public class PriceLabel extends Figure {
         Rectangle gb = ctx.getBounds();
         int x = (int) (gb.getX() + gb.getWidth()/2 - textW/2); // center of chart
         int y = (int) (p.getY() - textH/2); // exactly on the line
-        gc.setColor(new Color(160, 160, 160, 200)); // light gray translucent background
+        gc.setColor(BACKGROUND);
         gc.fillRoundRect(x - padding, y - textH, textW + 2 * padding, textH + padding, 10, 10);
-        gc.setColor(new Color(100, 100, 100)); // dark gray border
+        gc.setColor(BORDER);
         gc.drawRoundRect(x - padding, y - textH, textW + 2 * padding, textH + padding, 10, 10);
         gc.setColor(Color.BLACK); // black text for better readability
         gc.drawString(text, x, y);
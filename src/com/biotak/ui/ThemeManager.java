@@ -118,10 +118,15 @@ public class ThemeManager {
      * Gets the current theme based on configuration and context
      */
     public static ColorTheme getCurrentTheme(DrawContext ctx, int transparency) {
-        String themePreference = BiotakConfig.getInstance().getString("ui.theme", "auto");
-        
+        return getCurrentTheme(ctx, transparency, BiotakConfig.getInstance().snapshot().uiTheme());
+    }
+    
+    /**
+     * Gets the theme for an explicit preference ("auto", "light", "dark"), e.g. from study settings
+     */
+    public static ColorTheme getCurrentTheme(DrawContext ctx, int transparency, String themePreference) {
         // Debug logging
-        boolean debug = BiotakConfig.getInstance().getBoolean("ui.show.debug", false);
+        boolean debug = BiotakConfig.getInstance().snapshot().showDebug();
         if (debug) {
             System.out.println("[ThemeManager] Theme preference: " + themePreference + ", Transparency: " + transparency);
         }
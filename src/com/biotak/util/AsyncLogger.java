@@ -13,35 +13,18 @@ import com.biotak.debug.AdvancedLogger;
 public class AsyncLogger {
     
     private static final BlockingQueue<LogEntry> logQueue = new LinkedBlockingQueue<>(10000);
-    private static final ExecutorService loggerExecutor = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "AsyncLogger");
-        t.setDaemon(true);
-        t.setPriority(Thread.MIN_PRIORITY);
-        return t;
-    });
     
     // Ring buffer for high-frequency logging
     private static final RingBuffer<String> recentLogs = new RingBuffer<>(1000);
     
     private static volatile boolean shutdown = false;
+    private static volatile boolean retainRecent = true;
     private static long droppedMessages = 0;
     
     static {
-        // Start async processing thread
-        loggerExecutor.submit(AsyncLogger::processLogEntries);
-        
-        // Shutdown hook
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            shutdown();
-            try {
-                if (!loggerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    loggerExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                loggerExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }));
+        // Start async processing thread (blocks on the queue, so a virtual thread is enough)
+        BiotakExecutors.io().submit(AsyncLogger::processLogEntries);
+        BiotakExecutors.onShutdown(AsyncLogger::shutdown);
     }
     
     /**
@@ -78,6 +61,11 @@ public class AsyncLogger {
             head = (head + 1) % capacity;
         }
         
+        synchronized void clear() {
+            java.util.Arrays.fill(buffer, null);
+            head = 0;
+        }
+        
         synchronized T[] getRecent(int count) {
             count = Math.min(count, capacity);
             @SuppressWarnings("unchecked")
@@ -102,7 +90,7 @@ public class AsyncLogger {
         if (!logQueue.offer(entry)) {
             droppedMessages++;
             // Store in ring buffer as fallback
-            recentLogs.add(message);
+            if (retainRecent) recentLogs.add(message);
             
             // Log drop warning occasionally
             if (droppedMessages % 1000 == 0) {
@@ -140,7 +128,7 @@ public class AsyncLogger {
         } catch (IOException e) {
             System.err.println("Failed to write async log to " + filename + ": " + e.getMessage());
             // Store failed message in ring buffer
-            recentLogs.add(message);
+            if (retainRecent) recentLogs.add(message);
         }
     }
     
@@ -169,6 +157,14 @@ public class AsyncLogger {
         return recentLogs.getRecent(count);
     }
     
+    /**
+     * Turns the recent-log ring on or off; turning it off also empties it (used under memory pressure)
+     */
+    public static void setRecentLogsRetained(boolean retained) {
+        retainRecent = retained;
+        if (!retained) recentLogs.clear();
+    }
+    
     /**
      * Get statistics
      */
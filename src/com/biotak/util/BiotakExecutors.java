@@ -0,0 +1,398 @@
+package com.biotak.util;
+
+import com.biotak.config.BiotakConfig;
+import com.biotak.config.ConfigSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * مدیریت متمرکز رشته‌های پس‌زمینه - The one place background threads are created.
+ * <ul>
+ *   <li>{@link #scheduled()} - periodic maintenance (cache cleanup), {@code executor.scheduled.threads}</li>
+ *   <li>{@link #compute()} - bounded CPU pool, {@code thread.pool.size}</li>
+ *   <li>{@link #io()} - virtual thread per task for blocking work (log writing, warm-up joins)</li>
+ *   <li>{@link #lane()} - per-owner coalescing lane on the compute pool (level computation): one task runs at a time and only the newest waiting one is kept</li>
+ * </ul>
+ * Thread counts follow live configuration changes. Every pool reports {@link PoolMetrics}. One shutdown hook runs the registered
+ * {@link #onShutdown} tasks (flushes and closes) first, then stops the pools in order.
+ * <p>
+ * Studies hold the pools with {@link #retainStudy()}/{@link #releaseStudy()}. When the last study is destroyed the
+ * maintenance and compute pools are stopped; the next use creates them again and re-installs the {@link #maintain} tasks.
+ */
+public final class BiotakExecutors {
+
+    /**
+     * Point-in-time pool statistics.
+     */
+    public record PoolMetrics(String name, int queueDepth, int active, long completed) {
+        @Override
+        public String toString() {
+            return name + " q=" + queueDepth + " a=" + active + " done=" + completed;
+        }
+    }
+
+    private static final long SHUTDOWN_WAIT_MS = 5000;
+
+    /**
+     * Handle returned by {@link #onShutdown} and {@link #maintain}; {@link #cancel()} unregisters the task.
+     */
+    @FunctionalInterface
+    public interface Registration {
+        void cancel();
+    }
+
+    private static final List<Runnable> SHUTDOWN_TASKS = new CopyOnWriteArrayList<>();
+    private static final List<Periodic> MAINTENANCE = new CopyOnWriteArrayList<>();
+    private static final AtomicBoolean SHUT_DOWN = new AtomicBoolean();
+    private static final AtomicBoolean FOLLOWING_CONFIG = new AtomicBoolean();
+
+    private static volatile ScheduledThreadPoolExecutor scheduled;
+    private static volatile ThreadPoolExecutor compute;
+    private static volatile CountingExecutor io;
+    private static int studies; // guarded by BiotakExecutors.class
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(BiotakExecutors::shutdown, "Biotak-Shutdown"));
+    }
+
+    /**
+     * Applies thread counts from a new configuration to the pools already created.
+     */
+    private static void resize(ConfigSnapshot config) {
+        ThreadPoolExecutor c = compute;
+        if (c != null && c.getMaximumPoolSize() != config.threadPoolSize()) {
+            int size = config.threadPoolSize();
+            // Order matters: core may never exceed max
+            if (size > c.getMaximumPoolSize()) {
+                c.setMaximumPoolSize(size);
+                c.setCorePoolSize(size);
+            } else {
+                c.setCorePoolSize(size);
+                c.setMaximumPoolSize(size);
+            }
+        }
+        ScheduledThreadPoolExecutor s = scheduled;
+        if (s != null && s.getCorePoolSize() != config.scheduledThreads()) {
+            s.setCorePoolSize(config.scheduledThreads());
+        }
+    }
+
+    private static void followConfig() {
+        if (!FOLLOWING_CONFIG.compareAndSet(false, true)) return;
+        BiotakConfig.getInstance().subscribe(BiotakExecutors::resize);
+    }
+
+    private BiotakExecutors() {}
+
+    private static ThreadFactory daemonFactory(String prefix, int priority, boolean numbered) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, numbered ? prefix + "-" + n.incrementAndGet() : prefix);
+            t.setDaemon(true);
+            t.setPriority(priority);
+            return t;
+        };
+    }
+
+    /**
+     * Maintenance scheduler for periodic low-priority work.
+     */
+    public static ScheduledExecutorService scheduled() {
+        ScheduledThreadPoolExecutor s = scheduled;
+        if (s != null) return s;
+        synchronized (BiotakExecutors.class) {
+            if (scheduled == null) {
+                followConfig();
+                int threads = BiotakConfig.getInstance().snapshot().scheduledThreads();
+                ScheduledThreadPoolExecutor ex = new ScheduledThreadPoolExecutor(threads,
+                    daemonFactory("Biotak-Maintenance", Thread.MIN_PRIORITY, true));
+                ex.setRemoveOnCancelPolicy(true);
+                ex.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+                for (Periodic p : MAINTENANCE) p.start(ex);
+                scheduled = ex;
+            }
+            return scheduled;
+        }
+    }
+
+    /**
+     * Bounded pool for CPU work, sized by {@code thread.pool.size}. Idle threads time out.
+     */
+    public static ExecutorService compute() {
+        ThreadPoolExecutor c = compute;
+        if (c != null) return c;
+        synchronized (BiotakExecutors.class) {
+            if (compute == null) {
+                followConfig();
+                int size = BiotakConfig.getInstance().snapshot().threadPoolSize();
+                ThreadPoolExecutor ex = new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), daemonFactory("Biotak-Compute", Thread.NORM_PRIORITY - 1, true));
+                ex.allowCoreThreadTimeOut(true);
+                compute = ex;
+            }
+            return compute;
+        }
+    }
+
+    /**
+     * Virtual thread per task, for work that mostly blocks.
+     */
+    public static ExecutorService io() {
+        CountingExecutor i = io;
+        if (i != null) return i;
+        synchronized (BiotakExecutors.class) {
+            if (io == null) {
+                io = new CountingExecutor(Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("Biotak-IO-", 1).factory()));
+            }
+            return io;
+        }
+    }
+
+    /**
+     * New coalescing lane on the {@link #compute()} pool. Each owner (one study) gets its own lane,
+     * so a busy chart holds at most one pool thread and cannot starve the others.
+     */
+    public static Lane lane() {
+        return new Lane(BiotakExecutors::compute);
+    }
+
+    /**
+     * Registers a task for the shutdown hook; tasks run in registration order while the pools are still up.
+     * Owners that go away before the JVM (a recorder, a feed) cancel the returned handle when they close.
+     */
+    public static Registration onShutdown(Runnable task) {
+        SHUTDOWN_TASKS.add(task);
+        return () -> SHUTDOWN_TASKS.remove(task);
+    }
+
+    /**
+     * Runs {@code task} on the maintenance scheduler every {@code periodSeconds}, first after one period.
+     * The task survives the pools being stopped and re-created; cancel the handle to stop it.
+     */
+    public static Registration maintain(Runnable task, long periodSeconds) {
+        Periodic p = new Periodic(task, periodSeconds);
+        synchronized (BiotakExecutors.class) {
+            ScheduledExecutorService s = scheduled();
+            MAINTENANCE.add(p);
+            p.start(s);
+        }
+        return () -> {
+            synchronized (BiotakExecutors.class) {
+                MAINTENANCE.remove(p);
+                p.stop();
+            }
+        };
+    }
+
+    /**
+     * Counts a study using the pools; pair with {@link #releaseStudy()} in its {@code destroy}.
+     */
+    public static synchronized void retainStudy() {
+        studies++;
+    }
+
+    /**
+     * Drops a study's hold. The last release stops the maintenance and compute pools; the I/O executor
+     * keeps its long-lived loops (log writer, config watcher) and the shutdown tasks stay registered.
+     */
+    public static void releaseStudy() {
+        List<ExecutorService> stopped = new ArrayList<>(2);
+        synchronized (BiotakExecutors.class) {
+            if (studies == 0 || --studies > 0 || SHUT_DOWN.get()) return;
+            if (scheduled != null) stopped.add(scheduled);
+            if (compute != null) stopped.add(compute);
+            scheduled = null;
+            compute = null;
+        }
+        for (ExecutorService ex : stopped) ex.shutdown();
+    }
+
+    /**
+     * Statistics for every pool created so far.
+     */
+    public static List<PoolMetrics> metrics() {
+        List<PoolMetrics> out = new ArrayList<>(3);
+        if (scheduled != null) out.add(metrics("maintenance", scheduled));
+        if (compute != null) out.add(metrics("compute", compute));
+        if (io != null) out.add(new PoolMetrics("io", 0, (int) io.active.get(), io.completed.get()));
+        return out;
+    }
+
+    private static PoolMetrics metrics(String name, ThreadPoolExecutor ex) {
+        return new PoolMetrics(name, ex.getQueue().size(), ex.getActiveCount(), ex.getCompletedTaskCount());
+    }
+
+    /**
+     * One line per pool for the InfoPanel debug rows.
+     */
+    public static List<String> debugLines() {
+        List<String> lines = new ArrayList<>();
+        for (PoolMetrics m : metrics()) lines.add(m.toString());
+        return lines;
+    }
+
+    /**
+     * Runs the shutdown tasks, then stops maintenance, compute and I/O pools in that order.
+     * Idempotent; also run by the JVM shutdown hook.
+     */
+    public static void shutdown() {
+        if (!SHUT_DOWN.compareAndSet(false, true)) return;
+        for (Runnable task : SHUTDOWN_TASKS) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("BiotakExecutors: shutdown task failed: " + e);
+            }
+        }
+        List<ExecutorService> order = new ArrayList<>();
+        if (scheduled != null) order.add(scheduled);
+        if (compute != null) order.add(compute);
+        if (io != null) order.add(io);
+        for (ExecutorService ex : order) ex.shutdown();
+        long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT_MS;
+        for (ExecutorService ex : order) {
+            try {
+                if (!ex.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                    ex.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                ex.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static boolean isShutdown() {
+        return SHUT_DOWN.get();
+    }
+
+    /**
+     * صف «آخرین برنده» - Serial, latest-wins lane over a shared executor.
+     * <p>
+     * At most one task of the lane runs at a time. {@link #submit} replaces a task that has not
+     * started yet; a running task is never interrupted and finishes before the newest one starts.
+     */
+    public static final class Lane {
+        private final Supplier<? extends Executor> executor; // resolved per drain, so a re-created pool is picked up
+        private final AtomicReference<Runnable> next = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Lane(Supplier<? extends Executor> executor) {
+            this.executor = executor;
+        }
+
+        /** Queues {@code task}, dropping the one still waiting. */
+        public void submit(Runnable task) {
+            next.set(task);
+            schedule();
+        }
+
+        /** Drops the waiting task, if any; a running one completes. */
+        public void clear() {
+            next.set(null);
+        }
+
+        private void schedule() {
+            if (next.get() != null && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.get().execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false); // pool shut down; nothing more will run
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Runnable task;
+                while ((task = next.getAndSet(null)) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("BiotakExecutors: lane task failed: " + e);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                schedule(); // a task submitted between the last poll and the reset
+            }
+        }
+    }
+
+    /**
+     * A {@link #maintain} task and its current schedule; guarded by BiotakExecutors.class.
+     */
+    private static final class Periodic {
+        private final Runnable task;
+        private final long periodSeconds;
+        private ScheduledFuture<?> future;
+
+        Periodic(Runnable task, long periodSeconds) {
+            this.task = task;
+            this.periodSeconds = periodSeconds;
+        }
+
+        void start(ScheduledExecutorService s) {
+            future = s.scheduleWithFixedDelay(task, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+
+        void stop() {
+            if (future != null) future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Delegating executor that counts running and finished tasks (virtual-thread executors expose neither).
+     */
+    private static final class CountingExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        final AtomicLong active = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+
+        CountingExecutor(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        }
+
+        @Override public void shutdown() { delegate.shutdown(); }
+        @Override public List<Runnable> shutdownNow() { return delegate.shutdownNow(); }
+        @Override public boolean isShutdown() { return delegate.isShutdown(); }
+        @Override public boolean isTerminated() { return delegate.isTerminated(); }
+        @Override public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
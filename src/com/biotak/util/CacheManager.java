@@ -12,35 +12,13 @@ public final class CacheManager {
     private static final Map<String, Map<String, Object>> caches = new ConcurrentHashMap<>();
     private static final Map<String, Map<String, Long>> cacheTimestamps = new ConcurrentHashMap<>();
     private static final long DEFAULT_EXPIRY_MS = 60000; // 1 minute
-    private static final int MAX_CACHE_SIZE = 1000; // افزایش برای hit ratio بهتر
-    
-    // Cleanup scheduler برای پاکسازی خودکار
-    private static final java.util.concurrent.ScheduledExecutorService cleanupExecutor = 
-        java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "CacheCleanup");
-            t.setDaemon(true);
-            t.setPriority(Thread.MIN_PRIORITY); // کم‌ترین اولویت
-            return t;
-        });
+    // cache.size from biotak.properties; follows live changes
+    private static volatile int maxCacheSize = com.biotak.config.BiotakConfig.getInstance().snapshot().cacheSize();
     
     static {
+        com.biotak.config.BiotakConfig.getInstance().subscribe(c -> maxCacheSize = c.cacheSize());
         // پاکسازی خودکار هر 90 ثانیه (بهینه‌تر)
-        cleanupExecutor.scheduleAtFixedRate(
-            CacheManager::cleanupAll, 90, 90, java.util.concurrent.TimeUnit.SECONDS);
-        
-        // Add shutdown hook to prevent memory leak
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            AdvancedLogger.info("CacheManager", "shutdown", "Shutting down cache cleanup executor");
-            cleanupExecutor.shutdown();
-            try {
-                if (!cleanupExecutor.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
-                    cleanupExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                cleanupExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }));
+        BiotakExecutors.maintain(CacheManager::cleanupAll, 90);
     }
     
     private CacheManager() {}
@@ -78,7 +56,7 @@ public final class CacheManager {
         timestamps.put(key, System.currentTimeMillis() + expiryMs);
         
         // Clean up if cache is getting too large
-        if (cache.size() > MAX_CACHE_SIZE) {
+        if (cache.size() > maxCacheSize) {
             cleanup(cacheName);
         }
     }
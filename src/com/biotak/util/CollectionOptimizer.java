@@ -80,8 +80,8 @@ public class CollectionOptimizer {
         if (strings.isEmpty()) return "";
         if (strings.size() == 1) return strings.iterator().next();
         
-        StringBuilder sb = PoolManager.getStringBuilder();
-        try {
+        try (ScratchArena arena = ScratchArena.open()) {
+            StringBuilder sb = arena.builder();
             boolean first = true;
             for (String str : strings) {
                 if (!first) {
@@ -91,8 +91,6 @@ public class CollectionOptimizer {
                 first = false;
             }
             return sb.toString();
-        } finally {
-            PoolManager.releaseStringBuilder(sb);
         }
     }
     
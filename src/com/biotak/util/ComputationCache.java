@@ -91,6 +91,18 @@ public final class ComputationCache {
         percentageCache.clear();
         atrPeriodCache.clear();
         pipMultiplierCache.clear();
+        // Contexts stay registered: charts still hold references to them
+        InstrumentContext.trimAll();
+    }
+    
+    /**
+     * Frees cached values under memory pressure without dropping the per-symbol contexts
+     */
+    public static void trim() {
+        percentageCache.clear();
+        atrPeriodCache.clear();
+        pipMultiplierCache.clear();
+        InstrumentContext.trimAll();
     }
     
     /**
@@ -0,0 +1,208 @@
+package com.biotak.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * قالب‌بندی سریع اعداد اعشاری - Fixed-point number formatting without Formatter or DecimalFormat.
+ * <p>
+ * Writes a double with a fixed number of decimals straight into a caller's
+ * {@link StringBuilder} or {@code char[]}, rounding half-up, always with '.' as the
+ * separator and never printing "-0". The {@code append*} and {@link #writeFixed} paths
+ * allocate nothing. {@link #fixed} and {@link #trimmed} return a String from a small
+ * per-thread cache keyed by the exact value, so a label repainted with an unchanged
+ * value reuses the same String.
+ * <p>
+ * Values that do not fit a long after scaling, and more than {@value #MAX_DECIMALS}
+ * decimals, fall back to {@link BigDecimal}.
+ */
+public final class FastFormat {
+
+    public static final int MAX_DECIMALS = 9;
+
+    private static final long[] POW10 = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    private static final double MAX_SCALED = 9.0e18;
+
+    private static final int CACHE_SLOTS = 256; // power of two
+
+    /** Direct-mapped cache of recent results; one per thread, so no locking. */
+    private static final class Cache {
+        final long[] bits = new long[CACHE_SLOTS];
+        final int[] modes = new int[CACHE_SLOTS]; // 0 = empty, +(d+1) fixed, -(d+1) trimmed
+        final String[] text = new String[CACHE_SLOTS];
+        final StringBuilder sb = new StringBuilder(32);
+    }
+
+    private static final ThreadLocal<Cache> CACHE = ThreadLocal.withInitial(Cache::new);
+
+    private FastFormat() {}
+
+    /**
+     * Appends {@code value} with exactly {@code decimals} digits after the point.
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, double value, int decimals) {
+        if (decimals < 0) decimals = 0;
+        if (Double.isNaN(value) || Double.isInfinite(value)) return sb.append(value);
+        double abs = Math.abs(value);
+        if (decimals > MAX_DECIMALS || abs * POW10[Math.min(decimals, MAX_DECIMALS)] >= MAX_SCALED) {
+            return sb.append(BigDecimal.valueOf(value).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
+        }
+        long unit = POW10[decimals];
+        long scaled = Math.round(abs * unit);
+        if (value < 0 && scaled != 0) sb.append('-');
+        sb.append(scaled / unit);
+        if (decimals > 0) {
+            sb.append('.');
+            long frac = scaled % unit;
+            for (long div = unit / 10; div > 0; div /= 10) {
+                sb.append((char) ('0' + (frac / div) % 10));
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Appends {@code value} with up to {@code maxDecimals} digits, dropping trailing zeros
+     * and a bare point, like DecimalFormat {@code "#.##"}.
+     */
+    public static StringBuilder appendTrimmed(StringBuilder sb, double value, int maxDecimals) {
+        int start = sb.length();
+        appendFixed(sb, value, maxDecimals);
+        if (maxDecimals <= 0 || Double.isNaN(value) || Double.isInfinite(value)) return sb;
+        int end = sb.length();
+        int dot = -1;
+        for (int i = end - 1; i >= start; i--) {
+            if (sb.charAt(i) == '.') { dot = i; break; }
+        }
+        if (dot < 0) return sb;
+        while (end > dot + 1 && sb.charAt(end - 1) == '0') end--;
+        if (end == dot + 1) end = dot;
+        sb.setLength(end);
+        return sb;
+    }
+
+    /**
+     * Appends {@code value} right-aligned in a field of {@code width} characters.
+     */
+    public static StringBuilder appendPadded(StringBuilder sb, double value, int decimals, int width) {
+        int start = sb.length();
+        appendFixed(sb, value, decimals);
+        return padLeft(sb, start, width);
+    }
+
+    /**
+     * Appends {@code value} right-aligned in a field of {@code width} characters.
+     */
+    public static StringBuilder appendPadded(StringBuilder sb, long value, int width) {
+        int start = sb.length();
+        sb.append(value);
+        return padLeft(sb, start, width);
+    }
+
+    /**
+     * Appends {@code text} left-aligned in a field of {@code width} characters.
+     */
+    public static StringBuilder appendPadded(StringBuilder sb, String text, int width) {
+        int start = sb.length();
+        sb.append(text);
+        for (int n = sb.length() - start; n < width; n++) sb.append(' ');
+        return sb;
+    }
+
+    private static StringBuilder padLeft(StringBuilder sb, int start, int width) {
+        int pad = width - (sb.length() - start);
+        for (int i = 0; i < pad; i++) sb.insert(start, ' ');
+        return sb;
+    }
+
+    /**
+     * Writes {@code value} with {@code decimals} digits into {@code buf} at {@code off}
+     * and returns the offset after the last character. The buffer needs room for
+     * 20 integer digits, the sign, the point and the decimals.
+     */
+    public static int writeFixed(char[] buf, int off, double value, int decimals) {
+        if (decimals < 0) decimals = 0;
+        double abs = Math.abs(value);
+        if (Double.isNaN(value) || Double.isInfinite(value) || decimals > MAX_DECIMALS
+                || abs * POW10[Math.min(decimals, MAX_DECIMALS)] >= MAX_SCALED) {
+            String s = appendFixed(new StringBuilder(32), value, decimals).toString();
+            s.getChars(0, s.length(), buf, off);
+            return off + s.length();
+        }
+        long unit = POW10[decimals];
+        long scaled = Math.round(abs * unit);
+        if (value < 0 && scaled != 0) buf[off++] = '-';
+        long intPart = scaled / unit;
+        int digits = 1;
+        for (long t = intPart; t >= 10; t /= 10) digits++;
+        int end = off + digits + (decimals > 0 ? decimals + 1 : 0);
+        int pos = end;
+        long frac = scaled % unit;
+        for (int i = 0; i < decimals; i++) {
+            buf[--pos] = (char) ('0' + frac % 10);
+            frac /= 10;
+        }
+        if (decimals > 0) buf[--pos] = '.';
+        do {
+            buf[--pos] = (char) ('0' + intPart % 10);
+            intPart /= 10;
+        } while (intPart > 0);
+        return end;
+    }
+
+    /**
+     * {@code value} with exactly {@code decimals} digits, from the per-thread cache when possible.
+     */
+    public static String fixed(double value, int decimals) {
+        return cached(value, decimals, false);
+    }
+
+    /**
+     * {@code value} with up to {@code maxDecimals} digits and no trailing zeros, from the per-thread cache.
+     */
+    public static String trimmed(double value, int maxDecimals) {
+        return cached(value, maxDecimals, true);
+    }
+
+    /**
+     * Price text using the tick decimals of {@code profile}, taken from the caller's held context.
+     */
+    public static String price(InstrumentProfile profile, double price) {
+        return fixed(price, profile.priceDecimals());
+    }
+
+    /**
+     * Number of decimals needed to show a multiple of {@code tickSize} exactly (capped at {@value #MAX_DECIMALS}).
+     */
+    public static int tickDecimals(double tickSize) {
+        if (!(tickSize > 0) || Double.isInfinite(tickSize)) return 2;
+        for (int d = 0; d < MAX_DECIMALS; d++) {
+            double scaled = tickSize * POW10[d];
+            if (Math.abs(scaled - Math.rint(scaled)) < 1e-7 * Math.max(1.0, scaled)) return d;
+        }
+        return MAX_DECIMALS;
+    }
+
+    private static String cached(double value, int decimals, boolean trim) {
+        if (decimals < 0) decimals = 0;
+        int mode = trim ? -(decimals + 1) : decimals + 1;
+        long bits = Double.doubleToRawLongBits(value);
+        long h = (bits ^ (bits >>> 29) ^ ((long) mode * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+        int slot = (int) (h >>> 56) & (CACHE_SLOTS - 1);
+
+        Cache c = CACHE.get();
+        if (c.modes[slot] == mode && c.bits[slot] == bits) return c.text[slot];
+
+        StringBuilder sb = c.sb;
+        sb.setLength(0);
+        if (trim) appendTrimmed(sb, value, decimals);
+        else appendFixed(sb, value, decimals);
+        String s = sb.toString();
+        c.bits[slot] = bits;
+        c.modes[slot] = mode;
+        c.text[slot] = s;
+        return s;
+    }
+}
@@ -0,0 +1,132 @@
+package com.biotak.util;
+
+import com.motivewave.platform.sdk.common.BarSize;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * نردبان فراکتالی تایم‌فریم - Precomputed fractal ladder around one chart timeframe.
+ * <p>
+ * Level {@code k} is the chart length × 4<sup>k</sup>: −1 is the pattern, −2 the trigger, +1
+ * the higher pattern and +2 the structure timeframe. Lengths below one minute stay in seconds,
+ * longer ones are whole minutes. Every level from −{@link #MAX_DEPTH} to +{@link #MAX_DEPTH} is
+ * resolved once per bar size (length, label, and the TH percentage and ATR period interned in
+ * {@link TimeframeRegistry}), so navigating N levels up or down is an array read and no
+ * {@link BarSize} is constructed afterwards. Lower levels stop shrinking at one second. Instances are immutable and shared.
+ * <p>
+ * On the standard chart timeframes (M1 to MN) the pattern and trigger levels keep the labels
+ * and ATR periods of the old fixed timeframe tables (e.g. D1 → H1 and M15) rather than those
+ * of the chart length ÷ 4 and ÷ 16; their lengths and percentages still follow the ladder.
+ */
+public final class FractalHierarchy {
+
+    /** Levels precomputed on each side of the chart timeframe. */
+    public static final int MAX_DEPTH = 6;
+
+    private static final int MAX_CACHED = 256;
+    private static final Map<String, FractalHierarchy> BY_BAR_SIZE = new ConcurrentHashMap<>();
+    private static final Map<Integer, FractalHierarchy> BY_MINUTES = new ConcurrentHashMap<>();
+
+    private final long[] seconds = new long[2 * MAX_DEPTH + 1];
+    private final String[] labels = new String[2 * MAX_DEPTH + 1];
+    private final double[] percentage = new double[2 * MAX_DEPTH + 1];
+    private final int[] atrPeriod = new int[2 * MAX_DEPTH + 1];
+
+    // Pattern and trigger label and ATR period per standard chart timeframe; period 0 is the chart's own
+    private record Fixed(String label, int atrPeriod) {}
+    private static final Map<String, Fixed[]> STANDARD_LOWER = Map.of(
+        "MN",  new Fixed[] { new Fixed("D1", 22), new Fixed("H4", 30) },
+        "W1",  new Fixed[] { new Fixed("H4", 30), new Fixed("H1", 24) },
+        "D1",  new Fixed[] { new Fixed("H1", 24), new Fixed("M15", 24) },
+        "H4",  new Fixed[] { new Fixed("H1", 24), new Fixed("M15", 24) },
+        "H1",  new Fixed[] { new Fixed("M15", 24), new Fixed("M5", 24) },
+        "M30", new Fixed[] { new Fixed("M5", 24), new Fixed("M1", 24) },
+        "M15", new Fixed[] { new Fixed("M4", 24), new Fixed("M1", 24) },
+        "M5",  new Fixed[] { new Fixed("M1", 24), new Fixed("M1", 24) },
+        "M1",  new Fixed[] { new Fixed("S15", 0), new Fixed("S4", 0) });
+
+    private FractalHierarchy(BarSize barSize) {
+        long base = Math.max(1, TimeframeUtil.getTotalSeconds(barSize));
+        for (int k = -MAX_DEPTH; k <= MAX_DEPTH; k++) {
+            long factor = 1L << (2 * Math.abs(k));
+            long s = k < 0 ? Math.max(1, base / factor) : base * factor;
+            if (s >= 60) s -= s % 60;
+            int i = k + MAX_DEPTH;
+            seconds[i] = s;
+            labels[i] = TimeframeUtil.formatSeconds(s);
+            int id = TimeframeRegistry.internSeconds(s);
+            if (id != TimeframeRegistry.UNKNOWN) {
+                percentage[i] = TimeframeRegistry.percentage(id);
+                atrPeriod[i] = TimeframeRegistry.atrPeriod(id);
+            } else {
+                percentage[i] = TimeframeUtil.getTimeframePercentageFromSeconds(s);
+                atrPeriod[i] = TimeframeUtil.getAtrPeriodFromMinutes(s < 60 ? (int) -s : (int) Math.min(Integer.MAX_VALUE, s / 60));
+            }
+            if (k == 0) percentage[i] = TimeframeUtil.getTimeframePercentage(barSize);
+        }
+        Fixed[] fixed = STANDARD_LOWER.get(TimeframeUtil.getStandardTimeframeString(barSize));
+        if (fixed != null) {
+            for (int j = 0; j < fixed.length; j++) {
+                int i = MAX_DEPTH - 1 - j;
+                labels[i] = fixed[j].label();
+                atrPeriod[i] = fixed[j].atrPeriod() > 0 ? fixed[j].atrPeriod() : atrPeriod[MAX_DEPTH];
+            }
+        }
+    }
+
+    /** Hierarchy around {@code barSize}, built on first use. */
+    public static FractalHierarchy of(BarSize barSize) {
+        String key = barSize.toString();
+        FractalHierarchy h = BY_BAR_SIZE.get(key);
+        if (h != null) return h;
+        h = new FractalHierarchy(barSize);
+        if (BY_BAR_SIZE.size() >= MAX_CACHED) BY_BAR_SIZE.clear();
+        BY_BAR_SIZE.put(key, h);
+        return h;
+    }
+
+    /**
+     * Hierarchy around a minute timeframe, such as a ruler match; the bar size is only built
+     * on the first request for that length.
+     */
+    public static FractalHierarchy ofMinutes(int minutes) {
+        int m = Math.max(1, minutes);
+        FractalHierarchy h = BY_MINUTES.get(m);
+        if (h != null) return h;
+        h = of(BarSize.getBarSize(m));
+        if (BY_MINUTES.size() >= MAX_CACHED) BY_MINUTES.clear();
+        BY_MINUTES.put(m, h);
+        return h;
+    }
+
+    private static int slot(int level) {
+        if (level < -MAX_DEPTH || level > MAX_DEPTH) {
+            throw new IndexOutOfBoundsException("Fractal level " + level + " outside ±" + MAX_DEPTH);
+        }
+        return level + MAX_DEPTH;
+    }
+
+    /** Length of {@code level} in seconds. */
+    public long seconds(int level) {
+        return seconds[slot(level)];
+    }
+
+    /**
+     * Display label of {@code level}, as {@code FractalCalculator.formatTimeframeString} renders it;
+     * the fixed pattern and trigger labels of a standard timeframe keep their table form (H1, M15).
+     */
+    public String label(int level) {
+        return labels[slot(level)];
+    }
+
+    /** TH percentage of {@code level}. */
+    public double percentage(int level) {
+        return percentage[slot(level)];
+    }
+
+    /** ATR period of {@code level}, by the rules of {@link TimeframeUtil#getAtrPeriod} unless fixed for a standard timeframe. */
+    public int atrPeriod(int level) {
+        return atrPeriod[slot(level)];
+    }
+}
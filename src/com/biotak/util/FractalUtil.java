@@ -16,53 +16,73 @@ import java.util.Map;
  */
 public final class FractalUtil {
 
-    // Cache names for different types of calculations
-    private static final String TH_BUNDLE_CACHE = "th_bundle";
-    private static final long CACHE_EXPIRY_MS = 60000; // 1 minute
-
     private FractalUtil() {}
 
     /**
-     * Container for TH-مقادیر پنج سطح فراکتالی (Current, Pattern, Trigger, Structure, Higher-Pattern).
+     * TH-مقادیر سطوح فراکتالی - TH of every level of a {@link FractalHierarchy} within {@link #depth()}
+     * levels of the chart timeframe; level 0 is the current TH. The accessors of the former
+     * five-level bundle map to levels 0, −1, −2, +2 and +1.
      */
-    public record THBundle(double th, double pattern, double trigger,
-                           double structure, double higherPattern) {}
+    public static final class THBundle {
+        private final FractalHierarchy hierarchy;
+        private final int depth;
+        private final double[] th;
 
-    /**
-     * Calculates TH values for پنج سطح فراکتالی اطراف {@code barSize} با استفاده از قیمت پایه.
-     * Uses caching to improve performance for repeated calculations.
-     */
-    public static THBundle calculateTHBundle(Instrument instrument, BarSize barSize, double basePrice) {
-        // Create cache key
-        String cacheKey = instrument.getSymbol() + "_" + barSize.toString() + "_" + 
-                         String.format("%.5f", basePrice);
-        
-        // Check cache first
-        THBundle cached = CacheManager.get(TH_BUNDLE_CACHE, cacheKey);
-        if (cached != null) {
-            return cached;
+        private THBundle(FractalHierarchy hierarchy, int depth, double[] th) {
+            this.hierarchy = hierarchy;
+            this.depth = depth;
+            this.th = th;
         }
-        
-        // Calculate if not in cache or expired
-        double tick = instrument.getTickSize();
 
-        double th = calcTH(instrument, barSize, basePrice, tick);
-        BarSize patternSize   = TimeframeUtil.getPatternBarSize(barSize);
-        BarSize triggerSize   = TimeframeUtil.getTriggerBarSize(barSize);
-        BarSize structureSize = TimeframeUtil.getStructureBarSize(barSize);
-        BarSize higherPattern = TimeframeUtil.getPatternBarSize(structureSize);
+        /** Levels available on each side of the current timeframe (at least 2). */
+        public int depth() { return depth; }
 
-        double patternTH      = calcTH(instrument, patternSize,   basePrice, tick);
-        double triggerTH      = calcTH(instrument, triggerSize,   basePrice, tick);
-        double structureTH    = calcTH(instrument, structureSize, basePrice, tick);
-        double higherPatternTH= calcTH(instrument, higherPattern, basePrice, tick);
+        /** TH (price) of {@code level}, −{@link #depth()} … +{@link #depth()}. */
+        public double th(int level) {
+            if (level < -depth || level > depth) throw new IndexOutOfBoundsException("Fractal level " + level + " outside ±" + depth);
+            return th[level + depth];
+        }
 
-        THBundle result = new THBundle(th, patternTH, triggerTH, structureTH, higherPatternTH);
-        
-        // Cache the result
-        CacheManager.put(TH_BUNDLE_CACHE, cacheKey, result, CACHE_EXPIRY_MS);
-        
-        return result;
+        /** Timeframe label of {@code level}. */
+        public String label(int level) { return hierarchy.label(level); }
+
+        public FractalHierarchy hierarchy() { return hierarchy; }
+
+        public double th() { return th(0); }
+
+        public double pattern() { return th(-1); }
+
+        public double trigger() { return th(-2); }
+
+        public double structure() { return th(2); }
+
+        public double higherPattern() { return th(1); }
+    }
+
+    /** Hierarchy depth from {@code hierarchy.depth}, clamped to 2 … {@link FractalHierarchy#MAX_DEPTH}. */
+    public static int hierarchyDepth() {
+        return com.biotak.config.BiotakConfig.getInstance().snapshot().hierarchyDepth();
+    }
+
+    /**
+     * Calculates TH values for سطوح فراکتالی اطراف {@code barSize} با استفاده از قیمت پایه,
+     * {@link #hierarchyDepth()} levels up and down.
+     * Cached per symbol in its {@link InstrumentContext}, keyed by bar size, depth and base price.
+     */
+    public static THBundle calculateTHBundle(Instrument instrument, BarSize barSize, double basePrice) {
+        int depth = hierarchyDepth();
+        String cacheKey = barSize.toString() + "_" + depth + "_" + Math.round(basePrice * 100000);
+        return InstrumentContext.of(instrument).thBundle(cacheKey, () -> computeTHBundle(instrument, barSize, basePrice, depth));
+    }
+
+    private static THBundle computeTHBundle(Instrument instrument, BarSize barSize, double basePrice, int depth) {
+        double tick = instrument.getTickSize();
+        FractalHierarchy hierarchy = FractalHierarchy.of(barSize);
+        double[] th = new double[2 * depth + 1];
+        for (int k = -depth; k <= depth; k++) {
+            th[k + depth] = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, basePrice, hierarchy.percentage(k)) * tick;
+        }
+        return new THBundle(hierarchy, depth, th);
     }
 
     /**
@@ -79,6 +99,16 @@ public final class FractalUtil {
      */
     public static double[] getHistoricalRange(DataSeries series, Settings settings,
                                               double cachedHigh, double cachedLow, boolean manualMode) {
+        return getHistoricalRange(series, settings, cachedHigh, cachedLow, manualMode, series.size() - 51);
+    }
+
+    /**
+     * Same as {@link #getHistoricalRange(DataSeries, Settings, double, double, boolean)} with the
+     * cached extremes as a range index: they already include every bar up to
+     * {@code coveredThrough}, so only the bars after it are scanned (normally just the live bar).
+     */
+    public static double[] getHistoricalRange(DataSeries series, Settings settings,
+                                              double cachedHigh, double cachedLow, boolean manualMode, int coveredThrough) {
         if (manualMode) {
             double manualHigh = settings.getDouble(com.biotak.config.SettingsRepository.S_MANUAL_HIGH, 0);
             double manualLow  = settings.getDouble(com.biotak.config.SettingsRepository.S_MANUAL_LOW, 0);
@@ -90,9 +120,9 @@ public final class FractalUtil {
                                cachedLow != Double.POSITIVE_INFINITY;
         
         if (hasValidCache) {
-            // Only check the last few bars for new extremes
+            // Only check the bars the cached extremes do not cover yet
             int sz = series.size();
-            int startIndex = Math.max(0, sz - 50); // Check last 50 bars only
+            int startIndex = Math.max(0, coveredThrough + 1);
             
             double recentHigh = cachedHigh;
             double recentLow = cachedLow;
@@ -131,25 +161,19 @@ public final class FractalUtil {
         };
     }
 
-    private static double calcTH(Instrument inst, BarSize size, double basePrice, double tick) {
-        double perc = TimeframeUtil.getTimeframePercentage(size);
-        return com.biotak.util.OptimizedCalculations.calculateTHPoints(inst, basePrice, perc) * tick;
-    }
-
     /**
      * Builds a complete M-map (label → distance in price) used for Ruler-matching.
      * The map شامل تمام برچسب‌های موجود در power-of-2 و power-of-3 لیست‌هاست.
      */
-    public static Map<String, Double> buildMMap(DataSeries series, double basePrice, double mScale) {
+    public static Map<String, Double> buildMMap(Instrument inst, double basePrice, double mScale) {
         Map<String, Double> out = new HashMap<>();
-        Instrument inst = series.getInstrument();
         double tick = inst.getTickSize();
 
         // Iterate over both fractal maps
         java.util.function.BiConsumer<Integer,String> adder = (min,label)->{
             if (label==null||label.isEmpty()) return;
             if (out.containsKey(label)) return;
-            double perc   = TimeframeUtil.getTimeframePercentageFromMinutes(min);
+            double perc   = TimeframeRegistry.percentage(TimeframeRegistry.intern(min));
             double thPts  = com.biotak.util.OptimizedCalculations.calculateTHPoints(inst, basePrice, perc) * tick;
             double mVal   = mScale * thPts;
             if (mVal>0) out.put(label, mVal);
@@ -205,7 +229,7 @@ public final class FractalUtil {
             if (out.containsKey(label)) return;
             
             // Calculate TH for this timeframe (same as M method)
-            double perc = TimeframeUtil.getTimeframePercentageFromMinutes(minutes);
+            double perc = TimeframeRegistry.percentage(TimeframeRegistry.intern(minutes));
             double thPts = com.biotak.util.OptimizedCalculations.calculateTHPoints(instrument, basePrice, perc) * tick;
             
             // For ATR matching: we store 1×ATR value (not 3×ATR)
@@ -217,39 +241,47 @@ public final class FractalUtil {
             }
         };
         
-        // Add all fractal timeframes for comprehensive coverage
-        TimeframeUtil.getFractalMinutesMap().forEach(adder);
-        TimeframeUtil.getPower3MinutesMap().forEach(adder);
-        
-        // Add additional common timeframes to ensure comprehensive coverage
-        Map<Integer, String> additionalTimeframes = Map.of(
-            1, "1m",      // 1 minute
-            5, "5m",      // 5 minutes  
-            15, "15m",    // 15 minutes
-            30, "30m",    // 30 minutes
-            60, "1H",     // 1 hour
-            240, "4H",    // 4 hours
-            1440, "1D",   // 1 day
-            10080, "1W"   // 1 week
-        );
-        
-        additionalTimeframes.forEach(adder);
+        // All fractal timeframes plus the common ones, for comprehensive coverage
+        atrTimeframes().forEach((minutes, labels) -> labels.forEach(label -> adder.accept(minutes, label)));
         
         return out;
     }
 
+    /**
+     * جدول تایم‌فریم‌های ATR - Timeframes the comprehensive ATR map covers, by length in minutes:
+     * the power-of-2 and power-of-3 fractal timeframes plus the common ones (1m … 1W).
+     * Lengths shared by two sets carry both labels, fractal label first.
+     */
+    public static java.util.TreeMap<Integer, java.util.List<String>> atrTimeframes() {
+        java.util.TreeMap<Integer, java.util.List<String>> out = new java.util.TreeMap<>();
+        java.util.function.BiConsumer<Integer, String> put = (minutes, label) -> {
+            java.util.List<String> labels = out.computeIfAbsent(minutes, k -> new java.util.ArrayList<>(2));
+            if (!labels.contains(label)) labels.add(label);
+        };
+        TimeframeUtil.getFractalMinutesMap().forEach(put);
+        TimeframeUtil.getPower3MinutesMap().forEach(put);
+        put.accept(1, "1m");
+        put.accept(5, "5m");
+        put.accept(15, "15m");
+        put.accept(30, "30m");
+        put.accept(60, "1H");
+        put.accept(240, "4H");
+        put.accept(1440, "1D");
+        put.accept(10080, "1W");
+        return out;
+    }
+
     /**
      * Builds a comprehensive step values map for any step type (E, TP, TH, SS, LS)
      * used for ruler matching.
      *
-     * @param series DataSeries for instrument information
+     * @param inst Instrument of the chart
      * @param basePrice Current price for TH calculations
      * @param stepType Type of step ("E", "TP", "TH", "SS", "LS")
      * @return Map of timeframe labels to step values in price units
      */
-    public static Map<String, Double> buildStepValuesMap(DataSeries series, double basePrice, String stepType) {
+    public static Map<String, Double> buildStepValuesMap(Instrument inst, double basePrice, String stepType) {
         Map<String, Double> out = new HashMap<>();
-        Instrument inst = series.getInstrument();
         double tick = inst.getTickSize();
         
         // Define the multiplier based on step type
@@ -266,7 +298,7 @@ public final class FractalUtil {
         java.util.function.BiConsumer<Integer,String> adder = (min,label)->{
             if (label==null||label.isEmpty()) return;
             if (out.containsKey(label)) return;
-            double perc = TimeframeUtil.getTimeframePercentageFromMinutes(min);
+            double perc = TimeframeRegistry.percentage(TimeframeRegistry.intern(min));
             double thPts = com.biotak.util.OptimizedCalculations.calculateTHPoints(inst, basePrice, perc) * tick;
             double stepVal = multiplier * thPts;
             if (stepVal > 0) out.put(label, stepVal);
@@ -332,14 +364,10 @@ public final class FractalUtil {
         if (exactMinutes <= 0) return "1m";
         
         // For timeframes less than 60 minutes, show decimal minutes
+        // (one decimal, ".0" dropped: 16.1m, 15m)
         if (exactMinutes < 60) {
-            // Round to 1 decimal place for readability
-            double rounded = Math.round(exactMinutes * 10.0) / 10.0;
-            // If it rounds to a whole number, don't show .0
-            if (rounded == Math.floor(rounded)) {
-                return String.format("%.0fm", rounded);
-            } else {
-                return String.format("%.1fm", rounded);
+            try (ScratchArena arena = ScratchArena.open()) {
+                return FastFormat.appendTrimmed(arena.builder(), exactMinutes, 1).append('m').toString();
             }
         }
         
@@ -350,14 +378,10 @@ public final class FractalUtil {
         if (remainingMinutes < 0.1) {
             // Very close to exact hour
             return hours + "H";
-        } else {
-            // Round remaining minutes to 1 decimal place
-            double roundedMinutes = Math.round(remainingMinutes * 10.0) / 10.0;
-            if (roundedMinutes == Math.floor(roundedMinutes)) {
-                return String.format("%dH%.0fm", hours, roundedMinutes);
-            } else {
-                return String.format("%dH%.1fm", hours, roundedMinutes);
-            }
+        }
+        try (ScratchArena arena = ScratchArena.open()) {
+            StringBuilder sb = arena.builder().append(hours).append('H');
+            return FastFormat.appendTrimmed(sb, remainingMinutes, 1).append('m').toString();
         }
     }
     
@@ -0,0 +1,208 @@
+package com.biotak.util;
+
+import com.biotak.config.BiotakConfig;
+import com.biotak.debug.AdvancedLogger;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * کنترل فشار حافظه - Sheds optional memory when the old generation passes {@code memory.threshold}.
+ * <p>
+ * Sets usage and collection-usage thresholds on the old-generation heap pool(s) at
+ * {@code memory.threshold} percent of their maximum and listens for the JVM's threshold
+ * notifications. Pressure starts on a collection-usage notification (usage left after a GC),
+ * or on a plain usage one for pools that cannot report post-GC usage. On entering it clears {@link CacheManager}, {@link SmartCache}
+ * and the {@link ComputationCache} tables, stops the {@link AsyncLogger} recent-log ring,
+ * suspends DEBUG/TRACE logging and caps level lines per side at {@link #PRESSURE_LEVEL_CAP}.
+ * A maintenance task then polls post-GC usage and restores everything once it is
+ * {@value #RESTORE_MARGIN_PCT} points below the threshold. Further notifications while under
+ * pressure are counted but do not trim again. Caches refill on demand.
+ * <p>
+ * Every transition is logged, and {@link #debugLines()} feeds the InfoPanel debug rows.
+ * The threshold follows live changes of {@code memory.threshold}.
+ */
+public final class HeapGovernor {
+
+    /** Maximum level lines drawn above and below the midpoint while under pressure. */
+    public static final int PRESSURE_LEVEL_CAP = 20;
+
+    private static final double RESTORE_MARGIN_PCT = 10.0;
+    private static final long RECOVERY_POLL_SECONDS = 5;
+
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+    private static final List<MemoryPoolMXBean> POOLS = new CopyOnWriteArrayList<>();
+    private static final AtomicLong PRESSURE_EVENTS = new AtomicLong();
+    private static final AtomicLong TRIMS = new AtomicLong();
+
+    private static volatile boolean underPressure;
+    private static volatile double thresholdPct;
+    private static volatile long pressureSinceMs;
+    private static volatile boolean collectionThresholds; // some watched pool reports post-GC usage
+    private static NotificationListener listener;        // guarded by HeapGovernor.class
+    private static BiotakExecutors.Registration recoveryPoll; // guarded by HeapGovernor.class
+
+    private HeapGovernor() {}
+
+    /**
+     * Registers the threshold listener once per JVM; later calls do nothing.
+     */
+    public static synchronized void install() {
+        if (!INSTALLED.compareAndSet(false, true)) return;
+        MemoryPoolMXBean largest = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()) continue;
+            if (pool.getUsage().getMax() <= 0) continue;
+            String name = pool.getName();
+            if (name.contains("Old") || name.contains("Tenured")) POOLS.add(pool);
+            if (largest == null || pool.getUsage().getMax() > largest.getUsage().getMax()) largest = pool;
+        }
+        // Single-generation collectors (Shenandoah, non-generational ZGC) have one heap pool
+        if (POOLS.isEmpty() && largest != null) POOLS.add(largest);
+        if (POOLS.isEmpty()) {
+            AdvancedLogger.warn("HeapGovernor", "install", "No heap pool supports usage thresholds; governor disabled");
+            return;
+        }
+
+        applyThreshold(BiotakConfig.getInstance().snapshot().memoryThreshold());
+        listener = HeapGovernor::onNotification;
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(listener, null, null);
+        BiotakConfig.getInstance().subscribe(c -> {
+            if (c.memoryThreshold() != thresholdPct) applyThreshold(c.memoryThreshold());
+        });
+        BiotakExecutors.onShutdown(HeapGovernor::uninstall);
+    }
+
+    private static synchronized void applyThreshold(double pct) {
+        thresholdPct = pct;
+        for (MemoryPoolMXBean pool : POOLS) {
+            long bytes = (long) (pool.getUsage().getMax() * pct / 100.0);
+            pool.setUsageThreshold(bytes);
+            if (pool.isCollectionUsageThresholdSupported()) {
+                pool.setCollectionUsageThreshold(bytes);
+                collectionThresholds = true;
+            }
+        }
+        AdvancedLogger.info("HeapGovernor", "applyThreshold", "Heap threshold set to %.1f%% on %s", pct, poolNames());
+    }
+
+    private static void onNotification(Notification n, Object handback) {
+        String type = n.getType();
+        // Post-GC usage only: live usage passes the threshold with garbage the next collection frees.
+        // Pools without collection thresholds can only report live usage
+        boolean exceeded = MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)
+                || (!collectionThresholds && MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type));
+        if (exceeded && !underPressure) {
+            // Runs on the JMX notification thread; do the work off it
+            BiotakExecutors.scheduled().execute(HeapGovernor::enterPressure);
+        }
+    }
+
+    private static synchronized void enterPressure() {
+        if (BiotakExecutors.isShutdown()) return;
+        PRESSURE_EVENTS.incrementAndGet();
+        if (underPressure) return; // already trimmed; the recovery poll decides when it ends
+        double usage = usagePct(false);
+        trimCaches();
+        underPressure = true;
+        pressureSinceMs = System.currentTimeMillis();
+        AdvancedLogger.warn("HeapGovernor", "enterPressure",
+            "Heap pressure %.1f%% >= %.1f%%: caches cleared, recent-log ring dropped, debug logging paused, levels capped at %d",
+            usage, thresholdPct, PRESSURE_LEVEL_CAP);
+        AsyncLogger.setRecentLogsRetained(false);
+        AdvancedLogger.setDebugSuspended(true);
+        recoveryPoll = BiotakExecutors.maintain(HeapGovernor::checkRecovery, RECOVERY_POLL_SECONDS);
+    }
+
+    private static void trimCaches() {
+        CacheManager.clearAll();
+        SmartCache.clear();
+        ComputationCache.trim();
+        TRIMS.incrementAndGet();
+    }
+
+    private static synchronized void checkRecovery() {
+        if (!underPressure) return;
+        double usage = usagePct(true);
+        if (usage >= thresholdPct - RESTORE_MARGIN_PCT) return;
+        underPressure = false;
+        if (recoveryPoll != null) {
+            recoveryPoll.cancel();
+            recoveryPoll = null;
+        }
+        AdvancedLogger.setDebugSuspended(false);
+        AsyncLogger.setRecentLogsRetained(true);
+        AdvancedLogger.info("HeapGovernor", "checkRecovery",
+            "Heap back to %.1f%% after %d s: debug logging, recent-log ring and level limits restored",
+            usage, (System.currentTimeMillis() - pressureSinceMs) / 1000);
+    }
+
+    /**
+     * Highest usage over the watched pools, in percent of max. With {@code afterGc} it reads
+     * post-GC usage, so garbage that has not been collected yet does not hold the governor
+     * in pressure mode.
+     */
+    private static double usagePct(boolean afterGc) {
+        double worst = 0;
+        for (MemoryPoolMXBean pool : POOLS) {
+            MemoryUsage u = afterGc && pool.isCollectionUsageThresholdSupported() ? pool.getCollectionUsage() : null;
+            if (u == null) u = pool.getUsage();
+            long max = u.getMax() > 0 ? u.getMax() : pool.getUsage().getMax();
+            if (max > 0) worst = Math.max(worst, u.getUsed() * 100.0 / max);
+        }
+        return worst;
+    }
+
+    private static String poolNames() {
+        List<String> names = new ArrayList<>(POOLS.size());
+        for (MemoryPoolMXBean pool : POOLS) names.add(pool.getName());
+        return String.join(", ", names);
+    }
+
+    private static synchronized void uninstall() {
+        if (recoveryPoll != null) recoveryPoll.cancel();
+        if (listener == null) return;
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(listener);
+        } catch (ListenerNotFoundException ignored) {
+            // already gone
+        }
+        listener = null;
+    }
+
+    public static boolean isUnderPressure() {
+        return underPressure;
+    }
+
+    /**
+     * Upper bound for level lines per side: {@link #PRESSURE_LEVEL_CAP} under pressure, otherwise unlimited.
+     */
+    public static int levelCap() {
+        return underPressure ? PRESSURE_LEVEL_CAP : Integer.MAX_VALUE;
+    }
+
+    /**
+     * One line for the InfoPanel debug rows; empty if the governor is not active.
+     */
+    public static List<String> debugLines() {
+        if (POOLS.isEmpty()) return List.of();
+        StringBuilder sb = new StringBuilder(48).append("heap ");
+        FastFormat.appendFixed(sb, usagePct(false), 0).append("%/");
+        FastFormat.appendFixed(sb, thresholdPct, 0).append('%');
+        if (underPressure) sb.append(" PRESSURE ").append((System.currentTimeMillis() - pressureSinceMs) / 1000).append('s');
+        sb.append(" events=").append(PRESSURE_EVENTS.get()).append(" trims=").append(TRIMS.get());
+        return List.of(sb.toString());
+    }
+}
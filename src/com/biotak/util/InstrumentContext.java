@@ -0,0 +1,165 @@
+package com.biotak.util;
+
+import com.biotak.debug.AdvancedLogger;
+import com.motivewave.platform.sdk.common.Instrument;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * زمینه‌ی محاسباتی مشترک هر نماد - Shared calculation state for one symbol.
+ * <p>
+ * One context per symbol owns that symbol's {@link InstrumentProfile}, its THBundle cache and
+ * its comprehensive ATR tables. Every chart on the symbol uses the same context; charts on
+ * different symbols use different maps and never contend. Size-based cleanup only sweeps the
+ * context that overflowed.
+ * <p>
+ * Charts {@link #acquire} a context when they first see their instrument and {@link #release}
+ * it when removed. The last release drops the context and everything it holds.
+ * {@link #of} never registers anything: it returns the chart-held context when there is one and
+ * otherwise a detached context that is dropped with the caller, so static helpers, benchmarks and
+ * late background work cannot leave unreferenced contexts behind.
+ */
+public final class InstrumentContext {
+
+    private static final Map<String, InstrumentContext> REGISTRY = new ConcurrentHashMap<>();
+
+    private static final long TH_BUNDLE_EXPIRY_MS = 60000; // 1 minute
+    private static final int MAX_TH_BUNDLES = 512;
+    private static final int MAX_ATR_TABLES = 16;
+
+    private record Timed<T>(T value, long expiresAt) {}
+
+    private final String symbol;
+    private final AtomicInteger refs = new AtomicInteger();
+    private volatile InstrumentProfile profile;
+    private final Map<String, Timed<FractalUtil.THBundle>> thBundles = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, Double>> atrTables = new ConcurrentHashMap<>();
+    private final java.util.Set<String> warmed = ConcurrentHashMap.newKeySet(); // bar sizes warmed for this symbol
+
+    private InstrumentContext(String symbol) {
+        this.symbol = symbol;
+    }
+
+    private static String keyOf(Instrument instrument) {
+        String symbol = instrument.getSymbol();
+        return symbol != null ? symbol : "";
+    }
+
+    /**
+     * Registered context for the instrument's symbol, or a detached one (not shared, not
+     * registered) when no chart holds a reference. Does not hold a reference.
+     */
+    public static InstrumentContext of(Instrument instrument) {
+        String key = keyOf(instrument);
+        InstrumentContext ctx = REGISTRY.get(key);
+        return ctx != null ? ctx : new InstrumentContext(key);
+    }
+
+    /**
+     * Context for the instrument's symbol with one reference held by the caller.
+     */
+    public static InstrumentContext acquire(Instrument instrument) {
+        while (true) {
+            InstrumentContext ctx = REGISTRY.computeIfAbsent(keyOf(instrument), InstrumentContext::new);
+            synchronized (ctx) {
+                // A concurrent last release may have just unregistered it
+                if (REGISTRY.get(ctx.symbol) == ctx) {
+                    ctx.refs.incrementAndGet();
+                    return ctx;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops one reference; the last one unregisters the context and frees its tables.
+     */
+    public void release() {
+        synchronized (this) {
+            if (refs.decrementAndGet() > 0) return;
+            refs.set(0);
+            REGISTRY.remove(symbol, this);
+        }
+        thBundles.clear();
+        atrTables.clear();
+        warmed.clear();
+        AdvancedLogger.debug("InstrumentContext", "release", "Released context for %s", symbol);
+    }
+
+    public String getSymbol() { return symbol; }
+
+    /**
+     * Claims the warm-up of {@code barSize} on this context; {@code false} if it already ran or is running.
+     * Cleared with the rest of the context on the last release.
+     */
+    public boolean claimWarmup(String barSize) {
+        return warmed.add(barSize);
+    }
+
+    public int getReferenceCount() { return refs.get(); }
+
+    /**
+     * Symbol constants, computed on first use and rebuilt if the tick size changes.
+     */
+    public InstrumentProfile profile(Instrument instrument) {
+        InstrumentProfile p = profile;
+        double tick = instrument.getTickSize();
+        if (p == null || p.tickSize() != tick) {
+            p = new InstrumentProfile(symbol, tick, UnitConverter.computePipMultiplier(instrument),
+                    FastFormat.tickDecimals(tick));
+            profile = p;
+        }
+        return p;
+    }
+
+    /**
+     * Cached THBundle for {@code key} (bar size and rounded base price), loading it if missing or expired.
+     */
+    public FractalUtil.THBundle thBundle(String key, Supplier<FractalUtil.THBundle> loader) {
+        long now = System.currentTimeMillis();
+        Timed<FractalUtil.THBundle> cached = thBundles.get(key);
+        if (cached != null && now <= cached.expiresAt()) {
+            return cached.value();
+        }
+        FractalUtil.THBundle value = loader.get();
+        thBundles.put(key, new Timed<>(value, now + TH_BUNDLE_EXPIRY_MS));
+        if (thBundles.size() > MAX_TH_BUNDLES) {
+            thBundles.values().removeIf(t -> now > t.expiresAt());
+            if (thBundles.size() > MAX_TH_BUNDLES) thBundles.clear();
+        }
+        return value;
+    }
+
+    /**
+     * Comprehensive ATR table for a base price, shared by every chart on the symbol.
+     * Prices are keyed in ticks, so charts reading the same live price hit the same table.
+     */
+    public Map<String, Double> comprehensiveAtr(Instrument instrument, double basePrice) {
+        double tick = instrument.getTickSize() > 0 ? instrument.getTickSize() : 1e-5;
+        long basePriceTicks = Math.round(basePrice / tick);
+        Map<String, Double> table = atrTables.get(basePriceTicks);
+        if (table != null) return table;
+        table = Map.copyOf(FractalUtil.buildComprehensiveATRMap(basePrice, instrument));
+        if (atrTables.size() >= MAX_ATR_TABLES) atrTables.clear();
+        atrTables.put(basePriceTicks, table);
+        return table;
+    }
+
+    /**
+     * Empties the THBundle and ATR tables of every context but keeps the contexts registered,
+     * so charts holding a reference keep working and simply reload on next use.
+     */
+    public static void trimAll() {
+        for (InstrumentContext ctx : REGISTRY.values()) {
+            ctx.thBundles.clear();
+            ctx.atrTables.clear();
+        }
+    }
+
+    public static int registeredCount() {
+        return REGISTRY.size();
+    }
+}
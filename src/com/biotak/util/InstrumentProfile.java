@@ -0,0 +1,9 @@
+package com.biotak.util;
+
+/**
+ * مشخصات ثابت یک نماد - Per-symbol constants used by the unit conversions.
+ * Built once per {@link InstrumentContext} (and again only if the tick size changes).
+ *
+ * @param priceDecimals decimals needed to print a tick multiple exactly, see {@link FastFormat#tickDecimals}
+ */
+public record InstrumentProfile(String symbol, double tickSize, double pipMultiplier, int priceDecimals) {}
@@ -123,23 +123,13 @@ public final class OptimizedCalculations {
     }
     
     /**
-     * Batch calculation for multiple levels to reduce overhead
+     * Batch calculation for multiple levels into a caller buffer of at least {@code count}; returns {@code out}.
      */
-    public static double[] calculateMultipleLevels(double basePrice, double stepSize, int count) {
-        double[] levels = PoolManager.getDoubleArray(count);
-        
-        try {
-            for (int i = 0; i < count; i++) {
-                levels[i] = basePrice + (stepSize * (i + 1));
-            }
-            
-            // Return a copy to avoid pool interference
-            double[] result = new double[count];
-            System.arraycopy(levels, 0, result, 0, count);
-            return result;
-        } finally {
-            PoolManager.releaseDoubleArray(levels);
+    public static double[] calculateMultipleLevels(double basePrice, double stepSize, int count, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = basePrice + (stepSize * (i + 1));
         }
+        return out;
     }
     
     /**
@@ -0,0 +1,100 @@
+package com.biotak.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * حافظه‌ی موقت هر رشته - Per-thread scratch buffers with scope reset.
+ * <p>
+ * Replaces the shared object pools. Each thread owns one arena, so borrowing takes no lock
+ * and returning allocates nothing. Buffers are handed out in stack order inside a scope
+ * and all come back when the scope closes:
+ * <pre>
+ *   try (ScratchArena a = ScratchArena.open()) {
+ *       StringBuilder sb = a.builder();
+ *       List&lt;String&gt; lines = a.stringList();
+ *       ...
+ *   }
+ * </pre>
+ * It serves the text paths (InfoPanel lines, joined strings); the level computation builds
+ * immutable results that outlive any scope and does not use it. Builders and lists keep
+ * their grown capacity and are emptied on hand-out. Nothing borrowed may escape the scope;
+ * copy out anything that must outlive it, as {@code sb.toString()} does.
+ */
+public final class ScratchArena implements AutoCloseable {
+
+    private static final ThreadLocal<ScratchArena> ARENA = ThreadLocal.withInitial(ScratchArena::new);
+
+    private static final int MAX_DEPTH = 16;
+    private static final int MAX_RETAINED_CHARS = 1 << 16; // larger builders are trimmed on hand-out
+
+    private StringBuilder[] builders = new StringBuilder[4];
+    @SuppressWarnings("unchecked")
+    private ArrayList<String>[] lists = new ArrayList[4];
+    private int builderTop, listTop;
+
+    // Saved tops per open scope: [depth][builders, lists]
+    private final int[][] marks = new int[MAX_DEPTH][2];
+    private int depth;
+
+    private ScratchArena() {}
+
+    /**
+     * Opens a scope on the calling thread's arena; close it with try-with-resources.
+     */
+    public static ScratchArena open() {
+        ScratchArena a = ARENA.get();
+        if (a.depth == MAX_DEPTH) throw new IllegalStateException("ScratchArena scopes nested deeper than " + MAX_DEPTH);
+        int[] m = a.marks[a.depth++];
+        m[0] = a.builderTop;
+        m[1] = a.listTop;
+        return a;
+    }
+
+    /**
+     * Returns everything borrowed since the matching {@link #open()}.
+     */
+    @Override
+    public void close() {
+        if (depth == 0) throw new IllegalStateException("ScratchArena closed more often than opened");
+        int[] m = marks[--depth];
+        builderTop = m[0];
+        listTop = m[1];
+    }
+
+    /**
+     * An empty StringBuilder.
+     */
+    public StringBuilder builder() {
+        checkOpen();
+        if (builderTop == builders.length) builders = Arrays.copyOf(builders, builderTop * 2);
+        StringBuilder sb = builders[builderTop];
+        if (sb == null || sb.capacity() > MAX_RETAINED_CHARS) {
+            sb = new StringBuilder(128);
+            builders[builderTop] = sb;
+        }
+        builderTop++;
+        sb.setLength(0);
+        return sb;
+    }
+
+    /**
+     * An empty list of strings.
+     */
+    public ArrayList<String> stringList() {
+        checkOpen();
+        if (listTop == lists.length) lists = Arrays.copyOf(lists, listTop * 2);
+        ArrayList<String> list = lists[listTop];
+        if (list == null) {
+            list = new ArrayList<>(16);
+            lists[listTop] = list;
+        }
+        listTop++;
+        list.clear();
+        return list;
+    }
+
+    private void checkOpen() {
+        if (depth == 0) throw new IllegalStateException("ScratchArena used outside open()/close()");
+    }
+}
@@ -5,14 +5,6 @@ package com.biotak.util;
  */
 public final class StringUtils {
     
-    // Thread-local DecimalFormat instances for better performance
-    private static final ThreadLocal<java.text.DecimalFormat> FORMAT_1F_TL = 
-        ThreadLocal.withInitial(() -> new java.text.DecimalFormat("#.#"));
-    private static final ThreadLocal<java.text.DecimalFormat> FORMAT_2F_TL = 
-        ThreadLocal.withInitial(() -> new java.text.DecimalFormat("#.##"));
-    private static final ThreadLocal<java.text.DecimalFormat> FORMAT_5F_TL = 
-        ThreadLocal.withInitial(() -> new java.text.DecimalFormat("#.#####"));
-    
     // Thread-local StringBuilder for thread-safe operations - optimized size
     private static final ThreadLocal<StringBuilder> THREAD_LOCAL_SB = 
         ThreadLocal.withInitial(() -> new StringBuilder(32)); // Reduced initial capacity
@@ -20,24 +12,24 @@ public final class StringUtils {
     private StringUtils() {}
     
     /**
-     * Format a double to 1 decimal place efficiently
+     * Format a double to at most 1 decimal place (trailing zeros dropped, cached per thread)
      */
     public static String format1f(double value) {
-        return FORMAT_1F_TL.get().format(value);
+        return FastFormat.trimmed(value, 1);
     }
     
     /**
      * Format a double to 2 decimal places efficiently
      */
     public static String format2f(double value) {
-        return FORMAT_2F_TL.get().format(value);
+        return FastFormat.trimmed(value, 2);
     }
     
     /**
      * Format a double to 5 decimal places efficiently
      */
     public static String format5f(double value) {
-        return FORMAT_5F_TL.get().format(value);
+        return FastFormat.trimmed(value, 5);
     }
     
     /**
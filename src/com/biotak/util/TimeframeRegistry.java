@@ -0,0 +1,113 @@
+package com.biotak.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * رجیستری تایم‌فریم‌ها - Interns timeframes as compact int ids with precomputed attributes.
+ * <p>
+ * Every timeframe length (in seconds, so {@code S15} and {@code M1} are distinct) gets one id on
+ * first sight; its TH percentage and ATR period are computed once then and read back by index. Labels such as {@code "H1+M4"} or {@code "6H52m"} are parsed once and cached, and the
+ * ruler matchers return ids directly, so neither the ruler nor the calculation path re-parses a
+ * label. Fractal navigation between lengths lives in {@link FractalHierarchy}, which reads its
+ * per-level attributes from here. The fractal and common ATR timeframes are registered up front;
+ * other lengths are added on demand up to {@link #MAX_IDS}.
+ * <p>
+ * Reads are lock-free: the attribute arrays are replaced, never mutated in place, and published
+ * through a volatile field. Interning a new length takes the class lock.
+ */
+public final class TimeframeRegistry {
+
+    /** Id returned for a label that does not parse or when the registry is full. */
+    public static final int UNKNOWN = -1;
+
+    /** Upper bound on distinct timeframe ids. */
+    public static final int MAX_IDS = 4096;
+
+    private static final int MAX_CACHED_LABELS = 8192;
+
+    private record Table(long[] seconds, double[] percentage, int[] atrPeriod, int size) {}
+
+    private static volatile Table table = new Table(new long[64], new double[64], new int[64], 0);
+    private static final Map<Long, Integer> ID_BY_SECONDS = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> ID_BY_LABEL = new ConcurrentHashMap<>();
+
+    static {
+        for (Map.Entry<Integer, List<String>> e : FractalUtil.atrTimeframes().entrySet()) {
+            int id = intern(e.getKey());
+            for (String label : e.getValue()) ID_BY_LABEL.put(label, id);
+        }
+    }
+
+    private TimeframeRegistry() {}
+
+    /**
+     * Id for a timeframe length in minutes, registering it if needed.
+     *
+     * @return the id, or {@link #UNKNOWN} for a non-positive length or a full registry
+     */
+    public static int intern(int minutes) {
+        return minutes <= 0 ? UNKNOWN : internSeconds(minutes * 60L);
+    }
+
+    /** Id for a timeframe length in seconds; see {@link #intern(int)}. */
+    public static int internSeconds(long seconds) {
+        if (seconds <= 0) return UNKNOWN;
+        Integer id = ID_BY_SECONDS.get(seconds);
+        return id != null ? id : register(seconds);
+    }
+
+    private static synchronized int register(long seconds) {
+        Integer existing = ID_BY_SECONDS.get(seconds);
+        if (existing != null) return existing;
+        Table t = table;
+        if (t.size() >= MAX_IDS) return UNKNOWN;
+        int id = t.size();
+        int cap = t.seconds().length;
+        int newCap = id < cap ? cap : cap * 2;
+        long[] sec = Arrays.copyOf(t.seconds(), newCap);
+        double[] p = Arrays.copyOf(t.percentage(), newCap);
+        int[] a = Arrays.copyOf(t.atrPeriod(), newCap);
+        sec[id] = seconds;
+        int minutes = (int) Math.min(Integer.MAX_VALUE, seconds / 60);
+        p[id] = seconds % 60 == 0 ? TimeframeUtil.getTimeframePercentageFromMinutes(minutes)
+                : TimeframeUtil.getTimeframePercentageFromSeconds(seconds);
+        // Seconds lengths use the negative seconds marker of TimeframeUtil.getTotalMinutes
+        a[id] = TimeframeUtil.getAtrPeriodFromMinutes(seconds < 60 ? (int) -seconds : minutes);
+        table = new Table(sec, p, a, id + 1);
+        ID_BY_SECONDS.put(seconds, id);
+        return id;
+    }
+
+    /**
+     * Id for a timeframe label in any form {@link TimeframeUtil#parseCompoundTimeframeSeconds}
+     * accepts. The parse result is cached per label.
+     */
+    public static int idOf(String label) {
+        if (label == null || label.isEmpty() || label.equals("-")) return UNKNOWN;
+        Integer id = ID_BY_LABEL.get(label);
+        if (id != null) return id;
+        int resolved = internSeconds(TimeframeUtil.parseCompoundTimeframeSeconds(label));
+        if (ID_BY_LABEL.size() < MAX_CACHED_LABELS) ID_BY_LABEL.put(label, resolved);
+        return resolved;
+    }
+
+    public static int size() {
+        return table.size();
+    }
+
+    /** Whole minutes of {@code id}; 0 for a sub-minute timeframe. */
+    public static int minutes(int id) {
+        return (int) Math.min(Integer.MAX_VALUE, table.seconds()[id] / 60);
+    }
+
+    public static double percentage(int id) {
+        return table.percentage()[id];
+    }
+
+    public static int atrPeriod(int id) {
+        return table.atrPeriod()[id];
+    }
+}
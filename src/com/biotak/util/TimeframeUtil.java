@@ -72,20 +72,6 @@ public final class TimeframeUtil {
         POWER3_MINUTES_MAP.put(6561, "D4+H13+M21"); // 3^8 = 6561 minutes
     }
 
-    // Enhanced standard timeframe map - ordered by minutes for easy lookup
-    private static final TreeMap<Integer, String> STANDARD_TIMEFRAMES_MAP = new TreeMap<>();
-    static {
-        STANDARD_TIMEFRAMES_MAP.put(1, "M1");       // 1 minute
-        STANDARD_TIMEFRAMES_MAP.put(5, "M5");       // 5 minutes
-        STANDARD_TIMEFRAMES_MAP.put(15, "M15");     // 15 minutes
-        STANDARD_TIMEFRAMES_MAP.put(30, "M30");     // 30 minutes
-        STANDARD_TIMEFRAMES_MAP.put(60, "H1");      // 1 hour
-        STANDARD_TIMEFRAMES_MAP.put(240, "H4");     // 4 hours
-        STANDARD_TIMEFRAMES_MAP.put(1440, "D1");    // 1 day
-        STANDARD_TIMEFRAMES_MAP.put(10080, "W1");   // 1 week
-        STANDARD_TIMEFRAMES_MAP.put(43200, "MN");   // 1 month (approx)
-    }
-
     // Store standard ATR periods for common timeframes
     // ✅ دوره‌های بهینه شده برای هر timeframe - دوره‌های اصلی که بهتر بودند
     private static final Map<String, Integer> STANDARD_ATR_PERIODS = new HashMap<>();
@@ -114,33 +100,6 @@ public final class TimeframeUtil {
         STANDARD_ATR_PERIODS.put("MN", 12);    // 1 month - یک سال
     }
 
-    // Store exact mappings between standard timeframes for pattern and trigger levels
-    // We'll use these only as fallbacks when mathematical calculation doesn't work
-    private static final Map<String, String> PATTERN_TIMEFRAME_MAP = Map.of(
-        "MN", "D1",   // Monthly -> Daily
-        "W1", "H4",   // Weekly -> 4 Hour
-        "D1", "H1",   // Daily -> 1 Hour
-        "H4", "H1",   // 4 Hour -> 1 Hour
-        "H1", "M15",  // 1 Hour -> 15 Min
-        "M30", "M5",  // 30 Min -> 5 Min
-        "M15", "M4",  // 15 Min -> 4 Min (more mathematically accurate)
-        "M5", "M1",   // 5 Min -> 1 Min
-        "M1", "S15"   // 1 Min -> 15 seconds
-    );
-
-    private static final Map<String, String> TRIGGER_TIMEFRAME_MAP = Map.of(
-        "MN", "H4",    // Monthly -> 4 Hour
-        "W1", "H1",    // Weekly -> 1 Hour
-        "D1", "M15",   // Daily -> 15 Min
-        "H4", "M15",   // 4 Hour -> 15 Min
-        "H1", "M5",    // 1 Hour -> 5 Min
-        "M30", "M1",   // 30 Min -> 1 Min
-        "M15", "M1",   // 15 Min -> 1 Min
-        "M5", "M1",    // 5 Min -> 1 Min
-        "M1", "S4"     // 1 Min -> 4 seconds
-    );
-
-
     private TimeframeUtil() {
         // Private constructor to prevent instantiation
     }
@@ -178,6 +137,15 @@ public final class TimeframeUtil {
         return getTimeframePercentage(bs);
     }
 
+    /**
+     * Percentage for a timeframe length in seconds: a seconds bar below one minute, otherwise
+     * whole minutes (the split {@link FractalHierarchy} levels use).
+     */
+    public static double getTimeframePercentageFromSeconds(long seconds) {
+        if (seconds < 60) return getTimeframePercentage(createBarSizeFromSeconds((int) Math.max(1, seconds)));
+        return getTimeframePercentageFromMinutes((int) Math.min(Integer.MAX_VALUE, seconds / 60));
+    }
+
     /**
      * Gets the corresponding percentage for a given bar size based on a predefined fractal mapping.
      * For non-fractal timeframes, it interpolates between the closest fractal timeframes.
@@ -199,6 +167,7 @@ public final class TimeframeUtil {
             if (cached != null) {
                 return cached;
             }
+            var load = com.biotak.debug.BiotakJfr.beginCacheLoad();
             
             double result;
         
@@ -262,6 +231,7 @@ public final class TimeframeUtil {
         
         // Cache the result
         ComputationCache.cachePercentage(cacheKey, result);
+        com.biotak.debug.BiotakJfr.endCacheLoad(load, "percentage", cacheKey);
         
         return result;
         } catch (Exception ex) {
@@ -284,10 +254,23 @@ public final class TimeframeUtil {
         if (cached != null) {
             return cached;
         }
+        var load = com.biotak.debug.BiotakJfr.beginCacheLoad();
+        int result = getAtrPeriodFromMinutes(getTotalMinutes(barSize));
+
+        // Cache the result
+        ComputationCache.cacheAtrPeriod(cacheKey, result);
+        com.biotak.debug.BiotakJfr.endCacheLoad(load, "atrPeriod", cacheKey);
         
+        return result;
+    }
+
+    /**
+     * ATR period for a timeframe length in minutes, by the rules of {@link #getAtrPeriod(BarSize)}.
+     * Negative values are the seconds markers of {@link #getTotalMinutes(BarSize)}.
+     */
+    public static int getAtrPeriodFromMinutes(int totalMinutes) {
         int result;
-        int totalMinutes = getTotalMinutes(barSize);
-        
+
         // Check if this is a fractal timeframe (power of 2 or power of 3)
         boolean isFractalPowerOf2 = totalMinutes > 0 && FRACTAL_MINUTES_MAP.containsKey(totalMinutes);
         boolean isFractalPowerOf3 = totalMinutes > 0 && POWER3_MINUTES_MAP.containsKey(totalMinutes);
@@ -332,10 +315,6 @@ public final class TimeframeUtil {
                 result = Math.max(12, Math.min(52, (int) Math.round(24 * ratio)));
             }
         }
-        
-        // Cache the result
-        ComputationCache.cacheAtrPeriod(cacheKey, result);
-        
         return result;
     }
 
@@ -376,166 +355,6 @@ public final class TimeframeUtil {
         }
     }
 
-    /**
-     * Gets the pattern timeframe string representation (one fractal level down)
-     * for the given timeframe, using precise fractal relationships.
-     * 
-     * For any timeframe (fractal or non-fractal), the pattern timeframe is 
-     * exactly 1/4 of the current timeframe. This follows the principle that 
-     * quadrupling the timeframe doubles the level in fractal structure.
-     * 
-     * @param barSize The original bar size
-     * @return A string representation of the pattern timeframe
-     */
-    public static String getPatternTimeframeString(BarSize barSize) {
-        // Special case for seconds-based timeframes
-        if (barSize.getIntervalType() == Enums.IntervalType.SECOND) {
-            int seconds = barSize.getInterval();
-            // Calculate pattern timeframe (1/4 of current seconds)
-            int patternSeconds = Math.max(1, seconds / 4);
-            // If pattern seconds would be less than 1, use 1 second
-            if (patternSeconds < 1) patternSeconds = 1;
-            return "S" + patternSeconds;
-        }
-        
-        String standardFormat = getStandardTimeframeString(barSize);
-        
-        // Check if we have a direct mapping for this standard timeframe
-        if (PATTERN_TIMEFRAME_MAP.containsKey(standardFormat)) {
-            return PATTERN_TIMEFRAME_MAP.get(standardFormat);
-        }
-        
-        // For all timeframes (standard, fractal powers of 2, powers of 3, and others),
-        // the pattern timeframe is exactly 1/4 of the current timeframe
-        int totalMinutes = getTotalMinutes(barSize);
-        
-        // Handle special seconds-based timeframes (marked with negative values)
-        if (totalMinutes < 0) {
-            // Convert negative value back to seconds
-            int seconds = Math.abs(totalMinutes);
-            // Calculate pattern timeframe (1/4 of current seconds)
-            int patternSeconds = Math.max(1, seconds / 4);
-            return "S" + patternSeconds;
-        }
-        
-        // Pattern is at the timeframe that is exactly 1/4 of the current timeframe
-        // For example: M20 -> M5, M3 -> 45 seconds
-        if (totalMinutes < 4) {
-            // For timeframes smaller than 4 minutes, we need to calculate seconds
-            int totalSeconds = totalMinutes * 60;
-            int patternSeconds = totalSeconds / 4;
-            
-            // Return seconds-based timeframe for small timeframes
-            if (patternSeconds < 60) {
-                return "S" + patternSeconds;
-            } else {
-                return "M" + (patternSeconds / 60);
-            }
-        } else {
-            int patternMinutes = Math.max(1, totalMinutes / 4);
-            
-            // Try to find an exact match in our known timeframes first
-            if (STANDARD_TIMEFRAMES_MAP.containsKey(patternMinutes)) {
-                return STANDARD_TIMEFRAMES_MAP.get(patternMinutes);
-            }
-
-            if (FRACTAL_MINUTES_MAP.containsKey(patternMinutes)) {
-                return FRACTAL_MINUTES_MAP.get(patternMinutes);
-            }
-            
-            if (POWER3_MINUTES_MAP.containsKey(patternMinutes)) {
-                return POWER3_MINUTES_MAP.get(patternMinutes);
-            }
-            
-            // For non-standard timeframes, return the exact value like "M5" or "M11"
-            if (patternMinutes < 60) {
-                return "M" + patternMinutes;
-            } else {
-                // Convert directly to timeframe string (e.g., H1+M15)
-                return getTimeframeString(patternMinutes);
-            }
-        }
-    }
-    
-    /**
-     * Gets the trigger timeframe string representation (two fractal levels down)
-     * for the given timeframe, using precise fractal relationships.
-     * 
-     * For any timeframe (fractal or non-fractal), the trigger timeframe is 
-     * exactly 1/16 of the current timeframe. This follows the principle that 
-     * each fractal level is 1/4 of the previous level, and trigger is two levels down.
-     * 
-     * @param barSize The original bar size
-     * @return A string representation of the trigger timeframe
-     */
-    public static String getTriggerTimeframeString(BarSize barSize) {
-        // Special case for seconds-based timeframes
-        if (barSize.getIntervalType() == Enums.IntervalType.SECOND) {
-            int seconds = barSize.getInterval();
-            // Calculate trigger timeframe (1/16 of current seconds)
-            int triggerSeconds = Math.max(1, seconds / 16);
-            // If trigger seconds would be less than 1, use 1 second
-            if (triggerSeconds < 1) triggerSeconds = 1;
-            return "S" + triggerSeconds;
-        }
-        
-        String standardFormat = getStandardTimeframeString(barSize);
-        
-        // Check if we have a direct mapping for standard timeframes
-        if (TRIGGER_TIMEFRAME_MAP.containsKey(standardFormat)) {
-            return TRIGGER_TIMEFRAME_MAP.get(standardFormat);
-        }
-        
-        // For all timeframes (standard, fractal powers of 2, powers of 3, and others),
-        // the trigger timeframe is exactly 1/16 of the current timeframe (two fractal levels down)
-        int totalMinutes = getTotalMinutes(barSize);
-        
-        // Handle special seconds-based timeframes (marked with negative values)
-        if (totalMinutes < 0) {
-            // Convert negative value back to seconds
-            int seconds = Math.abs(totalMinutes);
-            // Calculate trigger timeframe (1/16 of current seconds)
-            int triggerSeconds = Math.max(1, seconds / 16);
-            return "S" + triggerSeconds;
-        }
-        
-        // For timeframes smaller than 16 minutes, we need to calculate seconds to be more precise
-        if (totalMinutes < 16) {
-            int totalSeconds = totalMinutes * 60;
-            int triggerSeconds = Math.max(1, totalSeconds / 16);
-            
-            // Return seconds-based timeframe for small timeframes
-            if (triggerSeconds < 60) {
-                return "S" + triggerSeconds;
-            } else {
-                return "M" + (triggerSeconds / 60);
-            }
-        } else {
-            int triggerMinutes = Math.max(1, totalMinutes / 16);
-            
-            // Try to find an exact match in our known timeframes first
-            if (STANDARD_TIMEFRAMES_MAP.containsKey(triggerMinutes)) {
-                return STANDARD_TIMEFRAMES_MAP.get(triggerMinutes);
-            }
-            
-            if (FRACTAL_MINUTES_MAP.containsKey(triggerMinutes)) {
-                return FRACTAL_MINUTES_MAP.get(triggerMinutes);
-            }
-            
-            if (POWER3_MINUTES_MAP.containsKey(triggerMinutes)) {
-                return POWER3_MINUTES_MAP.get(triggerMinutes);
-            }
-            
-            // For non-standard timeframes, return the exact value like "M3" or "M7"
-            if (triggerMinutes < 60) {
-                return "M" + triggerMinutes;
-            } else {
-                // Convert directly to timeframe string (e.g., H1+M15)
-                return getTimeframeString(triggerMinutes);
-            }
-        }
-    }
-    
     /**
      * Gets the relative position of a non-fractal timeframe between its neighboring fractal timeframes.
      * This helps understand where a timeframe like M20 sits between M16 and M64.
@@ -619,73 +438,6 @@ public final class TimeframeUtil {
         }
     }
     
-    /**
-     * Converts minutes to a timeframe string
-     */
-    private static String getTimeframeString(int minutes) {
-        if (minutes < 60) {
-            return "M" + minutes;
-        } else if (minutes < 1440) {
-            int hours = minutes / 60;
-            int remainingMinutes = minutes % 60;
-            if (remainingMinutes == 0) {
-                return "H" + hours;
-            } else {
-                return "H" + hours + "+M" + remainingMinutes;
-            }
-        } else {
-            int days = minutes / 1440;
-            int remainingMinutes = minutes % 1440;
-            if (remainingMinutes == 0) {
-                return "D" + days;
-            } else {
-                int hours = remainingMinutes / 60;
-                int mins = remainingMinutes % 60;
-                if (mins == 0) {
-                    return "D" + days + "+H" + hours;
-                } else {
-                    return "D" + days + "+H" + hours + "+M" + mins;
-                }
-            }
-        }
-    }
-    
-    /**
-     * Creates a BarSize object for the pattern timeframe (one fractal level down)
-     * 
-     * @param barSize The original bar size
-     * @return The BarSize for the pattern timeframe
-     */
-    public static BarSize getPatternBarSize(BarSize barSize) {
-        long totalSeconds = getTotalSeconds(barSize);
-        long patternSeconds = Math.max(1, totalSeconds / 4);
-
-        if (patternSeconds < 60) {
-            return createBarSizeFromSeconds((int) patternSeconds);
-        } else {
-            long minutes = Math.max(1, patternSeconds / 60);
-            return BarSize.getBarSize((int) minutes);
-        }
-    }
-
-    /**
-     * Creates a BarSize object for the trigger timeframe (two fractal levels down)
-     * 
-     * @param barSize The original bar size
-     * @return The BarSize for the trigger timeframe
-     */
-    public static BarSize getTriggerBarSize(BarSize barSize) {
-        long totalSeconds = getTotalSeconds(barSize);
-        long triggerSeconds = Math.max(1, totalSeconds / 16);
-
-        if (triggerSeconds < 60) {
-            return createBarSizeFromSeconds((int) triggerSeconds);
-        } else {
-            long minutes = Math.max(1, triggerSeconds / 60);
-            return BarSize.getBarSize((int) minutes);
-        }
-    }
-
     /**
      * Helper method to create a BarSize object from seconds.
      * Attempts to create a seconds-based BarSize using the best available method.
@@ -701,6 +453,32 @@ public final class TimeframeUtil {
         return BarSize.getBarSize(Enums.BarSizeType.LINEAR, Enums.IntervalType.SECOND, seconds);
     }
     
+    /**
+     * Human-readable composite label for a length in minutes ("1D 4H", "2H 8m", "0m").
+     */
+    public static String formatMinutes(long totalMinutes) {
+        long minutes = totalMinutes;
+        long years  = minutes / (365L*24*60); minutes %= 365L*24*60;
+        long months = minutes / (30L*24*60); minutes %= 30L*24*60;
+        long weeks  = minutes / (7L*24*60);  minutes %= 7L*24*60;
+        long days   = minutes / (24*60);     minutes %= 24*60;
+        long hours  = minutes / 60;          minutes %= 60;
+
+        StringBuilder sb = new StringBuilder();
+        if (years  > 0) sb.append(years ).append("Y ");
+        if (months > 0) sb.append(months).append("M ");
+        if (weeks  > 0) sb.append(weeks ).append("W ");
+        if (days   > 0) sb.append(days  ).append("D ");
+        if (hours  > 0) sb.append(hours ).append("H ");
+        if (minutes> 0 || sb.length()==0) sb.append(minutes).append("m");
+        return sb.toString().trim();
+    }
+
+    /** Label for a length in seconds: "45s" below one minute, otherwise {@link #formatMinutes}. */
+    public static String formatSeconds(long seconds) {
+        return seconds < 60 ? seconds + "s" : formatMinutes(seconds / 60);
+    }
+
     /**
      * Converts a BarSize to total minutes for easier timeframe comparison.
      * Special case: For seconds-based timeframes in our FRACTAL_SECONDS_MAP,
@@ -817,55 +595,13 @@ public final class TimeframeUtil {
         return timeframeStr.contains("sec");
     }
 
-    /**
-     * Gets the bar size for the structure level (4x pattern or 16x current timeframe)
-     * 
-     * @param barSize The current bar size
-     * @return The structure level bar size
-     */
-    public static BarSize getStructureBarSize(BarSize barSize) {
-        // Special case for seconds-based timeframes
-        if (barSize.getIntervalType() == Enums.IntervalType.SECOND) {
-            int seconds = barSize.getInterval();
-            // Calculate structure timeframe (16x of current seconds)
-            int structureSeconds = seconds * 16;
-            
-            if (structureSeconds < 60) {
-                // For seconds-based timeframes, use dedicated method
-                return createBarSizeFromSeconds(structureSeconds);
-            } else {
-                // Convert to minutes
-                return BarSize.getBarSize(structureSeconds / 60);
-            }
-        }
-        
-        // For standard timeframes, structure is 16x the current timeframe
-        int totalMinutes = getTotalMinutes(barSize);
-        
-        // Handle special seconds-based timeframes (marked with negative values)
-        if (totalMinutes < 0) {
-            // Convert negative value back to seconds
-            int seconds = Math.abs(totalMinutes);
-            // Calculate structure timeframe (16x of current seconds)
-            int structureSeconds = seconds * 16;
-            
-            if (structureSeconds < 60) {
-                // For seconds-based timeframes, use dedicated method
-                return createBarSizeFromSeconds(structureSeconds);
-            } else {
-                // Convert to minutes
-                return BarSize.getBarSize(structureSeconds / 60);
-            }
-        }
-        
-        // For all other timeframes, structure is 16x the current timeframe in minutes
-        int structureMinutes = totalMinutes * 16;
-        return BarSize.getBarSize(structureMinutes);
-    }
-
     // ------------------------------------------------------------------
     //  NEW PUBLIC UTILITY: Parse compound timeframe label to minutes
     // ------------------------------------------------------------------
+    /** Unit/number pairs of a compound label, in either order (56m / m56, 4H / H4 …). */
+    private static final java.util.regex.Pattern COMPOUND_TF_PATTERN =
+            java.util.regex.Pattern.compile("(\\d+)([mMhHdDwWsS])|([mMhHdDwWsS])(\\d+)");
+
     /**
      * Parses a compound timeframe string (e.g. "H1", "H4+M16", "6H52m", "MN") and returns
      * the total duration in minutes.
@@ -894,14 +630,30 @@ public final class TimeframeUtil {
     public static int parseCompoundTimeframe(String tf) {
         if (tf == null || tf.isEmpty()) return -1;
         if (tf.equalsIgnoreCase("MN")) return 60 * 24 * 30; // treat month ≈ 30 days
+        long seconds = parseTimeframeSeconds(tf, false);
+        return seconds > 0 ? (int) Math.min(Integer.MAX_VALUE, seconds / 60) : -1;
+    }
+
+    /**
+     * Same as {@link #parseCompoundTimeframe} but in seconds, keeping second units exact
+     * ({@code "15s"} is 15, {@code "M1+S30"} is 90).
+     *
+     * @return total seconds or -1 if the input could not be parsed
+     */
+    public static long parseCompoundTimeframeSeconds(String tf) {
+        if (tf == null || tf.isEmpty()) return -1;
+        if (tf.equalsIgnoreCase("MN")) return 60L * 60 * 24 * 30;
+        long seconds = parseTimeframeSeconds(tf, true);
+        return seconds > 0 ? seconds : -1;
+    }
 
-        int minutes = 0;
+    private static long parseTimeframeSeconds(String tf, boolean exactSeconds) {
+        long seconds = 0;
 
         // Normalize by replacing '+' with space to ease regex processing
         String cleaned = tf.replace("+", " ");
 
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("(\\d+)([mMhHdDwWsS])|([mMhHdDwWsS])(\\d+)");
-        java.util.regex.Matcher matcher = pattern.matcher(cleaned);
+        java.util.regex.Matcher matcher = COMPOUND_TF_PATTERN.matcher(cleaned);
         while (matcher.find()) {
             String numStr;
             char unit;
@@ -914,20 +666,21 @@ public final class TimeframeUtil {
             }
             if (numStr == null || numStr.isEmpty()) continue;
             try {
-                int val = Integer.parseInt(numStr);
+                long val = Integer.parseInt(numStr);
                 switch (unit) {
-                    case 'M' -> minutes += val;                    // minutes
-                    case 'H' -> minutes += val * 60;               // hours
-                    case 'D' -> minutes += val * 1440;             // days
-                    case 'W' -> minutes += val * 10080;            // weeks
-                    case 'S' -> minutes += Math.max(1, (int) Math.round(val / 60.0)); // seconds → ≈ minutes
+                    case 'M' -> seconds += val * 60;                 // minutes
+                    case 'H' -> seconds += val * 3600;               // hours
+                    case 'D' -> seconds += val * 86400;              // days
+                    case 'W' -> seconds += val * 604800;             // weeks
+                    case 'S' -> seconds += exactSeconds ? val        // seconds, or ≈ minutes
+                            : Math.max(1, Math.round(val / 60.0)) * 60;
                     default -> {}
                 }
             } catch (NumberFormatException ignore) {
                 // continue parsing other matches
             }
         }
-        return minutes > 0 ? minutes : -1;
+        return seconds;
     }
     
     /**
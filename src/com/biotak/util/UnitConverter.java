@@ -26,17 +26,17 @@ public final class UnitConverter {
      */
     public static double getPipMultiplier(Instrument instrument) {
         if (instrument == null) return 10.0; // Default multiplier
-        
-        // Create cache key from instrument properties
+        return InstrumentContext.of(instrument).profile(instrument).pipMultiplier();
+    }
+
+    /**
+     * Computes the pip multiplier from the symbol and tick size; cached per symbol by
+     * {@link InstrumentContext#profile}.
+     */
+    static double computePipMultiplier(Instrument instrument) {
         String symbol = instrument.getSymbol();
         double tickSize = instrument.getTickSize();
-        String cacheKey = symbol + "_" + tickSize;
-        
-        // Check cache first
-        Double cached = ComputationCache.getCachedPipMultiplier(cacheKey);
-        if (cached != null && cached != 0) {
-            return cached;
-        }
+        var load = com.biotak.debug.BiotakJfr.beginCacheLoad();
         
         double result;
         
@@ -93,8 +93,7 @@ public final class UnitConverter {
             }
         }
         
-        // Cache the result
-        ComputationCache.cachePipMultiplier(cacheKey, result);
+        com.biotak.debug.BiotakJfr.endCacheLoad(load, "pipMultiplier", symbol);
         
         return result;
     }
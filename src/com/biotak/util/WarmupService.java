@@ -0,0 +1,108 @@
+package com.biotak.util;
+
+import com.biotak.debug.AdvancedLogger;
+import com.motivewave.platform.sdk.common.BarSize;
+import com.motivewave.platform.sdk.common.Instrument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * گرم‌کردن موازی جداول هنگام بارگذاری - Parallel warm-up of the fractal tables at startup.
+ * <p>
+ * The first draw on a chart used to hit every cold cache at once. On load the timeframe
+ * percentage and ATR-period tables are filled in parallel, and each chart's symbol gets its
+ * {@link InstrumentProfile}, THBundle and comprehensive ATR table computed in the chart's own
+ * {@link InstrumentContext} as soon as the chart sees its data. Nothing waits for it: a level
+ * computation that runs first takes the cache miss itself, later ones find the tables warm.
+ * <p>
+ * Work runs on the bounded {@link BiotakExecutors#compute()} pool ({@code thread.pool.size}).
+ * A warm-up is one parent task on a virtual thread that forks its subtasks with
+ * {@code invokeAll} and joins them all before reporting.
+ */
+public final class WarmupService {
+
+    private static final AtomicBoolean TIMEFRAMES_STARTED = new AtomicBoolean();
+
+    private WarmupService() {}
+
+    /**
+     * Fills the timeframe percentage and ATR-period tables for every fractal timeframe.
+     * Runs once per process; later calls return immediately.
+     */
+    public static void warmTimeframes() {
+        if (!TIMEFRAMES_STARTED.compareAndSet(false, true)) return;
+        Set<Integer> minutes = new TreeSet<>(TimeframeUtil.getFractalMinutesMap().keySet());
+        minutes.addAll(TimeframeUtil.getPower3MinutesMap().keySet());
+        List<Callable<Void>> tasks = new ArrayList<>(minutes.size());
+        for (int m : minutes) {
+            tasks.add(() -> {
+                BarSize bs = BarSize.getBarSize(m);
+                TimeframeUtil.getTimeframePercentage(bs);
+                TimeframeUtil.getAtrPeriod(bs);
+                return null;
+            });
+        }
+        runScoped("timeframes", tasks);
+    }
+
+    /**
+     * Computes the symbol's profile and the tables the first draw of this chart needs, in
+     * {@code ic}, the context the chart holds. Once per context and bar size; returns at once.
+     *
+     * @param basePrice price the first draw will use (last bid close)
+     */
+    public static void warmInstrument(InstrumentContext ic, Instrument instrument, BarSize barSize, double basePrice) {
+        if (ic == null || instrument == null || barSize == null || !(basePrice > 0)) return;
+        if (!ic.claimWarmup(barSize.toString())) return;
+        List<Callable<Void>> tasks = List.of(
+            () -> {
+                ic.profile(instrument);
+                FractalUtil.calculateTHBundle(instrument, barSize, basePrice);
+                return null;
+            },
+            () -> {
+                FractalHierarchy.of(barSize);
+                TimeframeUtil.getAtrPeriod(barSize);
+                return null;
+            },
+            () -> {
+                ic.comprehensiveAtr(instrument, basePrice);
+                return null;
+            });
+        runScoped(instrument.getSymbol() + " " + barSize, tasks);
+    }
+
+    /**
+     * Forks {@code tasks} on the compute pool from a parent virtual thread and waits for all of them; a failure
+     * is logged and only costs the cache miss later.
+     */
+    private static void runScoped(String name, List<Callable<Void>> tasks) {
+        BiotakExecutors.io().execute(() -> {
+            long t0 = System.nanoTime();
+            int failed = 0;
+            try {
+                for (Future<Void> f : BiotakExecutors.compute().invokeAll(tasks)) {
+                    try {
+                        f.get();
+                    } catch (java.util.concurrent.ExecutionException e) {
+                        failed++;
+                        AdvancedLogger.warn("WarmupService", "run", "Warm-up task for %s failed: %s", name, e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                return; // pools stopped with the last study
+            }
+            AdvancedLogger.performance("WarmupService", "run", "Warmed %s: %d tasks in %.1f ms (%d failed)",
+                name, tasks.size(), (System.nanoTime() - t0) / 1e6, failed);
+        });
+    }
+}